@@ -0,0 +1,46 @@
+package uk.nhs.adaptors.oneoneone.cda.report.util;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares DateUtil with the commons-lang and SimpleDateFormat based parsing it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DateUtilBenchmark {
+
+    @Param({ "201201021234+00", "201201021234+0000", "20120102" })
+    private String timestamp;
+
+    private String pathwaysDate = "2011-02-17T17:31:14.313Z";
+
+    @Benchmark
+    public Date parse() {
+        return DateUtil.parse(timestamp);
+    }
+
+    @Benchmark
+    public Date legacyParse() {
+        return LegacyDateUtil.parse(timestamp);
+    }
+
+    @Benchmark
+    public Date parsePathwaysDate() {
+        return DateUtil.parsePathwaysDate(pathwaysDate);
+    }
+
+    @Benchmark
+    public Date legacyParsePathwaysDate() {
+        return LegacyDateUtil.parsePathwaysDate(pathwaysDate);
+    }
+}
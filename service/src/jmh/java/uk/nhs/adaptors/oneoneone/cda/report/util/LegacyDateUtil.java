@@ -0,0 +1,49 @@
+package uk.nhs.adaptors.oneoneone.cda.report.util;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.time.DateUtils;
+
+/**
+ * DateUtil as it was before the java.time parser, kept as the baseline of {@link DateUtilBenchmark}.
+ */
+final class LegacyDateUtil {
+
+    private LegacyDateUtil() {
+    }
+
+    private static final String[] FORMATS = { "yyyyMMddHHmmX", "yyyyMMddHHmmZ", "yyyyMMdd", };
+
+    static Date parse(String date) {
+        try {
+            return DateUtils.parseDate(date, FORMATS);
+        } catch (ParseException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final String INPUT_PATTERN = "yyyy-MM-dd'T'HH:mm:ss.sss";
+    private static final String OUTPUT_PATTERN = "yyyyMMdd";
+
+    static Date parsePathwaysDate(String dateStr) {
+        Date finalDate = null;
+        if (StringUtils.isNotBlank(dateStr)) {
+            SimpleDateFormat sdfInput = new SimpleDateFormat(INPUT_PATTERN);
+            SimpleDateFormat sdfOutput = new SimpleDateFormat(OUTPUT_PATTERN);
+            sdfOutput.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+            try {
+                Date date = sdfInput.parse(dateStr);
+                String value = sdfOutput.format(date);
+                finalDate = sdfOutput.parse(value);
+            } catch (ParseException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return finalDate;
+    }
+}
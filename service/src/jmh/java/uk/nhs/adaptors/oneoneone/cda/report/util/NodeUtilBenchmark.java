@@ -0,0 +1,98 @@
+package uk.nhs.adaptors.oneoneone.cda.report.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.xmlbeans.XmlException;
+import org.apache.xmlbeans.XmlObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares NodeUtil with the DOM based implementation it replaced. The document is parsed again before every
+ * invocation, as a report is parsed once and each of its nodes read about once, so the DOM nodes created on the first
+ * read are part of the cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NodeUtilBenchmark {
+
+    private static final String NAMES = "<name>Mr John <family>Smith</family></name>";
+    private static final String TITLE = "<title>Patient's <content>Reported</content> Condition</title>";
+    private static final String TEXT = "<text><paragraph>Abdominal pain <content>with vomiting</content></paragraph>"
+        + "<list><item>Onset <content>two days</content> ago</item><item>No fever</item></list></text>";
+
+    private final NodeUtil nodeUtil = new NodeUtil();
+
+    @Param({ "10", "100" })
+    private int sections;
+
+    private String document;
+    private List<XmlObject> names;
+    private List<XmlObject> titles;
+    private List<XmlObject> texts;
+
+    @Setup
+    public void setUp() {
+        StringBuilder builder = new StringBuilder("<ClinicalDocument>");
+        for (int i = 0; i < sections; i++) {
+            builder.append("<section>").append(NAMES).append(TITLE).append(TEXT).append("</section>");
+        }
+        document = builder.append("</ClinicalDocument>").toString();
+    }
+
+    @Setup(Level.Invocation)
+    public void parse() throws XmlException {
+        XmlObject clinicalDocument = XmlObject.Factory.parse(document);
+        names = select(clinicalDocument, "name");
+        titles = select(clinicalDocument, "title");
+        texts = select(clinicalDocument, "text");
+    }
+
+    @Benchmark
+    public void readText(Blackhole blackhole) {
+        for (XmlObject name : names) {
+            blackhole.consume(nodeUtil.hasSubNodes(name));
+            blackhole.consume(nodeUtil.getNodeValueString(name));
+        }
+        for (XmlObject title : titles) {
+            blackhole.consume(nodeUtil.getAllText(title));
+        }
+        for (XmlObject text : texts) {
+            blackhole.consume(nodeUtil.getAllText(text));
+        }
+    }
+
+    @Benchmark
+    public void legacyReadText(Blackhole blackhole) {
+        for (XmlObject name : names) {
+            blackhole.consume(LegacyNodeUtil.hasSubNodes(name));
+            blackhole.consume(LegacyNodeUtil.getNodeValueString(name));
+        }
+        for (XmlObject title : titles) {
+            blackhole.consume(LegacyNodeUtil.getAllText(title.getDomNode()));
+        }
+        for (XmlObject text : texts) {
+            blackhole.consume(LegacyNodeUtil.getAllText(text.getDomNode()));
+        }
+    }
+
+    private static List<XmlObject> select(XmlObject clinicalDocument, String element) {
+        List<XmlObject> elements = new ArrayList<>();
+        for (XmlObject section : clinicalDocument.selectChildren("", "ClinicalDocument")[0].selectChildren("", "section")) {
+            elements.addAll(Arrays.asList(section.selectChildren("", element)));
+        }
+        return elements;
+    }
+}
@@ -1,12 +1,19 @@
 package uk.nhs.adaptors.oneoneone;
 
-import static org.springframework.boot.SpringApplication.run;
-
+import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import uk.nhs.adaptors.oneoneone.cda.report.conversion.BulkConversionRunner;
 
 @SpringBootApplication
 public class OneOneOneApplication {
+
     public static void main(String[] args) {
-        run(OneOneOneApplication.class);
+        ConfigurableApplicationContext context = SpringApplication.run(OneOneOneApplication.class, args);
+        if (context.getBeanProvider(BulkConversionRunner.class).getIfAvailable() != null) {
+            // bulk conversion exits once every report is converted
+            System.exit(SpringApplication.exit(context));
+        }
     }
 }
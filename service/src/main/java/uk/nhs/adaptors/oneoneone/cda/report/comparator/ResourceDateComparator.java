@@ -40,18 +40,18 @@ public class ResourceDateComparator implements Comparator<Resource>, Serializabl
     }
 
     private Date getResourceDate(Resource resource) {
-        switch (resource.getResourceType().name()) {
-            case "Condition":
+        switch (resource.getResourceType()) {
+            case Condition:
                 return ((Condition) resource).getAssertedDate();
-            case "Questionnaire":
+            case Questionnaire:
                 return ((Questionnaire) resource).getDate();
-            case "QuestionnaireResponse":
+            case QuestionnaireResponse:
                 return ((QuestionnaireResponse) resource).getAuthored();
-            case "Provenance":
+            case Provenance:
                 return ((Provenance) resource).getPeriod().getEnd();
-            case "ReferralRequest":
+            case ReferralRequest:
                 return ((ReferralRequest) resource).getAuthoredOn();
-            case "RelatedPerson":
+            case RelatedPerson:
                 return ((RelatedPerson) resource).getPeriod().getEnd();
             default:
                 return null;
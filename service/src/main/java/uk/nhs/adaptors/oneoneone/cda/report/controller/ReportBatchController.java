@@ -0,0 +1,130 @@
+package uk.nhs.adaptors.oneoneone.cda.report.controller;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.toList;
+import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.HttpStatus.PAYLOAD_TOO_LARGE;
+import static org.springframework.http.MediaType.APPLICATION_XML_VALUE;
+import static org.springframework.http.MediaType.MULTIPART_FORM_DATA_VALUE;
+import static org.springframework.http.MediaType.TEXT_XML_VALUE;
+import static uk.nhs.adaptors.oneoneone.cda.report.controller.utils.ReportSenderResolver.CLIENT_CERTIFICATE_DN_HEADER;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.regex.Pattern;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.Part;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartHttpServletRequest;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import uk.nhs.adaptors.oneoneone.cda.report.controller.utils.ReportBatchParserUtil;
+import uk.nhs.adaptors.oneoneone.cda.report.scheduling.ReportBatchExecutor;
+import uk.nhs.adaptors.oneoneone.config.BatchProperties;
+
+/**
+ * Accepts many ITK SOAP messages in one request, for trusted internal replays and re-drives. The messages are either
+ * concatenated in an XML body or sent as the files of a multipart request. Each message is processed in parallel
+ * exactly as if it was posted to /report, and the response lists the ITK response to every message in request order.
+ */
+@RestController
+@ConditionalOnProperty(prefix = "batch", name = "enabled", havingValue = "true")
+@AllArgsConstructor
+@Slf4j
+public class ReportBatchController {
+
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n";
+    private static final Pattern LEADING_XML_DECLARATION = Pattern.compile("^\\s*<\\?xml[^>]*\\?>\\s*");
+
+    private final ReportController reportController;
+    private final ReportBatchExecutor batchExecutor;
+    private final BatchProperties batchProperties;
+
+    @PostMapping(value = "/reports",
+        consumes = {APPLICATION_XML_VALUE, TEXT_XML_VALUE},
+        produces = TEXT_XML_VALUE
+    )
+    public ResponseEntity<String> postReports(HttpServletRequest request,
+        @RequestHeader(value = CLIENT_CERTIFICATE_DN_HEADER, required = false) String clientCertificateDn)
+        throws IOException, InterruptedException {
+        long maxBytes = batchProperties.getMaxRequestSize().toBytes();
+        if (request.getContentLengthLong() > maxBytes) {
+            return rejectRequestSize(maxBytes);
+        }
+        // the body is read up to one byte past the limit, so a request without a content length cannot exceed it either
+        byte[] body = readBody(request, maxBytes + 1);
+        if (body.length > maxBytes) {
+            return rejectRequestSize(maxBytes);
+        }
+        Charset charset = request.getCharacterEncoding() == null ? UTF_8 : Charset.forName(request.getCharacterEncoding());
+        return processReports(ReportBatchParserUtil.splitReports(new String(body, charset)), clientCertificateDn);
+    }
+
+    @PostMapping(value = "/reports",
+        consumes = MULTIPART_FORM_DATA_VALUE,
+        produces = TEXT_XML_VALUE
+    )
+    public ResponseEntity<String> postReportParts(MultipartHttpServletRequest request,
+        @RequestHeader(value = CLIENT_CERTIFICATE_DN_HEADER, required = false) String clientCertificateDn)
+        throws IOException, ServletException, InterruptedException {
+        List<String> reports = new ArrayList<>();
+        // the parts are in request order, unlike the files that are grouped by field name
+        for (Part part : request.getParts()) {
+            if (part.getSubmittedFileName() != null) {
+                try (InputStream content = part.getInputStream()) {
+                    reports.add(new String(content.readAllBytes(), UTF_8));
+                }
+            }
+        }
+        return processReports(reports, clientCertificateDn);
+    }
+
+    private static byte[] readBody(HttpServletRequest request, long maxBytes) throws IOException {
+        try (InputStream content = request.getInputStream()) {
+            return content.readNBytes((int) Math.min(maxBytes, Integer.MAX_VALUE - 8));
+        }
+    }
+
+    private static ResponseEntity<String> rejectRequestSize(long maxBytes) {
+        LOGGER.warn("Rejecting ITK SOAP batch larger than {} bytes", maxBytes);
+        return new ResponseEntity<>(String.format("%s<itkBatchResponse count=\"0\" maxRequestSize=\"%d\"/>\n", XML_DECLARATION,
+            maxBytes), PAYLOAD_TOO_LARGE);
+    }
+
+    private ResponseEntity<String> processReports(List<String> reports, String clientCertificateDn) throws InterruptedException {
+        if (reports.size() > batchProperties.getMaxReports()) {
+            LOGGER.warn("Rejecting ITK SOAP batch of {} reports, the maximum is {}", reports.size(), batchProperties.getMaxReports());
+            return new ResponseEntity<>(String.format("%s<itkBatchResponse count=\"0\" maxReports=\"%d\"/>\n", XML_DECLARATION,
+                batchProperties.getMaxReports()), PAYLOAD_TOO_LARGE);
+        }
+        LOGGER.info("ITK SOAP batch received. Reports: {}", reports.size());
+
+        List<Callable<ResponseEntity<String>>> tasks = reports.stream()
+            .map(report -> (Callable<ResponseEntity<String>>) () -> reportController.postReport(report, clientCertificateDn))
+            .collect(toList());
+        List<ResponseEntity<String>> responses = batchExecutor.invokeAll(tasks);
+
+        StringBuilder body = new StringBuilder(XML_DECLARATION)
+            .append(String.format("<itkBatchResponse count=\"%d\">\n", responses.size()));
+        for (int i = 0; i < responses.size(); i++) {
+            ResponseEntity<String> response = responses.get(i);
+            body.append(String.format("<response index=\"%d\" status=\"%d\">", i, response.getStatusCodeValue()))
+                .append(LEADING_XML_DECLARATION.matcher(response.getBody()).replaceFirst(""))
+                .append("</response>\n");
+        }
+        body.append("</itkBatchResponse>\n");
+        return new ResponseEntity<>(body.toString(), OK);
+    }
+}
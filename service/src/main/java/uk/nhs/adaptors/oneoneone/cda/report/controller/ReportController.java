@@ -1,9 +1,10 @@
 package uk.nhs.adaptors.oneoneone.cda.report.controller;
 
-import static java.util.UUID.randomUUID;
 import static org.springframework.http.HttpStatus.ACCEPTED;
 import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
 import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+import static org.springframework.http.HttpStatus.TOO_MANY_REQUESTS;
 import static org.springframework.http.MediaType.APPLICATION_XML_VALUE;
 import static org.springframework.http.MediaType.TEXT_XML_VALUE;
 import static uk.nhs.adaptors.oneoneone.cda.report.controller.utils.ReportElement.DISTRIBUTION_ENVELOPE;
@@ -13,9 +14,13 @@ import static uk.nhs.adaptors.oneoneone.cda.report.controller.utils.ReportElemen
 import static uk.nhs.adaptors.oneoneone.cda.report.controller.utils.ReportElement.SOAP_HEADER;
 import static uk.nhs.adaptors.oneoneone.cda.report.controller.utils.ReportRequestUtils.extractClinicalDocument;
 import static uk.nhs.adaptors.oneoneone.cda.report.controller.utils.ReportRequestUtils.extractDistributionEnvelope;
+import static uk.nhs.adaptors.oneoneone.cda.report.controller.utils.ReportSenderResolver.CLIENT_CERTIFICATE_DN_HEADER;
+import static uk.nhs.adaptors.oneoneone.cda.report.util.DispositionUtil.getReportPriority;
+import static uk.nhs.adaptors.oneoneone.cda.report.util.IdUtil.randomUuid;
 import static uk.nhs.adaptors.oneoneone.xml.XmlValidator.validate;
 
 import java.util.Map;
+import java.util.Optional;
 
 import org.apache.xmlbeans.XmlException;
 import org.dom4j.DocumentException;
@@ -23,12 +28,15 @@ import org.dom4j.Element;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import uk.nhs.adaptors.oneoneone.cda.report.controller.exceptions.ItkXmlException;
+import uk.nhs.adaptors.oneoneone.cda.report.controller.exceptions.RateLimitExceededException;
+import uk.nhs.adaptors.oneoneone.cda.report.controller.exceptions.ServiceBusyException;
 import uk.nhs.adaptors.oneoneone.cda.report.controller.exceptions.SoapClientException;
 import uk.nhs.adaptors.oneoneone.cda.report.controller.exceptions.SoapMustUnderstandException;
 import uk.nhs.adaptors.oneoneone.cda.report.controller.utils.ItkReportHeader;
@@ -36,6 +44,12 @@ import uk.nhs.adaptors.oneoneone.cda.report.controller.utils.ItkResponseUtil;
 import uk.nhs.adaptors.oneoneone.cda.report.controller.utils.ReportElement;
 import uk.nhs.adaptors.oneoneone.cda.report.controller.utils.ReportItkHeaderParserUtil;
 import uk.nhs.adaptors.oneoneone.cda.report.controller.utils.ReportParserUtil;
+import uk.nhs.adaptors.oneoneone.cda.report.controller.utils.ReportSenderResolver;
+import uk.nhs.adaptors.oneoneone.cda.report.idempotency.IdempotencyStore;
+import uk.nhs.adaptors.oneoneone.cda.report.scheduling.AdaptiveConcurrencyLimiter;
+import uk.nhs.adaptors.oneoneone.cda.report.scheduling.ReportLaneScheduler;
+import uk.nhs.adaptors.oneoneone.cda.report.scheduling.ReportPriority;
+import uk.nhs.adaptors.oneoneone.cda.report.scheduling.SenderRateLimiter;
 import uk.nhs.adaptors.oneoneone.cda.report.service.EncounterReportService;
 import uk.nhs.adaptors.oneoneone.cda.report.validation.ItkValidator;
 import uk.nhs.adaptors.oneoneone.cda.report.validation.SoapValidator;
@@ -49,6 +63,7 @@ public class ReportController {
 
     private static final String CLIENT_ERROR_CODE = "1000";
     private static final String INTERNAL_PROCESSING_ERROR_CODE = "2200";
+    private static final String FAULT_CODE_SERVER = "Server";
     private static final String FAULT_CODE_CLIENT = "Client";
     private static final String FAULT_CODE_MUSTUNDERSTAND = "MustUnderstand";
     private static final String DEFAULT_ADDRESS = "http://www.w3.org/2005/08/addressing/anonymous";
@@ -59,13 +74,19 @@ public class ReportController {
     private final ItkValidator itkValidator;
     private final SoapValidator soapValidator;
     private final ReportItkHeaderParserUtil headerParserUtil;
+    private final ReportLaneScheduler laneScheduler;
+    private final ReportSenderResolver senderResolver;
+    private final SenderRateLimiter senderRateLimiter;
+    private final IdempotencyStore idempotencyStore;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
 
     @PostMapping(value = "/report",
         consumes = {APPLICATION_XML_VALUE, TEXT_XML_VALUE},
         produces = TEXT_XML_VALUE
     )
     @ResponseStatus(value = ACCEPTED)
-    public ResponseEntity<String> postReport(@RequestBody String reportXml) {
+    public ResponseEntity<String> postReport(@RequestBody String reportXml,
+        @RequestHeader(value = CLIENT_CERTIFICATE_DN_HEADER, required = false) String clientCertificateDn) {
         String toAddress = null;
         String messageId;
         try {
@@ -75,20 +96,46 @@ public class ReportController {
             ItkReportHeader headerValues = headerParserUtil.getHeaderValues(reportElementsMap.get(ITK_HEADER));
             messageId = reportElementsMap.get(MESSAGE_ID).getText();
             toAddress = getValueOrDefaultAddress(reportElementsMap.get(SOAP_ADDRESS));
+            String sender = senderResolver.resolveSender(clientCertificateDn, reportElementsMap.get(SOAP_HEADER), headerValues);
 
-            LOGGER.info("ITK SOAP message received. MessageId: {}, ItkTrackingId: {}",
-                messageId, headerValues.getTrackingId());
+            LOGGER.info("ITK SOAP message received. MessageId: {}, ItkTrackingId: {}, Sender: {}",
+                messageId, headerValues.getTrackingId(), sender);
 
-            DistributionEnvelopeDocument distributionEnvelope = extractDistributionEnvelope(reportElementsMap
-                .get(DISTRIBUTION_ENVELOPE));
-            validate(distributionEnvelope);
-            POCDMT000002UK01ClinicalDocument1 clinicalDocument = extractClinicalDocument(distributionEnvelope);
+            // reserved before processing, so that a concurrent retry of the report is not published twice
+            Optional<String> previousResponse = idempotencyStore.reserve(messageId, headerValues.getTrackingId());
+            if (previousResponse.isPresent()) {
+                LOGGER.info("Duplicate ITK SOAP message, returning original response. MessageId: {}, ItkTrackingId: {}",
+                    messageId, headerValues.getTrackingId());
+                return new ResponseEntity<>(previousResponse.get(), OK);
+            }
+            try {
+                senderRateLimiter.checkRate(sender);
 
-            validate(clinicalDocument);
+                DistributionEnvelopeDocument distributionEnvelope = extractDistributionEnvelope(reportElementsMap
+                    .get(DISTRIBUTION_ENVELOPE));
+                validate(distributionEnvelope);
+                POCDMT000002UK01ClinicalDocument1 clinicalDocument = extractClinicalDocument(distributionEnvelope);
 
-            encounterReportService.transformAndPopulateToGP(clinicalDocument, messageId, headerValues);
+                validate(clinicalDocument);
 
-            return new ResponseEntity<>(itkResponseUtil.createSuccessResponseEntity(messageId, randomUUID().toString().toUpperCase()), OK);
+                // the permit is taken before the report enters a lane, so reports waiting for a lane worker count
+                // towards the limit and emergency reports are admitted first
+                ReportPriority priority = getReportPriority(clinicalDocument);
+                try (AdaptiveConcurrencyLimiter.Permit permit = concurrencyLimiter.acquire(priority)) {
+                    laneScheduler.execute(reportXml.length(), priority, sender, () -> {
+                        encounterReportService.transformAndPopulateToGP(clinicalDocument, messageId, headerValues, permit);
+                        return null;
+                    });
+                }
+
+                String response = itkResponseUtil.createSuccessResponseEntity(messageId, randomUuid().toString().toUpperCase());
+                idempotencyStore.storeResponse(messageId, headerValues.getTrackingId(), response);
+                return new ResponseEntity<>(response, OK);
+            } catch (Exception e) {
+                // a report that was not published may be retried
+                idempotencyStore.release(messageId, headerValues.getTrackingId());
+                throw e;
+            }
         } catch (DocumentException e) {
             LOGGER.error(e.getMessage(), e);
             return new ResponseEntity<>(createErrorResponseBody(
@@ -111,6 +158,16 @@ public class ReportController {
             LOGGER.error(e.getReason(), e);
             return new ResponseEntity<>(createErrorResponseBody(
                 DEFAULT_ADDRESS, CLIENT_ERROR_CODE, FAULT_CODE_MUSTUNDERSTAND, e.getReason(), e.getMessage()), INTERNAL_SERVER_ERROR);
+        } catch (RateLimitExceededException e) {
+            LOGGER.warn(e.getMessage());
+            return new ResponseEntity<>(createErrorResponseBody(
+                toAddress, CLIENT_ERROR_CODE, FAULT_CODE_CLIENT, "Too many requests. Please retry later", e.getMessage()),
+                TOO_MANY_REQUESTS);
+        } catch (ServiceBusyException e) {
+            LOGGER.warn(e.getMessage());
+            return new ResponseEntity<>(createErrorResponseBody(
+                toAddress, INTERNAL_PROCESSING_ERROR_CODE, FAULT_CODE_SERVER, "Service is busy. Please retry later", e.getMessage()),
+                SERVICE_UNAVAILABLE);
         } catch (Exception e) {
             LOGGER.error(e.getMessage(), e);
             return new ResponseEntity<>(createErrorResponseBody(
@@ -125,8 +182,8 @@ public class ReportController {
 
     private String createErrorResponseBody(String toAddress, String errorCode, String faultCode, String errorForUser, String errorMessage) {
         return itkResponseUtil.createUnSuccessfulResponseEntity(
-            randomUUID().toString().toUpperCase(), toAddress,
-            errorCode, faultCode, randomUUID().toString().toUpperCase(), errorForUser,
+            randomUuid().toString().toUpperCase(), toAddress,
+            errorCode, faultCode, randomUuid().toString().toUpperCase(), errorForUser,
             errorMessage);
     }
 }
\ No newline at end of file
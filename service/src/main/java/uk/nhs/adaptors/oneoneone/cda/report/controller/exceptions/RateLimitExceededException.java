@@ -0,0 +1,8 @@
+package uk.nhs.adaptors.oneoneone.cda.report.controller.exceptions;
+
+public class RateLimitExceededException extends RuntimeException {
+
+    public RateLimitExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package uk.nhs.adaptors.oneoneone.cda.report.controller.exceptions;
+
+public class ServiceBusyException extends RuntimeException {
+
+    public ServiceBusyException(String message) {
+        super(message);
+    }
+}
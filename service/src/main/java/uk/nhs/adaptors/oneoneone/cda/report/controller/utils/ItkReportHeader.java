@@ -12,4 +12,5 @@ public class ItkReportHeader {
     private String specKey;
     private String specVal;
     private List<String> addressList;
+    private String senderAddress;
 }
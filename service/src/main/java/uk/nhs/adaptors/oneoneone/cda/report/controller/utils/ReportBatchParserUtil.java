@@ -0,0 +1,33 @@
+package uk.nhs.adaptors.oneoneone.cda.report.controller.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits a concatenated stream of ITK SOAP messages after the end tag of every SOAP Envelope. Text left after the last
+ * envelope is returned as a message of its own, so it is answered with a fault rather than silently dropped.
+ */
+public final class ReportBatchParserUtil {
+
+    private static final Pattern ENVELOPE_END = Pattern.compile("</(?:[\\w.-]+:)?Envelope\\s*>");
+
+    private ReportBatchParserUtil() {
+    }
+
+    public static List<String> splitReports(String reportsXml) {
+        List<String> reports = new ArrayList<>();
+        Matcher matcher = ENVELOPE_END.matcher(reportsXml);
+        int start = 0;
+        while (matcher.find()) {
+            reports.add(reportsXml.substring(start, matcher.end()).strip());
+            start = matcher.end();
+        }
+        String remainder = reportsXml.substring(start).strip();
+        if (!remainder.isEmpty()) {
+            reports.add(remainder);
+        }
+        return reports;
+    }
+}
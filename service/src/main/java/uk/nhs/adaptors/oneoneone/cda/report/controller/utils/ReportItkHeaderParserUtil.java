@@ -11,16 +11,24 @@ import org.springframework.stereotype.Component;
 public class ReportItkHeaderParserUtil {
     private static final String SPECIFICATION_NODE = "//*[local-name()='spec']";
     private static final String ITK_ADDRESS_NODE = "//*[local-name()='addresslist']/*[local-name()='address']";
+    private static final String ITK_SENDER_ADDRESS_NODE = "//*[local-name()='senderAddress']";
 
     public ItkReportHeader getHeaderValues(Element headerElement) {
         ItkReportHeader header = new ItkReportHeader();
         header.setTrackingId(headerElement.attributeValue("trackingid"));
         setSpecification(header, headerElement);
         setAddressList(header, headerElement);
+        setSenderAddress(header, headerElement);
 
         return header;
     }
 
+    private void setSenderAddress(ItkReportHeader header, Element headerElement) {
+        getElements(headerElement, ITK_SENDER_ADDRESS_NODE).stream()
+            .findFirst()
+            .ifPresent(it -> header.setSenderAddress(it.attributeValue("uri")));
+    }
+
     private void setAddressList(ItkReportHeader header, Element headerElement) {
         List<Element> elements = getElements(headerElement, ITK_ADDRESS_NODE);
         List<String> addresses = elements.stream().map(it -> it.attributeValue("uri")).collect(toList());
@@ -0,0 +1,53 @@
+package uk.nhs.adaptors.oneoneone.cda.report.controller.utils;
+
+import static org.springframework.util.StringUtils.isEmpty;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.dom4j.Element;
+import org.springframework.stereotype.Component;
+
+/**
+ * Identifies the sender of a report for rate limiting and fair scheduling. The CN of the client certificate
+ * forwarded by nginx is preferred as it is authenticated, followed by the SOAP Username and the ITK sender address.
+ */
+@Component
+public class ReportSenderResolver {
+
+    public static final String CLIENT_CERTIFICATE_DN_HEADER = "X-Client-Certificate-DN";
+    private static final String UNKNOWN_SENDER = "unknown";
+    private static final String USERNAME_NODE = ".//*[local-name()='Username']";
+    private static final Pattern COMMON_NAME = Pattern.compile("(?:^|[,/])\\s*CN=((?:\\\\.|[^,/\\\\])+)");
+
+    public String resolveSender(String clientCertificateDn, Element soapHeader, ItkReportHeader header) {
+        String commonName = getCommonName(clientCertificateDn);
+        if (!isEmpty(commonName)) {
+            return commonName;
+        }
+        String username = getUsername(soapHeader);
+        if (!isEmpty(username)) {
+            return username;
+        }
+        if (header != null && !isEmpty(header.getSenderAddress())) {
+            return header.getSenderAddress();
+        }
+        return UNKNOWN_SENDER;
+    }
+
+    private String getCommonName(String distinguishedName) {
+        if (isEmpty(distinguishedName)) {
+            return null;
+        }
+        Matcher matcher = COMMON_NAME.matcher(distinguishedName);
+        return matcher.find() ? matcher.group(1).trim() : null;
+    }
+
+    private String getUsername(Element soapHeader) {
+        if (soapHeader == null) {
+            return null;
+        }
+        Element username = (Element) soapHeader.selectSingleNode(USERNAME_NODE);
+        return username == null ? null : username.getTextTrim();
+    }
+}
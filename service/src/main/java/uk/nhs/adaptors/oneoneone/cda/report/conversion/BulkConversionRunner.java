@@ -0,0 +1,136 @@
+package uk.nhs.adaptors.oneoneone.cda.report.conversion;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.hl7.fhir.dstu3.model.Bundle;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import ca.uhn.fhir.context.FhirContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import uk.nhs.adaptors.oneoneone.cda.report.scheduling.ReportPriority;
+import uk.nhs.adaptors.oneoneone.cda.report.sink.EncodedReport;
+import uk.nhs.adaptors.oneoneone.cda.report.sink.NdjsonFileSink;
+import uk.nhs.adaptors.oneoneone.config.ConversionProperties;
+import uk.nhs.adaptors.oneoneone.config.SinkProperties;
+
+/**
+ * Converts a directory or tar archive of reports to encounter bundles in parallel, when the application is started
+ * with a conversion input. Bundles are appended to NDJSON files or written to one JSON file per report, named after
+ * the report. Reports that fail to convert are logged and counted, and make the application exit with status 1.
+ */
+@Component
+@ConditionalOnProperty(prefix = "conversion", name = "input")
+@RequiredArgsConstructor
+@Slf4j
+public class BulkConversionRunner implements ApplicationRunner, ExitCodeGenerator {
+
+    private static final String JSON_EXTENSION = ".json";
+
+    private final ConversionProperties properties;
+    private final SinkProperties sinkProperties;
+    private final ReportConverter reportConverter;
+    private final FhirContext fhirContext;
+    private final ConversionSummary summary = new ConversionSummary();
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException, InterruptedException {
+        Path input = Paths.get(properties.getInput());
+        Path output = Paths.get(properties.getOutput());
+        int threads = properties.getThreads() > 0 ? properties.getThreads() : Runtime.getRuntime().availableProcessors();
+        LOGGER.info("Converting reports in {} to {} with {} threads", input, output, threads);
+
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        // bounds the reports read ahead of the converting threads
+        Semaphore pending = new Semaphore(threads * 2);
+        try (NdjsonFileSink sink = openSink(output)) {
+            try {
+                ReportFiles.forEach(input, (name, content) -> {
+                    acquire(pending);
+                    executor.execute(() -> {
+                        try {
+                            convert(name, content, sink, output);
+                        } finally {
+                            pending.release();
+                        }
+                    });
+                });
+            } finally {
+                executor.shutdown();
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            }
+        }
+        LOGGER.info(summary.format(System.nanoTime() - start));
+        summary.getFailures().forEach((reason, count) -> LOGGER.warn("{} reports failed: {}", count, reason));
+    }
+
+    @Override
+    public int getExitCode() {
+        return summary.getFailed() > 0 ? 1 : 0;
+    }
+
+    ConversionSummary getSummary() {
+        return summary;
+    }
+
+    private NdjsonFileSink openSink(Path output) {
+        if (properties.getFormat() != ConversionProperties.Format.NDJSON) {
+            return null;
+        }
+        SinkProperties.File file = sinkProperties.getFile();
+        return new NdjsonFileSink(output, file.getPrefix(), file.getMaxFileSize(), file.getBufferSize());
+    }
+
+    private void convert(String name, byte[] content, NdjsonFileSink sink, Path output) {
+        try {
+            Bundle bundle = reportConverter.convert(new String(content, UTF_8));
+            if (sink != null) {
+                String json = fhirContext.newJsonParser().encodeResourceToString(bundle);
+                // the file sink does not route by destination or priority
+                sink.publish(null, name, ReportPriority.ROUTINE, new EncodedReport(json, null, List.of()));
+            } else {
+                writeFile(output, name, fhirContext.newJsonParser().setPrettyPrint(true).encodeResourceToString(bundle));
+            }
+            summary.recordConversion(content.length);
+        } catch (Exception e) {
+            LOGGER.warn("Unable to convert report {}: {}", name, e.getMessage());
+            LOGGER.debug("Unable to convert report {}", name, e);
+            summary.recordFailure(e.getClass().getSimpleName());
+        }
+    }
+
+    private static void writeFile(Path output, String name, String json) throws IOException {
+        String baseName = name.substring(0, name.length() - ".xml".length());
+        Path file = output.resolve(baseName + JSON_EXTENSION).normalize();
+        if (!file.startsWith(output.normalize())) {
+            throw new IOException("Report name " + name + " is outside the output directory");
+        }
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, json, UTF_8);
+    }
+
+    private static void acquire(Semaphore semaphore) throws InterruptedIOException {
+        try {
+            semaphore.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted reading reports to convert");
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package uk.nhs.adaptors.oneoneone.cda.report.conversion;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the reports of a bulk conversion: how many were converted, and how many failed for each reason.
+ */
+public class ConversionSummary {
+
+    private final LongAdder converted = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final Map<String, LongAdder> failures = new ConcurrentHashMap<>();
+
+    public void recordConversion(int size) {
+        converted.increment();
+        bytes.add(size);
+    }
+
+    public void recordFailure(String reason) {
+        failures.computeIfAbsent(reason, key -> new LongAdder()).increment();
+    }
+
+    public long getConverted() {
+        return converted.sum();
+    }
+
+    public long getFailed() {
+        return failures.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    public Map<String, Long> getFailures() {
+        Map<String, Long> counts = new TreeMap<>();
+        failures.forEach((reason, count) -> counts.put(reason, count.sum()));
+        return counts;
+    }
+
+    public String format(long nanos) {
+        double seconds = Math.max(NANOSECONDS.toMillis(nanos), 1) / 1000.0;
+        return String.format("Converted %d reports (%.1f MB), %d failed, in %.1f s: %.1f reports/s",
+            getConverted(), bytes.sum() / 1_000_000.0, getFailed(), seconds, (getConverted() + getFailed()) / seconds);
+    }
+}
@@ -0,0 +1,68 @@
+package uk.nhs.adaptors.oneoneone.cda.report.conversion;
+
+import static uk.nhs.adaptors.oneoneone.cda.report.controller.utils.ReportElement.DISTRIBUTION_ENVELOPE;
+import static uk.nhs.adaptors.oneoneone.cda.report.controller.utils.ReportElement.ITK_HEADER;
+import static uk.nhs.adaptors.oneoneone.cda.report.controller.utils.ReportElement.SOAP_HEADER;
+import static uk.nhs.adaptors.oneoneone.cda.report.controller.utils.ReportRequestUtils.extractClinicalDocument;
+import static uk.nhs.adaptors.oneoneone.cda.report.controller.utils.ReportRequestUtils.extractDistributionEnvelope;
+import static uk.nhs.adaptors.oneoneone.xml.XmlValidator.validate;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.xmlbeans.XmlException;
+import org.dom4j.DocumentException;
+import org.dom4j.Element;
+import org.hl7.fhir.dstu3.model.Bundle;
+import org.springframework.stereotype.Component;
+
+import lombok.AllArgsConstructor;
+import uk.nhs.adaptors.oneoneone.cda.report.controller.exceptions.ItkXmlException;
+import uk.nhs.adaptors.oneoneone.cda.report.controller.exceptions.SoapClientException;
+import uk.nhs.adaptors.oneoneone.cda.report.controller.exceptions.SoapMustUnderstandException;
+import uk.nhs.adaptors.oneoneone.cda.report.controller.utils.ItkReportHeader;
+import uk.nhs.adaptors.oneoneone.cda.report.controller.utils.ReportElement;
+import uk.nhs.adaptors.oneoneone.cda.report.controller.utils.ReportItkHeaderParserUtil;
+import uk.nhs.adaptors.oneoneone.cda.report.controller.utils.ReportParserUtil;
+import uk.nhs.adaptors.oneoneone.cda.report.service.EncounterReportBundleService;
+import uk.nhs.adaptors.oneoneone.cda.report.validation.ItkValidator;
+import uk.nhs.adaptors.oneoneone.cda.report.validation.SoapValidator;
+import uk.nhs.connect.iucds.cda.ucr.ClinicalDocumentDocument1;
+import uk.nhs.connect.iucds.cda.ucr.POCDMT000002UK01ClinicalDocument1;
+import uk.nhs.itk.envelope.DistributionEnvelopeDocument;
+
+/**
+ * Converts an ITK SOAP message, or a bare ClinicalDocument, to its encounter bundle with the same parsing, validation
+ * and mapping as a report posted to the adaptor. A bare ClinicalDocument is mapped with an empty ITK header.
+ */
+@Component
+@AllArgsConstructor
+public class ReportConverter {
+
+    private final ItkValidator itkValidator;
+    private final SoapValidator soapValidator;
+    private final ReportItkHeaderParserUtil headerParserUtil;
+    private final EncounterReportBundleService encounterReportBundleService;
+
+    public Bundle convert(String reportXml)
+        throws DocumentException, XmlException, SoapClientException, SoapMustUnderstandException, ItkXmlException {
+        Map<ReportElement, Element> reportElementsMap = ReportParserUtil.parseReportXml(reportXml);
+        if (reportElementsMap.get(SOAP_HEADER) == null) {
+            POCDMT000002UK01ClinicalDocument1 clinicalDocument = ClinicalDocumentDocument1.Factory.parse(reportXml)
+                .getClinicalDocument();
+            validate(clinicalDocument);
+            ItkReportHeader header = new ItkReportHeader();
+            header.setAddressList(List.of());
+            return encounterReportBundleService.createEncounterBundle(clinicalDocument, header);
+        }
+
+        itkValidator.checkItkConformance(reportElementsMap);
+        soapValidator.checkSoapItkConformance(reportElementsMap.get(SOAP_HEADER));
+        ItkReportHeader header = headerParserUtil.getHeaderValues(reportElementsMap.get(ITK_HEADER));
+        DistributionEnvelopeDocument distributionEnvelope = extractDistributionEnvelope(reportElementsMap.get(DISTRIBUTION_ENVELOPE));
+        validate(distributionEnvelope);
+        POCDMT000002UK01ClinicalDocument1 clinicalDocument = extractClinicalDocument(distributionEnvelope);
+        validate(clinicalDocument);
+        return encounterReportBundleService.createEncounterBundle(clinicalDocument, header);
+    }
+}
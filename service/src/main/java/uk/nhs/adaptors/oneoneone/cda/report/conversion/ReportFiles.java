@@ -0,0 +1,172 @@
+package uk.nhs.adaptors.oneoneone.cda.report.conversion;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.toList;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads the reports to convert from a directory, searched recursively for XML files in name order, or from a tar
+ * archive, optionally gzipped, in archive order. Only the XML files of a tar archive are read: directories, links and
+ * pax headers are skipped, and GNU long names are supported.
+ */
+public final class ReportFiles {
+
+    private static final String XML_EXTENSION = ".xml";
+    private static final int BLOCK_SIZE = 512;
+    private static final int NAME_OFFSET = 0;
+    private static final int NAME_LENGTH = 100;
+    private static final int SIZE_OFFSET = 124;
+    private static final int SIZE_LENGTH = 12;
+    private static final int TYPE_OFFSET = 156;
+    private static final int MAGIC_OFFSET = 257;
+    private static final int PREFIX_OFFSET = 345;
+    private static final int PREFIX_LENGTH = 155;
+    private static final String USTAR_MAGIC = "ustar";
+    private static final byte REGULAR_FILE = '0';
+    private static final byte GNU_LONG_NAME = 'L';
+
+    private ReportFiles() {
+    }
+
+    @FunctionalInterface
+    public interface ReportFileConsumer {
+        void accept(String name, byte[] content) throws IOException;
+    }
+
+    public static void forEach(Path input, ReportFileConsumer consumer) throws IOException {
+        if (Files.isDirectory(input)) {
+            readDirectory(input, consumer);
+        } else {
+            readTar(input, consumer);
+        }
+    }
+
+    private static void readDirectory(Path directory, ReportFileConsumer consumer) throws IOException {
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(directory)) {
+            files = paths.filter(Files::isRegularFile)
+                .filter(path -> isXml(path.getFileName().toString()))
+                .sorted()
+                .collect(toList());
+        }
+        for (Path file : files) {
+            consumer.accept(directory.relativize(file).toString(), Files.readAllBytes(file));
+        }
+    }
+
+    private static void readTar(Path archive, ReportFileConsumer consumer) throws IOException {
+        String archiveName = archive.getFileName().toString().toLowerCase(Locale.ROOT);
+        try (InputStream file = new BufferedInputStream(Files.newInputStream(archive));
+            InputStream in = archiveName.endsWith(".gz") || archiveName.endsWith(".tgz") ? new GZIPInputStream(file) : file) {
+            byte[] header = new byte[BLOCK_SIZE];
+            String longName = null;
+            while (readBlock(in, header) && !isEmpty(header)) {
+                String name = longName != null ? longName : getName(header);
+                longName = null;
+                long size = getSize(header);
+                byte type = header[TYPE_OFFSET];
+                if (type == GNU_LONG_NAME) {
+                    longName = getString(readEntry(in, size), 0, (int) size);
+                } else if ((type == REGULAR_FILE || type == 0) && isXml(name)) {
+                    consumer.accept(name, readEntry(in, size));
+                } else {
+                    skipEntry(in, size);
+                }
+            }
+        }
+    }
+
+    private static boolean isXml(String name) {
+        return name.toLowerCase(Locale.ROOT).endsWith(XML_EXTENSION);
+    }
+
+    private static boolean readBlock(InputStream in, byte[] block) throws IOException {
+        int read = in.readNBytes(block, 0, BLOCK_SIZE);
+        if (read == 0) {
+            return false;
+        }
+        if (read < BLOCK_SIZE) {
+            throw new EOFException("Truncated tar archive");
+        }
+        return true;
+    }
+
+    private static boolean isEmpty(byte[] block) {
+        for (byte b : block) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String getName(byte[] header) {
+        String name = getString(header, NAME_OFFSET, NAME_LENGTH);
+        if (USTAR_MAGIC.equals(getString(header, MAGIC_OFFSET, USTAR_MAGIC.length()))) {
+            String prefix = getString(header, PREFIX_OFFSET, PREFIX_LENGTH);
+            return prefix.isEmpty() ? name : prefix + "/" + name;
+        }
+        return name;
+    }
+
+    private static long getSize(byte[] header) throws IOException {
+        if ((header[SIZE_OFFSET] & 0x80) != 0) {
+            throw new IOException("Tar entries larger than 8 GB are not supported");
+        }
+        String size = new String(header, SIZE_OFFSET, SIZE_LENGTH, US_ASCII).replace('\0', ' ').trim();
+        return size.isEmpty() ? 0 : Long.parseLong(size, 8);
+    }
+
+    private static String getString(byte[] bytes, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && bytes[end] != 0) {
+            end++;
+        }
+        return new String(bytes, offset, end - offset, UTF_8);
+    }
+
+    private static byte[] readEntry(InputStream in, long size) throws IOException {
+        if (size > Integer.MAX_VALUE - BLOCK_SIZE) {
+            throw new IOException("Tar entry of " + size + " bytes is too large to convert");
+        }
+        byte[] content = in.readNBytes((int) size);
+        if (content.length < size) {
+            throw new EOFException("Truncated tar archive");
+        }
+        skipFully(in, getPadding(size));
+        return content;
+    }
+
+    private static void skipEntry(InputStream in, long size) throws IOException {
+        skipFully(in, size + getPadding(size));
+    }
+
+    private static long getPadding(long size) {
+        return (BLOCK_SIZE - size % BLOCK_SIZE) % BLOCK_SIZE;
+    }
+
+    private static void skipFully(InputStream in, long length) throws IOException {
+        long remaining = length;
+        while (remaining > 0) {
+            long skipped = in.skip(remaining);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new EOFException("Truncated tar archive");
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package uk.nhs.adaptors.oneoneone.cda.report.idempotency;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Idempotency store that survives restarts. Responses are kept in memory and every new entry is appended to a
+ * log file, which is replayed on startup and rewritten with only the live entries once it grows too large.
+ * Reservations of reports being processed are only held in memory.
+ */
+@Slf4j
+public class FileIdempotencyStore implements IdempotencyStore, Closeable {
+
+    private static final String SEPARATOR = "\t";
+    private static final int COMPACTION_FACTOR = 2;
+
+    private final Path file;
+    private final Clock clock;
+    private final Duration ttl;
+    private final int maxEntries;
+    private final InMemoryIdempotencyStore memory;
+    private BufferedWriter writer;
+    private int appendedLines;
+
+    public FileIdempotencyStore(Path file, Duration ttl, int maxEntries) {
+        this(file, ttl, maxEntries, Clock.systemUTC());
+    }
+
+    FileIdempotencyStore(Path file, Duration ttl, int maxEntries, Clock clock) {
+        this.file = file;
+        this.clock = clock;
+        this.ttl = ttl;
+        this.maxEntries = maxEntries;
+        this.memory = new InMemoryIdempotencyStore(ttl, maxEntries, clock);
+        try {
+            load();
+            compact();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open idempotency store " + file, e);
+        }
+    }
+
+    @Override
+    public Optional<String> findResponse(String messageId, String trackingId) {
+        return memory.findResponse(messageId, trackingId);
+    }
+
+    @Override
+    public Optional<String> reserve(String messageId, String trackingId) {
+        return memory.reserve(messageId, trackingId);
+    }
+
+    @Override
+    public void release(String messageId, String trackingId) {
+        memory.release(messageId, trackingId);
+    }
+
+    @Override
+    public synchronized void storeResponse(String messageId, String trackingId, String response) {
+        InMemoryIdempotencyStore.Entry entry = new InMemoryIdempotencyStore.Entry(response, clock.millis() + ttl.toMillis());
+        try {
+            for (String key : InMemoryIdempotencyStore.keys(messageId, trackingId)) {
+                memory.put(key, entry);
+                write(key, entry);
+            }
+            writer.flush();
+            if (appendedLines > maxEntries * COMPACTION_FACTOR) {
+                compact();
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Unable to write to idempotency store {}. MessageId: {}", file, messageId, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    private void load() throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(SEPARATOR);
+                if (fields.length != 3) {
+                    LOGGER.warn("Skipping malformed line in idempotency store {}", file);
+                    continue;
+                }
+                try {
+                    memory.put(decode(fields[1]), new InMemoryIdempotencyStore.Entry(decode(fields[2]), Long.parseLong(fields[0])));
+                } catch (IllegalArgumentException e) {
+                    // a line torn by a crash can still have all its fields, number and Base64 errors are both illegal arguments
+                    LOGGER.warn("Skipping malformed line in idempotency store {}", file, e);
+                }
+            }
+        }
+    }
+
+    private void compact() throws IOException {
+        Path compacted = file.resolveSibling(file.getFileName() + ".tmp");
+        Map<String, InMemoryIdempotencyStore.Entry> liveEntries = memory.liveEntries();
+        try (BufferedWriter compactedWriter = Files.newBufferedWriter(compacted, UTF_8)) {
+            for (Map.Entry<String, InMemoryIdempotencyStore.Entry> entry : liveEntries.entrySet()) {
+                write(compactedWriter, entry.getKey(), entry.getValue());
+            }
+        }
+        // the log is only reopened once it has been replaced, so a failed compaction keeps appending to the old log
+        if (writer != null) {
+            writer.close();
+        }
+        try {
+            Files.move(compacted, file, REPLACE_EXISTING, ATOMIC_MOVE);
+            appendedLines = liveEntries.size();
+        } finally {
+            writer = Files.newBufferedWriter(file, UTF_8, CREATE, APPEND);
+        }
+    }
+
+    private void write(String key, InMemoryIdempotencyStore.Entry entry) throws IOException {
+        write(writer, key, entry);
+        appendedLines++;
+    }
+
+    private static void write(BufferedWriter writer, String key, InMemoryIdempotencyStore.Entry entry) throws IOException {
+        writer.write(entry.getExpiresAt() + SEPARATOR + encode(key) + SEPARATOR + encode(entry.getResponse()));
+        writer.newLine();
+    }
+
+    private static String encode(String value) {
+        return Base64.getEncoder().encodeToString(value.getBytes(UTF_8));
+    }
+
+    private static String decode(String value) {
+        return new String(Base64.getDecoder().decode(value), UTF_8);
+    }
+}
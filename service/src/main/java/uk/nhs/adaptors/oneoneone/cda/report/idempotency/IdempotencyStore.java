@@ -0,0 +1,25 @@
+package uk.nhs.adaptors.oneoneone.cda.report.idempotency;
+
+import java.util.Optional;
+
+import uk.nhs.adaptors.oneoneone.cda.report.controller.exceptions.ServiceBusyException;
+
+/**
+ * Remembers the ITK response returned for a report, so that a retry of the same report (same SOAP MessageID
+ * or same ITK trackingId) is answered with the original response instead of being processed again.
+ */
+public interface IdempotencyStore {
+
+    Optional<String> findResponse(String messageId, String trackingId);
+
+    /**
+     * Atomically looks up the response for the report and, when there is none, reserves the report for the caller,
+     * who then has to either store the response or release the reservation. A report reserved by another request
+     * is rejected with a {@link ServiceBusyException}, so that concurrent retries are not processed twice.
+     */
+    Optional<String> reserve(String messageId, String trackingId);
+
+    void release(String messageId, String trackingId);
+
+    void storeResponse(String messageId, String trackingId, String response);
+}
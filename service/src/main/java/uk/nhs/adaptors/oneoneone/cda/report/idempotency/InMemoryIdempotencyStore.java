@@ -0,0 +1,127 @@
+package uk.nhs.adaptors.oneoneone.cda.report.idempotency;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import uk.nhs.adaptors.oneoneone.cda.report.controller.exceptions.ServiceBusyException;
+
+/**
+ * Bounded store of recent responses. Entries expire after the configured time to live and the least recently
+ * used entries are evicted once the store holds the maximum number of keys, one per MessageID and one per trackingId.
+ * A report being processed is reserved outside the bounded entries, so a burst of responses cannot evict the reservation,
+ * until its response is stored or the reservation is released.
+ */
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    private static final String MESSAGE_ID_KEY = "messageId:";
+    private static final String TRACKING_ID_KEY = "trackingId:";
+
+    private final Clock clock;
+    private final Duration ttl;
+    private final Map<String, Entry> entries;
+    private final Map<String, Long> reservations = new HashMap<>();
+
+    public InMemoryIdempotencyStore(Duration ttl, int maxEntries) {
+        this(ttl, maxEntries, Clock.systemUTC());
+    }
+
+    InMemoryIdempotencyStore(Duration ttl, int maxEntries, Clock clock) {
+        this.clock = clock;
+        this.ttl = ttl;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    @Override
+    public synchronized Optional<String> findResponse(String messageId, String trackingId) {
+        for (String key : keys(messageId, trackingId)) {
+            Entry entry = liveEntry(key);
+            if (entry != null) {
+                return Optional.of(entry.getResponse());
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public synchronized Optional<String> reserve(String messageId, String trackingId) {
+        Optional<String> response = findResponse(messageId, trackingId);
+        if (response.isPresent()) {
+            return response;
+        }
+        List<String> keys = keys(messageId, trackingId);
+        long now = clock.millis();
+        for (String key : keys) {
+            Long expiresAt = reservations.get(key);
+            if (expiresAt != null && expiresAt > now) {
+                throw new ServiceBusyException(String.format(
+                    "Report is already being processed. MessageId: %s, ItkTrackingId: %s", messageId, trackingId));
+            }
+        }
+        keys.forEach(key -> reservations.put(key, now + ttl.toMillis()));
+        return Optional.empty();
+    }
+
+    @Override
+    public synchronized void release(String messageId, String trackingId) {
+        reservations.keySet().removeAll(keys(messageId, trackingId));
+    }
+
+    @Override
+    public void storeResponse(String messageId, String trackingId, String response) {
+        long expiresAt = clock.millis() + ttl.toMillis();
+        keys(messageId, trackingId).forEach(key -> put(key, new Entry(response, expiresAt)));
+    }
+
+    synchronized void put(String key, Entry entry) {
+        reservations.remove(key);
+        if (entry.getExpiresAt() > clock.millis()) {
+            entries.put(key, entry);
+        }
+    }
+
+    synchronized Map<String, Entry> liveEntries() {
+        long now = clock.millis();
+        entries.values().removeIf(entry -> entry.getExpiresAt() <= now);
+        return new LinkedHashMap<>(entries);
+    }
+
+    private Entry liveEntry(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.getExpiresAt() <= clock.millis()) {
+            entries.remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    static List<String> keys(String messageId, String trackingId) {
+        List<String> keys = new ArrayList<>(2);
+        if (messageId != null) {
+            keys.add(MESSAGE_ID_KEY + messageId);
+        }
+        if (trackingId != null) {
+            keys.add(TRACKING_ID_KEY + trackingId);
+        }
+        return keys;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    static final class Entry {
+        private final String response;
+        private final long expiresAt;
+    }
+}
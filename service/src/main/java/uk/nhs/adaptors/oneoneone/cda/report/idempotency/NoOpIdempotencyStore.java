@@ -0,0 +1,27 @@
+package uk.nhs.adaptors.oneoneone.cda.report.idempotency;
+
+import java.util.Optional;
+
+/**
+ * Idempotency store that remembers nothing, so every retry of a report is processed and published again.
+ */
+public class NoOpIdempotencyStore implements IdempotencyStore {
+
+    @Override
+    public Optional<String> findResponse(String messageId, String trackingId) {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<String> reserve(String messageId, String trackingId) {
+        return Optional.empty();
+    }
+
+    @Override
+    public void release(String messageId, String trackingId) {
+    }
+
+    @Override
+    public void storeResponse(String messageId, String trackingId, String response) {
+    }
+}
@@ -3,7 +3,7 @@ package uk.nhs.adaptors.oneoneone.cda.report.mapper;
 import static java.util.stream.Collectors.toUnmodifiableList;
 import static org.hl7.fhir.dstu3.model.CarePlan.CarePlanIntent.PLAN;
 import static org.hl7.fhir.dstu3.model.CarePlan.CarePlanStatus.COMPLETED;
-import static org.hl7.fhir.dstu3.model.IdType.newRandomUuid;
+import static uk.nhs.adaptors.oneoneone.cda.report.util.IdUtil.newResourceId;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -53,7 +53,7 @@ public class CarePlanMapper {
 
     public CarePlan createCarePlanFromSection(POCDMT000002UK01Section cpSection, Encounter encounter, Condition condition) {
         CarePlan carePlan = new CarePlan();
-        carePlan.setIdElement(newRandomUuid());
+        carePlan.setIdElement(newResourceId(carePlan.getResourceType()));
         carePlan
             .setIntent(PLAN)
             .setSubject(encounter.getSubject())
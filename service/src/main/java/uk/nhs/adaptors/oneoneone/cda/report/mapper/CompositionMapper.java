@@ -2,10 +2,8 @@ package uk.nhs.adaptors.oneoneone.cda.report.mapper;
 
 import static org.apache.commons.lang3.ArrayUtils.isNotEmpty;
 import static org.hl7.fhir.dstu3.model.Composition.CompositionStatus.FINAL;
-import static org.hl7.fhir.dstu3.model.IdType.newRandomUuid;
 import static org.hl7.fhir.dstu3.model.Identifier.IdentifierUse.USUAL;
-import static org.hl7.fhir.dstu3.model.Narrative.NarrativeStatus.GENERATED;
-import static org.hl7.fhir.utilities.xhtml.NodeType.Document;
+import static uk.nhs.adaptors.oneoneone.cda.report.util.IdUtil.newResourceId;
 
 import java.util.Date;
 import java.util.List;
@@ -18,15 +16,14 @@ import org.hl7.fhir.dstu3.model.Composition.SectionComponent;
 import org.hl7.fhir.dstu3.model.DomainResource;
 import org.hl7.fhir.dstu3.model.Encounter;
 import org.hl7.fhir.dstu3.model.Identifier;
-import org.hl7.fhir.dstu3.model.Narrative;
 import org.hl7.fhir.dstu3.model.PractitionerRole;
 import org.hl7.fhir.dstu3.model.QuestionnaireResponse;
 import org.hl7.fhir.dstu3.model.Reference;
 import org.hl7.fhir.dstu3.model.ReferralRequest;
-import org.hl7.fhir.utilities.xhtml.XhtmlNode;
 import org.springframework.stereotype.Component;
 
 import lombok.AllArgsConstructor;
+import uk.nhs.adaptors.oneoneone.cda.report.util.NarrativeRenderer;
 import uk.nhs.adaptors.oneoneone.cda.report.util.NodeUtil;
 import uk.nhs.connect.iucds.cda.ucr.POCDMT000002UK01ClinicalDocument1;
 import uk.nhs.connect.iucds.cda.ucr.POCDMT000002UK01Component3;
@@ -42,12 +39,22 @@ public class CompositionMapper {
     private static final String SNOMED_CODE_DISPLAY = "Report of clinical encounter (record artifact)";
     private static final String COMPOSITION_TITLE = "111 Report";
     private final NodeUtil nodeUtil;
+    private final NarrativeRenderer narrativeRenderer;
 
     public Composition mapComposition(POCDMT000002UK01ClinicalDocument1 clinicalDocument, Encounter encounter, List<CarePlan> carePlans,
         List<QuestionnaireResponse> questionnaireResponseList, ReferralRequest referralRequest, List<PractitionerRole> practitionerRoles) {
+        return mapComposition(clinicalDocument, encounter, carePlans, questionnaireResponseList, referralRequest, practitionerRoles, true);
+    }
+
+    /**
+     * @param sectionNarrative false to map the CDA sections by title only, without their text
+     */
+    public Composition mapComposition(POCDMT000002UK01ClinicalDocument1 clinicalDocument, Encounter encounter, List<CarePlan> carePlans,
+        List<QuestionnaireResponse> questionnaireResponseList, ReferralRequest referralRequest, List<PractitionerRole> practitionerRoles,
+        boolean sectionNarrative) {
 
         Composition composition = new Composition();
-        composition.setIdElement(newRandomUuid());
+        composition.setIdElement(newResourceId(composition.getResourceType()));
 
         Identifier docIdentifier = new Identifier();
         docIdentifier.setUse(USUAL);
@@ -83,7 +90,7 @@ public class CompositionMapper {
         if (clinicalDocument.getComponent().isSetStructuredBody()) {
             for (POCDMT000002UK01Component3 component3 : clinicalDocument.getComponent().getStructuredBody().getComponentArray()) {
                 SectionComponent sectionComponent = new SectionComponent();
-                addSectionChildren(sectionComponent, component3.getSection());
+                addSectionChildren(sectionComponent, component3.getSection(), sectionNarrative);
                 composition.addSection(sectionComponent);
             }
         }
@@ -103,30 +110,25 @@ public class CompositionMapper {
         return composition;
     }
 
-    private void addSectionChildren(SectionComponent component, POCDMT000002UK01Section section) {
+    private void addSectionChildren(SectionComponent component, POCDMT000002UK01Section section, boolean sectionNarrative) {
         for (POCDMT000002UK01Component5 component5 : section.getComponentArray()) {
             POCDMT000002UK01Section innerSection = component5.getSection();
-            SectionComponent innerCompositionSection = getSectionText(innerSection);
+            SectionComponent innerCompositionSection = getSectionText(innerSection, sectionNarrative);
             component.addSection(innerCompositionSection);
             if (isNotEmpty(innerSection.getComponentArray())) {
-                addSectionChildren(innerCompositionSection, innerSection);
+                addSectionChildren(innerCompositionSection, innerSection, sectionNarrative);
             }
         }
     }
 
-    private SectionComponent getSectionText(POCDMT000002UK01Section sectionComponent5) {
+    private SectionComponent getSectionText(POCDMT000002UK01Section sectionComponent5, boolean sectionNarrative) {
         SectionComponent sectionComponent = new SectionComponent();
         if (sectionComponent5.isSetTitle()) {
-            sectionComponent.setTitle(nodeUtil.getAllText(sectionComponent5.getTitle().getDomNode()));
+            sectionComponent.setTitle(nodeUtil.getAllText(sectionComponent5.getTitle()));
+        }
+        if (sectionNarrative) {
+            sectionComponent.setText(narrativeRenderer.renderText(sectionComponent5.getText()));
         }
-        Narrative narrative = new Narrative();
-        narrative.setStatus(GENERATED);
-        String divText = sectionComponent5.getText().xmlText();
-        XhtmlNode xhtmlNode = new XhtmlNode();
-        xhtmlNode.setNodeType(Document);
-        xhtmlNode.addText(divText);
-        narrative.setDiv(xhtmlNode);
-        sectionComponent.setText(narrative);
 
         return sectionComponent;
     }
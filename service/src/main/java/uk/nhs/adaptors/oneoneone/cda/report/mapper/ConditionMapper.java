@@ -1,6 +1,6 @@
 package uk.nhs.adaptors.oneoneone.cda.report.mapper;
 
-import static org.hl7.fhir.dstu3.model.IdType.newRandomUuid;
+import static uk.nhs.adaptors.oneoneone.cda.report.util.IdUtil.newResourceId;
 
 import java.util.Collections;
 import java.util.List;
@@ -42,7 +42,7 @@ public class ConditionMapper {
         List<QuestionnaireResponse> questionnaireResponseList) {
         Condition condition = new Condition();
 
-        condition.setIdElement(newRandomUuid());
+        condition.setIdElement(newResourceId(condition.getResourceType()));
 
         condition
             .setClinicalStatus(Condition.ConditionClinicalStatus.ACTIVE)
@@ -69,7 +69,7 @@ public class ConditionMapper {
                         if (itkEncounter.isSetText()) {
                             condition
                                 .addCategory(new CodeableConcept().setText(
-                                    nodeUtil.getAllText(itkEncounter.getText().getDomNode())));
+                                    nodeUtil.getAllText(itkEncounter.getText())));
                         }
                     }
                 }
@@ -2,10 +2,8 @@ package uk.nhs.adaptors.oneoneone.cda.report.mapper;
 
 import static java.util.Arrays.stream;
 import static java.util.Collections.emptyList;
-import static org.hl7.fhir.dstu3.model.IdType.newRandomUuid;
-import static org.hl7.fhir.dstu3.model.Narrative.NarrativeStatus.GENERATED;
+import static uk.nhs.adaptors.oneoneone.cda.report.util.IdUtil.newResourceId;
 
-import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Predicate;
@@ -18,13 +16,13 @@ import org.hl7.fhir.dstu3.model.Consent.ConsentDataComponent;
 import org.hl7.fhir.dstu3.model.Consent.ConsentDataMeaning;
 import org.hl7.fhir.dstu3.model.Encounter;
 import org.hl7.fhir.dstu3.model.Identifier;
-import org.hl7.fhir.dstu3.model.Narrative;
 import org.hl7.fhir.dstu3.model.Period;
 import org.hl7.fhir.dstu3.model.Reference;
 import org.springframework.stereotype.Component;
 
 import lombok.AllArgsConstructor;
 import uk.nhs.adaptors.oneoneone.cda.report.util.DateUtil;
+import uk.nhs.adaptors.oneoneone.cda.report.util.NarrativeRenderer;
 import uk.nhs.connect.iucds.cda.ucr.CE;
 import uk.nhs.connect.iucds.cda.ucr.IVLTS;
 import uk.nhs.connect.iucds.cda.ucr.POCDMT000002UK01Authorization;
@@ -46,12 +44,12 @@ public class ConsentMapper {
     private static final String NPFIT_CDA_CONTENT = "2.16.840.1.113883.2.1.3.2.4.18.16";
     private static final String SYSTEM_CODE = "887031000000108";
     private static final String PERMISSION_TO_VIEW = "COCD_TP146050GB01#PermissionToView";
-    private static final String DIV_START = "<div>";
-    private static final String DIV_END = "</div>";
+
+    private final NarrativeRenderer narrativeRenderer;
 
     public Consent mapConsent(POCDMT000002UK01ClinicalDocument1 clinicalDocument, Encounter encounter) {
         Consent consent = new Consent();
-        consent.setIdElement(newRandomUuid());
+        consent.setIdElement(newResourceId(consent.getResourceType()));
 
         if (clinicalDocument.isSetSetId()) {
             Identifier docIdentifier = new Identifier();
@@ -129,12 +127,8 @@ public class ConsentMapper {
     private void extractTextBody(Consent consent, POCDMT000002UK01StructuredBody structuredBody) {
         List<POCDMT000002UK01Section> sections = getSectionsOfType(structuredBody);
         for (POCDMT000002UK01Section section : sections) {
-            Narrative narrative = new Narrative();
-            narrative.setStatus(GENERATED);
             if (section.isSetText()) {
-                narrative.setDivAsString(Arrays.asList(DIV_START, section.getText().xmlText(), DIV_END)
-                    .stream().collect(Collectors.joining()));
-                consent.setText(narrative);
+                consent.setText(narrativeRenderer.renderDiv(section.getText()));
             }
         }
     }
@@ -2,11 +2,9 @@ package uk.nhs.adaptors.oneoneone.cda.report.mapper;
 
 import static java.util.Arrays.stream;
 import static org.hl7.fhir.dstu3.model.Encounter.EncounterStatus.FINISHED;
-import static org.hl7.fhir.dstu3.model.IdType.newRandomUuid;
-import static org.hl7.fhir.dstu3.model.Narrative.NarrativeStatus.GENERATED;
+import static uk.nhs.adaptors.oneoneone.cda.report.util.IdUtil.newResourceId;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -16,7 +14,6 @@ import org.hl7.fhir.dstu3.model.Encounter.EncounterLocationComponent;
 import org.hl7.fhir.dstu3.model.Encounter.EncounterParticipantComponent;
 import org.hl7.fhir.dstu3.model.Group;
 import org.hl7.fhir.dstu3.model.Identifier;
-import org.hl7.fhir.dstu3.model.Narrative;
 import org.hl7.fhir.dstu3.model.Organization;
 import org.hl7.fhir.dstu3.model.Patient;
 import org.hl7.fhir.dstu3.model.Period;
@@ -26,6 +23,7 @@ import org.springframework.stereotype.Component;
 
 import lombok.AllArgsConstructor;
 import uk.nhs.adaptors.oneoneone.cda.report.service.AppointmentService;
+import uk.nhs.adaptors.oneoneone.cda.report.util.NarrativeRenderer;
 import uk.nhs.adaptors.oneoneone.cda.report.util.NodeUtil;
 import uk.nhs.connect.iucds.cda.ucr.II;
 import uk.nhs.connect.iucds.cda.ucr.POCDMT000002UK01ClinicalDocument1;
@@ -43,10 +41,6 @@ import uk.nhs.connect.iucds.cda.ucr.TS;
 @AllArgsConstructor
 public class EncounterMapper {
 
-    private static final String DIV_START = "<div>";
-
-    private static final String DIV_END = "</div>";
-
     private final PeriodMapper periodMapper;
 
     private final ParticipantMapper participantMapper;
@@ -67,9 +61,11 @@ public class EncounterMapper {
 
     private final NodeUtil nodeUtil;
 
+    private final NarrativeRenderer narrativeRenderer;
+
     public Encounter mapEncounter(POCDMT000002UK01ClinicalDocument1 clinicalDocument, List<PractitionerRole> practitionerRoles) {
         Encounter encounter = new Encounter();
-        encounter.setIdElement(newRandomUuid());
+        encounter.setIdElement(newResourceId(encounter.getResourceType()));
         setIdentifier(encounter, clinicalDocument);
         encounter.setStatus(FINISHED);
         encounter.setLocation(getLocationComponents(clinicalDocument));
@@ -206,12 +202,7 @@ public class EncounterMapper {
 
     private void addEncounterText(POCDMT000002UK01Encounter encounterITK, Encounter encounter) {
         if (encounterITK.isSetText()) {
-            String divString = nodeUtil.getNodeValueString(encounterITK.getText());
-            Narrative narrative = new Narrative();
-            narrative.setStatus(GENERATED);
-            narrative.setDivAsString(Arrays.asList(DIV_START, divString, DIV_END)
-                .stream().collect(Collectors.joining()));
-            encounter.setText(narrative);
+            encounter.setText(narrativeRenderer.renderDiv(nodeUtil.getNodeValueString(encounterITK.getText())));
         }
     }
 }
@@ -1,6 +1,6 @@
 package uk.nhs.adaptors.oneoneone.cda.report.mapper;
 
-import static org.hl7.fhir.dstu3.model.IdType.newRandomUuid;
+import static uk.nhs.adaptors.oneoneone.cda.report.util.IdUtil.newResourceId;
 
 import org.hl7.fhir.dstu3.model.Group;
 import org.hl7.fhir.dstu3.model.Patient;
@@ -18,7 +18,7 @@ public class GroupMapper {
 
     public Group mapGroup(POCDMT000002UK01RecordTarget[] recordTargetArr) {
         Group group = new Group();
-        group.setIdElement(newRandomUuid());
+        group.setIdElement(newResourceId(group.getResourceType()));
         group.setActive(true);
         group.setType(Group.GroupType.PERSON);
 
@@ -1,6 +1,6 @@
 package uk.nhs.adaptors.oneoneone.cda.report.mapper;
 
-import static org.hl7.fhir.dstu3.model.IdType.newRandomUuid;
+import static uk.nhs.adaptors.oneoneone.cda.report.util.IdUtil.newResourceId;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -27,6 +27,7 @@ public class HealthcareServiceMapper {
     private final OrganizationMapper organizationMapper;
     private final ContactPointMapper contactPointMapper;
     private final NodeUtil nodeUtil;
+    private final ReferenceDataCache referenceDataCache;
 
     public List<HealthcareService> mapHealthcareService(POCDMT000002UK01ClinicalDocument1 clinicalDocument) {
 
@@ -45,14 +46,27 @@ public class HealthcareServiceMapper {
         POCDMT000002UK01IntendedRecipient intendedRecipient =
             informationRecipient.getIntendedRecipient();
 
-        HealthcareService healthcareService = new HealthcareService()
-            .setActive(true);
-
-        healthcareService.setIdElement(newRandomUuid());
+        HealthcareService healthcareService = referenceDataCache.getOrMap(HealthcareService.class,
+            intendedRecipient.getIdArray(), intendedRecipient, () -> createHealthcareService(intendedRecipient));
 
         Location location = locationMapper.mapRecipientToLocation(intendedRecipient);
         healthcareService.addLocation(new Reference(location));
 
+        if (intendedRecipient.isSetReceivedOrganization()) {
+            Organization organization = organizationMapper.mapOrganization(intendedRecipient.getReceivedOrganization());
+            healthcareService.setProvidedBy(new Reference(organization));
+            healthcareService.setProvidedByTarget(organization);
+        }
+
+        return healthcareService;
+    }
+
+    private HealthcareService createHealthcareService(POCDMT000002UK01IntendedRecipient intendedRecipient) {
+        HealthcareService healthcareService = new HealthcareService()
+            .setActive(true);
+
+        healthcareService.setIdElement(newResourceId(healthcareService.getResourceType()));
+
         if (intendedRecipient.sizeOfTelecomArray() > 0) {
             for (TEL tel : intendedRecipient.getTelecomArray()) {
                 healthcareService.addTelecom(contactPointMapper.mapContactPoint(tel));
@@ -62,12 +76,9 @@ public class HealthcareServiceMapper {
         if (intendedRecipient.isSetReceivedOrganization()) {
             POCDMT000002UK01Organization receivedOrganization =
                 intendedRecipient.getReceivedOrganization();
-            Organization organization = organizationMapper.mapOrganization(receivedOrganization);
-            healthcareService.setProvidedBy(new Reference(organization));
-            healthcareService.setProvidedByTarget(organization);
             if (receivedOrganization.sizeOfNameArray() > 0) {
                 ON name = receivedOrganization.getNameArray(0);
-                healthcareService.setName(nodeUtil.getAllText(name.getDomNode()));
+                healthcareService.setName(nodeUtil.getAllText(name));
             }
         }
 
@@ -1,13 +1,15 @@
 package uk.nhs.adaptors.oneoneone.cda.report.mapper;
 
-import static org.hl7.fhir.dstu3.model.IdType.newRandomUuid;
 import static org.hl7.fhir.dstu3.model.Identifier.IdentifierUse.USUAL;
 import static org.hl7.fhir.dstu3.model.ListResource.ListMode.WORKING;
 import static org.hl7.fhir.dstu3.model.ListResource.ListStatus.CURRENT;
+import static uk.nhs.adaptors.oneoneone.cda.report.util.IdUtil.newResourceId;
 
-import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 import org.hl7.fhir.dstu3.model.CodeableConcept;
 import org.hl7.fhir.dstu3.model.Coding;
@@ -19,12 +21,9 @@ import org.hl7.fhir.dstu3.model.Resource;
 import org.hl7.fhir.dstu3.model.ResourceType;
 import org.springframework.stereotype.Component;
 
-import lombok.RequiredArgsConstructor;
-import uk.nhs.adaptors.oneoneone.cda.report.comparator.ResourceDateComparator;
 import uk.nhs.connect.iucds.cda.ucr.POCDMT000002UK01ClinicalDocument1;
 
 @Component
-@RequiredArgsConstructor
 public class ListMapper {
 
     private static final String SNOMED_SYSTEM = "http://snomed.info/sct";
@@ -35,18 +34,19 @@ public class ListMapper {
     private static final String ORDER_BY_SYSTEM = "http://hl7.org/fhir/list-order";
     private static final String ORDER_BY_DISPLAY = "Sorted by Event Date";
     private static final Reference TRANSFORMER_DEVICE = new Reference("Device/1");
-    private static final List<ResourceType> TRIAGE_RESOURCES = List.of(
+    public static final Set<ResourceType> TRIAGE_RESOURCES = Collections.unmodifiableSet(EnumSet.of(
         ResourceType.Condition, ResourceType.Questionnaire, ResourceType.QuestionnaireResponse,
         ResourceType.Observation, ResourceType.Organization, ResourceType.Practitioner, ResourceType.Provenance,
-        ResourceType.ReferralRequest, ResourceType.RelatedPerson);
-
-    private final ResourceDateComparator resourceDateComparator;
+        ResourceType.ReferralRequest, ResourceType.RelatedPerson));
 
+    /**
+     * @param triageResources the created resources of the {@link #TRIAGE_RESOURCES} types, latest first
+     */
     public ListResource mapList(POCDMT000002UK01ClinicalDocument1 clinicalDocument, Encounter encounter,
-        Collection<Resource> resourcesCreated) {
+        List<Resource> triageResources) {
         ListResource listResource = new ListResource();
 
-        listResource.setIdElement(newRandomUuid());
+        listResource.setIdElement(newResourceId(listResource.getResourceType()));
 
         Identifier docIdentifier = new Identifier();
         docIdentifier.setUse(USUAL);
@@ -65,9 +65,7 @@ public class ListMapper {
             .setSource(TRANSFORMER_DEVICE)
             .setOrderedBy(createOrderByConcept());
 
-        resourcesCreated.stream()
-            .sorted(resourceDateComparator)
-            .filter(it -> TRIAGE_RESOURCES.contains(it.getResourceType()))
+        triageResources.stream()
             .map(Resource::getIdElement)
             .map(Reference::new)
             .map(ListResource.ListEntryComponent::new)
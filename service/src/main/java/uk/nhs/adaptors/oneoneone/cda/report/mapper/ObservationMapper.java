@@ -3,8 +3,8 @@ package uk.nhs.adaptors.oneoneone.cda.report.mapper;
 import static java.util.Arrays.stream;
 import static java.util.stream.Collectors.toList;
 import static org.apache.logging.log4j.util.Strings.join;
-import static org.hl7.fhir.dstu3.model.IdType.newRandomUuid;
 import static org.hl7.fhir.dstu3.model.Observation.ObservationStatus.FINAL;
+import static uk.nhs.adaptors.oneoneone.cda.report.util.IdUtil.newResourceId;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -65,7 +65,7 @@ public class ObservationMapper {
 
     private Observation createObservation(Encounter encounter, List<String> sectionText) {
         Observation observation = new Observation();
-        observation.setIdElement(newRandomUuid());
+        observation.setIdElement(newResourceId(observation.getResourceType()));
         observation.setStatus(FINAL);
         Coding coding = new Coding()
             .setCode(PRESENTING_COMPLAINT_CODE)
@@ -1,6 +1,6 @@
 package uk.nhs.adaptors.oneoneone.cda.report.mapper;
 
-import static org.hl7.fhir.dstu3.model.IdType.newRandomUuid;
+import static uk.nhs.adaptors.oneoneone.cda.report.util.IdUtil.newResourceId;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -29,9 +29,26 @@ public class OrganizationMapper {
 
     private final NodeUtil nodeUtil;
 
+    private final ReferenceDataCache referenceDataCache;
+
     public Organization mapOrganization(POCDMT000002UK01Organization itkOrganization) {
+        return ReportMappingContext.getOrMap(Organization.class, itkOrganization::getIdArray, () -> {
+            Organization organization = referenceDataCache.getOrMap(Organization.class, itkOrganization.getIdArray(),
+                itkOrganization, () -> createOrganization(itkOrganization));
+            // the parent is resolved per report, so it is shared with any other reference to it in the report
+            if (itkOrganization.isSetAsOrganizationPartOf()
+                && itkOrganization.getAsOrganizationPartOf().getWholeOrganization() != null) {
+                Organization partOf = mapOrganization(itkOrganization.getAsOrganizationPartOf().getWholeOrganization());
+                organization.setPartOf(new Reference(partOf));
+                organization.setPartOfTarget(partOf);
+            }
+            return organization;
+        });
+    }
+
+    private Organization createOrganization(POCDMT000002UK01Organization itkOrganization) {
         Organization fhirOrganization = new Organization();
-        fhirOrganization.setIdElement(newRandomUuid());
+        fhirOrganization.setIdElement(newResourceId(fhirOrganization.getResourceType()));
         fhirOrganization.setName(nodeUtil.getNodeValueString(itkOrganization.getNameArray(0)));
         fhirOrganization.setAddress(Arrays
             .stream(itkOrganization.getAddrArray())
@@ -45,14 +62,6 @@ public class OrganizationMapper {
             fhirOrganization.setType(Collections.singletonList(new CodeableConcept()
                 .setText(itkOrganization.getStandardIndustryClassCode().getDisplayName())));
         }
-
-        if (itkOrganization.isSetAsOrganizationPartOf()) {
-            if (itkOrganization.getAsOrganizationPartOf().getWholeOrganization() != null) {
-                Organization partOf = mapOrganization(itkOrganization.getAsOrganizationPartOf().getWholeOrganization());
-                fhirOrganization.setPartOf(new Reference(partOf));
-                fhirOrganization.setPartOfTarget(partOf);
-            }
-        }
         if (itkOrganization.sizeOfIdArray() > 0) {
             List<Identifier> identifierList = new ArrayList<>();
             for (II id : itkOrganization.getIdArray()) {
@@ -0,0 +1,121 @@
+package uk.nhs.adaptors.oneoneone.cda.report.mapper;
+
+import java.util.Date;
+
+import org.apache.commons.lang3.StringUtils;
+import org.nhspathways.webservices.pathways.pathwayscase.PathwaysCaseDocument.PathwaysCase;
+import org.nhspathways.webservices.pathways.pathwayscase.PathwaysCaseDocument.PathwaysCase.PathwayDetails.PathwayTriageDetails.PathwayTriage.User;
+
+import lombok.Getter;
+import uk.nhs.adaptors.oneoneone.cda.report.util.DateUtil;
+
+/**
+ * Case level values shared by the Questionnaire and QuestionnaireResponse of every triage line, computed once per
+ * PathwaysCase, and whether the Questionnaires are mapped. Instances are immutable.
+ */
+@Getter
+public final class PathwaysCaseContext {
+
+    private static final String NOT_APPLICABLE = "N/A";
+
+    private final PathwaysCase pathwaysCase;
+    private final String caseId;
+    private final Date latestDate;
+    private final String publisher;
+    private final String country;
+    private final String contactNumber;
+    private final boolean withQuestionnaires;
+
+    private PathwaysCaseContext(PathwaysCase pathwaysCase, boolean withQuestionnaires) {
+        this.pathwaysCase = pathwaysCase;
+        this.withQuestionnaires = withQuestionnaires;
+        this.caseId = getCaseId(pathwaysCase);
+        this.latestDate = getLatestDate(pathwaysCase);
+        this.publisher = getPublisher(pathwaysCase);
+        this.country = getCountry(pathwaysCase);
+        this.contactNumber = getContactNumber(pathwaysCase);
+    }
+
+    public static PathwaysCaseContext from(PathwaysCase pathwaysCase) {
+        return from(pathwaysCase, true);
+    }
+
+    /**
+     * @param withQuestionnaires false when QuestionnaireResponses are mapped without their Questionnaire
+     */
+    public static PathwaysCaseContext from(PathwaysCase pathwaysCase, boolean withQuestionnaires) {
+        return new PathwaysCaseContext(pathwaysCase, withQuestionnaires);
+    }
+
+    private static String getPublisher(PathwaysCase pathwaysCase) {
+        if (pathwaysCase.getPathwayDetails() == null || pathwaysCase.getPathwayDetails().getPathwayTriageDetails() == null) {
+            return NOT_APPLICABLE;
+        }
+        User user = pathwaysCase.getPathwayDetails().getPathwayTriageDetails().getPathwayTriageArray(0).getUser();
+        StringBuilder value = new StringBuilder();
+        if (user.getId() != null) {
+            value.append("User ID: '").append(user.getId()).append("' ");
+        }
+        if (user.getName() != null) {
+            value.append("User name: '").append(user.getName()).append("' ");
+        }
+        if (user.getSkillSet() != null) {
+            value.append("User skill set: '").append(user.getSkillSet()).append('\'');
+        }
+        if (StringUtils.isBlank(value)) {
+            return NOT_APPLICABLE;
+        }
+
+        return value.toString();
+    }
+
+    private static Date getLatestDate(PathwaysCase pathwaysCase) {
+        if (pathwaysCase.isSetCaseReceiveEnd()) {
+            return DateUtil.parsePathwaysDate(pathwaysCase.getCaseReceiveEnd().toString());
+        }
+
+        return null;
+    }
+
+    private static String getCaseId(PathwaysCase pathwaysCase) {
+        if (pathwaysCase.getCaseDetails() != null) {
+            if (pathwaysCase.getCaseDetails().isSetCaseId()) {
+                return pathwaysCase.getCaseDetails().getCaseId();
+            }
+        }
+
+        return null;
+    }
+
+    private static String getCountry(PathwaysCase pathwaysCase) {
+        if (pathwaysCase.getCaseDetails() != null) {
+            if (pathwaysCase.getCaseDetails().isSetAddress()) {
+                if (pathwaysCase.getCaseDetails().getAddress().isSetCountry()) {
+                    if (pathwaysCase.getCaseDetails().getAddress().getCountry().getName() != null) {
+                        return pathwaysCase.getCaseDetails().getAddress().getCountry().getName();
+                    }
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private static String getContactNumber(PathwaysCase pathwaysCase) {
+        if (pathwaysCase.getCaseDetails() != null) {
+            if (pathwaysCase.getCaseDetails().getContactDetails() != null) {
+                if (pathwaysCase.getCaseDetails().getContactDetails().sizeOfCallerArray() > 0) {
+                    if (pathwaysCase.getCaseDetails().getContactDetails().getCallerArray(0).isSetPhone()) {
+                        if (pathwaysCase.getCaseDetails().getContactDetails().getCallerArray(0).getPhone()
+                            .getNumber() != null) {
+                            return pathwaysCase.getCaseDetails().getContactDetails().getCallerArray(0).getPhone()
+                                .getNumber();
+                        }
+                    }
+                }
+            }
+        }
+
+        return null;
+    }
+}
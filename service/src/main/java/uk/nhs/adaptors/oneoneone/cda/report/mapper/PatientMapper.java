@@ -3,7 +3,7 @@ package uk.nhs.adaptors.oneoneone.cda.report.mapper;
 import static java.util.Arrays.asList;
 import static java.util.Arrays.stream;
 import static java.util.stream.Collectors.toList;
-import static org.hl7.fhir.dstu3.model.IdType.newRandomUuid;
+import static uk.nhs.adaptors.oneoneone.cda.report.util.IdUtil.newResourceId;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -40,7 +40,7 @@ public class PatientMapper {
     private static final String NHS_NUMBER_VERIFIED_OID = "2.16.840.1.113883.2.1.4.1";
     private static final String NHS_NUMBER_UNVERIFIED_OID = "2.16.840.1.113883.2.1.3.2.4.18.23";
 
-    private static final String NHS_FHIR_ID_SYSTEM = "https://fhir.nhs.uk/Id/nhs-number";
+    public static final String NHS_FHIR_ID_SYSTEM = "https://fhir.nhs.uk/Id/nhs-number";
     private static final String NHS_VERIFICATION_STATUS = "https://fhir.hl7.org.uk/STU3/StructureDefinition/Extension-CareConnect-NHSNumberVerificationStatus-1";
     private final AddressMapper addressMapper;
     private final ContactPointMapper contactPointMapper;
@@ -52,7 +52,7 @@ public class PatientMapper {
 
     public Patient mapPatient(POCDMT000002UK01PatientRole patientRole) {
         Patient fhirPatient = new Patient();
-        fhirPatient.setIdElement(newRandomUuid());
+        fhirPatient.setIdElement(newResourceId(fhirPatient.getResourceType()));
         fhirPatient.setIdentifier(getNhsNumbers(patientRole));
         fhirPatient.setActive(true);
         if (patientRole.isSetPatient()) {
@@ -2,7 +2,7 @@ package uk.nhs.adaptors.oneoneone.cda.report.mapper;
 
 import static java.util.Arrays.stream;
 import static java.util.stream.Collectors.toList;
-import static org.hl7.fhir.dstu3.model.IdType.newRandomUuid;
+import static uk.nhs.adaptors.oneoneone.cda.report.util.IdUtil.newResourceId;
 
 import java.util.Collections;
 import java.util.List;
@@ -33,8 +33,12 @@ public class PractitionerMapper {
     private final AddressMapper addressMapper;
 
     public Practitioner mapPractitioner(POCDMT000002UK01AssociatedEntity associatedEntity) {
+        return ReportMappingContext.getOrMap(Practitioner.class, associatedEntity::getIdArray, () -> createPractitioner(associatedEntity));
+    }
+
+    private Practitioner createPractitioner(POCDMT000002UK01AssociatedEntity associatedEntity) {
         Practitioner practitioner = new Practitioner();
-        practitioner.setIdElement(newRandomUuid());
+        practitioner.setIdElement(newResourceId(practitioner.getResourceType()));
         practitioner.setActive(true);
         practitioner.setName(getHumanNameFromITK(associatedEntity.getAssociatedPerson()));
         practitioner.setTelecom(getTelecomFromITK(associatedEntity.getTelecomArray()));
@@ -66,8 +70,12 @@ public class PractitionerMapper {
     }
 
     public Practitioner mapPractitioner(POCDMT000002UK01AssignedEntity assignedEntity) {
+        return ReportMappingContext.getOrMap(Practitioner.class, assignedEntity::getIdArray, () -> createPractitioner(assignedEntity));
+    }
+
+    private Practitioner createPractitioner(POCDMT000002UK01AssignedEntity assignedEntity) {
         Practitioner practitioner = new Practitioner();
-        practitioner.setIdElement(newRandomUuid());
+        practitioner.setIdElement(newResourceId(practitioner.getResourceType()));
         practitioner.setActive(true);
         if (assignedEntity.isSetAssignedPerson()) {
             practitioner.setName(getHumanNameFromITK(assignedEntity.getAssignedPerson()));
@@ -79,8 +87,12 @@ public class PractitionerMapper {
     }
 
     public Practitioner mapPractitioner(POCDMT000002UK01AssignedAuthor assignedAuthor) {
+        return ReportMappingContext.getOrMap(Practitioner.class, assignedAuthor::getIdArray, () -> createPractitioner(assignedAuthor));
+    }
+
+    private Practitioner createPractitioner(POCDMT000002UK01AssignedAuthor assignedAuthor) {
         Practitioner practitioner = new Practitioner();
-        practitioner.setIdElement(newRandomUuid());
+        practitioner.setIdElement(newResourceId(practitioner.getResourceType()));
         practitioner.setActive(true);
         practitioner.setName(getHumanNameFromITK(assignedAuthor.getAssignedPerson()));
         practitioner.setTelecom(getTelecomFromITK(assignedAuthor.getTelecomArray()));
@@ -3,7 +3,7 @@ package uk.nhs.adaptors.oneoneone.cda.report.mapper;
 import static java.util.Arrays.asList;
 import static java.util.Arrays.stream;
 import static java.util.Optional.empty;
-import static org.hl7.fhir.dstu3.model.IdType.newRandomUuid;
+import static uk.nhs.adaptors.oneoneone.cda.report.util.IdUtil.newResourceId;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -36,7 +36,7 @@ public class PractitionerRoleMapper {
         List<PractitionerRole> roles = new ArrayList<>();
         stream(authors).map(author -> {
             PractitionerRole role = new PractitionerRole();
-            role.setIdElement(newRandomUuid());
+            role.setIdElement(newResourceId(role.getResourceType()));
             POCDMT000002UK01AssignedAuthor assignedAuthor = author.getAssignedAuthor();
             role.setCode(asList(getCode(assignedAuthor.getCode())));
             Organization organization = organizationMapper.mapOrganization(assignedAuthor.getRepresentedOrganization());
@@ -57,7 +57,7 @@ public class PractitionerRoleMapper {
             POCDMT000002UK01Component1 componentOf = clinicalDocument.getComponentOf();
             if (componentOf.getEncompassingEncounter().isSetResponsibleParty()) {
                 PractitionerRole role = new PractitionerRole();
-                role.setIdElement(newRandomUuid());
+                role.setIdElement(newResourceId(role.getResourceType()));
                 POCDMT000002UK01ResponsibleParty responsibleParty = componentOf.getEncompassingEncounter().getResponsibleParty();
                 POCDMT000002UK01AssignedEntity assignedEntity = responsibleParty.getAssignedEntity();
                 role.setCode(asList(getCode(assignedEntity.getCode())));
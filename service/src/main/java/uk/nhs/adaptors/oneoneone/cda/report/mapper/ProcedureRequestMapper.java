@@ -1,6 +1,6 @@
 package uk.nhs.adaptors.oneoneone.cda.report.mapper;
 
-import static org.hl7.fhir.dstu3.model.IdType.newRandomUuid;
+import static uk.nhs.adaptors.oneoneone.cda.report.util.IdUtil.newResourceId;
 
 import org.apache.commons.lang3.StringUtils;
 import org.hl7.fhir.dstu3.model.CodeableConcept;
@@ -37,7 +37,7 @@ public class ProcedureRequestMapper {
                     }
                     if (StringUtils.isNotBlank(coding.getCode()) || StringUtils.isNotBlank(coding.getDisplay())
                         || StringUtils.isNotBlank(coding.getSystem())) {
-                        procedureRequest.setIdElement(newRandomUuid());
+                        procedureRequest.setIdElement(newResourceId(procedureRequest.getResourceType()));
                         procedureRequest.setStatus(ProcedureRequest.ProcedureRequestStatus.ACTIVE)
                             .setIntent(ProcedureRequest.ProcedureRequestIntent.PLAN)
                             .setPriority(ProcedureRequest.ProcedureRequestPriority.ROUTINE)
@@ -1,13 +1,12 @@
 package uk.nhs.adaptors.oneoneone.cda.report.mapper;
 
-import static org.hl7.fhir.dstu3.model.IdType.newRandomUuid;
+import static uk.nhs.adaptors.oneoneone.cda.report.util.IdUtil.newResourceId;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
-import org.apache.commons.lang3.StringUtils;
 import org.hl7.fhir.dstu3.model.CodeableConcept;
 import org.hl7.fhir.dstu3.model.ContactDetail;
 import org.hl7.fhir.dstu3.model.ContactPoint;
@@ -17,114 +16,59 @@ import org.hl7.fhir.dstu3.model.Questionnaire;
 import org.hl7.fhir.dstu3.model.Questionnaire.QuestionnaireItemComponent;
 import org.hl7.fhir.dstu3.model.Questionnaire.QuestionnaireItemOptionComponent;
 import org.hl7.fhir.dstu3.model.StringType;
-import org.nhspathways.webservices.pathways.pathwayscase.PathwaysCaseDocument.PathwaysCase;
 import org.nhspathways.webservices.pathways.pathwayscase.PathwaysCaseDocument.PathwaysCase.PathwayDetails.PathwayTriageDetails.PathwayTriage.TriageLineDetails.TriageLine;
 import org.nhspathways.webservices.pathways.pathwayscase.PathwaysCaseDocument.PathwaysCase.PathwayDetails.PathwayTriageDetails.PathwayTriage.TriageLineDetails.TriageLine.Question;
 import org.nhspathways.webservices.pathways.pathwayscase.PathwaysCaseDocument.PathwaysCase.PathwayDetails.PathwayTriageDetails.PathwayTriage.TriageLineDetails.TriageLine.Question.Answers.Answer;
-import org.nhspathways.webservices.pathways.pathwayscase.PathwaysCaseDocument.PathwaysCase.PathwayDetails.PathwayTriageDetails.PathwayTriage.User;
 import org.springframework.stereotype.Component;
 
 import lombok.AllArgsConstructor;
-import uk.nhs.adaptors.oneoneone.cda.report.util.DateUtil;
 
 @Component
 @AllArgsConstructor
 public class QuestionnaireMapper {
 	private static final String NOT_APPLICABLE = "N/A";
 
-	public Questionnaire mapQuestionnaire(PathwaysCase pathwaysCase, TriageLine triageLine) {
-		Questionnaire questionnaire = new Questionnaire();
-		String publisher = getPublisher(
-				pathwaysCase.getPathwayDetails().getPathwayTriageDetails().getPathwayTriageArray(0).getUser());
-		Date latestDate = getLatestDate(pathwaysCase);
-
-		questionnaire.setIdElement(newRandomUuid());
-		questionnaire.addIdentifier(new Identifier().setValue(getCaseID(pathwaysCase)))
-				.setVersion(latestDate.toString()).setStatus(Enumerations.PublicationStatus.ACTIVE)
-				.setExperimental(false).addSubjectType("Patient").setDate(latestDate).setPublisher(publisher)
-				.setLastReviewDate(latestDate)
-				.setJurisdiction(Collections.singletonList(new CodeableConcept().setText(getCountry(pathwaysCase))))
-				.addContact(new ContactDetail().addTelecom(new ContactPoint().setValue(getContactNumber(pathwaysCase))))
-				.addItem(getItem(triageLine.getQuestion(), getCaseID(pathwaysCase)));
-
-		return questionnaire;
-	}
-
-	private String getPublisher(User user) {
-		String value = StringUtils.EMPTY;
-		if (user.getId() != null) {
-			value += String.format("User ID: '%s' ", user.getId());
-		}
-		if (user.getName() != null) {
-			value += String.format("User name: '%s' ", user.getName());
-		}
-		if (user.getSkillSet() != null) {
-			value += String.format("User skill set: '%s'", user.getSkillSet());
-		}
-		if (value.isBlank()) {
-			return NOT_APPLICABLE;
-		}
-
-		return value;
+	public Questionnaire mapQuestionnaire(PathwaysCaseContext caseContext, TriageLine triageLine) {
+		return createQuestionnaire(caseContext).addItem(getItem(triageLine.getQuestion(), caseContext.getCaseId()));
 	}
 
-	private Date getLatestDate(PathwaysCase pathwaysCase) {
-		if (pathwaysCase.isSetCaseReceiveEnd()) {
-			return DateUtil.parsePathwaysDate(pathwaysCase.getCaseReceiveEnd().toString());
-		}
-
-		return null;
-	}
-
-	private String getCaseID(PathwaysCase pathwaysCase) {
-		if (pathwaysCase.getCaseDetails() != null) {
-			if (pathwaysCase.getCaseDetails().isSetCaseId()) {
-				return pathwaysCase.getCaseDetails().getCaseId();
+	/**
+	 * Maps all triage lines of a case to a single Questionnaire with one item per question, linked by
+	 * {@link QuestionnaireResponseMapper#getLinkId(Question, int)}.
+	 */
+	public Questionnaire mapQuestionnaire(PathwaysCaseContext caseContext, TriageLine[] triageLines) {
+		Questionnaire questionnaire = createQuestionnaire(caseContext);
+		for (int i = 0; i < triageLines.length; i++) {
+			Question question = triageLines[i].getQuestion();
+			if (question != null) {
+				questionnaire.addItem(getItem(question, QuestionnaireResponseMapper.getLinkId(question, i)));
 			}
 		}
-
-		return null;
+		return questionnaire;
 	}
 
-	private String getCountry(PathwaysCase pathwaysCase) {
-		if (pathwaysCase.getCaseDetails() != null) {
-			if (pathwaysCase.getCaseDetails().isSetAddress()) {
-				if (pathwaysCase.getCaseDetails().getAddress().isSetCountry()) {
-					if (pathwaysCase.getCaseDetails().getAddress().getCountry().getName() != null) {
-						return pathwaysCase.getCaseDetails().getAddress().getCountry().getName();
-					}
-				}
-			}
-		}
-
-		return null;
-	}
+	private Questionnaire createQuestionnaire(PathwaysCaseContext caseContext) {
+		Questionnaire questionnaire = new Questionnaire();
+		Date latestDate = caseContext.getLatestDate();
 
-	private String getContactNumber(PathwaysCase pathwaysCase) {
-		if (pathwaysCase.getCaseDetails() != null) {
-			if (pathwaysCase.getCaseDetails().getContactDetails() != null) {
-				if (pathwaysCase.getCaseDetails().getContactDetails().sizeOfCallerArray() > 0) {
-					if (pathwaysCase.getCaseDetails().getContactDetails().getCallerArray(0).isSetPhone()) {
-						if (pathwaysCase.getCaseDetails().getContactDetails().getCallerArray(0).getPhone()
-								.getNumber() != null) {
-							return pathwaysCase.getCaseDetails().getContactDetails().getCallerArray(0).getPhone()
-									.getNumber();
-						}
-					}
-				}
-			}
-		}
+		questionnaire.setIdElement(newResourceId(questionnaire.getResourceType()));
+		questionnaire.addIdentifier(new Identifier().setValue(caseContext.getCaseId()))
+				.setVersion(latestDate.toString()).setStatus(Enumerations.PublicationStatus.ACTIVE)
+				.setExperimental(false).addSubjectType("Patient").setDate(latestDate).setPublisher(caseContext.getPublisher())
+				.setLastReviewDate(latestDate)
+				.setJurisdiction(Collections.singletonList(new CodeableConcept().setText(caseContext.getCountry())))
+				.addContact(new ContactDetail().addTelecom(new ContactPoint().setValue(caseContext.getContactNumber())));
 
-		return null;
+		return questionnaire;
 	}
 
-	private QuestionnaireItemComponent getItem(Question question, String caseId) {
+	private QuestionnaireItemComponent getItem(Question question, String linkId) {
 		if (question == null)
 			return null;
 		List<QuestionnaireItemOptionComponent> questionnaireItemOptionComponentList = new ArrayList<>();
 		QuestionnaireItemComponent item = new QuestionnaireItemComponent();
 
-		item.setLinkId(caseId);
+		item.setLinkId(linkId);
 		item.setPrefix(getPrefix(question));
 		item.setType(Questionnaire.QuestionnaireItemType.CHOICE);
 		item.setRequired(true);
@@ -1,6 +1,6 @@
 package uk.nhs.adaptors.oneoneone.cda.report.mapper;
 
-import static org.hl7.fhir.dstu3.model.IdType.newRandomUuid;
+import static uk.nhs.adaptors.oneoneone.cda.report.util.IdUtil.newResourceId;
 
 import org.apache.commons.lang3.StringUtils;
 import org.hl7.fhir.dstu3.model.Identifier;
@@ -10,14 +10,12 @@ import org.hl7.fhir.dstu3.model.QuestionnaireResponse.QuestionnaireResponseItemA
 import org.hl7.fhir.dstu3.model.QuestionnaireResponse.QuestionnaireResponseItemComponent;
 import org.hl7.fhir.dstu3.model.Reference;
 import org.hl7.fhir.dstu3.model.StringType;
-import org.nhspathways.webservices.pathways.pathwayscase.PathwaysCaseDocument.PathwaysCase;
 import org.nhspathways.webservices.pathways.pathwayscase.PathwaysCaseDocument.PathwaysCase.PathwayDetails.PathwayTriageDetails.PathwayTriage.TriageLineDetails.TriageLine;
 import org.nhspathways.webservices.pathways.pathwayscase.PathwaysCaseDocument.PathwaysCase.PathwayDetails.PathwayTriageDetails.PathwayTriage.TriageLineDetails.TriageLine.Question;
 import org.nhspathways.webservices.pathways.pathwayscase.PathwaysCaseDocument.PathwaysCase.PathwayDetails.PathwayTriageDetails.PathwayTriage.TriageLineDetails.TriageLine.Question.Answers.Answer;
 import org.springframework.stereotype.Component;
 
 import lombok.AllArgsConstructor;
-import uk.nhs.adaptors.oneoneone.cda.report.util.DateUtil;
 
 @Component
 @AllArgsConstructor
@@ -26,46 +24,85 @@ public class QuestionnaireResponseMapper {
     private static final String NOT_APPLICABLE = "N/A";
     private final QuestionnaireMapper questionnaireMapper;
 
-    public QuestionnaireResponse mapQuestionnaireResponse(PathwaysCase pathwaysCase, Reference patient, Reference encounter,
+    public QuestionnaireResponse mapQuestionnaireResponse(PathwaysCaseContext caseContext, Reference patient, Reference encounter,
         TriageLine triageLine) {
+        QuestionnaireResponse questionnaireResponse = createQuestionnaireResponse(caseContext, patient, encounter,
+            caseContext.isWithQuestionnaires() ? questionnaireMapper.mapQuestionnaire(caseContext, triageLine) : null);
+        if (triageLine.getQuestion() != null) {
+            questionnaireResponse.addItem(getItem(triageLine.getQuestion(), getLinkId(triageLine.getQuestion())));
+        }
+
+        return questionnaireResponse;
+    }
+
+    /**
+     * Maps all triage lines of a case to a single QuestionnaireResponse with one item per answered question,
+     * in triage line order. Items are linked to the Questionnaire by {@link #getLinkId(Question, int)}.
+     */
+    public QuestionnaireResponse mapQuestionnaireResponse(PathwaysCaseContext caseContext, Reference patient, Reference encounter,
+        TriageLine[] triageLines) {
+        QuestionnaireResponse questionnaireResponse = createQuestionnaireResponse(caseContext, patient, encounter,
+            caseContext.isWithQuestionnaires() ? questionnaireMapper.mapQuestionnaire(caseContext, triageLines) : null);
+        for (int i = 0; i < triageLines.length; i++) {
+            Question question = triageLines[i].getQuestion();
+            if (question != null) {
+                questionnaireResponse.addItem(getItem(question, getLinkId(question, i)));
+            }
+        }
+
+        return questionnaireResponse;
+    }
+
+    static String getLinkId(Question question) {
+        if (StringUtils.isBlank(question.getQuestionId())) {
+            return NOT_APPLICABLE;
+        }
+        return question.getQuestionId();
+    }
+
+    /**
+     * A question can be asked more than once during a triage, so the triage line index is part of the linkId to keep the items of
+     * an aggregated Questionnaire and QuestionnaireResponse unique.
+     */
+    static String getLinkId(Question question, int triageLineIndex) {
+        if (StringUtils.isBlank(question.getQuestionId())) {
+            return String.valueOf(triageLineIndex);
+        }
+        return triageLineIndex + ":" + question.getQuestionId();
+    }
+
+    private QuestionnaireResponse createQuestionnaireResponse(PathwaysCaseContext caseContext, Reference patient, Reference encounter,
+        Questionnaire questionnaire) {
         QuestionnaireResponse questionnaireResponse = new QuestionnaireResponse();
-        Questionnaire questionnaire = questionnaireMapper.mapQuestionnaire(pathwaysCase, triageLine);
 
-        questionnaireResponse.setIdElement(newRandomUuid());
+        questionnaireResponse.setIdElement(newResourceId(questionnaireResponse.getResourceType()));
 
         questionnaireResponse
-            .setQuestionnaire(new Reference(questionnaire))
-            .setQuestionnaireTarget(questionnaire)
             .setStatus(QuestionnaireResponse.QuestionnaireResponseStatus.COMPLETED)
             .setSubject(patient)
             .setContext(encounter);
-
-        if (pathwaysCase.getCaseDetails() != null) {
-            if (pathwaysCase.getCaseDetails().isSetCaseId()) {
-                questionnaireResponse.setIdentifier(new Identifier().setValue(pathwaysCase.getCaseDetails().getCaseId()));
-            }
+        if (questionnaire != null) {
+            questionnaireResponse
+                .setQuestionnaire(new Reference(questionnaire))
+                .setQuestionnaireTarget(questionnaire);
         }
-        if (pathwaysCase.isSetCaseReceiveEnd()) {
-            questionnaireResponse.setAuthored(DateUtil.parsePathwaysDate(pathwaysCase.getCaseReceiveEnd().toString()));
+
+        if (caseContext.getCaseId() != null) {
+            questionnaireResponse.setIdentifier(new Identifier().setValue(caseContext.getCaseId()));
         }
-        if (triageLine.getQuestion() != null) {
-            questionnaireResponse.addItem(getItem(triageLine.getQuestion()));
+        if (caseContext.getLatestDate() != null) {
+            questionnaireResponse.setAuthored(caseContext.getLatestDate());
         }
 
         return questionnaireResponse;
     }
 
-    private QuestionnaireResponseItemComponent getItem(Question question) {
+    private QuestionnaireResponseItemComponent getItem(Question question, String linkId) {
         QuestionnaireResponseItemComponent item = new QuestionnaireResponseItemComponent();
         QuestionnaireResponseItemAnswerComponent answer = new QuestionnaireResponseItemAnswerComponent();
         StringType correctAnswerText = new StringType();
 
-        if (StringUtils.isBlank(question.getQuestionId())) {
-            item.setLinkId(NOT_APPLICABLE);
-        } else {
-            item.setLinkId(question.getQuestionId());
-        }
-
+        item.setLinkId(linkId);
         item.setText(question.getQuestionText());
 
         for (Answer singleAnswer : question.getAnswers().getAnswerArray()) {
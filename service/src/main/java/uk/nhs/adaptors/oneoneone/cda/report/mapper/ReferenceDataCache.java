@@ -0,0 +1,133 @@
+package uk.nhs.adaptors.oneoneone.cda.report.mapper;
+
+import static uk.nhs.adaptors.oneoneone.cda.report.util.IdUtil.newResourceId;
+
+import java.time.Clock;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.apache.xmlbeans.XmlObject;
+import org.hl7.fhir.dstu3.model.Resource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import uk.nhs.adaptors.oneoneone.cda.report.util.HashUtil;
+import uk.nhs.adaptors.oneoneone.cda.report.util.IdContext;
+import uk.nhs.adaptors.oneoneone.config.ReferenceDataCacheProperties;
+import uk.nhs.connect.iucds.cda.ucr.II;
+
+/**
+ * Cache of mapped reference data shared by all reports, such as GP practices and receiving services. Templates are
+ * keyed by the ids of the source element and a hash of its content, and are never handed out: every report gets a
+ * copy with fresh resource ids. Templates expire after the configured time to live and the least recently used
+ * ones are evicted once the cache is full.
+ */
+@Component
+public class ReferenceDataCache {
+
+    private static final String REQUESTS_METRIC = "report.reference-data.cache.requests";
+    private static final String EVICTIONS_METRIC = "report.reference-data.cache.evictions";
+
+    private final ReferenceDataCacheProperties properties;
+    private final Clock clock;
+    private final Map<String, Template> templates;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter expired;
+    private final Counter evicted;
+
+    @Autowired
+    public ReferenceDataCache(ReferenceDataCacheProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, Clock.systemUTC());
+    }
+
+    ReferenceDataCache(ReferenceDataCacheProperties properties, MeterRegistry meterRegistry, Clock clock) {
+        this.properties = properties;
+        this.clock = clock;
+        this.hits = meterRegistry.counter(REQUESTS_METRIC, "result", "hit");
+        this.misses = meterRegistry.counter(REQUESTS_METRIC, "result", "miss");
+        this.expired = meterRegistry.counter(EVICTIONS_METRIC, "cause", "expired");
+        this.evicted = meterRegistry.counter(EVICTIONS_METRIC, "cause", "size");
+        this.templates = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Template> eldest) {
+                if (size() > properties.getMaxEntries()) {
+                    evicted.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        Gauge.builder("report.reference-data.cache.size", this, ReferenceDataCache::size)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Returns a copy of the template mapped from an identical source element, mapping the template first if needed.
+     * Sources without ids are mapped every time. Templates should not reference other resources, which are only
+     * resolved for a single report.
+     */
+    public <T extends Resource> T getOrMap(Class<T> type, II[] ids, XmlObject source, Supplier<T> mapper) {
+        if (!properties.isEnabled()) {
+            return mapper.get();
+        }
+        String identityKey = ReportMappingContext.identityKey(ids);
+        if (identityKey == null) {
+            return mapper.get();
+        }
+        String key = type.getSimpleName() + "/" + identityKey + "/" + HashUtil.sha256(source);
+
+        Resource template = get(key);
+        if (template == null) {
+            // mapped apart from the report, so the template neither takes its resource names nor registers in its context
+            try (IdContext suspended = IdContext.suspend(); ReportMappingContext detached = ReportMappingContext.suspend()) {
+                template = mapper.get();
+            }
+            put(key, template);
+        }
+        return copyWithNewId(type.cast(template));
+    }
+
+    public static <T extends Resource> T copyWithNewId(T template) {
+        @SuppressWarnings("unchecked")
+        T copy = (T) template.copy();
+        copy.setIdElement(newResourceId(copy.getResourceType()));
+        return copy;
+    }
+
+    synchronized int size() {
+        return templates.size();
+    }
+
+    private synchronized Resource get(String key) {
+        Template template = templates.get(key);
+        if (template != null && template.getExpiresAt() <= clock.millis()) {
+            templates.remove(key);
+            expired.increment();
+            template = null;
+        }
+        if (template == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return template.getResource();
+    }
+
+    private synchronized void put(String key, Resource resource) {
+        templates.put(key, new Template(resource, clock.millis() + properties.getTtl().toMillis()));
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static final class Template {
+        private final Resource resource;
+        private final long expiresAt;
+    }
+}
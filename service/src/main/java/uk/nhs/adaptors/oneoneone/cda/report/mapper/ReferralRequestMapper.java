@@ -1,9 +1,9 @@
 package uk.nhs.adaptors.oneoneone.cda.report.mapper;
 
-import static org.hl7.fhir.dstu3.model.IdType.newRandomUuid;
 import static org.hl7.fhir.dstu3.model.ReferralRequest.ReferralCategory.PLAN;
 import static org.hl7.fhir.dstu3.model.ReferralRequest.ReferralPriority.ROUTINE;
 import static org.hl7.fhir.dstu3.model.ReferralRequest.ReferralRequestStatus.ACTIVE;
+import static uk.nhs.adaptors.oneoneone.cda.report.util.IdUtil.newResourceId;
 
 import java.util.Date;
 import java.util.List;
@@ -30,7 +30,7 @@ public class ReferralRequestMapper {
         List<HealthcareService> healthcareServiceList, Reference condition) {
 
         ReferralRequest referralRequest = new ReferralRequest();
-        referralRequest.setIdElement(newRandomUuid());
+        referralRequest.setIdElement(newResourceId(referralRequest.getResourceType()));
 
         Date now = new Date();
         referralRequest
@@ -3,7 +3,7 @@ package uk.nhs.adaptors.oneoneone.cda.report.mapper;
 import static java.util.Arrays.stream;
 import static java.util.Collections.emptyList;
 import static org.hl7.fhir.dstu3.model.Enumerations.AdministrativeGender.UNKNOWN;
-import static org.hl7.fhir.dstu3.model.IdType.newRandomUuid;
+import static uk.nhs.adaptors.oneoneone.cda.report.util.IdUtil.newResourceId;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -46,7 +46,7 @@ public class RelatedPersonMapper {
         POCDMT000002UK01RelatedEntity relatedEntity = informant.getRelatedEntity();
         RelatedPerson relatedPerson = new RelatedPerson();
 
-        relatedPerson.setIdElement(newRandomUuid());
+        relatedPerson.setIdElement(newResourceId(relatedPerson.getResourceType()));
         relatedPerson.setActive(true).setPatient(encounter.getSubject()).setGender(UNKNOWN);
 
         if (relatedEntity.getCode() != null && relatedEntity.getCode().getDisplayName() != null) {
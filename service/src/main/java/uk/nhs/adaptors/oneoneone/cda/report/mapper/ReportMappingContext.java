@@ -0,0 +1,119 @@
+package uk.nhs.adaptors.oneoneone.cda.report.mapper;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.apache.xmlbeans.XmlObject;
+import org.hl7.fhir.dstu3.model.Resource;
+
+import uk.nhs.adaptors.oneoneone.cda.report.util.IdContext;
+import uk.nhs.connect.iucds.cda.ucr.II;
+
+/**
+ * Identity cache for the mapping of a single report. Organisations and practitioners identified by the same ids are
+ * mapped once, and every reference to them points at the same resource. CDA text shown by more than one resource is
+ * rendered once. The context is bound to the mapping thread between {@link #open()} and {@link #close()}; outside of it
+ * every call maps a new resource.
+ */
+public final class ReportMappingContext implements AutoCloseable {
+
+    private static final ThreadLocal<ReportMappingContext> CURRENT = new ThreadLocal<>();
+
+    private final Map<String, Resource> resources = new HashMap<>();
+    private final Map<XmlObject, String> renderedText = new IdentityHashMap<>();
+    private final ReportMappingContext previous;
+    private final boolean suspended;
+
+    private ReportMappingContext(ReportMappingContext previous, boolean suspended) {
+        this.previous = previous;
+        this.suspended = suspended;
+    }
+
+    public static ReportMappingContext open() {
+        return bind(new ReportMappingContext(CURRENT.get(), false));
+    }
+
+    /**
+     * Resources mapped while suspended are not shared with the report being mapped, e.g. cached templates that are
+     * reused by later reports.
+     */
+    public static ReportMappingContext suspend() {
+        return bind(new ReportMappingContext(CURRENT.get(), true));
+    }
+
+    /**
+     * Returns the resource already mapped for the given ids, or maps and remembers a new one. Resources without
+     * any usable id are never shared.
+     */
+    public static <T extends Resource> T getOrMap(Class<T> type, Supplier<II[]> ids, Supplier<T> mapper) {
+        ReportMappingContext context = current();
+        if (context == null) {
+            return mapper.get();
+        }
+        String key = identityKey(ids.get());
+        if (key == null) {
+            return mapper.get();
+        }
+        String resourceKey = type.getSimpleName() + "/" + key;
+        Resource resource = context.resources.get(resourceKey);
+        if (resource == null) {
+            // named by its ids, so its id does not depend on where in the document it is first referenced
+            try (IdContext scope = IdContext.openScope(key)) {
+                resource = mapper.get();
+            }
+            context.resources.put(resourceKey, resource);
+        }
+        return type.cast(resource);
+    }
+
+    /**
+     * Returns the text already rendered from the given CDA element, or renders and remembers it.
+     */
+    public static String getOrRender(XmlObject element, Function<XmlObject, String> renderer) {
+        ReportMappingContext context = current();
+        if (context == null) {
+            return renderer.apply(element);
+        }
+        if (context.renderedText.containsKey(element)) {
+            return context.renderedText.get(element);
+        }
+        String text = renderer.apply(element);
+        context.renderedText.put(element, text);
+        return text;
+    }
+
+    private static ReportMappingContext current() {
+        ReportMappingContext context = CURRENT.get();
+        return context == null || context.suspended ? null : context;
+    }
+
+    private static ReportMappingContext bind(ReportMappingContext context) {
+        CURRENT.set(context);
+        return context;
+    }
+
+    static String identityKey(II[] ids) {
+        if (ids == null) {
+            return null;
+        }
+        String key = Arrays.stream(ids)
+            .filter(id -> id.isSetRoot() || id.isSetExtension())
+            .map(id -> id.getRoot() + "|" + id.getExtension())
+            .collect(Collectors.joining(","));
+        return key.isEmpty() ? null : key;
+    }
+
+    @Override
+    public void close() {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
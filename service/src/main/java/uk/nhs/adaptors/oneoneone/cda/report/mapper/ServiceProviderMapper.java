@@ -1,6 +1,6 @@
 package uk.nhs.adaptors.oneoneone.cda.report.mapper;
 
-import static org.hl7.fhir.dstu3.model.IdType.newRandomUuid;
+import static uk.nhs.adaptors.oneoneone.cda.report.util.IdUtil.newResourceId;
 
 import java.util.Collections;
 import java.util.List;
@@ -25,12 +25,20 @@ public class ServiceProviderMapper {
 
     private final NodeUtil nodeUtil;
 
+    private final ReferenceDataCache referenceDataCache;
+
     public Organization mapServiceProvider(POCDMT000002UK01Custodian custodian) {
         POCDMT000002UK01AssignedCustodian assignedCustodian = custodian.getAssignedCustodian();
         POCDMT000002UK01CustodianOrganization custodianOrganization = assignedCustodian.getRepresentedCustodianOrganization();
 
+        return referenceDataCache.getOrMap(Organization.class, custodianOrganization.getIdArray(), custodian,
+            () -> createServiceProvider(custodian, custodianOrganization));
+    }
+
+    private Organization createServiceProvider(POCDMT000002UK01Custodian custodian,
+        POCDMT000002UK01CustodianOrganization custodianOrganization) {
         Organization serviceProviderOrganization = new Organization();
-        serviceProviderOrganization.setIdElement(newRandomUuid());
+        serviceProviderOrganization.setIdElement(newResourceId(serviceProviderOrganization.getResourceType()));
         serviceProviderOrganization.setActive(true);
 
         if (custodianOrganization.isSetAddr()) {
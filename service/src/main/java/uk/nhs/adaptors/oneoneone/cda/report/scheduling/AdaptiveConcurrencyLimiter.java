@@ -0,0 +1,201 @@
+package uk.nhs.adaptors.oneoneone.cda.report.scheduling;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import uk.nhs.adaptors.oneoneone.cda.report.controller.exceptions.ServiceBusyException;
+import uk.nhs.adaptors.oneoneone.config.ConcurrencyProperties;
+
+/**
+ * Gradient based concurrency limiter. Each completed report feeds back its end-to-end and broker latency;
+ * while both stay within the tolerated multiple of their long-term baseline the limit grows, and once
+ * either starts to climb the limit shrinks in proportion. Broker failures back the limit off multiplicatively.
+ */
+@Component
+@Slf4j
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double MIN_GRADIENT = 0.5;
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final ConcurrencyProperties properties;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitAvailable = lock.newCondition();
+
+    private volatile double limit;
+    private volatile int inFlight;
+    private int emergencyWaiting;
+    private double baselineLatency;
+    private double baselineBrokerLatency;
+
+    public AdaptiveConcurrencyLimiter(ConcurrencyProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.limit = properties.getInitialLimit();
+        Gauge.builder("report.concurrency.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+            .register(meterRegistry);
+        Gauge.builder("report.concurrency.in-flight", this, AdaptiveConcurrencyLimiter::getInFlight)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Waits for a free slot. Routine reports do not take a slot while an emergency report is waiting for one.
+     */
+    public Permit acquire(ReportPriority priority) {
+        boolean emergency = priority == ReportPriority.EMERGENCY;
+        lock.lock();
+        try {
+            if (properties.isEnabled()) {
+                long remaining = properties.getAcquireTimeout().toNanos();
+                if (emergency) {
+                    emergencyWaiting++;
+                }
+                try {
+                    while (inFlight >= (int) limit || !emergency && emergencyWaiting > 0) {
+                        if (remaining <= 0) {
+                            throw new ServiceBusyException(String.format(
+                                "Concurrency limit of %d reports reached", (int) limit));
+                        }
+                        remaining = permitAvailable.awaitNanos(remaining);
+                    }
+                } finally {
+                    if (emergency) {
+                        emergencyWaiting--;
+                        permitAvailable.signalAll();
+                    }
+                }
+            }
+            inFlight++;
+            return new Permit();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException("Interrupted while waiting for a concurrency permit");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public double getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    int getEmergencyWaiting() {
+        lock.lock();
+        try {
+            return emergencyWaiting;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void complete(long latency, long brokerLatency) {
+        lock.lock();
+        try {
+            inFlight--;
+            if (properties.isEnabled()) {
+                updateLimit(latency, brokerLatency);
+            }
+            permitAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void backOff() {
+        lock.lock();
+        try {
+            inFlight--;
+            if (properties.isEnabled()) {
+                limit = clamp(limit * BACKOFF_RATIO);
+                LOGGER.debug("Broker failure, concurrency limit reduced to {}", (int) limit);
+            }
+            permitAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void abandon() {
+        lock.lock();
+        try {
+            inFlight--;
+            permitAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void updateLimit(long latency, long brokerLatency) {
+        baselineLatency = updateBaseline(baselineLatency, latency);
+        baselineBrokerLatency = updateBaseline(baselineBrokerLatency, brokerLatency);
+        double gradient = Math.min(gradient(baselineLatency, latency), gradient(baselineBrokerLatency, brokerLatency));
+
+        if (gradient >= 1.0 && inFlight < limit / 2) {
+            // not enough traffic to tell whether a higher limit would still be healthy
+            return;
+        }
+
+        double target = limit * gradient + Math.sqrt(limit);
+        limit = clamp(limit * (1 - properties.getSmoothing()) + target * properties.getSmoothing());
+    }
+
+    private double updateBaseline(double baseline, long sample) {
+        if (sample <= 0) {
+            return baseline;
+        }
+        if (baseline == 0) {
+            return sample;
+        }
+        return baseline + (sample - baseline) / properties.getBaselineWindow();
+    }
+
+    private double gradient(double baseline, long sample) {
+        if (sample <= 0 || baseline == 0) {
+            return 1.0;
+        }
+        return Math.max(MIN_GRADIENT, Math.min(1.0, properties.getTolerance() * baseline / sample));
+    }
+
+    private double clamp(double value) {
+        return Math.max(properties.getMinLimit(), Math.min(properties.getMaxLimit(), value));
+    }
+
+    /**
+     * Slot held by a single report. Closing a permit that has not recorded an outcome returns the slot
+     * without influencing the limit, e.g. when mapping fails because of the document itself.
+     */
+    public final class Permit implements AutoCloseable {
+        private final long acquiredAt = System.nanoTime();
+        private boolean completed;
+
+        public void release(long brokerLatencyNanos) {
+            if (!completed) {
+                completed = true;
+                complete(System.nanoTime() - acquiredAt, brokerLatencyNanos);
+            }
+        }
+
+        public void drop() {
+            if (!completed) {
+                completed = true;
+                backOff();
+            }
+        }
+
+        @Override
+        public void close() {
+            if (!completed) {
+                completed = true;
+                abandon();
+            }
+        }
+    }
+}
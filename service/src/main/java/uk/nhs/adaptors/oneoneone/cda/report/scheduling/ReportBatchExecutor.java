@@ -0,0 +1,52 @@
+package uk.nhs.adaptors.oneoneone.cda.report.scheduling;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import uk.nhs.adaptors.oneoneone.config.BatchProperties;
+
+/**
+ * Runs the reports of a batch request in parallel. Batch threads parse and validate the reports and then wait in the
+ * report lanes like request threads do, so a batch gets the same scheduling and limits as reports posted one by one.
+ */
+@Component
+@ConditionalOnProperty(prefix = "batch", name = "enabled", havingValue = "true")
+public class ReportBatchExecutor {
+
+    private final ExecutorService executor;
+
+    public ReportBatchExecutor(BatchProperties properties) {
+        this.executor = Executors.newFixedThreadPool(properties.getThreads(), new CustomizableThreadFactory("report-batch-"));
+    }
+
+    /**
+     * Runs the tasks and returns their results in task order. The tasks are expected to handle their own exceptions.
+     */
+    public <T> List<T> invokeAll(List<Callable<T>> tasks) throws InterruptedException {
+        List<T> results = new ArrayList<>(tasks.size());
+        for (Future<T> future : executor.invokeAll(tasks)) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Batch task failed", e.getCause());
+            }
+        }
+        return results;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,6 @@
+package uk.nhs.adaptors.oneoneone.cda.report.scheduling;
+
+public enum ReportLane {
+    SMALL,
+    LARGE
+}
@@ -0,0 +1,170 @@
+package uk.nhs.adaptors.oneoneone.cda.report.scheduling;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import uk.nhs.adaptors.oneoneone.cda.report.controller.exceptions.ServiceBusyException;
+import uk.nhs.adaptors.oneoneone.config.LaneProperties;
+import uk.nhs.adaptors.oneoneone.config.SenderProperties;
+
+/**
+ * Runs report processing in separate lanes by payload size, so that small documents are not queued behind
+ * a burst of large ones. Each lane has its own worker pool and its own bound on accepted reports.
+ * Within a lane emergency reports are taken ahead of routine ones and are never rejected for lack of capacity.
+ * Reports of the same priority are taken in weighted fair order (self-clocked fair queueing): every report gets a
+ * finish tag of its sender's previous tag plus payload size divided by the sender's weight, so a sender replaying
+ * a large backlog cannot starve the live traffic of other senders.
+ */
+@Component
+public class ReportLaneScheduler {
+
+    private final LaneProperties properties;
+    private final SenderProperties senderProperties;
+    private final Map<ReportLane, Lane> lanes = new EnumMap<>(ReportLane.class);
+
+    public ReportLaneScheduler(LaneProperties properties, SenderProperties senderProperties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.senderProperties = senderProperties;
+        lanes.put(ReportLane.SMALL, new Lane(ReportLane.SMALL, properties.getSmall(), meterRegistry));
+        lanes.put(ReportLane.LARGE, new Lane(ReportLane.LARGE, properties.getLarge(), meterRegistry));
+    }
+
+    public ReportLane selectLane(int payloadSize) {
+        return payloadSize >= properties.getLargeThreshold() ? ReportLane.LARGE : ReportLane.SMALL;
+    }
+
+    /**
+     * Runs the task in the lane matching the payload size and waits for its result. Exceptions thrown by
+     * the task are rethrown unchanged.
+     */
+    public <T> T execute(int payloadSize, ReportPriority priority, String sender, Callable<T> task) throws Exception {
+        double cost = payloadSize / senderProperties.getWeight(sender);
+        return lanes.get(selectLane(payloadSize)).execute(priority, sender, cost, task);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lanes.values().forEach(lane -> lane.executor.shutdown());
+    }
+
+    private static final class Lane {
+        private final ReportLane name;
+        private final ThreadPoolExecutor executor;
+        private final Semaphore capacity;
+        private final Timer queueTimer;
+        private final AtomicLong sequence = new AtomicLong();
+        private final Map<String, Double> lastFinishTags = new HashMap<>();
+        private double virtualTime;
+
+        private Lane(ReportLane name, LaneProperties.Lane config, MeterRegistry meterRegistry) {
+            this.name = name;
+            this.executor = new ThreadPoolExecutor(config.getThreads(), config.getThreads(), 0L, MILLISECONDS,
+                new PriorityBlockingQueue<>(), new CustomizableThreadFactory("report-" + name.name().toLowerCase() + "-"));
+            this.capacity = new Semaphore(config.getCapacity());
+            this.queueTimer = Timer.builder("report.lane.wait").tag("lane", name.name()).register(meterRegistry);
+            Gauge.builder("report.lane.queued", executor, e -> e.getQueue().size())
+                .tag("lane", name.name())
+                .register(meterRegistry);
+            Gauge.builder("report.lane.active", executor, ThreadPoolExecutor::getActiveCount)
+                .tag("lane", name.name())
+                .register(meterRegistry);
+        }
+
+        private <T> T execute(ReportPriority priority, String sender, double cost, Callable<T> task) throws Exception {
+            boolean limited = priority != ReportPriority.EMERGENCY;
+            if (limited && !capacity.tryAcquire()) {
+                throw new ServiceBusyException(String.format("Report lane %s is full", name));
+            }
+            long queuedAt = System.nanoTime();
+            double finishTag = nextFinishTag(sender, cost);
+            LaneTask<T> future = new LaneTask<>(priority, finishTag, sequence.getAndIncrement(), () -> {
+                queueTimer.record(System.nanoTime() - queuedAt, NANOSECONDS);
+                advanceVirtualTime(finishTag);
+                return task.call();
+            }) {
+                @Override
+                protected void done() {
+                    if (limited) {
+                        capacity.release();
+                    }
+                }
+            };
+            try {
+                executor.execute(future);
+            } catch (RejectedExecutionException e) {
+                future.cancel(false);
+                throw new ServiceBusyException(String.format("Report lane %s is shut down", name));
+            }
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                future.cancel(true);
+                Thread.currentThread().interrupt();
+                throw new ServiceBusyException(String.format("Interrupted while waiting in report lane %s", name));
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof Exception) {
+                    throw (Exception) cause;
+                }
+                throw (Error) cause;
+            }
+        }
+
+        private synchronized double nextFinishTag(String sender, double cost) {
+            double finishTag = Math.max(virtualTime, lastFinishTags.getOrDefault(sender, 0.0)) + cost;
+            lastFinishTags.put(sender, finishTag);
+            return finishTag;
+        }
+
+        private synchronized void advanceVirtualTime(double finishTag) {
+            if (finishTag > virtualTime) {
+                virtualTime = finishTag;
+                // senders whose last report has been started no longer carry a backlog
+                lastFinishTags.values().removeIf(tag -> tag <= virtualTime);
+            }
+        }
+    }
+
+    private static class LaneTask<T> extends FutureTask<T> implements Comparable<LaneTask<?>> {
+        private final ReportPriority priority;
+        private final double finishTag;
+        private final long sequence;
+
+        LaneTask(ReportPriority priority, double finishTag, long sequence, Callable<T> callable) {
+            super(callable);
+            this.priority = priority;
+            this.finishTag = finishTag;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(LaneTask<?> other) {
+            int byPriority = priority.compareTo(other.priority);
+            if (byPriority != 0) {
+                return byPriority;
+            }
+            int byFinishTag = Double.compare(finishTag, other.finishTag);
+            return byFinishTag != 0 ? byFinishTag : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package uk.nhs.adaptors.oneoneone.cda.report.scheduling;
+
+/**
+ * Processing priority of a report. Emergency reports (ambulance dispositions) are taken ahead of routine ones
+ * in the processing lanes, by the concurrency limiter and on the broker.
+ */
+public enum ReportPriority {
+    EMERGENCY,
+    ROUTINE
+}
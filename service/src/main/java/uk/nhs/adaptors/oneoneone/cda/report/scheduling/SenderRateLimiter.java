@@ -0,0 +1,96 @@
+package uk.nhs.adaptors.oneoneone.cda.report.scheduling;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import uk.nhs.adaptors.oneoneone.cda.report.controller.exceptions.RateLimitExceededException;
+import uk.nhs.adaptors.oneoneone.config.SenderProperties;
+
+/**
+ * Token bucket per sender. A sender may send a burst of reports up to the bucket size, after which it is
+ * limited to the configured rate. Once too many senders are tracked the least recently seen sender is forgotten, so
+ * distinct sender addresses cannot grow the buckets without bound.
+ */
+@Component
+public class SenderRateLimiter {
+
+    private final SenderProperties properties;
+    private final LongSupplier nanoClock;
+    private final Counter rejected;
+    private final Map<String, TokenBucket> buckets;
+
+    @Autowired
+    public SenderRateLimiter(SenderProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, System::nanoTime);
+    }
+
+    SenderRateLimiter(SenderProperties properties, MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        this.properties = properties;
+        this.nanoClock = nanoClock;
+        this.rejected = meterRegistry.counter("report.sender.rate-limited");
+        this.buckets = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TokenBucket> eldest) {
+                return size() > properties.getMaxTracked();
+            }
+        };
+    }
+
+    public void checkRate(String sender) {
+        if (!properties.isRateLimitEnabled()) {
+            return;
+        }
+        if (!getBucket(sender).tryTake(nanoClock.getAsLong())) {
+            rejected.increment();
+            throw new RateLimitExceededException(String.format("Rate limit of %s reports per second exceeded by sender %s",
+                properties.getRatePerSecond(sender), sender));
+        }
+    }
+
+    synchronized int size() {
+        return buckets.size();
+    }
+
+    private synchronized TokenBucket getBucket(String sender) {
+        return buckets.computeIfAbsent(sender,
+            it -> new TokenBucket(properties.getRatePerSecond(it), properties.getBurst(it), nanoClock.getAsLong()));
+    }
+
+    private static final class TokenBucket {
+        private final double tokensPerNano;
+        private final int capacity;
+        private double tokens;
+        private long refilledAt;
+
+        private TokenBucket(double ratePerSecond, int capacity, long now) {
+            this.tokensPerNano = ratePerSecond / SECONDS.toNanos(1);
+            this.capacity = capacity;
+            this.tokens = capacity;
+            this.refilledAt = now;
+        }
+
+        private synchronized boolean tryTake(long now) {
+            refill(now);
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+
+        private void refill(long now) {
+            if (now > refilledAt) {
+                tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+                refilledAt = now;
+            }
+        }
+    }
+}
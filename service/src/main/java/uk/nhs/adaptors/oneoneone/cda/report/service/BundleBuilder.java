@@ -0,0 +1,76 @@
+package uk.nhs.adaptors.oneoneone.cda.report.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import org.hl7.fhir.dstu3.model.Bundle;
+import org.hl7.fhir.dstu3.model.Resource;
+import org.hl7.fhir.dstu3.model.ResourceType;
+
+/**
+ * Adds resources to a bundle once, however often they are referenced. Resources of the ordered types are also kept in a
+ * list sorted by the given order, with resources that compare equal in the order they were added.
+ */
+final class BundleBuilder {
+
+    private final Bundle bundle;
+    private final Set<ResourceType> orderedTypes;
+    private final Comparator<Resource> order;
+    private final Set<Resource> resources = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<String> fullUrls = new HashSet<>();
+    private final List<Resource> orderedResources = new ArrayList<>();
+
+    BundleBuilder(Bundle bundle, Set<ResourceType> orderedTypes, Comparator<Resource> order) {
+        this.bundle = bundle;
+        this.orderedTypes = orderedTypes;
+        this.order = order;
+    }
+
+    void addEntry(Resource resource) {
+        addEntry(resource.getIdElement().getValue(), resource);
+    }
+
+    void addEntry(String fullUrl, Resource resource) {
+        if (resources.contains(resource) || fullUrl != null && fullUrls.contains(fullUrl)) {
+            return;
+        }
+        bundle.addEntry().setFullUrl(fullUrl).setResource(resource);
+        resources.add(resource);
+        if (fullUrl != null) {
+            fullUrls.add(fullUrl);
+        }
+        if (resource == null) {
+            return;
+        }
+        if (orderedTypes.contains(resource.getResourceType())) {
+            orderedResources.add(insertionPoint(resource), resource);
+        }
+    }
+
+    List<Resource> getOrderedResources() {
+        return Collections.unmodifiableList(orderedResources);
+    }
+
+    Bundle build() {
+        return bundle;
+    }
+
+    private int insertionPoint(Resource resource) {
+        int low = 0;
+        int high = orderedResources.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (order.compare(orderedResources.get(middle), resource) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,105 @@
+package uk.nhs.adaptors.oneoneone.cda.report.service;
+
+import static org.hl7.fhir.dstu3.model.Bundle.BundleType.COLLECTION;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.hl7.fhir.dstu3.model.Bundle;
+import org.hl7.fhir.dstu3.model.Bundle.BundleEntryComponent;
+import org.hl7.fhir.dstu3.model.ResourceType;
+import org.springframework.stereotype.Component;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import uk.nhs.adaptors.oneoneone.config.AmqpProperties;
+
+/**
+ * Splits large encounter bundles into a header bundle and a bounded number of chunks. The header keeps the
+ * MessageHeader and every resource outside the chunk groups; the triage and document resources are moved into
+ * collection bundles of the same identifier, one group after the other in bundle order. Resources in the chunks are
+ * still referenced by their full URLs.
+ */
+@Component
+@AllArgsConstructor
+public class BundleSplitter {
+
+    private final AmqpProperties amqpProperties;
+
+    public enum ChunkGroup {
+        TRIAGE(EnumSet.of(ResourceType.Questionnaire, ResourceType.QuestionnaireResponse)),
+        DOCUMENT(EnumSet.of(ResourceType.Composition, ResourceType.List, ResourceType.CarePlan, ResourceType.Consent,
+            ResourceType.Observation));
+
+        private final Set<ResourceType> resourceTypes;
+
+        ChunkGroup(Set<ResourceType> resourceTypes) {
+            this.resourceTypes = resourceTypes;
+        }
+
+        private static ChunkGroup of(BundleEntryComponent entry) {
+            if (entry.getResource() == null) {
+                return null;
+            }
+            for (ChunkGroup group : values()) {
+                if (group.resourceTypes.contains(entry.getResource().getResourceType())) {
+                    return group;
+                }
+            }
+            return null;
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static final class Chunk {
+        private final ChunkGroup group;
+        private final Bundle bundle;
+    }
+
+    public boolean shouldSplit(Bundle bundle) {
+        return amqpProperties.getSplit().isEnabled() && bundle.getEntry().size() >= amqpProperties.getSplit().getMinEntries();
+    }
+
+    /**
+     * Moves the entries of the chunk groups out of the bundle, which is left as the header, and returns them as
+     * chunks. There are never more chunks than the configured maximum, or than the number of groups if that is larger.
+     */
+    public List<Chunk> split(Bundle bundle) {
+        Map<ChunkGroup, List<BundleEntryComponent>> entriesByGroup = new EnumMap<>(ChunkGroup.class);
+        List<BundleEntryComponent> headerEntries = new ArrayList<>();
+        int chunkEntries = 0;
+        for (BundleEntryComponent entry : bundle.getEntry()) {
+            ChunkGroup group = ChunkGroup.of(entry);
+            if (group == null) {
+                headerEntries.add(entry);
+            } else {
+                entriesByGroup.computeIfAbsent(group, key -> new ArrayList<>()).add(entry);
+                chunkEntries++;
+            }
+        }
+        if (chunkEntries == 0) {
+            return List.of();
+        }
+
+        // rounding each group up costs at most one chunk per group, which the divisor leaves room for
+        int maxChunks = Math.max(amqpProperties.getSplit().getMaxChunks(), entriesByGroup.size());
+        int entriesPerChunk = (chunkEntries + maxChunks - entriesByGroup.size()) / (maxChunks - entriesByGroup.size() + 1);
+        List<Chunk> chunks = new ArrayList<>(maxChunks);
+        entriesByGroup.forEach((group, entries) -> {
+            for (int from = 0; from < entries.size(); from += entriesPerChunk) {
+                Bundle chunk = new Bundle();
+                chunk.setType(COLLECTION);
+                chunk.setIdentifier(bundle.getIdentifier());
+                chunk.setEntry(new ArrayList<>(entries.subList(from, Math.min(from + entriesPerChunk, entries.size()))));
+                chunks.add(new Chunk(group, chunk));
+            }
+        });
+        bundle.setEntry(headerEntries);
+        return chunks;
+    }
+}
@@ -0,0 +1,294 @@
+package uk.nhs.adaptors.oneoneone.cda.report.service;
+
+import static org.hl7.fhir.dstu3.model.Bundle.BundleType.TRANSACTION;
+import static org.hl7.fhir.dstu3.model.Bundle.HTTPVerb.DELETE;
+import static org.hl7.fhir.dstu3.model.Bundle.HTTPVerb.POST;
+import static org.hl7.fhir.dstu3.model.Bundle.HTTPVerb.PUT;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.hl7.fhir.dstu3.model.Bundle;
+import org.hl7.fhir.dstu3.model.Bundle.BundleEntryComponent;
+import org.hl7.fhir.dstu3.model.Bundle.HTTPVerb;
+import org.hl7.fhir.dstu3.model.IdType;
+import org.hl7.fhir.dstu3.model.MessageHeader;
+import org.hl7.fhir.dstu3.model.Resource;
+import org.hl7.fhir.dstu3.model.ResourceType;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import ca.uhn.fhir.context.FhirContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import uk.nhs.adaptors.oneoneone.cda.report.util.IdUtil;
+import uk.nhs.adaptors.oneoneone.config.DeltaProperties;
+import uk.nhs.adaptors.oneoneone.config.IdConfiguration;
+import uk.nhs.connect.iucds.cda.ucr.II;
+import uk.nhs.connect.iucds.cda.ucr.POCDMT000002UK01ClinicalDocument1;
+
+/**
+ * Publishes replacement documents as transaction bundles of the resources that changed since the version they replace.
+ * The last bundle published for every setId and target is kept in a bounded LRU store. Resources are matched across
+ * versions by their deterministic resource name and keep the id they were first published with, so a resource that
+ * did not change is not sent again. Documents that replace a version not in the store are published whole.
+ * <p>
+ * A bundle is only recorded when it is committed after it was published. Until then its setId and target are pending,
+ * and other versions of the document published meanwhile are sent whole, so no two versions are diffed against the same
+ * predecessor.
+ */
+@Component
+@DependsOn(IdConfiguration.BEAN_NAME)
+@Slf4j
+public class DeltaBundleService {
+
+    private static final String METRIC_NAME = "report.delta.bundles";
+    private static final Pattern UUID_PATTERN = Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+
+    private final DeltaProperties properties;
+    private final FhirContext fhirContext;
+    private final Map<String, PublishedBundle> publishedBundles;
+    private final Set<String> pendingKeys = new HashSet<>();
+    private final Counter deltas;
+    private final Counter fullBundles;
+
+    public DeltaBundleService(DeltaProperties properties, FhirContext fhirContext, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.fhirContext = fhirContext;
+        this.publishedBundles = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PublishedBundle> eldest) {
+                return size() > properties.getMaxEntries();
+            }
+        };
+        this.deltas = meterRegistry.counter(METRIC_NAME, "type", "delta");
+        this.fullBundles = meterRegistry.counter(METRIC_NAME, "type", "full");
+        Gauge.builder("report.delta.store.size", this, DeltaBundleService::size)
+            .register(meterRegistry);
+        if (properties.isEnabled() && !IdUtil.isDeterministic()) {
+            LOGGER.warn("Delta bundles need deterministic resource ids, all reports will be published whole");
+        }
+    }
+
+    /**
+     * Returns the transaction bundle of the changes if the document replaces the last version published to the target,
+     * or else the bundle itself. The result must be {@link #commit committed} once it is published, or
+     * {@link #release released} if it is not.
+     *
+     * @param target the destination and output profile the bundle is published with
+     */
+    public DeltaBundle toPublishedBundle(POCDMT000002UK01ClinicalDocument1 clinicalDocument, String target, Bundle bundle) {
+        if (!properties.isEnabled()) {
+            return new DeltaBundle(bundle, null, null);
+        }
+        String key = getKey(clinicalDocument, target);
+        if (key == null) {
+            return new DeltaBundle(bundle, null, null);
+        }
+
+        PublishedBundle stored;
+        synchronized (this) {
+            if (!pendingKeys.add(key)) {
+                // the version this one replaces may not be recorded yet
+                fullBundles.increment();
+                return new DeltaBundle(bundle, null, null);
+            }
+            stored = publishedBundles.get(key);
+        }
+        try {
+            return toPublishedBundle(clinicalDocument, key, bundle, stored);
+        } catch (RuntimeException e) {
+            release(key);
+            throw e;
+        }
+    }
+
+    /**
+     * Records the bundle as the last one published for its document to its target.
+     */
+    public void commit(DeltaBundle deltaBundle) {
+        if (deltaBundle.key == null) {
+            return;
+        }
+        synchronized (this) {
+            if (deltaBundle.publishedBundle == null) {
+                publishedBundles.remove(deltaBundle.key);
+            } else {
+                publishedBundles.put(deltaBundle.key, deltaBundle.publishedBundle);
+            }
+            pendingKeys.remove(deltaBundle.key);
+        }
+    }
+
+    /**
+     * Forgets a bundle that was not published, so the next version is diffed against the last one that was.
+     */
+    public void release(DeltaBundle deltaBundle) {
+        if (deltaBundle.key != null) {
+            release(deltaBundle.key);
+        }
+    }
+
+    private DeltaBundle toPublishedBundle(POCDMT000002UK01ClinicalDocument1 clinicalDocument, String key, Bundle bundle,
+        PublishedBundle stored) {
+        Resource messageHeader = null;
+        Map<String, Resource> resources = new LinkedHashMap<>();
+        for (BundleEntryComponent entry : bundle.getEntry()) {
+            Resource resource = entry.getResource();
+            String name = IdUtil.getResourceName(resource);
+            if (resource instanceof MessageHeader) {
+                messageHeader = resource;
+            } else if (name == null) {
+                // resources with random ids cannot be matched with the next version
+                fullBundles.increment();
+                return new DeltaBundle(bundle, key, null);
+            } else {
+                resources.put(name, resource);
+            }
+        }
+
+        String parentDocumentId = getParentDocumentId(clinicalDocument);
+        PublishedBundle previous = parentDocumentId == null ? null : stored;
+        if (previous == null || !parentDocumentId.equals(previous.getDocumentId())) {
+            Map<String, PublishedResource> published = new LinkedHashMap<>();
+            resources.forEach((name, resource) -> published.put(name, new PublishedResource(resource.getResourceType(),
+                resource.getIdElement().getValue(), encode(resource))));
+            fullBundles.increment();
+            return new DeltaBundle(bundle, key, new PublishedBundle(getDocumentId(clinicalDocument), published));
+        }
+
+        Map<String, String> ids = new HashMap<>();
+        resources.forEach((name, resource) -> {
+            PublishedResource publishedResource = previous.getResources().get(name);
+            if (publishedResource != null) {
+                ids.put(getUuid(resource.getIdElement().getValue()), getUuid(publishedResource.getFullUrl()));
+            }
+        });
+
+        Bundle delta = new Bundle();
+        delta.setType(TRANSACTION);
+        delta.setIdentifier(bundle.getIdentifier());
+        if (messageHeader != null) {
+            String fullUrl = messageHeader.getIdElement().getValue();
+            addEntry(delta, POST, fullUrl, parse(replaceIds(encode(messageHeader), ids), fullUrl), ResourceType.MessageHeader.name());
+        }
+        Map<String, PublishedResource> published = new LinkedHashMap<>();
+        resources.forEach((name, resource) -> {
+            PublishedResource publishedResource = previous.getResources().get(name);
+            String fullUrl = publishedResource != null ? publishedResource.getFullUrl() : resource.getIdElement().getValue();
+            String json = replaceIds(encode(resource), ids);
+            published.put(name, new PublishedResource(resource.getResourceType(), fullUrl, json));
+            if (publishedResource == null || !publishedResource.getJson().equals(json)) {
+                addEntry(delta, PUT, fullUrl, parse(json, fullUrl), getUrl(resource.getResourceType(), fullUrl));
+            }
+        });
+        previous.getResources().forEach((name, publishedResource) -> {
+            if (!resources.containsKey(name)) {
+                addEntry(delta, DELETE, null, null, getUrl(publishedResource.getResourceType(), publishedResource.getFullUrl()));
+            }
+        });
+        deltas.increment();
+        LOGGER.debug("Publishing {} of {} resources of replacement document {}", delta.getEntry().size(), bundle.getEntry().size(),
+            key);
+        return new DeltaBundle(delta, key, new PublishedBundle(getDocumentId(clinicalDocument), published));
+    }
+
+    synchronized int size() {
+        return publishedBundles.size();
+    }
+
+    private synchronized void release(String key) {
+        pendingKeys.remove(key);
+    }
+
+    private static String getKey(POCDMT000002UK01ClinicalDocument1 clinicalDocument, String target) {
+        II setId = clinicalDocument.getSetId();
+        if (setId == null) {
+            return null;
+        }
+        return String.join(":", setId.getRoot(), String.valueOf(setId.getExtension()), target);
+    }
+
+    private static String getDocumentId(POCDMT000002UK01ClinicalDocument1 clinicalDocument) {
+        return clinicalDocument.getId() != null ? clinicalDocument.getId().getRoot() : null;
+    }
+
+    private static String getParentDocumentId(POCDMT000002UK01ClinicalDocument1 clinicalDocument) {
+        if (clinicalDocument.sizeOfRelatedDocumentArray() > 0
+            && clinicalDocument.getRelatedDocumentArray(0).getParentDocument().getIdArray(0).isSetRoot()) {
+            return clinicalDocument.getRelatedDocumentArray(0).getParentDocument().getIdArray(0).getRoot();
+        }
+        return null;
+    }
+
+    private static String getUuid(String fullUrl) {
+        return fullUrl.substring(fullUrl.lastIndexOf(':') + 1);
+    }
+
+    private static String getUrl(ResourceType resourceType, String fullUrl) {
+        return resourceType.name() + "/" + getUuid(fullUrl);
+    }
+
+    private static String replaceIds(String json, Map<String, String> ids) {
+        Matcher matcher = UUID_PATTERN.matcher(json);
+        StringBuilder replaced = new StringBuilder(json.length());
+        while (matcher.find()) {
+            matcher.appendReplacement(replaced, ids.getOrDefault(matcher.group(), matcher.group()));
+        }
+        return matcher.appendTail(replaced).toString();
+    }
+
+    private static void addEntry(Bundle bundle, HTTPVerb method, String fullUrl, Resource resource, String url) {
+        bundle.addEntry()
+            .setFullUrl(fullUrl)
+            .setResource(resource)
+            .getRequest()
+            .setMethod(method)
+            .setUrl(url);
+    }
+
+    private String encode(Resource resource) {
+        return fhirContext.newJsonParser().encodeResourceToString(resource);
+    }
+
+    private Resource parse(String json, String fullUrl) {
+        Resource resource = (Resource) fhirContext.newJsonParser().parseResource(json);
+        resource.setIdElement(new IdType(fullUrl));
+        return resource;
+    }
+
+    /**
+     * The bundle to publish and what is recorded for its document when it is committed.
+     */
+    @AllArgsConstructor
+    public static final class DeltaBundle {
+        @Getter
+        private final Bundle bundle;
+        private final String key;
+        private final PublishedBundle publishedBundle;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static final class PublishedBundle {
+        private final String documentId;
+        private final Map<String, PublishedResource> resources;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static final class PublishedResource {
+        private final ResourceType resourceType;
+        private final String fullUrl;
+        private final String json;
+    }
+}
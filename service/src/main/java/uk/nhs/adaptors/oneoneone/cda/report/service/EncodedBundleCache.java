@@ -0,0 +1,133 @@
+package uk.nhs.adaptors.oneoneone.cda.report.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import uk.nhs.adaptors.oneoneone.cda.report.util.HashUtil;
+import uk.nhs.adaptors.oneoneone.config.BundleCacheProperties;
+import uk.nhs.connect.iucds.cda.ucr.POCDMT000002UK01ClinicalDocument1;
+
+/**
+ * Bounded LRU cache of encoded encounter bundles. Documents are keyed by setId, versionNumber and a hash of their
+ * content, so a document resent under a new MessageID is not mapped again. Bundles are cached without their
+ * MessageHeader entry; the MessageHeader, which carries the ITK routing of the new message, is encoded per request
+ * and spliced in as the first entry.
+ */
+@Component
+public class EncodedBundleCache {
+
+    private static final String METRIC_NAME = "report.bundle.cache.requests";
+
+    private final BundleCacheProperties properties;
+    private final Map<String, EncodedBundle> entries;
+    private final Counter hits;
+    private final Counter misses;
+
+    public EncodedBundleCache(BundleCacheProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, EncodedBundle> eldest) {
+                return size() > properties.getMaxEntries();
+            }
+        };
+        this.hits = meterRegistry.counter(METRIC_NAME, "result", "hit");
+        this.misses = meterRegistry.counter(METRIC_NAME, "result", "miss");
+        Gauge.builder("report.bundle.cache.size", this, EncodedBundleCache::size)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Returns the cache key of the document, or empty when caching is disabled or the document has no setId
+     * or versionNumber to identify it by.
+     */
+    public Optional<String> getKey(POCDMT000002UK01ClinicalDocument1 clinicalDocument) {
+        if (!properties.isEnabled() || clinicalDocument.getSetId() == null || clinicalDocument.getVersionNumber() == null) {
+            return Optional.empty();
+        }
+        return Optional.of(String.join(":",
+            clinicalDocument.getSetId().getRoot(),
+            String.valueOf(clinicalDocument.getSetId().getExtension()),
+            String.valueOf(clinicalDocument.getVersionNumber().getValue()),
+            HashUtil.sha256(clinicalDocument)));
+    }
+
+    public synchronized Optional<EncodedBundle> get(String key) {
+        EncodedBundle encodedBundle = entries.get(key);
+        if (encodedBundle == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(encodedBundle);
+    }
+
+    public synchronized void put(String key, EncodedBundle encodedBundle) {
+        entries.put(key, encodedBundle);
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Encoded bundle without its MessageHeader entry.
+     */
+    public static final class EncodedBundle {
+
+        private static final Pattern ENTRY_ARRAY = Pattern.compile("\"entry\"\\s*:\\s*\\[(\\s*])?");
+
+        private final String prefix;
+        private final String separator;
+        private final String suffix;
+        private final String groupId;
+
+        public EncodedBundle(String encodedBundle) {
+            this(encodedBundle, null);
+        }
+
+        /**
+         * @param groupId the message group (JMSXGroupID) of the bundle, or null
+         */
+        public EncodedBundle(String encodedBundle, String groupId) {
+            this.groupId = groupId;
+            // the first "entry" key is the bundle's own, as every resource is nested inside its entries
+            Matcher entryArray = ENTRY_ARRAY.matcher(encodedBundle);
+            if (entryArray.find()) {
+                boolean empty = entryArray.group(1) != null;
+                int start = empty ? entryArray.start(1) : entryArray.end();
+                this.prefix = encodedBundle.substring(0, start);
+                this.separator = empty ? "" : ",";
+                this.suffix = encodedBundle.substring(start);
+            } else {
+                // a bundle without other entries is encoded without an entry array
+                int end = encodedBundle.lastIndexOf('}');
+                if (end < 0) {
+                    throw new IllegalArgumentException("Encoded bundle is not a JSON object");
+                }
+                this.prefix = encodedBundle.substring(0, end).stripTrailing() + ",\"entry\":[";
+                this.separator = "";
+                this.suffix = "]" + encodedBundle.substring(end);
+            }
+        }
+
+        /**
+         * Completes the bundle with the given MessageHeader as its first entry.
+         */
+        public String withMessageHeader(String fullUrl, String encodedMessageHeader) {
+            return prefix + "{\"fullUrl\":\"" + fullUrl + "\",\"resource\":" + encodedMessageHeader + "}" + separator + suffix;
+        }
+
+        public String getGroupId() {
+            return groupId;
+        }
+    }
+}
@@ -1,10 +1,9 @@
 package uk.nhs.adaptors.oneoneone.cda.report.service;
 
-import static java.util.stream.Collectors.toSet;
+import static java.util.Collections.emptyList;
 import static org.hl7.fhir.dstu3.model.Bundle.BundleType.MESSAGE;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 
 import org.apache.xmlbeans.XmlException;
@@ -31,9 +30,11 @@ import org.hl7.fhir.dstu3.model.QuestionnaireResponse;
 import org.hl7.fhir.dstu3.model.Reference;
 import org.hl7.fhir.dstu3.model.ReferralRequest;
 import org.hl7.fhir.dstu3.model.Resource;
+import org.hl7.fhir.dstu3.model.ResourceType;
 import org.springframework.stereotype.Component;
 
 import lombok.AllArgsConstructor;
+import uk.nhs.adaptors.oneoneone.cda.report.comparator.ResourceDateComparator;
 import uk.nhs.adaptors.oneoneone.cda.report.controller.utils.ItkReportHeader;
 import uk.nhs.adaptors.oneoneone.cda.report.mapper.CarePlanMapper;
 import uk.nhs.adaptors.oneoneone.cda.report.mapper.CompositionMapper;
@@ -45,6 +46,9 @@ import uk.nhs.adaptors.oneoneone.cda.report.mapper.ListMapper;
 import uk.nhs.adaptors.oneoneone.cda.report.mapper.ObservationMapper;
 import uk.nhs.adaptors.oneoneone.cda.report.mapper.PractitionerRoleMapper;
 import uk.nhs.adaptors.oneoneone.cda.report.mapper.ReferralRequestMapper;
+import uk.nhs.adaptors.oneoneone.cda.report.mapper.ReportMappingContext;
+import uk.nhs.adaptors.oneoneone.cda.report.util.DispositionUtil;
+import uk.nhs.adaptors.oneoneone.cda.report.util.IdContext;
 import uk.nhs.adaptors.oneoneone.cda.report.util.PathwayUtil;
 import uk.nhs.connect.iucds.cda.ucr.CE;
 import uk.nhs.connect.iucds.cda.ucr.POCDMT000002UK01ClinicalDocument1;
@@ -66,14 +70,30 @@ public class EncounterReportBundleService {
     private final ReferralRequestMapper referralRequestMapper;
     private final ObservationMapper observationMapper;
     private final PractitionerRoleMapper practitionerRoleMapper;
+    private final ResourceDateComparator resourceDateComparator;
+    private final OutputProfileResolver outputProfileResolver;
 
-    private static void addEntry(Bundle bundle, Resource resource) {
-        bundle.addEntry().setFullUrl(resource.getIdElement().getValue()).setResource(resource);
+    public Bundle createEncounterBundle(POCDMT000002UK01ClinicalDocument1 clinicalDocument, ItkReportHeader header)
+            throws XmlException {
+        try (ReportMappingContext context = ReportMappingContext.open();
+            IdContext idContext = IdContext.open(getIdNamespace(clinicalDocument))) {
+            return mapEncounterBundle(clinicalDocument, header);
+        }
     }
 
-    public Bundle createEncounterBundle(POCDMT000002UK01ClinicalDocument1 clinicalDocument, ItkReportHeader header)
+    private static String getIdNamespace(POCDMT000002UK01ClinicalDocument1 clinicalDocument) {
+        if (clinicalDocument.getSetId() == null || clinicalDocument.getVersionNumber() == null) {
+            return null;
+        }
+        return String.join(":", clinicalDocument.getSetId().getRoot(), String.valueOf(clinicalDocument.getSetId().getExtension()),
+            String.valueOf(clinicalDocument.getVersionNumber().getValue()));
+    }
+
+    private Bundle mapEncounterBundle(POCDMT000002UK01ClinicalDocument1 clinicalDocument, ItkReportHeader header)
             throws XmlException {
-        Bundle bundle = createBundle(clinicalDocument);
+        OutputProfile profile = outputProfileResolver.resolve(header);
+        BundleBuilder bundle = new BundleBuilder(createBundle(clinicalDocument), ListMapper.TRIAGE_RESOURCES,
+            resourceDateComparator);
 
         List<HealthcareService> healthcareServiceList = healthcareServiceMapper.mapHealthcareService(clinicalDocument);
         List<PractitionerRole> authorPractitionerRoles = practitionerRoleMapper
@@ -81,20 +101,26 @@ public class EncounterReportBundleService {
         List<PractitionerRole> practitionerRoles = new ArrayList<>(authorPractitionerRoles);
         practitionerRoleMapper.mapResponsibleParty(clinicalDocument).ifPresent(practitionerRoles::add);
         Encounter encounter = encounterMapper.mapEncounter(clinicalDocument, practitionerRoles);
-        Consent consent = consentMapper.mapConsent(clinicalDocument, encounter);
-        List<QuestionnaireResponse> questionnaireResponseList = pathwayUtil.getQuestionnaireResponses(clinicalDocument,
-                encounter.getSubject(), new Reference(encounter));
+        Consent consent = profile.includes(ResourceType.Consent) ? consentMapper.mapConsent(clinicalDocument, encounter) : null;
+        List<QuestionnaireResponse> questionnaireResponseList = profile.includes(ResourceType.QuestionnaireResponse)
+                ? pathwayUtil.getQuestionnaireResponses(clinicalDocument, encounter.getSubject(), new Reference(encounter),
+                    profile.includes(ResourceType.Questionnaire))
+                : null;
         Condition condition = conditionMapper.mapCondition(clinicalDocument, encounter, questionnaireResponseList);
-        List<CarePlan> carePlans = carePlanMapper.mapCarePlan(clinicalDocument, encounter, condition);
+        List<CarePlan> carePlans = profile.includes(ResourceType.CarePlan)
+                ? carePlanMapper.mapCarePlan(clinicalDocument, encounter, condition) : emptyList();
         ReferralRequest referralRequest = referralRequestMapper.mapReferralRequest(clinicalDocument, encounter,
                 healthcareServiceList, new Reference(condition));
-        Composition composition = compositionMapper.mapComposition(clinicalDocument, encounter, carePlans,
-                questionnaireResponseList, referralRequest, authorPractitionerRoles);
-        List<Observation> observations = observationMapper.mapObservations(clinicalDocument, encounter);
+        Composition composition = profile.includes(ResourceType.Composition)
+                ? compositionMapper.mapComposition(clinicalDocument, encounter, carePlans, questionnaireResponseList, referralRequest,
+                    authorPractitionerRoles, profile.isSectionNarrative())
+                : null;
+        List<Observation> observations = profile.includes(ResourceType.Observation)
+                ? observationMapper.mapObservations(clinicalDocument, encounter) : emptyList();
 
-        CE dispositionCode = getDispositionCode(clinicalDocument);
+        CE dispositionCode = DispositionUtil.getDispositionCode(clinicalDocument);
 
-        addEntry(bundle, messageHeaderService.createMessageHeader(header, dispositionCode));
+        bundle.addEntry(messageHeaderService.createMessageHeader(header, dispositionCode));
         addEncounter(bundle, encounter);
         addServiceProvider(bundle, encounter);
         addParticipants(bundle, encounter);
@@ -103,31 +129,24 @@ public class EncounterReportBundleService {
         addHealthcareService(bundle, healthcareServiceList);
         addIncomingReferral(bundle, referralRequest);
         addAppointment(bundle, encounter);
-        addEntry(bundle, composition);
+        if (composition != null) {
+            bundle.addEntry(composition);
+        }
         addCarePlan(bundle, carePlans);
-        addEntry(bundle, consent);
-        addEntry(bundle, condition);
+        if (consent != null) {
+            bundle.addEntry(consent);
+        }
+        bundle.addEntry(condition);
         addQuestionnaireResponses(bundle, questionnaireResponseList);
         addObservations(bundle, observations);
         addPractitionerRoles(bundle, practitionerRoles);
 
-        ListResource listResource = getReferenceFromBundle(bundle, clinicalDocument, encounter);
-        addEntry(bundle, listResource);
-
-        return bundle;
-    }
-
-    private CE getDispositionCode(POCDMT000002UK01ClinicalDocument1 clinicalDocument) {
-        CE dischargeCode = null;
-        if (clinicalDocument.isSetComponentOf()) {
-            if (clinicalDocument.getComponentOf().getEncompassingEncounter() != null) {
-                if (clinicalDocument.getComponentOf().getEncompassingEncounter().isSetDischargeDispositionCode()) {
-                    dischargeCode = clinicalDocument.getComponentOf().getEncompassingEncounter()
-                            .getDischargeDispositionCode();
-                }
-            }
+        if (profile.includes(ResourceType.List)) {
+            ListResource listResource = listMapper.mapList(clinicalDocument, encounter, bundle.getOrderedResources());
+            bundle.addEntry(listResource);
         }
-        return dischargeCode;
+
+        return bundle.build();
     }
 
     private Bundle createBundle(POCDMT000002UK01ClinicalDocument1 clinicalDocument) {
@@ -138,42 +157,36 @@ public class EncounterReportBundleService {
         return bundle;
     }
 
-    private void addPractitionerRoles(Bundle bundle, List<PractitionerRole> authorPractitionerRoles) {
+    private void addPractitionerRoles(BundleBuilder bundle, List<PractitionerRole> authorPractitionerRoles) {
         authorPractitionerRoles.stream().forEach(it -> {
-            addEntry(bundle, it);
-            addEntry(bundle, it.getOrganizationTarget());
+            bundle.addEntry(it);
+            bundle.addEntry(it.getOrganizationTarget());
         });
     }
 
-    private ListResource getReferenceFromBundle(Bundle bundle, POCDMT000002UK01ClinicalDocument1 clinicalDocument,
-            Encounter encounter) {
-        Collection<Resource> resourcesCreated = bundle.getEntry().stream().map(it -> it.getResource()).collect(toSet());
-        return listMapper.mapList(clinicalDocument, encounter, resourcesCreated);
-    }
-
-    private void addEncounter(Bundle bundle, Encounter encounter) {
-        addEntry(bundle, encounter);
+    private void addEncounter(BundleBuilder bundle, Encounter encounter) {
+        bundle.addEntry(encounter);
     }
 
-    private void addServiceProvider(Bundle bundle, Encounter encounter) {
-        addEntry(bundle, encounter.getServiceProviderTarget());
+    private void addServiceProvider(BundleBuilder bundle, Encounter encounter) {
+        bundle.addEntry(encounter.getServiceProviderTarget());
     }
 
-    private void addParticipants(Bundle bundle, Encounter encounter) {
+    private void addParticipants(BundleBuilder bundle, Encounter encounter) {
         List<Encounter.EncounterParticipantComponent> participantComponents = encounter.getParticipant();
-        participantComponents.forEach(item -> addEntry(bundle, item.getIndividualTarget()));
+        participantComponents.forEach(item -> bundle.addEntry(item.getIndividualTarget()));
     }
 
-    private void addAppointment(Bundle bundle, Encounter encounter) {
+    private void addAppointment(BundleBuilder bundle, Encounter encounter) {
         if (encounter.hasAppointment()) {
             Appointment appointment = encounter.getAppointmentTarget();
-            addEntry(bundle, appointment);
+            bundle.addEntry(appointment);
             if (appointment.hasParticipant()) {
                 for (Appointment.AppointmentParticipantComponent participant : appointment.getParticipant()) {
                     if (participant.hasActor()) {
                         Resource actorTarget = participant.getActorTarget();
                         if (!(actorTarget instanceof Patient)) {
-                            addEntry(bundle, actorTarget);
+                            bundle.addEntry(actorTarget);
                         }
                     }
                 }
@@ -181,12 +194,12 @@ public class EncounterReportBundleService {
         }
     }
 
-    private void addLocation(Bundle bundle, Encounter encounter) {
+    private void addLocation(BundleBuilder bundle, Encounter encounter) {
         List<Encounter.EncounterLocationComponent> locationComponents = encounter.getLocation();
         for (Encounter.EncounterLocationComponent component : locationComponents) {
             if (component.hasLocation()) {
                 Location location = component.getLocationTarget();
-                addEntry(bundle, location);
+                bundle.addEntry(location);
                 if (location.hasManagingOrganization()) {
                     addOrganization(bundle, location.getManagingOrganizationTarget());
                 }
@@ -194,77 +207,76 @@ public class EncounterReportBundleService {
         }
     }
 
-    private void addOrganization(Bundle bundle, Organization organization) {
-        addEntry(bundle, organization);
+    private void addOrganization(BundleBuilder bundle, Organization organization) {
+        bundle.addEntry(organization);
         if (organization.hasPartOf()) {
             addOrganization(bundle, organization.getPartOfTarget());
         }
     }
 
-    private void addSubject(Bundle bundle, Encounter encounter) {
+    private void addSubject(BundleBuilder bundle, Encounter encounter) {
         if (encounter.getSubjectTarget() instanceof Patient) {
             Patient patient = (Patient) encounter.getSubjectTarget();
-            addEntry(bundle, patient);
+            bundle.addEntry(patient);
 
             if (patient.hasGeneralPractitioner()) {
                 for (Reference gp : patient.getGeneralPractitioner()) {
                     Organization organization = (Organization) gp.getResource();
-                    addEntry(bundle, organization);
+                    bundle.addEntry(organization);
                 }
             }
         }
         if (encounter.getSubjectTarget() instanceof Group) {
             Group group = (Group) encounter.getSubjectTarget();
-            addEntry(bundle, group);
+            bundle.addEntry(group);
             for (Group.GroupMemberComponent groupMemberComponent : group.getMember()) {
-                bundle.addEntry().setFullUrl(groupMemberComponent.getIdElement().getValue())
-                        .setResource(groupMemberComponent.getEntityTarget());
+                bundle.addEntry(groupMemberComponent.getIdElement().getValue(), groupMemberComponent.getEntityTarget());
             }
         }
     }
 
-    private void addIncomingReferral(Bundle bundle, ReferralRequest referralRequest) {
-        addEntry(bundle, referralRequest);
+    private void addIncomingReferral(BundleBuilder bundle, ReferralRequest referralRequest) {
+        bundle.addEntry(referralRequest);
 
         if (referralRequest.hasRequester()) {
-            addEntry(bundle, referralRequest.getRequester().getOnBehalfOfTarget());
+            bundle.addEntry(referralRequest.getRequester().getOnBehalfOfTarget());
         }
 
         if (referralRequest.hasSupportingInfo()) {
-            addEntry(bundle, (ProcedureRequest) referralRequest.getSupportingInfoFirstRep().getResource());
+            bundle.addEntry((ProcedureRequest) referralRequest.getSupportingInfoFirstRep().getResource());
         }
     }
 
-    private void addCarePlan(Bundle bundle, List<CarePlan> carePlans) {
-        carePlans.stream().forEach(carePlan -> addEntry(bundle, carePlan));
+    private void addCarePlan(BundleBuilder bundle, List<CarePlan> carePlans) {
+        carePlans.stream().forEach(carePlan -> bundle.addEntry(carePlan));
     }
 
-    private void addHealthcareService(Bundle bundle, List<HealthcareService> healthcareServiceList) {
+    private void addHealthcareService(BundleBuilder bundle, List<HealthcareService> healthcareServiceList) {
         for (HealthcareService healthcareService : healthcareServiceList) {
-            addEntry(bundle, healthcareService);
+            bundle.addEntry(healthcareService);
             if (healthcareService.hasLocation()) {
-                addEntry(bundle, (Location) healthcareService.getLocationFirstRep().getResource());
+                bundle.addEntry((Location) healthcareService.getLocationFirstRep().getResource());
             }
             if (healthcareService.hasProvidedBy()) {
-                addEntry(bundle, healthcareService.getProvidedByTarget());
+                bundle.addEntry(healthcareService.getProvidedByTarget());
             }
         }
     }
 
-    private void addQuestionnaireResponses(Bundle bundle, List<QuestionnaireResponse> questionnaireResponseList) {
+    private void addQuestionnaireResponses(BundleBuilder bundle, List<QuestionnaireResponse> questionnaireResponseList) {
         if (questionnaireResponseList != null) {
             if (questionnaireResponseList.size() > 0) {
                 for (QuestionnaireResponse questionnaireResponse : questionnaireResponseList) {
-                    addEntry(bundle, questionnaireResponse);
+                    bundle.addEntry(questionnaireResponse);
                     if (questionnaireResponse.hasQuestionnaire()) {
-                        addEntry(bundle, (Questionnaire) questionnaireResponse.getQuestionnaire().getResource());
+                        bundle.addEntry((Questionnaire) questionnaireResponse.getQuestionnaire().getResource());
                     }
                 }
             }
         }
     }
 
-    private void addObservations(Bundle bundle, List<Observation> observations) {
-        observations.forEach(observation -> addEntry(bundle, observation));
+    private void addObservations(BundleBuilder bundle, List<Observation> observations) {
+        observations.forEach(observation -> bundle.addEntry(observation));
     }
 }
@@ -1,16 +1,29 @@
 package uk.nhs.adaptors.oneoneone.cda.report.service;
 
-import javax.jms.TextMessage;
+import static java.util.stream.Collectors.toList;
+
+import java.util.List;
+import java.util.Optional;
 
 import org.apache.xmlbeans.XmlException;
 import org.hl7.fhir.dstu3.model.Bundle;
-import org.springframework.jms.core.JmsTemplate;
+import org.hl7.fhir.dstu3.model.MessageHeader;
+import org.hl7.fhir.dstu3.model.Resource;
 import org.springframework.stereotype.Service;
 
 import ca.uhn.fhir.context.FhirContext;
 import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import uk.nhs.adaptors.oneoneone.cda.report.controller.utils.ItkReportHeader;
+import uk.nhs.adaptors.oneoneone.cda.report.service.DeltaBundleService.DeltaBundle;
+import uk.nhs.adaptors.oneoneone.cda.report.service.EncodedBundleCache.EncodedBundle;
+import uk.nhs.adaptors.oneoneone.cda.report.scheduling.AdaptiveConcurrencyLimiter;
+import uk.nhs.adaptors.oneoneone.cda.report.scheduling.ReportPriority;
+import uk.nhs.adaptors.oneoneone.cda.report.sink.EncodedReport;
+import uk.nhs.adaptors.oneoneone.cda.report.sink.EncodedReport.EncodedChunk;
+import uk.nhs.adaptors.oneoneone.cda.report.sink.ReportSink;
+import uk.nhs.adaptors.oneoneone.cda.report.util.DispositionUtil;
 import uk.nhs.adaptors.oneoneone.config.AmqpProperties;
 import uk.nhs.connect.iucds.cda.ucr.POCDMT000002UK01ClinicalDocument1;
 
@@ -19,32 +32,119 @@ import uk.nhs.connect.iucds.cda.ucr.POCDMT000002UK01ClinicalDocument1;
 @AllArgsConstructor
 public class EncounterReportService {
 
-    private static final String MESSAGE_ID = "messageId";
-
     private final EncounterReportBundleService encounterReportBundleService;
 
-    private final JmsTemplate jmsTemplate;
-
     private final FhirContext fhirContext;
 
     private final AmqpProperties amqpProperties;
 
+    private final EncodedBundleCache encodedBundleCache;
+
+    private final MessageHeaderService messageHeaderService;
+
+    private final OutputProfileResolver outputProfileResolver;
+
+    private final QueueRouter queueRouter;
+
+    private final BundleSplitter bundleSplitter;
+
+    private final DeltaBundleService deltaBundleService;
+
+    private final ReportSink reportSink;
+
+    /**
+     * Maps and publishes the report. The concurrency permit is taken by the caller before the report waits for a
+     * processing lane; it is released here with the broker latency or dropped when publishing fails. A delta bundle is
+     * only recorded as the last version of the document once it is published.
+     */
     public void transformAndPopulateToGP(POCDMT000002UK01ClinicalDocument1 clinicalDocumentDocument,
-        String messageId, ItkReportHeader header) throws XmlException {
-        Bundle encounterBundle = encounterReportBundleService.createEncounterBundle(clinicalDocumentDocument, header);
-
-        jmsTemplate.send(amqpProperties.getQueueName(), session -> {
-            TextMessage message = session.createTextMessage(toJsonString(encounterBundle));
-            message.setStringProperty(MESSAGE_ID, messageId);
-            return message;
-        });
-        LOGGER.info("Successfully sent FHIR message to queue. MessageId: {}, ItkTrackingId: {}", messageId, header.getTrackingId());
+        String messageId, ItkReportHeader header, AdaptiveConcurrencyLimiter.Permit permit) throws XmlException {
+        ReportPriority priority = DispositionUtil.getReportPriority(clinicalDocumentDocument);
+        QueueDestination destination = queueRouter.route(header);
+        PreparedReport preparedReport = encodeEncounterBundle(clinicalDocumentDocument, header, destination);
+
+        long sendStart = System.nanoTime();
+        try {
+            reportSink.publish(destination, messageId, priority, preparedReport.getEncodedReport());
+        } catch (RuntimeException e) {
+            destination.recordFailure();
+            permit.drop();
+            preparedReport.getDeltaBundle().ifPresent(deltaBundleService::release);
+            throw e;
+        }
+        preparedReport.getDeltaBundle().ifPresent(deltaBundleService::commit);
+        long sendTime = System.nanoTime() - sendStart;
+        destination.recordSend(sendTime);
+        permit.release(sendTime);
+        LOGGER.info("Successfully published FHIR message. MessageId: {}, ItkTrackingId: {}, Priority: {}, Destination: {}",
+            messageId, header.getTrackingId(), priority, destination.getName());
+    }
+
+    private PreparedReport encodeEncounterBundle(POCDMT000002UK01ClinicalDocument1 clinicalDocument, ItkReportHeader header,
+        QueueDestination destination) throws XmlException {
+        // bundles of the same document differ by output profile
+        String profileName = outputProfileResolver.resolve(header).getName();
+        Optional<String> cacheKey = encodedBundleCache.getKey(clinicalDocument)
+            .map(key -> key + ":" + profileName);
+        Optional<EncodedBundle> cached = cacheKey.flatMap(encodedBundleCache::get);
+        if (cached.isPresent()) {
+            MessageHeader messageHeader = messageHeaderService.createMessageHeader(header,
+                DispositionUtil.getDispositionCode(clinicalDocument));
+            return new PreparedReport(new EncodedReport(withMessageHeader(cached.get(), messageHeader), cached.get().getGroupId(),
+                List.of()), Optional.empty());
+        }
+
+        Bundle encounterBundle = encounterReportBundleService.createEncounterBundle(clinicalDocument, header);
+        String groupId = amqpProperties.getGroupBy().getGroupId(encounterBundle);
+        DeltaBundle deltaBundle = deltaBundleService.toPublishedBundle(clinicalDocument, destination.getName() + ":" + profileName,
+            encounterBundle);
+        try {
+            return new PreparedReport(encodeEncounterBundle(encounterBundle, deltaBundle.getBundle(), groupId, cacheKey),
+                Optional.of(deltaBundle));
+        } catch (RuntimeException e) {
+            deltaBundleService.release(deltaBundle);
+            throw e;
+        }
+    }
+
+    private EncodedReport encodeEncounterBundle(Bundle encounterBundle, Bundle publishedBundle, String groupId,
+        Optional<String> cacheKey) {
+        if (publishedBundle != encounterBundle) {
+            // deltas are only sent once and are small, so they are neither cached nor split
+            return new EncodedReport(toJsonString(publishedBundle), groupId, List.of());
+        }
+        if (bundleSplitter.shouldSplit(encounterBundle)) {
+            // only bundles sent whole are cached, so cache hits never need splitting
+            List<EncodedChunk> chunks = bundleSplitter.split(encounterBundle).stream()
+                .map(chunk -> new EncodedChunk(chunk.getGroup(), toJsonString(chunk.getBundle())))
+                .collect(toList());
+            return new EncodedReport(toJsonString(encounterBundle), groupId, chunks);
+        }
+        if (cacheKey.isEmpty()) {
+            return new EncodedReport(toJsonString(encounterBundle), groupId, List.of());
+        }
+        // the MessageHeader is specific to the message, so the bundle is cached without it
+        Resource messageHeader = encounterBundle.getEntry().remove(0).getResource();
+        EncodedBundle encodedBundle = new EncodedBundle(toJsonString(encounterBundle), groupId);
+        encodedBundleCache.put(cacheKey.get(), encodedBundle);
+        return new EncodedReport(withMessageHeader(encodedBundle, messageHeader), groupId, List.of());
+    }
+
+    private String withMessageHeader(EncodedBundle encodedBundle, Resource messageHeader) {
+        return encodedBundle.withMessageHeader(messageHeader.getIdElement().getValue(), toJsonString(messageHeader));
     }
 
-    private String toJsonString(Bundle encounterBundle) {
+    private String toJsonString(Resource resource) {
         return fhirContext
             .newJsonParser()
-            .setPrettyPrint(true)
-            .encodeResourceToString(encounterBundle);
+            .setPrettyPrint(reportSink.isPrettyPrint())
+            .encodeResourceToString(resource);
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static final class PreparedReport {
+        private final EncodedReport encodedReport;
+        private final Optional<DeltaBundle> deltaBundle;
     }
 }
@@ -0,0 +1,78 @@
+package uk.nhs.adaptors.oneoneone.cda.report.service;
+
+import static uk.nhs.adaptors.oneoneone.cda.report.mapper.PatientMapper.NHS_FHIR_ID_SYSTEM;
+
+import org.hl7.fhir.dstu3.model.Bundle;
+import org.hl7.fhir.dstu3.model.Bundle.BundleEntryComponent;
+import org.hl7.fhir.dstu3.model.Encounter;
+import org.hl7.fhir.dstu3.model.Identifier;
+import org.hl7.fhir.dstu3.model.Patient;
+import org.hl7.fhir.dstu3.model.QuestionnaireResponse;
+import org.hl7.fhir.dstu3.model.Resource;
+
+/**
+ * Keys that messages are grouped by (JMSXGroupID). The broker delivers all messages of a group to the same consumer
+ * in order, so consumers can scale out while reports of the same patient or case stay in order. NHS_NUMBER groups by
+ * the first NHS number of the patient, ENCOUNTER by the CDA id of the encompassing encounter and CASE_ID by the
+ * Pathways case id. The case id is carried by the QuestionnaireResponses, so output profiles that exclude them have
+ * no case id to group by.
+ */
+public enum MessageGroupKey {
+    NONE {
+        @Override
+        public String getGroupId(Bundle bundle) {
+            return null;
+        }
+    },
+    NHS_NUMBER {
+        @Override
+        public String getGroupId(Bundle bundle) {
+            for (BundleEntryComponent entry : bundle.getEntry()) {
+                if (entry.getResource() instanceof Patient) {
+                    for (Identifier identifier : ((Patient) entry.getResource()).getIdentifier()) {
+                        if (NHS_FHIR_ID_SYSTEM.equals(identifier.getSystem()) && identifier.hasValue()) {
+                            return identifier.getValue();
+                        }
+                    }
+                }
+            }
+            return null;
+        }
+    },
+    ENCOUNTER {
+        @Override
+        public String getGroupId(Bundle bundle) {
+            Encounter encounter = findFirst(bundle, Encounter.class);
+            if (encounter == null || !encounter.hasIdentifier()) {
+                return null;
+            }
+            // the CDA root is kept in the id of the identifier and the extension in its value
+            Identifier identifier = encounter.getIdentifierFirstRep();
+            return identifier.hasValue() ? identifier.getId() + ":" + identifier.getValue() : identifier.getId();
+        }
+    },
+    CASE_ID {
+        @Override
+        public String getGroupId(Bundle bundle) {
+            QuestionnaireResponse questionnaireResponse = findFirst(bundle, QuestionnaireResponse.class);
+            if (questionnaireResponse == null || !questionnaireResponse.getIdentifier().hasValue()) {
+                return null;
+            }
+            return questionnaireResponse.getIdentifier().getValue();
+        }
+    };
+
+    /**
+     * Returns the group of the bundle, or null when the bundle has nothing to group it by.
+     */
+    public abstract String getGroupId(Bundle bundle);
+
+    private static <T extends Resource> T findFirst(Bundle bundle, Class<T> type) {
+        for (BundleEntryComponent entry : bundle.getEntry()) {
+            if (type.isInstance(entry.getResource())) {
+                return type.cast(entry.getResource());
+            }
+        }
+        return null;
+    }
+}
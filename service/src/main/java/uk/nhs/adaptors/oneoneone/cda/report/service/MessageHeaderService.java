@@ -1,9 +1,8 @@
 package uk.nhs.adaptors.oneoneone.cda.report.service;
 
 import static java.util.stream.Collectors.toList;
-import static org.hl7.fhir.dstu3.model.IdType.newRandomUuid;
+import static uk.nhs.adaptors.oneoneone.cda.report.util.IdUtil.newRandomUuid;
 
-import java.util.Arrays;
 import java.util.Date;
 
 import org.hl7.fhir.dstu3.model.CodeableConcept;
@@ -15,6 +14,7 @@ import org.springframework.stereotype.Component;
 
 import lombok.RequiredArgsConstructor;
 import uk.nhs.adaptors.oneoneone.cda.report.controller.utils.ItkReportHeader;
+import uk.nhs.adaptors.oneoneone.cda.report.util.DispositionUtil;
 import uk.nhs.adaptors.oneoneone.config.SoapProperties;
 import uk.nhs.connect.iucds.cda.ucr.CE;
 
@@ -25,7 +25,6 @@ public class MessageHeaderService {
     private static final String EVENT_SYSTEM = "https://fhir.nhs.uk/STU3/CodeSystem/ITK-MessageEvent-2";
     private static final String EVENT_CODE = "ITK007C";
     private static final String NUMSAS_EVENT_CODE = "ITK010D";
-    private  static final String[] EMERGENCY_DISPOSITION_CODES = {"DX80","DX85","DX86","DX87","DX97","DX98"};
     private static final String EVENT_DISPLAY_VALUE = "ITK GP Connect Send Document";
     private static final String MESSAGE_SOURCE_NAME = "NHS 111 Adaptor";
 
@@ -61,9 +60,8 @@ public class MessageHeaderService {
 
     private Coding getEvent(CE dischargeDispositionCode) {
         Coding coding = new Coding();
-        String code = dischargeDispositionCode.getCode().trim().toUpperCase();
 
-        if (Arrays.stream(EMERGENCY_DISPOSITION_CODES).anyMatch(code::equals)) {
+        if (DispositionUtil.isEmergency(dischargeDispositionCode)) {
             coding.setSystem(EVENT_SYSTEM)
                     .setCode(NUMSAS_EVENT_CODE)
                     .setDisplay(EVENT_DISPLAY_VALUE);
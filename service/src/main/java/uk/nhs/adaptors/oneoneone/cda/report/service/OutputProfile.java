@@ -0,0 +1,45 @@
+package uk.nhs.adaptors.oneoneone.cda.report.service;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.hl7.fhir.dstu3.model.ResourceType;
+
+import lombok.Getter;
+import uk.nhs.adaptors.oneoneone.config.OutputProperties;
+
+/**
+ * The parts of the encounter bundle sent to a destination. Excluded resources are not mapped, and the resources that
+ * would refer to them are mapped without the reference.
+ */
+@Getter
+public final class OutputProfile {
+
+    /**
+     * Resources that no other resource of the bundle depends on.
+     */
+    public static final Set<ResourceType> OPTIONAL_RESOURCES = Collections.unmodifiableSet(EnumSet.of(ResourceType.CarePlan,
+        ResourceType.Composition, ResourceType.Consent, ResourceType.List, ResourceType.Observation, ResourceType.Questionnaire,
+        ResourceType.QuestionnaireResponse));
+
+    public static final OutputProfile FULL = new OutputProfile(OutputProperties.FULL_PROFILE, Collections.emptySet(), true);
+
+    private final String name;
+    private final Set<ResourceType> excludedResources;
+    private final boolean sectionNarrative;
+
+    public OutputProfile(String name, Set<ResourceType> excludedResources, boolean sectionNarrative) {
+        this.name = name;
+        this.excludedResources = excludedResources.isEmpty()
+            ? Collections.emptySet() : Collections.unmodifiableSet(EnumSet.copyOf(excludedResources));
+        this.sectionNarrative = sectionNarrative;
+    }
+
+    public boolean includes(ResourceType resourceType) {
+        if (resourceType == ResourceType.Questionnaire && excludedResources.contains(ResourceType.QuestionnaireResponse)) {
+            return false;
+        }
+        return !excludedResources.contains(resourceType);
+    }
+}
@@ -0,0 +1,68 @@
+package uk.nhs.adaptors.oneoneone.cda.report.service;
+
+import static uk.nhs.adaptors.oneoneone.config.OutputProperties.FULL_PROFILE;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.hl7.fhir.dstu3.model.ResourceType;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+import uk.nhs.adaptors.oneoneone.cda.report.controller.utils.ItkReportHeader;
+import uk.nhs.adaptors.oneoneone.config.OutputProperties;
+
+/**
+ * Selects the output profile of a report by the ITK addresses it is sent to. The first address with a configured
+ * profile decides; reports to any other address get the default profile.
+ */
+@Component
+@Slf4j
+public class OutputProfileResolver {
+
+    private final Map<String, OutputProfile> profilesByAddress = new HashMap<>();
+    private final OutputProfile defaultProfile;
+
+    public OutputProfileResolver(OutputProperties properties) {
+        Map<String, OutputProfile> profiles = new HashMap<>();
+        profiles.put(FULL_PROFILE, OutputProfile.FULL);
+        properties.getProfiles().forEach((name, profile) -> profiles.put(name, createProfile(name, profile)));
+        this.defaultProfile = getProfile(profiles, properties.getDefaultProfile());
+        properties.getAddresses().forEach((address, name) -> profilesByAddress.put(address, getProfile(profiles, name)));
+        LOGGER.info("Default output profile: {}, profiles by ITK address: {}", defaultProfile.getName(), profilesByAddress.size());
+    }
+
+    public OutputProfile resolve(ItkReportHeader header) {
+        List<String> addresses = header.getAddressList();
+        if (addresses != null && !profilesByAddress.isEmpty()) {
+            for (String address : addresses) {
+                OutputProfile profile = profilesByAddress.get(address);
+                if (profile != null) {
+                    return profile;
+                }
+            }
+        }
+        return defaultProfile;
+    }
+
+    private static OutputProfile createProfile(String name, OutputProperties.Profile profile) {
+        Set<ResourceType> notOptional = EnumSet.noneOf(ResourceType.class);
+        notOptional.addAll(profile.getExcludedResources());
+        notOptional.removeAll(OutputProfile.OPTIONAL_RESOURCES);
+        if (!notOptional.isEmpty()) {
+            throw new IllegalStateException("Output profile " + name + " excludes resources other resources depend on: " + notOptional);
+        }
+        return new OutputProfile(name, profile.getExcludedResources(), profile.isSectionNarrative());
+    }
+
+    private static OutputProfile getProfile(Map<String, OutputProfile> profiles, String name) {
+        OutputProfile profile = profiles.get(name);
+        if (profile == null) {
+            throw new IllegalStateException("Unknown output profile: " + name);
+        }
+        return profile;
+    }
+}
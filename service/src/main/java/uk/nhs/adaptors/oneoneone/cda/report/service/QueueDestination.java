@@ -0,0 +1,52 @@
+package uk.nhs.adaptors.oneoneone.cda.report.service;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.springframework.util.StringUtils.isEmpty;
+
+import org.springframework.jms.core.JmsTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import uk.nhs.adaptors.oneoneone.cda.report.scheduling.ReportPriority;
+
+/**
+ * A queue encounter bundles are sent to, with the producer used to send to it and the metrics of its sends.
+ */
+@Getter
+public final class QueueDestination {
+
+    private static final String DESTINATION_TAG = "destination";
+
+    private final String name;
+    private final String queueName;
+    private final String emergencyQueueName;
+    private final JmsTemplate jmsTemplate;
+    private final Timer sendTimer;
+    private final Counter failures;
+
+    QueueDestination(String name, String queueName, String emergencyQueueName, JmsTemplate jmsTemplate, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.queueName = queueName;
+        this.emergencyQueueName = emergencyQueueName;
+        this.jmsTemplate = jmsTemplate;
+        this.sendTimer = Timer.builder("report.send").tag(DESTINATION_TAG, name).register(meterRegistry);
+        this.failures = meterRegistry.counter("report.send.failures", DESTINATION_TAG, name);
+    }
+
+    public String getQueueName(ReportPriority priority) {
+        if (priority == ReportPriority.EMERGENCY && !isEmpty(emergencyQueueName)) {
+            return emergencyQueueName;
+        }
+        return queueName;
+    }
+
+    public void recordSend(long nanos) {
+        sendTimer.record(nanos, NANOSECONDS);
+    }
+
+    public void recordFailure() {
+        failures.increment();
+    }
+}
@@ -0,0 +1,95 @@
+package uk.nhs.adaptors.oneoneone.cda.report.service;
+
+import static org.springframework.util.StringUtils.isEmpty;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PreDestroy;
+import javax.jms.ConnectionFactory;
+
+import org.springframework.jms.connection.CachingConnectionFactory;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import uk.nhs.adaptors.oneoneone.cda.report.controller.utils.ItkReportHeader;
+import uk.nhs.adaptors.oneoneone.config.AmqpProperties;
+
+/**
+ * Selects the queue of a report by the ITK addresses it is sent to. The first address with a configured destination
+ * decides; reports to any other address go to the inbound queue. Each configured destination sends over its own
+ * connection with cached sessions and producers, so a destination whose consumer falls behind does not hold up the
+ * others. All destinations send in transacted sessions, so the messages of a split report are delivered together or not at all.
+ */
+@Component
+@Slf4j
+public class QueueRouter {
+
+    static final String DEFAULT_DESTINATION = "default";
+
+    private final Map<String, QueueDestination> destinationsByAddress = new HashMap<>();
+    private final List<CachingConnectionFactory> connectionFactories = new ArrayList<>();
+    private final QueueDestination defaultDestination;
+
+    public QueueRouter(AmqpProperties properties, JmsTemplate jmsTemplate, ConnectionFactory connectionFactory,
+        MeterRegistry meterRegistry) {
+        this.defaultDestination = new QueueDestination(DEFAULT_DESTINATION, properties.getQueueName(),
+            properties.getEmergencyQueueName(), createTransactedTemplate(jmsTemplate.getConnectionFactory(), jmsTemplate), meterRegistry);
+        Map<String, QueueDestination> destinations = new HashMap<>();
+        properties.getDestinations().forEach((name, destination) -> destinations.put(name,
+            createDestination(name, destination, jmsTemplate, connectionFactory, meterRegistry)));
+        properties.getAddresses().forEach((address, name) -> {
+            QueueDestination destination = destinations.get(name);
+            if (destination == null) {
+                throw new IllegalStateException("Unknown queue destination: " + name);
+            }
+            destinationsByAddress.put(address, destination);
+        });
+        LOGGER.info("Queue destinations: {}, routed ITK addresses: {}", destinations.size(), destinationsByAddress.size());
+    }
+
+    public QueueDestination route(ItkReportHeader header) {
+        List<String> addresses = header.getAddressList();
+        if (addresses != null && !destinationsByAddress.isEmpty()) {
+            for (String address : addresses) {
+                QueueDestination destination = destinationsByAddress.get(address);
+                if (destination != null) {
+                    return destination;
+                }
+            }
+        }
+        return defaultDestination;
+    }
+
+    @PreDestroy
+    public void close() {
+        connectionFactories.forEach(CachingConnectionFactory::destroy);
+    }
+
+    private QueueDestination createDestination(String name, AmqpProperties.Destination destination, JmsTemplate defaultTemplate,
+        ConnectionFactory connectionFactory, MeterRegistry meterRegistry) {
+        if (isEmpty(destination.getQueueName())) {
+            throw new IllegalStateException("Queue destination " + name + " has no queueName");
+        }
+        CachingConnectionFactory cachingConnectionFactory = new CachingConnectionFactory(connectionFactory);
+        cachingConnectionFactory.setSessionCacheSize(destination.getSessionCacheSize());
+        cachingConnectionFactory.setCacheProducers(true);
+        connectionFactories.add(cachingConnectionFactory);
+
+        return new QueueDestination(name, destination.getQueueName(), destination.getEmergencyQueueName(),
+            createTransactedTemplate(cachingConnectionFactory, defaultTemplate), meterRegistry);
+    }
+
+    private static JmsTemplate createTransactedTemplate(ConnectionFactory connectionFactory, JmsTemplate defaultTemplate) {
+        JmsTemplate jmsTemplate = new JmsTemplate();
+        jmsTemplate.setConnectionFactory(connectionFactory);
+        jmsTemplate.setSessionTransacted(true);
+        jmsTemplate.setDeliveryMode(defaultTemplate.getDeliveryMode());
+        jmsTemplate.setTimeToLive(defaultTemplate.getTimeToLive());
+        return jmsTemplate;
+    }
+}
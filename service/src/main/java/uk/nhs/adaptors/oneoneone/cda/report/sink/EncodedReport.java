@@ -0,0 +1,25 @@
+package uk.nhs.adaptors.oneoneone.cda.report.sink;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import uk.nhs.adaptors.oneoneone.cda.report.service.BundleSplitter.ChunkGroup;
+
+/**
+ * An encoded encounter bundle and, if it was split, the encoded chunks that follow it.
+ */
+@Getter
+@AllArgsConstructor
+public final class EncodedReport {
+    private final String json;
+    private final String groupId;
+    private final List<EncodedChunk> chunks;
+
+    @Getter
+    @AllArgsConstructor
+    public static final class EncodedChunk {
+        private final ChunkGroup group;
+        private final String json;
+    }
+}
@@ -0,0 +1,39 @@
+package uk.nhs.adaptors.oneoneone.cda.report.sink;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import uk.nhs.adaptors.oneoneone.cda.report.scheduling.ReportPriority;
+import uk.nhs.adaptors.oneoneone.cda.report.service.QueueDestination;
+
+/**
+ * Keeps published reports in memory, for tests and for benchmarking the mapping without a broker.
+ */
+public class InMemoryReportSink implements ReportSink {
+
+    private final List<PublishedReport> reports = new ArrayList<>();
+
+    @Override
+    public synchronized void publish(QueueDestination destination, String messageId, ReportPriority priority, EncodedReport report) {
+        reports.add(new PublishedReport(destination.getName(), messageId, priority, report));
+    }
+
+    public synchronized List<PublishedReport> getReports() {
+        return new ArrayList<>(reports);
+    }
+
+    public synchronized void clear() {
+        reports.clear();
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static final class PublishedReport {
+        private final String destination;
+        private final String messageId;
+        private final ReportPriority priority;
+        private final EncodedReport report;
+    }
+}
@@ -0,0 +1,84 @@
+package uk.nhs.adaptors.oneoneone.cda.report.sink;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.support.JmsUtils;
+
+import lombok.AllArgsConstructor;
+import uk.nhs.adaptors.oneoneone.cda.report.scheduling.ReportPriority;
+import uk.nhs.adaptors.oneoneone.cda.report.service.QueueDestination;
+import uk.nhs.adaptors.oneoneone.cda.report.sink.EncodedReport.EncodedChunk;
+import uk.nhs.adaptors.oneoneone.config.AmqpProperties;
+
+/**
+ * Sends reports to the queue of their destination. A split report is sent as the header message followed by one
+ * message per chunk, all with the message id as correlation id, in a single producer session. When the session is transacted
+ * it is committed after the last chunk and rolled back if any send fails, so consumers never see part of a report.
+ */
+@AllArgsConstructor
+public class JmsReportSink implements ReportSink {
+
+    private static final String MESSAGE_ID = "messageId";
+    private static final String GROUP_ID = "JMSXGroupID";
+    private static final String SEQUENCE_NUMBER = "sequenceNumber";
+    private static final String CHUNK_COUNT = "chunkCount";
+    private static final String CHUNK_GROUP = "chunkGroup";
+
+    private final AmqpProperties amqpProperties;
+
+    @Override
+    public void publish(QueueDestination destination, String messageId, ReportPriority priority, EncodedReport report) {
+        JmsTemplate jmsTemplate = destination.getJmsTemplate();
+        int jmsPriority = getJmsPriority(priority);
+        jmsTemplate.execute(destination.getQueueName(priority), (session, producer) -> {
+            try {
+                int chunkCount = report.getChunks().size();
+                TextMessage message = createMessage(session, report.getJson(), messageId, report.getGroupId());
+                if (chunkCount > 0) {
+                    setChunkProperties(message, messageId, 0, chunkCount);
+                }
+                producer.send(message, jmsTemplate.getDeliveryMode(), jmsPriority, jmsTemplate.getTimeToLive());
+                for (int i = 0; i < chunkCount; i++) {
+                    EncodedChunk chunk = report.getChunks().get(i);
+                    TextMessage chunkMessage = createMessage(session, chunk.getJson(), messageId, report.getGroupId());
+                    setChunkProperties(chunkMessage, messageId, i + 1, chunkCount);
+                    chunkMessage.setStringProperty(CHUNK_GROUP, chunk.getGroup().name());
+                    producer.send(chunkMessage, jmsTemplate.getDeliveryMode(), jmsPriority, jmsTemplate.getTimeToLive());
+                }
+                if (session.getTransacted()) {
+                    JmsUtils.commitIfNecessary(session);
+                }
+            } catch (JMSException | RuntimeException e) {
+                if (session.getTransacted()) {
+                    JmsUtils.rollbackIfNecessary(session);
+                }
+                throw e;
+            }
+            return null;
+        });
+    }
+
+    private static TextMessage createMessage(Session session, String json, String messageId, String groupId) throws JMSException {
+        TextMessage message = session.createTextMessage(json);
+        message.setStringProperty(MESSAGE_ID, messageId);
+        if (groupId != null) {
+            message.setStringProperty(GROUP_ID, groupId);
+        }
+        return message;
+    }
+
+    private static void setChunkProperties(Message message, String messageId, int sequenceNumber, int chunkCount)
+        throws JMSException {
+        message.setJMSCorrelationID(messageId);
+        message.setIntProperty(SEQUENCE_NUMBER, sequenceNumber);
+        message.setIntProperty(CHUNK_COUNT, chunkCount);
+    }
+
+    private int getJmsPriority(ReportPriority priority) {
+        return priority == ReportPriority.EMERGENCY ? amqpProperties.getEmergencyPriority() : Message.DEFAULT_PRIORITY;
+    }
+}
@@ -0,0 +1,205 @@
+package uk.nhs.adaptors.oneoneone.cda.report.sink;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+
+import lombok.extern.slf4j.Slf4j;
+import uk.nhs.adaptors.oneoneone.cda.report.scheduling.ReportPriority;
+import uk.nhs.adaptors.oneoneone.cda.report.service.QueueDestination;
+
+/**
+ * Appends reports to rotating NDJSON files, one line per bundle with the chunks of a split report after its header.
+ * Reports are encoded as compact JSON for this sink, so every bundle is already a single line.
+ * Lines are buffered and written through a file channel, and a publish only returns once its lines are synced to disk.
+ * Publishers share syncs: whoever finds no sync in progress syncs every line appended so far, so under load a single
+ * fsync covers many reports. A new file is started once the current one would grow past the maximum size, or after a
+ * write failed, so a torn line is never followed by another report.
+ */
+@Slf4j
+public class NdjsonFileSink implements ReportSink, Closeable {
+
+    private static final String EXTENSION = ".ndjson";
+
+    private final Path directory;
+    private final String prefix;
+    private final long maxFileSize;
+    private final Clock clock;
+    private final ByteBuffer buffer;
+    private Path file;
+    private FileChannel channel;
+    private long fileSize;
+    private int fileIndex;
+    private long appended;
+    private long synced;
+    private long lost;
+    private boolean syncing;
+
+    public NdjsonFileSink(Path directory, String prefix, long maxFileSize, int bufferSize) {
+        this(directory, prefix, maxFileSize, bufferSize, Clock.systemUTC());
+    }
+
+    NdjsonFileSink(Path directory, String prefix, long maxFileSize, int bufferSize, Clock clock) {
+        this.directory = directory;
+        this.prefix = prefix;
+        this.maxFileSize = maxFileSize;
+        this.clock = clock;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        try {
+            Files.createDirectories(directory);
+            openNextFile();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open report sink " + directory, e);
+        }
+    }
+
+    @Override
+    public void publish(QueueDestination destination, String messageId, ReportPriority priority, EncodedReport report) {
+        byte[] lines = toLines(report);
+        try {
+            sync(append(lines));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write report " + messageId + " to report sink " + directory, e);
+        }
+    }
+
+    @Override
+    public boolean isPrettyPrint() {
+        return false;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        while (syncing) {
+            waitForSync();
+        }
+        if (channel.isOpen()) {
+            flushBuffer();
+            channel.force(false);
+            channel.close();
+        }
+    }
+
+    private synchronized long append(byte[] lines) throws IOException {
+        // the file being synced is never rotated under the syncing thread
+        while (syncing && isFull(lines.length)) {
+            waitForSync();
+        }
+        if (!channel.isOpen()) {
+            // closed by an interrupted sync, so lines not synced yet may be missing
+            lost = appended;
+            buffer.clear();
+            openNextFile();
+        } else if (isFull(lines.length)) {
+            flushBuffer();
+            channel.force(false);
+            channel.close();
+            synced = appended;
+            openNextFile();
+        }
+        if (lines.length > buffer.remaining()) {
+            flushBuffer();
+        }
+        if (lines.length > buffer.capacity()) {
+            write(ByteBuffer.wrap(lines));
+        } else {
+            buffer.put(lines);
+        }
+        fileSize += lines.length;
+        return ++appended;
+    }
+
+    private void sync(long sequence) throws IOException {
+        FileChannel syncChannel;
+        long target;
+        synchronized (this) {
+            while (syncing && synced < sequence) {
+                waitForSync();
+            }
+            if (synced >= sequence) {
+                return;
+            }
+            if (sequence <= lost) {
+                throw new IOException("Report sink file was closed before the report was synced");
+            }
+            flushBuffer();
+            syncing = true;
+            syncChannel = channel;
+            target = appended;
+        }
+        try {
+            syncChannel.force(false);
+        } catch (IOException e) {
+            endSync(0);
+            throw e;
+        }
+        endSync(target);
+    }
+
+    private synchronized void endSync(long target) {
+        syncing = false;
+        synced = Math.max(synced, target);
+        notifyAll();
+    }
+
+    private void waitForSync() throws InterruptedIOException {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for report sink " + directory);
+        }
+    }
+
+    private boolean isFull(int length) {
+        return fileSize > 0 && fileSize + length > maxFileSize;
+    }
+
+    private void openNextFile() throws IOException {
+        file = directory.resolve(String.format("%s-%d-%d%s", prefix, clock.millis(), fileIndex++, EXTENSION));
+        channel = FileChannel.open(file, CREATE_NEW, WRITE);
+        fileSize = 0;
+        LOGGER.info("Publishing reports to {}", file);
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        write(buffer);
+        buffer.clear();
+    }
+
+    private void write(ByteBuffer source) throws IOException {
+        try {
+            while (source.hasRemaining()) {
+                channel.write(source);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Unable to write to report sink {}, starting a new file", file, e);
+            lost = appended;
+            buffer.clear();
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static byte[] toLines(EncodedReport report) {
+        StringBuilder lines = new StringBuilder(report.getJson().length());
+        appendLine(lines, report.getJson());
+        report.getChunks().forEach(chunk -> appendLine(lines, chunk.getJson()));
+        return lines.toString().getBytes(UTF_8);
+    }
+
+    private static void appendLine(StringBuilder lines, String json) {
+        lines.append(json).append('\n');
+    }
+}
@@ -0,0 +1,20 @@
+package uk.nhs.adaptors.oneoneone.cda.report.sink;
+
+import uk.nhs.adaptors.oneoneone.cda.report.scheduling.ReportPriority;
+import uk.nhs.adaptors.oneoneone.cda.report.service.QueueDestination;
+
+/**
+ * Where encoded encounter reports are published. A report is published whole, its header bundle before its chunks,
+ * or the sink throws and the report may be published again.
+ */
+public interface ReportSink {
+
+    void publish(QueueDestination destination, String messageId, ReportPriority priority, EncodedReport report);
+
+    /**
+     * Whether reports are encoded as pretty printed JSON for this sink, rather than as compact JSON on a single line.
+     */
+    default boolean isPrettyPrint() {
+        return true;
+    }
+}
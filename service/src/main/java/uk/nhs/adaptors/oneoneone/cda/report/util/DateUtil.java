@@ -2,7 +2,12 @@ package uk.nhs.adaptors.oneoneone.cda.report.util;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.Date;
+import java.util.List;
 import java.util.TimeZone;
 
 import org.apache.commons.lang3.StringUtils;
@@ -11,6 +16,11 @@ import org.apache.commons.lang3.time.DateUtils;
 import lombok.experimental.UtilityClass;
 import lombok.extern.log4j.Log4j2;
 
+/**
+ * Parses HL7 TS and Pathways dates. The canonical shapes are parsed directly with java.time; anything else, e.g. values
+ * with out of range fields that are rolled over leniently or seconds, goes through the original lenient patterns so the
+ * result is always the same as theirs.
+ */
 @Log4j2
 @UtilityClass
 public class DateUtil {
@@ -20,48 +30,184 @@ public class DateUtil {
 
     private static final String[] FORMATS = { "yyyyMMddHHmmX", "yyyyMMddHHmmZ", "yyyyMMdd", };
 
+    private static final int DATE_LENGTH = 8;
+    private static final int DATE_TIME_LENGTH = 12;
+    private static final int PATHWAYS_SECONDS_START = 20;
+    private static final int MAX_PATHWAYS_SECONDS_DIGITS = 9;
+    // java.util and java.time disagree on the calendar and historical zone offsets of older dates
+    private static final int MIN_YEAR = 1900;
+    private static final int MAX_OFFSET_HOURS = 18;
+    private static final int MINUTES_PER_HOUR = 60;
+    private static final int HOURS_PER_DAY = 24;
+    private static final int MONTHS_PER_YEAR = 12;
+    private static final int NOT_PARSED = -1;
+
+    private static final String INPUT_PATTERN = "yyyy-MM-dd'T'HH:mm:ss.sss";
+    private static final String OUTPUT_PATTERN = "yyyyMMdd";
+
     public static Date parseISODate(String date) {
-        return parseDate(date, ISO_DATE_FORMAT);
+        Date parsed = fastParseDate(date);
+        return parsed != null ? parsed : parseDate(date, ISO_DATE_FORMAT);
     }
 
-    private Date parseDate(String date, String format) {
-        try {
-            return DateUtils.parseDate(date, format);
-        } catch (ParseException e) {
-            throw new IllegalStateException(e);
+    public static Date parseISODateTime(String date) {
+        Date parsed = fastParseDateTime(date, false);
+        return parsed != null ? parsed : parseDate(date, ISO_DATETIME_FORMAT);
+    }
+
+    public static Date parse(String date) {
+        Date parsed = fastParseDate(date);
+        if (parsed == null) {
+            parsed = fastParseDateTime(date, true);
         }
+        return parsed != null ? parsed : parseDate(date, FORMATS);
     }
 
-    public static Date parseISODateTime(String date) {
-        return parseDate(date, ISO_DATETIME_FORMAT);
+    public static Date parsePathwaysDate(String dateStr) {
+        if (StringUtils.isBlank(dateStr)) {
+            return null;
+        }
+        Date parsed = fastParsePathwaysDate(dateStr);
+        return parsed != null ? parsed : parseLenientPathwaysDate(dateStr);
     }
 
-    public static Date parse(String date) {
+    /**
+     * @return the date, or null when the value is not in a canonical shape and has to be parsed leniently
+     */
+    private static Date fastParseDate(String date) {
+        if (date == null || date.length() != DATE_LENGTH) {
+            return null;
+        }
+        LocalDate localDate = parseLocalDate(date);
+        return localDate != null ? Date.from(localDate.atStartOfDay(ZoneId.systemDefault()).toInstant()) : null;
+    }
+
+    private static Date fastParseDateTime(String date, boolean allowLongOffset) {
+        if (date == null || date.length() <= DATE_TIME_LENGTH) {
+            return null;
+        }
+        LocalDate localDate = parseLocalDate(date);
+        int hour = parseNumber(date, DATE_LENGTH, 2);
+        int minute = parseNumber(date, DATE_LENGTH + 2, 2);
+        ZoneOffset offset = parseOffset(date, DATE_TIME_LENGTH, allowLongOffset);
+        if (localDate == null || hour < 0 || hour >= HOURS_PER_DAY || minute < 0 || minute >= MINUTES_PER_HOUR || offset == null) {
+            return null;
+        }
+        return Date.from(localDate.atTime(hour, minute).toInstant(offset));
+    }
+
+    private static Date fastParsePathwaysDate(String date) {
+        if (date.length() <= PATHWAYS_SECONDS_START || !matches(date, "????-??-??T??:??:??.")) {
+            return null;
+        }
+        int end = PATHWAYS_SECONDS_START;
+        while (end < date.length() && isDigit(date.charAt(end))) {
+            end++;
+        }
+        int digits = end - PATHWAYS_SECONDS_START;
+        if (digits == 0 || digits > MAX_PATHWAYS_SECONDS_DIGITS) {
+            return null;
+        }
+        int year = parseNumber(date, 0, 4);
+        int month = parseNumber(date, 5, 2);
+        int day = parseNumber(date, 8, 2);
+        int hour = parseNumber(date, 11, 2);
+        int minute = parseNumber(date, 14, 2);
+        if (!isValidDate(year, month, day) || hour < 0 || hour >= HOURS_PER_DAY || minute < 0 || minute >= MINUTES_PER_HOUR
+            || parseNumber(date, 17, 2) < 0) {
+            return null;
+        }
+
+        // the original pattern reads the fraction into the seconds field, which overrides the seconds
+        LocalDateTime localDateTime = LocalDateTime.of(year, month, day, hour, minute)
+            .plusSeconds(parseNumber(date, PATHWAYS_SECONDS_START, digits));
+        List<ZoneOffset> offsets = ZoneId.systemDefault().getRules().getValidOffsets(localDateTime);
+        if (offsets.size() != 1) {
+            return null;
+        }
+        LocalDate utcDate = localDateTime.atOffset(offsets.get(0)).withOffsetSameInstant(ZoneOffset.UTC).toLocalDate();
+        return Date.from(utcDate.atStartOfDay(ZoneOffset.UTC).toInstant());
+    }
+
+    private static LocalDate parseLocalDate(String date) {
+        int year = parseNumber(date, 0, 4);
+        int month = parseNumber(date, 4, 2);
+        int day = parseNumber(date, 6, 2);
+        return isValidDate(year, month, day) ? LocalDate.of(year, month, day) : null;
+    }
+
+    private static boolean isValidDate(int year, int month, int day) {
+        return year >= MIN_YEAR && month >= 1 && month <= MONTHS_PER_YEAR && day >= 1
+            && day <= LocalDate.of(year, month, 1).lengthOfMonth();
+    }
+
+    private static ZoneOffset parseOffset(String date, int start, boolean allowLongOffset) {
+        int length = date.length() - start;
+        if (length == 1 && date.charAt(start) == 'Z') {
+            return ZoneOffset.UTC;
+        }
+        char sign = date.charAt(start);
+        if (sign != '+' && sign != '-' || length != 3 && (length != 5 || !allowLongOffset)) {
+            return null;
+        }
+        int hours = parseNumber(date, start + 1, 2);
+        int minutes = length == 5 ? parseNumber(date, start + 3, 2) : 0;
+        if (hours < 0 || hours > MAX_OFFSET_HOURS || minutes < 0 || minutes >= MINUTES_PER_HOUR
+            || hours == MAX_OFFSET_HOURS && minutes > 0) {
+            return null;
+        }
+        int totalMinutes = hours * MINUTES_PER_HOUR + minutes;
+        return ZoneOffset.ofTotalSeconds((sign == '-' ? -totalMinutes : totalMinutes) * MINUTES_PER_HOUR);
+    }
+
+    /**
+     * @return the value of the digits, or -1 when any of the characters is not a digit
+     */
+    private static int parseNumber(String value, int start, int length) {
+        int number = 0;
+        for (int i = start; i < start + length; i++) {
+            char c = value.charAt(i);
+            if (!isDigit(c)) {
+                return NOT_PARSED;
+            }
+            number = number * 10 + c - '0';
+        }
+        return number;
+    }
+
+    private static boolean matches(String value, String shape) {
+        for (int i = 0; i < shape.length(); i++) {
+            char expected = shape.charAt(i);
+            if (expected != '?' && value.charAt(i) != expected) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static Date parseDate(String date, String... formats) {
         try {
-            return DateUtils.parseDate(date, FORMATS);
+            return DateUtils.parseDate(date, formats);
         } catch (ParseException e) {
             throw new IllegalStateException(e);
         }
     }
 
-    private static final String INPUT_PATTERN = "yyyy-MM-dd'T'HH:mm:ss.sss";
-    private static final String OUTPUT_PATTERN = "yyyyMMdd";
+    private static Date parseLenientPathwaysDate(String dateStr) {
+        SimpleDateFormat sdfInput = new SimpleDateFormat(INPUT_PATTERN);
+        SimpleDateFormat sdfOutput = new SimpleDateFormat(OUTPUT_PATTERN);
+        sdfOutput.setTimeZone(TimeZone.getTimeZone("UTC"));
 
-    public static Date parsePathwaysDate(String dateStr) {
-        Date finalDate = null;
-        if (StringUtils.isNotBlank(dateStr)) {
-            SimpleDateFormat sdfInput = new SimpleDateFormat(INPUT_PATTERN);
-            SimpleDateFormat sdfOutput = new SimpleDateFormat(OUTPUT_PATTERN);
-            sdfOutput.setTimeZone(TimeZone.getTimeZone("UTC"));
-
-            try {
-                Date date = sdfInput.parse(dateStr);
-                String value = sdfOutput.format(date);
-                finalDate = sdfOutput.parse(value);
-            } catch (ParseException e) {
-                throw new IllegalStateException(e);
-            }
+        try {
+            Date date = sdfInput.parse(dateStr);
+            String value = sdfOutput.format(date);
+            return sdfOutput.parse(value);
+        } catch (ParseException e) {
+            throw new IllegalStateException(e);
         }
-        return finalDate;
     }
 }
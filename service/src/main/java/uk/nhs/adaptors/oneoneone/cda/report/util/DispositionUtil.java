@@ -0,0 +1,36 @@
+package uk.nhs.adaptors.oneoneone.cda.report.util;
+
+import java.util.Set;
+
+import lombok.experimental.UtilityClass;
+import uk.nhs.adaptors.oneoneone.cda.report.scheduling.ReportPriority;
+import uk.nhs.connect.iucds.cda.ucr.CE;
+import uk.nhs.connect.iucds.cda.ucr.POCDMT000002UK01ClinicalDocument1;
+
+@UtilityClass
+public class DispositionUtil {
+
+    private static final Set<String> EMERGENCY_DISPOSITION_CODES = Set.of("DX80", "DX85", "DX86", "DX87", "DX97", "DX98");
+
+    public static CE getDispositionCode(POCDMT000002UK01ClinicalDocument1 clinicalDocument) {
+        CE dischargeCode = null;
+        if (clinicalDocument.isSetComponentOf()) {
+            if (clinicalDocument.getComponentOf().getEncompassingEncounter() != null) {
+                if (clinicalDocument.getComponentOf().getEncompassingEncounter().isSetDischargeDispositionCode()) {
+                    dischargeCode = clinicalDocument.getComponentOf().getEncompassingEncounter()
+                        .getDischargeDispositionCode();
+                }
+            }
+        }
+        return dischargeCode;
+    }
+
+    public static boolean isEmergency(CE dispositionCode) {
+        return dispositionCode != null && dispositionCode.getCode() != null
+            && EMERGENCY_DISPOSITION_CODES.contains(dispositionCode.getCode().trim().toUpperCase());
+    }
+
+    public static ReportPriority getReportPriority(POCDMT000002UK01ClinicalDocument1 clinicalDocument) {
+        return isEmergency(getDispositionCode(clinicalDocument)) ? ReportPriority.EMERGENCY : ReportPriority.ROUTINE;
+    }
+}
@@ -0,0 +1,46 @@
+package uk.nhs.adaptors.oneoneone.cda.report.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+import org.apache.xmlbeans.XmlObject;
+
+import lombok.experimental.UtilityClass;
+
+@UtilityClass
+public class HashUtil {
+
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    public static String sha256(String content) {
+        return Base64.getEncoder().encodeToString(newDigest().digest(content.getBytes(UTF_8)));
+    }
+
+    /**
+     * Hashes the serialized XML as it is written, without building the whole document as a string first.
+     */
+    public static String sha256(XmlObject content) {
+        MessageDigest digest = newDigest();
+        try (OutputStream outputStream = new DigestOutputStream(OutputStream.nullOutputStream(), digest)) {
+            content.save(outputStream);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Base64.getEncoder().encodeToString(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(HASH_ALGORITHM + " is not available", e);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package uk.nhs.adaptors.oneoneone.cda.report.util;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.hl7.fhir.dstu3.model.ResourceType;
+
+/**
+ * Names the resources mapped from a single document version for deterministic ids. A name is made of the document
+ * namespace, the path of the enclosing scopes and the resource type, with an ordinal for every further resource of the
+ * same type in the same scope, e.g. {@code 2.16.840.1.113883.2.1.3.2.4.18.16:A709A442:1/triage[17]/QuestionnaireResponse}.
+ * Work mapped on another thread, or in an order that may change between sends, gets its own scope.
+ * The context is bound to the mapping thread between opening and {@link #close()}.
+ */
+public final class IdContext implements AutoCloseable {
+
+    private static final ThreadLocal<IdContext> CURRENT = new ThreadLocal<>();
+
+    private final String namespace;
+    private final String path;
+    private final Map<ResourceType, Integer> ordinals = new EnumMap<>(ResourceType.class);
+    private final IdContext previous;
+
+    private IdContext(String namespace, String path, IdContext previous) {
+        this.namespace = namespace;
+        this.path = path;
+        this.previous = previous;
+    }
+
+    /**
+     * @param namespace identifies the document version, or null when resources of the document get random ids
+     */
+    public static IdContext open(String namespace) {
+        return bind(new IdContext(namespace, "", CURRENT.get()));
+    }
+
+    public static IdContext openScope(String name) {
+        IdContext parent = CURRENT.get();
+        if (parent == null || parent.namespace == null) {
+            return suspend();
+        }
+        return bind(new IdContext(parent.namespace, parent.path + name + "/", parent));
+    }
+
+    /**
+     * Continues the given context on the current thread, e.g. a worker thread mapping part of the document. Ordinals
+     * are not shared with the original context, so resources should only be mapped in scopes opened below it.
+     */
+    public static IdContext attach(IdContext context) {
+        if (context == null || context.namespace == null) {
+            return suspend();
+        }
+        return bind(new IdContext(context.namespace, context.path, CURRENT.get()));
+    }
+
+    /**
+     * Resources mapped while suspended get random ids and do not take a name, e.g. cached templates that are
+     * only mapped when the cache misses.
+     */
+    public static IdContext suspend() {
+        return bind(new IdContext(null, "", CURRENT.get()));
+    }
+
+    public static IdContext current() {
+        return CURRENT.get();
+    }
+
+    String getNamespace() {
+        return namespace;
+    }
+
+    static String nextName(ResourceType type) {
+        IdContext context = CURRENT.get();
+        if (context == null || context.namespace == null) {
+            return null;
+        }
+        int ordinal = context.ordinals.merge(type, 1, Integer::sum) - 1;
+        String name = context.namespace + "/" + context.path + type.name();
+        return ordinal == 0 ? name : name + "[" + ordinal + "]";
+    }
+
+    private static IdContext bind(IdContext context) {
+        CURRENT.set(context);
+        return context;
+    }
+
+    @Override
+    public void close() {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package uk.nhs.adaptors.oneoneone.cda.report.util;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Ways of generating the UUIDs of FHIR resources and ITK responses. SECURE_RANDOM draws from the shared SecureRandom
+ * like UUID.randomUUID(); RANDOM uses a per-thread generator, and TIME_ORDERED prefixes the random bits with the
+ * current time in milliseconds (UUID version 7 layout) so ids sort in creation order. Neither of the fast strategies
+ * is suitable where ids have to be unguessable.
+ */
+public enum IdStrategy {
+    SECURE_RANDOM {
+        @Override
+        public UUID generate() {
+            return UUID.randomUUID();
+        }
+    },
+    RANDOM {
+        @Override
+        public UUID generate() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            return create(random.nextLong(), random.nextLong(), VERSION_RANDOM);
+        }
+    },
+    TIME_ORDERED {
+        @Override
+        public UUID generate() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long mostSignificantBits = System.currentTimeMillis() << TIMESTAMP_SHIFT | random.nextInt() & RANDOM_A_MASK;
+            return create(mostSignificantBits, random.nextLong(), VERSION_TIME_ORDERED);
+        }
+    };
+
+    private static final long VERSION_MASK = 0xF000L;
+    private static final long VERSION_RANDOM = 0x4000L;
+    private static final long VERSION_TIME_ORDERED = 0x7000L;
+    private static final long VARIANT_MASK = 0x3FFFFFFFFFFFFFFFL;
+    private static final long VARIANT_IETF = 0x8000000000000000L;
+    private static final int TIMESTAMP_SHIFT = 16;
+    private static final int RANDOM_A_MASK = 0x0FFF;
+
+    public abstract UUID generate();
+
+    private static UUID create(long mostSignificantBits, long leastSignificantBits, long version) {
+        return new UUID(mostSignificantBits & ~VERSION_MASK | version, leastSignificantBits & VARIANT_MASK | VARIANT_IETF);
+    }
+}
@@ -0,0 +1,74 @@
+package uk.nhs.adaptors.oneoneone.cda.report.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import org.hl7.fhir.dstu3.model.IdType;
+import org.hl7.fhir.dstu3.model.Resource;
+import org.hl7.fhir.dstu3.model.ResourceType;
+
+import lombok.experimental.UtilityClass;
+
+/**
+ * Generates the ids of FHIR resources and ITK responses with the configured {@link IdStrategy}. In deterministic mode
+ * resources mapped within an {@link IdContext} get name-based UUIDs instead, which stay the same when a document
+ * version is sent again.
+ */
+@UtilityClass
+public class IdUtil {
+
+    private static final String UUID_PREFIX = "urn:uuid:";
+    private static final String RESOURCE_NAME = "resourceName";
+
+    private static volatile IdStrategy strategy = IdStrategy.SECURE_RANDOM;
+    private static volatile boolean deterministic;
+
+    public static void setStrategy(IdStrategy idStrategy) {
+        strategy = idStrategy;
+    }
+
+    public static void setDeterministic(boolean deterministicIds) {
+        deterministic = deterministicIds;
+    }
+
+    public static boolean isDeterministic() {
+        return deterministic;
+    }
+
+    /**
+     * Restores the default secure random, non-deterministic ids.
+     */
+    public static void reset() {
+        strategy = IdStrategy.SECURE_RANDOM;
+        deterministic = false;
+    }
+
+    /**
+     * Same as {@link IdType#newRandomUuid()}, with the UUID generated by the configured strategy.
+     */
+    public static IdType newRandomUuid() {
+        return new IdType(UUID_PREFIX + strategy.generate());
+    }
+
+    public static IdType newResourceId(ResourceType type) {
+        String name = deterministic ? IdContext.nextName(type) : null;
+        if (name == null) {
+            return newRandomUuid();
+        }
+        IdType id = new IdType(UUID_PREFIX + UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8)));
+        id.setUserData(RESOURCE_NAME, name.substring(IdContext.current().getNamespace().length() + 1));
+        return id;
+    }
+
+    /**
+     * Returns the name of a resource with a deterministic id without the document namespace, which is the same in
+     * every version of the document, or null for resources with random ids.
+     */
+    public static String getResourceName(Resource resource) {
+        return (String) resource.getIdElement().getUserData(RESOURCE_NAME);
+    }
+
+    public static UUID randomUuid() {
+        return strategy.generate();
+    }
+}
@@ -0,0 +1,141 @@
+package uk.nhs.adaptors.oneoneone.cda.report.util;
+
+import static org.hl7.fhir.dstu3.model.Narrative.NarrativeStatus.GENERATED;
+import static org.hl7.fhir.utilities.xhtml.NodeType.Document;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.apache.xmlbeans.XmlObject;
+import org.hl7.fhir.dstu3.model.Narrative;
+import org.hl7.fhir.utilities.xhtml.XhtmlNode;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import uk.nhs.adaptors.oneoneone.cda.report.mapper.ReportMappingContext;
+import uk.nhs.adaptors.oneoneone.config.NarrativeProperties;
+
+/**
+ * Renders CDA section text to FHIR narratives. The text is serialised into a per-thread buffer that is reused between
+ * sections, and once per report: a section shown by more than one resource is not serialised again. Text longer than
+ * the configured maximum is replaced with a note, and its serialisation stops as soon as it goes over.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class NarrativeRenderer {
+
+    private static final String DIV_START = "<div>";
+    private static final String DIV_END = "</div>";
+    private static final String OMITTED_TEXT = "Text omitted: longer than %d characters";
+    // larger buffers are dropped after use rather than kept by the thread
+    private static final int MAX_RETAINED_BUFFER_LENGTH = 64 * 1024;
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(StringBuilder::new);
+
+    private final NarrativeProperties properties;
+
+    /**
+     * @return a narrative with the serialised text as a text node
+     */
+    public Narrative renderText(XmlObject text) {
+        String content = ReportMappingContext.getOrRender(text, this::serialise);
+        XhtmlNode xhtmlNode = new XhtmlNode();
+        xhtmlNode.setNodeType(Document);
+        xhtmlNode.addText(content != null ? content : omitted());
+        return createNarrative().setDiv(xhtmlNode);
+    }
+
+    /**
+     * @return a narrative with the serialised text as the content of its div
+     */
+    public Narrative renderDiv(XmlObject text) {
+        String content = ReportMappingContext.getOrRender(text, this::serialise);
+        return renderDivContent(content != null ? content : omitted());
+    }
+
+    /**
+     * @return a narrative with the given XHTML as the content of its div
+     */
+    public Narrative renderDiv(String content) {
+        return renderDivContent(content != null && content.length() > properties.getMaxLength() ? omitted() : content);
+    }
+
+    private Narrative renderDivContent(String content) {
+        Narrative narrative = createNarrative();
+        narrative.setDivAsString(DIV_START + content + DIV_END);
+        return narrative;
+    }
+
+    private String omitted() {
+        LOGGER.warn("Text omitted from the narrative: longer than {} characters", properties.getMaxLength());
+        return String.format(OMITTED_TEXT, properties.getMaxLength());
+    }
+
+    private Narrative createNarrative() {
+        Narrative narrative = new Narrative();
+        narrative.setStatus(GENERATED);
+        return narrative;
+    }
+
+    /**
+     * @return the text as serialised by {@link XmlObject#xmlText()}, or null when it is longer than the maximum
+     */
+    private String serialise(XmlObject text) {
+        StringBuilder buffer = BUFFER.get();
+        try {
+            text.save(new BoundedWriter(buffer, properties.getMaxLength()));
+            return buffer.toString();
+        } catch (LengthExceededException e) {
+            return null;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            if (buffer.capacity() > MAX_RETAINED_BUFFER_LENGTH) {
+                BUFFER.remove();
+            } else {
+                buffer.setLength(0);
+            }
+        }
+    }
+
+    private static final class BoundedWriter extends Writer {
+
+        private final StringBuilder buffer;
+        private final int maxLength;
+
+        private BoundedWriter(StringBuilder buffer, int maxLength) {
+            this.buffer = buffer;
+            this.maxLength = maxLength;
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            checkLength(length);
+            buffer.append(chars, offset, length);
+        }
+
+        @Override
+        public void write(String string, int offset, int length) throws IOException {
+            checkLength(length);
+            buffer.append(string, offset, offset + length);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        private void checkLength(int length) throws LengthExceededException {
+            if (buffer.length() + length > maxLength) {
+                throw new LengthExceededException();
+            }
+        }
+    }
+
+    private static final class LengthExceededException extends IOException {
+    }
+}
@@ -1,46 +1,82 @@
 package uk.nhs.adaptors.oneoneone.cda.report.util;
 
-import java.util.Optional;
-
+import org.apache.xmlbeans.XmlCursor;
+import org.apache.xmlbeans.XmlCursor.TokenType;
 import org.apache.xmlbeans.XmlObject;
 import org.springframework.stereotype.Component;
-import org.w3c.dom.Node;
 
 import lombok.RequiredArgsConstructor;
 
+/**
+ * Reads text from the XmlBeans store with a cursor. Going through {@link XmlObject#getDomNode()} creates a DOM node
+ * for every text run it touches, which is kept in the store for the lifetime of the document.
+ */
 @Component
 @RequiredArgsConstructor
 public class NodeUtil {
 
+    /**
+     * @return the value of the first child node, or null when there is none or it is an element
+     */
     public String getNodeValueString(XmlObject xmlObject) {
-        return Optional.ofNullable(xmlObject)
-            .map(XmlObject::getDomNode)
-            .map(Node::getFirstChild)
-            .map(Node::getNodeValue)
-            .orElse(null);
+        if (xmlObject == null) {
+            return null;
+        }
+        XmlCursor cursor = xmlObject.newCursor();
+        try {
+            TokenType token = cursor.toFirstContentToken();
+            if (token.isText()) {
+                return cursor.getChars();
+            }
+            if (token.isComment() || token.isProcinst()) {
+                return cursor.getTextValue();
+            }
+            return null;
+        } finally {
+            cursor.dispose();
+        }
     }
 
+    /**
+     * @return false when the only child node is text
+     */
     public boolean hasSubNodes(XmlObject xmlObject) {
-        var node = xmlObject.getDomNode();
-        return node.getChildNodes().getLength() != 1
-            || node.getFirstChild().getNodeType() != Node.TEXT_NODE;
+        XmlCursor cursor = xmlObject.newCursor();
+        try {
+            return !cursor.toFirstContentToken().isText() || !cursor.toNextToken().isFinish();
+        } finally {
+            cursor.dispose();
+        }
     }
 
-    public String getAllText(Node node) {
-        if (node.getNodeType() == Node.TEXT_NODE) {
-            return node.getNodeValue();
+    /**
+     * @return the text of all descendants, with the text of sibling nodes separated by a space
+     */
+    public String getAllText(XmlObject xmlObject) {
+        XmlCursor cursor = xmlObject.newCursor();
+        try {
+            StringBuilder text = new StringBuilder();
+            appendAllText(cursor, text);
+            return text.toString();
+        } finally {
+            cursor.dispose();
         }
+    }
 
-        StringBuilder sb = new StringBuilder();
-        Node child = node.getFirstChild();
-        while (child != null) {
-            if (sb.length() > 0) {
-                sb.append(" ");
+    private static void appendAllText(XmlCursor cursor, StringBuilder text) {
+        int start = text.length();
+        TokenType token = cursor.toFirstContentToken();
+        while (!token.isNone() && !token.isFinish()) {
+            if (text.length() > start) {
+                text.append(' ');
             }
-            sb.append(getAllText(child));
-            child = child.getNextSibling();
+            if (token.isText()) {
+                text.append(cursor.getChars());
+            } else if (token.isContainer()) {
+                // leaves the cursor on the END of the child
+                appendAllText(cursor, text);
+            }
+            token = cursor.toNextToken();
         }
-        return sb.toString();
     }
 }
-
@@ -1,7 +1,16 @@
 package uk.nhs.adaptors.oneoneone.cda.report.util;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import javax.annotation.PreDestroy;
 
 import org.apache.commons.codec.binary.Base64;
 import org.apache.xmlbeans.XmlException;
@@ -10,40 +19,121 @@ import org.hl7.fhir.dstu3.model.Reference;
 import org.nhspathways.webservices.pathways.pathwayscase.PathwaysCaseDocument;
 import org.nhspathways.webservices.pathways.pathwayscase.PathwaysCaseDocument.PathwaysCase;
 import org.nhspathways.webservices.pathways.pathwayscase.PathwaysCaseDocument.PathwaysCase.PathwayDetails.PathwayTriageDetails.PathwayTriage.TriageLineDetails.TriageLine;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Component;
 
-import lombok.RequiredArgsConstructor;
+import uk.nhs.adaptors.oneoneone.cda.report.mapper.PathwaysCaseContext;
 import uk.nhs.adaptors.oneoneone.cda.report.mapper.QuestionnaireResponseMapper;
+import uk.nhs.adaptors.oneoneone.config.TriageProperties;
 import uk.nhs.connect.iucds.cda.ucr.POCDMT000002UK01ClinicalDocument1;
 import uk.nhs.connect.iucds.cda.ucr.POCDMT000002UK01Entry;
 import uk.nhs.connect.iucds.cda.ucr.POCDMT000002UK01ObservationMedia;
 
+/**
+ * Maps the triage lines of the PathwaysCase embedded in a report. Cases with at least the configured number of lines
+ * are split into contiguous chunks mapped in parallel on a shared pool; the responses keep the order of the lines.
+ * In aggregated mode the whole case is mapped to a single QuestionnaireResponse instead.
+ */
 @Component
-@RequiredArgsConstructor
 public class PathwayUtil {
     private final NodeUtil nodeUtil;
     private final QuestionnaireResponseMapper questionnaireResponseMapper;
+    private final TriageProperties properties;
+    private final ThreadPoolExecutor executor;
+
+    public PathwayUtil(NodeUtil nodeUtil, QuestionnaireResponseMapper questionnaireResponseMapper, TriageProperties properties) {
+        this.nodeUtil = nodeUtil;
+        this.questionnaireResponseMapper = questionnaireResponseMapper;
+        this.properties = properties;
+        int threads = Math.max(1, properties.getParallelism() - 1);
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("triage-mapping-");
+        threadFactory.setDaemon(true);
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, MILLISECONDS, new LinkedBlockingQueue<>(), threadFactory);
+    }
 
     public List<QuestionnaireResponse> getQuestionnaireResponses(POCDMT000002UK01ClinicalDocument1 clinicalDocument, Reference patient,
         Reference encounter) throws XmlException {
-        List<QuestionnaireResponse> questionnaireResponseList = new ArrayList<>();
+        return getQuestionnaireResponses(clinicalDocument, patient, encounter, true);
+    }
 
+    /**
+     * @param withQuestionnaires false to map the QuestionnaireResponses without their Questionnaires
+     */
+    public List<QuestionnaireResponse> getQuestionnaireResponses(POCDMT000002UK01ClinicalDocument1 clinicalDocument, Reference patient,
+        Reference encounter, boolean withQuestionnaires) throws XmlException {
         String pathwaysCase = findPathwaysCase(clinicalDocument);
         if (pathwaysCase != null) {
             PathwaysCase pathwaysCaseDocument = PathwaysCaseDocument.Factory.parse(pathwaysCase).getPathwaysCase();
             TriageLine[] triageLineArray = pathwaysCaseDocument.getPathwayDetails().getPathwayTriageDetails().getPathwayTriageArray(0)
                 .getTriageLineDetails().getTriageLineArray();
+            PathwaysCaseContext caseContext = PathwaysCaseContext.from(pathwaysCaseDocument, withQuestionnaires);
 
-            for (TriageLine traigeLine : triageLineArray) {
-                questionnaireResponseList.add(questionnaireResponseMapper.mapQuestionnaireResponse(pathwaysCaseDocument, patient,
-                    encounter, traigeLine));
+            if (properties.isAggregated()) {
+                return Collections.singletonList(questionnaireResponseMapper.mapQuestionnaireResponse(caseContext, patient,
+                    encounter, triageLineArray));
             }
-
-            return questionnaireResponseList;
+            if (triageLineArray.length < properties.getParallelThreshold() || properties.getParallelism() < 2) {
+                return mapTriageLines(caseContext, patient, encounter, triageLineArray, 0, triageLineArray.length);
+            }
+            return mapTriageLinesInParallel(caseContext, patient, encounter, triageLineArray);
         }
         return null;
     }
 
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private List<QuestionnaireResponse> mapTriageLinesInParallel(PathwaysCaseContext caseContext, Reference patient,
+        Reference encounter, TriageLine[] triageLineArray) {
+        IdContext idContext = IdContext.current();
+        int chunkSize = (triageLineArray.length + properties.getParallelism() - 1) / properties.getParallelism();
+        List<Future<List<QuestionnaireResponse>>> chunks = new ArrayList<>();
+        for (int from = chunkSize; from < triageLineArray.length; from += chunkSize) {
+            int start = from;
+            int end = Math.min(from + chunkSize, triageLineArray.length);
+            chunks.add(executor.submit(() -> {
+                try (IdContext attached = IdContext.attach(idContext)) {
+                    return mapTriageLines(caseContext, patient, encounter, triageLineArray, start, end);
+                }
+            }));
+        }
+
+        // the calling thread maps the first chunk itself rather than waiting idle
+        List<QuestionnaireResponse> questionnaireResponseList = new ArrayList<>(triageLineArray.length);
+        try {
+            questionnaireResponseList.addAll(mapTriageLines(caseContext, patient, encounter, triageLineArray, 0,
+                Math.min(chunkSize, triageLineArray.length)));
+            for (Future<List<QuestionnaireResponse>> chunk : chunks) {
+                questionnaireResponseList.addAll(chunk.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while mapping triage lines", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Failed to map triage lines", e.getCause());
+        } finally {
+            chunks.forEach(chunk -> chunk.cancel(true));
+        }
+        return questionnaireResponseList;
+    }
+
+    private List<QuestionnaireResponse> mapTriageLines(PathwaysCaseContext caseContext, Reference patient, Reference encounter,
+        TriageLine[] triageLineArray, int from, int to) {
+        List<QuestionnaireResponse> questionnaireResponseList = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            try (IdContext scope = IdContext.openScope("triage[" + i + "]")) {
+                questionnaireResponseList.add(questionnaireResponseMapper.mapQuestionnaireResponse(caseContext, patient,
+                    encounter, triageLineArray[i]));
+            }
+        }
+        return questionnaireResponseList;
+    }
+
     private String findPathwaysCase(POCDMT000002UK01ClinicalDocument1 document) {
         return StructuredBodyUtil.getEntriesOfType(
             StructuredBodyUtil.getStructuredBody(document),
@@ -1,10 +1,14 @@
 package uk.nhs.adaptors.oneoneone.config;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
 import lombok.Getter;
 import lombok.Setter;
+import uk.nhs.adaptors.oneoneone.cda.report.service.MessageGroupKey;
 
 @Component
 @ConfigurationProperties(prefix = "amqp")
@@ -15,4 +19,26 @@ public class AmqpProperties {
     private String username;
     private String password;
     private String queueName;
-}
\ No newline at end of file
+    private String emergencyQueueName;
+    private int emergencyPriority = 9;
+    private MessageGroupKey groupBy = MessageGroupKey.NONE;
+    private Map<String, Destination> destinations = new HashMap<>();
+    private Map<String, String> addresses = new HashMap<>();
+    private Split split = new Split();
+
+    @Getter
+    @Setter
+    public static class Destination {
+        private String queueName;
+        private String emergencyQueueName;
+        private int sessionCacheSize = 1;
+    }
+
+    @Getter
+    @Setter
+    public static class Split {
+        private boolean enabled;
+        private int minEntries = 500;
+        private int maxChunks = 10;
+    }
+}
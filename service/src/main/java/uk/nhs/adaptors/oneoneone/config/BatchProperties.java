@@ -0,0 +1,19 @@
+package uk.nhs.adaptors.oneoneone.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Component
+@ConfigurationProperties(prefix = "batch")
+@Getter
+@Setter
+public class BatchProperties {
+    private boolean enabled;
+    private int maxReports = 100;
+    private DataSize maxRequestSize = DataSize.ofMegabytes(200);
+    private int threads = 8;
+}
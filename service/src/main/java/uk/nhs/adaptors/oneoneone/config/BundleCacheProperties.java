@@ -0,0 +1,16 @@
+package uk.nhs.adaptors.oneoneone.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Component
+@ConfigurationProperties(prefix = "bundle-cache")
+@Getter
+@Setter
+public class BundleCacheProperties {
+    private boolean enabled = true;
+    private int maxEntries = 500;
+}
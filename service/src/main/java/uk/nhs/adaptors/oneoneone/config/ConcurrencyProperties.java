@@ -0,0 +1,24 @@
+package uk.nhs.adaptors.oneoneone.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Component
+@ConfigurationProperties(prefix = "concurrency")
+@Getter
+@Setter
+public class ConcurrencyProperties {
+    private boolean enabled = true;
+    private int initialLimit = 20;
+    private int minLimit = 2;
+    private int maxLimit = 200;
+    private double smoothing = 0.2;
+    private double tolerance = 2.0;
+    private int baselineWindow = 500;
+    private Duration acquireTimeout = Duration.ofSeconds(30);
+}
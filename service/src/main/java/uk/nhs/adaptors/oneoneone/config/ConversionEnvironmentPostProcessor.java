@@ -0,0 +1,23 @@
+package uk.nhs.adaptors.oneoneone.config;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+/**
+ * Runs the application without the web server when a conversion input is configured from any property source, under
+ * the same condition that activates the bulk conversion runner.
+ */
+public class ConversionEnvironmentPostProcessor implements EnvironmentPostProcessor {
+
+    private static final String INPUT_PROPERTY = "conversion.input";
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        String input = environment.getProperty(INPUT_PROPERTY);
+        if (input != null && !"false".equalsIgnoreCase(input)) {
+            application.setWebApplicationType(WebApplicationType.NONE);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package uk.nhs.adaptors.oneoneone.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Component
+@ConfigurationProperties(prefix = "conversion")
+@Getter
+@Setter
+public class ConversionProperties {
+    private String input;
+    private String output = "converted";
+    private Format format = Format.NDJSON;
+    private int threads;
+
+    public enum Format {
+        NDJSON,
+        FILES
+    }
+}
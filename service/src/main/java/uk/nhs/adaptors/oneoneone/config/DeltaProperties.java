@@ -0,0 +1,16 @@
+package uk.nhs.adaptors.oneoneone.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Component
+@ConfigurationProperties(prefix = "delta")
+@Getter
+@Setter
+public class DeltaProperties {
+    private boolean enabled;
+    private int maxEntries = 1000;
+}
@@ -0,0 +1,37 @@
+package uk.nhs.adaptors.oneoneone.config;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import uk.nhs.adaptors.oneoneone.cda.report.util.IdUtil;
+
+/**
+ * Applies the id properties to {@link IdUtil} once they are bound and restores the defaults when the context is closed,
+ * so the settings do not outlive the application context. Beans that generate or inspect ids while they are created
+ * declare {@code @DependsOn(IdConfiguration.BEAN_NAME)}.
+ */
+@Configuration(IdConfiguration.BEAN_NAME)
+@Slf4j
+@AllArgsConstructor
+public class IdConfiguration implements InitializingBean, DisposableBean {
+
+    public static final String BEAN_NAME = "idConfiguration";
+
+    private final IdProperties properties;
+
+    @Override
+    public void afterPropertiesSet() {
+        LOGGER.info("Generating resource ids with the {} strategy, deterministic: {}", properties.getStrategy(),
+            properties.isDeterministic());
+        IdUtil.setStrategy(properties.getStrategy());
+        IdUtil.setDeterministic(properties.isDeterministic());
+    }
+
+    @Override
+    public void destroy() {
+        IdUtil.reset();
+    }
+}
@@ -0,0 +1,17 @@
+package uk.nhs.adaptors.oneoneone.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+import uk.nhs.adaptors.oneoneone.cda.report.util.IdStrategy;
+
+@Component
+@ConfigurationProperties(prefix = "id")
+@Getter
+@Setter
+public class IdProperties {
+    private IdStrategy strategy = IdStrategy.SECURE_RANDOM;
+    private boolean deterministic;
+}
@@ -0,0 +1,27 @@
+package uk.nhs.adaptors.oneoneone.config;
+
+import java.nio.file.Paths;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import uk.nhs.adaptors.oneoneone.cda.report.idempotency.FileIdempotencyStore;
+import uk.nhs.adaptors.oneoneone.cda.report.idempotency.IdempotencyStore;
+import uk.nhs.adaptors.oneoneone.cda.report.idempotency.InMemoryIdempotencyStore;
+import uk.nhs.adaptors.oneoneone.cda.report.idempotency.NoOpIdempotencyStore;
+
+@Configuration
+public class IdempotencyConfiguration {
+
+    @Bean
+    public IdempotencyStore idempotencyStore(IdempotencyProperties properties) {
+        switch (properties.getStore()) {
+            case FILE:
+                return new FileIdempotencyStore(Paths.get(properties.getFile()), properties.getTtl(), properties.getMaxEntries());
+            case MEMORY:
+                return new InMemoryIdempotencyStore(properties.getTtl(), properties.getMaxEntries());
+            default:
+                return new NoOpIdempotencyStore();
+        }
+    }
+}
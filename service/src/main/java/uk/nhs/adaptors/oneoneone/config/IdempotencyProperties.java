@@ -0,0 +1,26 @@
+package uk.nhs.adaptors.oneoneone.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Component
+@ConfigurationProperties(prefix = "idempotency")
+@Getter
+@Setter
+public class IdempotencyProperties {
+    private StoreType store = StoreType.MEMORY;
+    private Duration ttl = Duration.ofHours(24);
+    private int maxEntries = 10_000;
+    private String file = "idempotency.log";
+
+    public enum StoreType {
+        NONE,
+        MEMORY,
+        FILE
+    }
+}
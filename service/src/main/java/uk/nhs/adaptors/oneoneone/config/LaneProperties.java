@@ -0,0 +1,28 @@
+package uk.nhs.adaptors.oneoneone.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Component
+@ConfigurationProperties(prefix = "lanes")
+@Getter
+@Setter
+public class LaneProperties {
+    private int largeThreshold = 100_000;
+    private Lane small = new Lane(8, 200);
+    private Lane large = new Lane(2, 20);
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Lane {
+        private int threads;
+        private int capacity;
+    }
+}
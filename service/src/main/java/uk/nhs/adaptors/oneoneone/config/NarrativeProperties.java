@@ -0,0 +1,15 @@
+package uk.nhs.adaptors.oneoneone.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Component
+@ConfigurationProperties(prefix = "narrative")
+@Getter
+@Setter
+public class NarrativeProperties {
+    private int maxLength = 1_000_000;
+}
@@ -0,0 +1,32 @@
+package uk.nhs.adaptors.oneoneone.config;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.hl7.fhir.dstu3.model.ResourceType;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Component
+@ConfigurationProperties(prefix = "output")
+@Getter
+@Setter
+public class OutputProperties {
+    public static final String FULL_PROFILE = "full";
+
+    private String defaultProfile = FULL_PROFILE;
+    private Map<String, Profile> profiles = new HashMap<>();
+    private Map<String, String> addresses = new HashMap<>();
+
+    @Getter
+    @Setter
+    public static class Profile {
+        private Set<ResourceType> excludedResources = EnumSet.noneOf(ResourceType.class);
+        private boolean sectionNarrative = true;
+    }
+}
@@ -0,0 +1,19 @@
+package uk.nhs.adaptors.oneoneone.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Component
+@ConfigurationProperties(prefix = "reference-data-cache")
+@Getter
+@Setter
+public class ReferenceDataCacheProperties {
+    private boolean enabled = true;
+    private int maxEntries = 1000;
+    private Duration ttl = Duration.ofHours(1);
+}
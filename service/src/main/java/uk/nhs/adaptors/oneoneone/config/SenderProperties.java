@@ -0,0 +1,84 @@
+package uk.nhs.adaptors.oneoneone.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Rate limits and fair share weights of senders. Rates, bursts and weights must be positive, so that no sender gets an
+ * infinite or negative share of a lane.
+ */
+@Component
+@ConfigurationProperties(prefix = "sender")
+@Getter
+@Setter
+public class SenderProperties {
+    private boolean rateLimitEnabled = true;
+    private double ratePerSecond = 20;
+    private int burst = 100;
+    private double weight = 1;
+    private int maxTracked = 10_000;
+    private Map<String, Limits> overrides = new HashMap<>();
+
+    @Getter
+    public static class Limits {
+        private Double ratePerSecond;
+        private Integer burst;
+        private Double weight;
+
+        public void setRatePerSecond(Double ratePerSecond) {
+            this.ratePerSecond = ratePerSecond == null ? null : requirePositive("ratePerSecond", ratePerSecond);
+        }
+
+        public void setBurst(Integer burst) {
+            this.burst = burst == null ? null : (int) requirePositive("burst", burst);
+        }
+
+        public void setWeight(Double weight) {
+            this.weight = weight == null ? null : requirePositive("weight", weight);
+        }
+    }
+
+    public void setRatePerSecond(double ratePerSecond) {
+        this.ratePerSecond = requirePositive("ratePerSecond", ratePerSecond);
+    }
+
+    public void setBurst(int burst) {
+        this.burst = (int) requirePositive("burst", burst);
+    }
+
+    public void setWeight(double weight) {
+        this.weight = requirePositive("weight", weight);
+    }
+
+    public void setMaxTracked(int maxTracked) {
+        this.maxTracked = (int) requirePositive("maxTracked", maxTracked);
+    }
+
+    public double getRatePerSecond(String sender) {
+        Limits limits = overrides.get(sender);
+        return limits != null && limits.getRatePerSecond() != null ? limits.getRatePerSecond() : ratePerSecond;
+    }
+
+    public int getBurst(String sender) {
+        Limits limits = overrides.get(sender);
+        return limits != null && limits.getBurst() != null ? limits.getBurst() : burst;
+    }
+
+    public double getWeight(String sender) {
+        Limits limits = overrides.get(sender);
+        return limits != null && limits.getWeight() != null ? limits.getWeight() : weight;
+    }
+
+    private static double requirePositive(String name, double value) {
+        if (!(value > 0) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("sender." + name + " must be positive: " + value);
+        }
+        return value;
+    }
+}
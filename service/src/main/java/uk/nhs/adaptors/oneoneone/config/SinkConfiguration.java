@@ -0,0 +1,28 @@
+package uk.nhs.adaptors.oneoneone.config;
+
+import java.nio.file.Paths;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import uk.nhs.adaptors.oneoneone.cda.report.sink.InMemoryReportSink;
+import uk.nhs.adaptors.oneoneone.cda.report.sink.JmsReportSink;
+import uk.nhs.adaptors.oneoneone.cda.report.sink.NdjsonFileSink;
+import uk.nhs.adaptors.oneoneone.cda.report.sink.ReportSink;
+
+@Configuration
+public class SinkConfiguration {
+
+    @Bean
+    public ReportSink reportSink(SinkProperties properties, AmqpProperties amqpProperties) {
+        switch (properties.getType()) {
+            case FILE:
+                SinkProperties.File file = properties.getFile();
+                return new NdjsonFileSink(Paths.get(file.getDirectory()), file.getPrefix(), file.getMaxFileSize(), file.getBufferSize());
+            case MEMORY:
+                return new InMemoryReportSink();
+            default:
+                return new JmsReportSink(amqpProperties);
+        }
+    }
+}
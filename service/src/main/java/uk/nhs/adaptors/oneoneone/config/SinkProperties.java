@@ -0,0 +1,31 @@
+package uk.nhs.adaptors.oneoneone.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Component
+@ConfigurationProperties(prefix = "sink")
+@Getter
+@Setter
+public class SinkProperties {
+    private SinkType type = SinkType.JMS;
+    private File file = new File();
+
+    public enum SinkType {
+        JMS,
+        FILE,
+        MEMORY
+    }
+
+    @Getter
+    @Setter
+    public static class File {
+        private String directory = "reports";
+        private String prefix = "encounter-report";
+        private long maxFileSize = 128L * 1024 * 1024;
+        private int bufferSize = 64 * 1024;
+    }
+}
@@ -0,0 +1,17 @@
+package uk.nhs.adaptors.oneoneone.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Component
+@ConfigurationProperties(prefix = "triage")
+@Getter
+@Setter
+public class TriageProperties {
+    private int parallelThreshold = 50;
+    private int parallelism = 4;
+    private boolean aggregated;
+}
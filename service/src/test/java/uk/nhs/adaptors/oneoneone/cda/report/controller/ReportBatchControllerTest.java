@@ -0,0 +1,166 @@
+package uk.nhs.adaptors.oneoneone.cda.report.controller;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
+import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.HttpStatus.PAYLOAD_TOO_LARGE;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.Part;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartHttpServletRequest;
+
+import uk.nhs.adaptors.oneoneone.cda.report.scheduling.ReportBatchExecutor;
+import uk.nhs.adaptors.oneoneone.config.BatchProperties;
+
+@ExtendWith(MockitoExtension.class)
+public class ReportBatchControllerTest {
+
+    private static final String CLIENT_CERTIFICATE_DN = "CN=replay,OU=111,O=NHS";
+    private static final String FIRST_REPORT = "<soap:Envelope>first</soap:Envelope>";
+    private static final String SECOND_REPORT = "<soap:Envelope>second</soap:Envelope>";
+
+    @InjectMocks
+    private ReportBatchController reportBatchController;
+
+    @Mock
+    private ReportController reportController;
+
+    @Spy
+    private BatchProperties batchProperties = new BatchProperties();
+
+    @Spy
+    private ReportBatchExecutor batchExecutor = new ReportBatchExecutor(batchProperties);
+
+    @AfterEach
+    public void tearDown() {
+        batchExecutor.shutdown();
+    }
+
+    @Test
+    public void shouldListResponseOfEveryReportInRequestOrder() throws IOException, InterruptedException {
+        when(reportController.postReport(FIRST_REPORT, CLIENT_CERTIFICATE_DN))
+            .thenReturn(new ResponseEntity<>("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<first/>", OK));
+        when(reportController.postReport(SECOND_REPORT, CLIENT_CERTIFICATE_DN))
+            .thenReturn(new ResponseEntity<>("<second/>", INTERNAL_SERVER_ERROR));
+
+        ResponseEntity<String> response = reportBatchController.postReports(xmlRequest(FIRST_REPORT + "\n" + SECOND_REPORT),
+            CLIENT_CERTIFICATE_DN);
+
+        assertThat(response.getStatusCode()).isEqualTo(OK);
+        assertThat(response.getBody()).isEqualTo("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<itkBatchResponse count=\"2\">\n"
+            + "<response index=\"0\" status=\"200\"><first/></response>\n"
+            + "<response index=\"1\" status=\"500\"><second/></response>\n"
+            + "</itkBatchResponse>\n");
+    }
+
+    @Test
+    public void shouldListResponseOfEveryPartInRequestOrder() throws IOException, ServletException, InterruptedException {
+        when(reportController.postReport(FIRST_REPORT, null)).thenReturn(new ResponseEntity<>("<first/>", OK));
+        when(reportController.postReport(SECOND_REPORT, null)).thenReturn(new ResponseEntity<>("<second/>", OK));
+        List<Part> parts = List.of(filePart(FIRST_REPORT), filePart(SECOND_REPORT), mock(Part.class), filePart(FIRST_REPORT));
+        MultipartHttpServletRequest request = mock(MultipartHttpServletRequest.class);
+        when(request.getParts()).thenReturn(parts);
+
+        ResponseEntity<String> response = reportBatchController.postReportParts(request, null);
+
+        assertThat(response.getBody()).isEqualTo("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<itkBatchResponse count=\"3\">\n"
+            + "<response index=\"0\" status=\"200\"><first/></response>\n"
+            + "<response index=\"1\" status=\"200\"><second/></response>\n"
+            + "<response index=\"2\" status=\"200\"><first/></response>\n"
+            + "</itkBatchResponse>\n");
+    }
+
+    @Test
+    public void shouldRejectBatchLargerThanMaximum() throws IOException, InterruptedException {
+        batchProperties.setMaxReports(1);
+
+        ResponseEntity<String> response = reportBatchController.postReports(xmlRequest(FIRST_REPORT + SECOND_REPORT), null);
+
+        assertThat(response.getStatusCode()).isEqualTo(PAYLOAD_TOO_LARGE);
+        verify(reportController, never()).postReport(any(), any());
+    }
+
+    @Test
+    public void shouldRejectBodyLargerThanMaximumWithoutContentLength() throws IOException, InterruptedException {
+        batchProperties.setMaxRequestSize(DataSize.ofBytes(FIRST_REPORT.length()));
+
+        ResponseEntity<String> response = reportBatchController.postReports(xmlRequest(FIRST_REPORT + SECOND_REPORT), null);
+
+        assertThat(response.getStatusCode()).isEqualTo(PAYLOAD_TOO_LARGE);
+        assertThat(response.getBody()).contains("maxRequestSize=\"" + FIRST_REPORT.length() + "\"");
+        verify(reportController, never()).postReport(any(), any());
+    }
+
+    @Test
+    public void shouldRejectContentLengthLargerThanMaximumWithoutReadingBody() throws IOException, InterruptedException {
+        batchProperties.setMaxRequestSize(DataSize.ofBytes(FIRST_REPORT.length()));
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getContentLengthLong()).thenReturn((long) FIRST_REPORT.length() + 1);
+
+        ResponseEntity<String> response = reportBatchController.postReports(request, null);
+
+        assertThat(response.getStatusCode()).isEqualTo(PAYLOAD_TOO_LARGE);
+        verify(request, never()).getInputStream();
+    }
+
+    private static HttpServletRequest xmlRequest(String body) throws IOException {
+        ByteArrayInputStream content = new ByteArrayInputStream(body.getBytes(UTF_8));
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        // chunked requests have no content length
+        when(request.getContentLengthLong()).thenReturn(-1L);
+        when(request.getInputStream()).thenReturn(new ServletInputStream() {
+            @Override
+            public int read() {
+                return content.read();
+            }
+
+            @Override
+            public boolean isFinished() {
+                return content.available() == 0;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(ReadListener readListener) {
+                throw new UnsupportedOperationException();
+            }
+        });
+        return request;
+    }
+
+    private static Part filePart(String content) throws IOException {
+        Part part = mock(Part.class);
+        when(part.getSubmittedFileName()).thenReturn("report.xml");
+        when(part.getInputStream()).thenReturn(new ByteArrayInputStream(content.getBytes(UTF_8)));
+        return part;
+    }
+}
@@ -4,19 +4,29 @@ import static java.nio.charset.Charset.defaultCharset;
 import static java.nio.file.Files.readAllBytes;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
 import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+import static org.springframework.http.HttpStatus.TOO_MANY_REQUESTS;
+import static uk.nhs.adaptors.oneoneone.cda.report.scheduling.ReportPriority.ROUTINE;
 
 import java.net.URL;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 
-import org.apache.xmlbeans.XmlException;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
@@ -26,10 +36,18 @@ import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.ResponseEntity;
 
+import uk.nhs.adaptors.oneoneone.cda.report.controller.exceptions.RateLimitExceededException;
+import uk.nhs.adaptors.oneoneone.cda.report.controller.exceptions.ServiceBusyException;
 import uk.nhs.adaptors.oneoneone.cda.report.controller.exceptions.SoapClientException;
 import uk.nhs.adaptors.oneoneone.cda.report.controller.utils.ItkReportHeader;
 import uk.nhs.adaptors.oneoneone.cda.report.controller.utils.ItkResponseUtil;
 import uk.nhs.adaptors.oneoneone.cda.report.controller.utils.ReportItkHeaderParserUtil;
+import uk.nhs.adaptors.oneoneone.cda.report.controller.utils.ReportSenderResolver;
+import uk.nhs.adaptors.oneoneone.cda.report.idempotency.IdempotencyStore;
+import uk.nhs.adaptors.oneoneone.cda.report.idempotency.InMemoryIdempotencyStore;
+import uk.nhs.adaptors.oneoneone.cda.report.scheduling.AdaptiveConcurrencyLimiter;
+import uk.nhs.adaptors.oneoneone.cda.report.scheduling.ReportLaneScheduler;
+import uk.nhs.adaptors.oneoneone.cda.report.scheduling.SenderRateLimiter;
 import uk.nhs.adaptors.oneoneone.cda.report.service.EncounterReportService;
 import uk.nhs.adaptors.oneoneone.cda.report.validation.ItkValidator;
 import uk.nhs.adaptors.oneoneone.cda.report.validation.SoapValidator;
@@ -41,6 +59,7 @@ public class ReportControllerTest {
     private static final String MESSAGE_ID = "2B77B3F5-3016-4A6D-821F-152CE420E58D";
     private static final String TRACKING_ID = "7D6F23E0-AE1A-11DB-9808-B18E1E0994CD";
     private static final String RESPONSE_XML = "<response>";
+    private static final int MAX_IDEMPOTENCY_ENTRIES = 10;
 
     @InjectMocks
     private ReportController reportController;
@@ -60,17 +79,33 @@ public class ReportControllerTest {
     @Spy
     private ReportItkHeaderParserUtil headerParserUtil;
 
+    @Mock
+    private ReportLaneScheduler laneScheduler;
+
+    @Spy
+    private ReportSenderResolver senderResolver;
+
+    @Mock
+    private SenderRateLimiter senderRateLimiter;
+
+    @Spy
+    private IdempotencyStore idempotencyStore = new InMemoryIdempotencyStore(Duration.ofHours(1), MAX_IDEMPOTENCY_ENTRIES);
+
+    @Mock
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
+
     @Test
-    public void postReportValidRequest() throws XmlException {
+    public void postReportValidRequest() throws Exception {
+        when(laneScheduler.execute(anyInt(), any(), any(), any())).thenAnswer(invocation -> invocation.<Callable<?>>getArgument(3).call());
         when(itkResponseUtil.createSuccessResponseEntity(eq(MESSAGE_ID), anyString())).thenReturn(RESPONSE_XML);
 
         String validRequest = getValidXmlReportRequest();
 
-        ResponseEntity<String> response = reportController.postReport(validRequest);
+        ResponseEntity<String> response = reportController.postReport(validRequest, null);
 
         ArgumentCaptor<POCDMT000002UK01ClinicalDocument1> captor = ArgumentCaptor.forClass(POCDMT000002UK01ClinicalDocument1.class);
         ArgumentCaptor<ItkReportHeader> captorHeader = ArgumentCaptor.forClass(ItkReportHeader.class);
-        verify(encounterReportService).transformAndPopulateToGP(captor.capture(), eq(MESSAGE_ID), captorHeader.capture());
+        verify(encounterReportService).transformAndPopulateToGP(captor.capture(), eq(MESSAGE_ID), captorHeader.capture(), any());
         POCDMT000002UK01ClinicalDocument1 clinicalDocument = captor.getValue();
         assertThat(clinicalDocument.getId().getRoot()).isEqualTo("A709A442-3CF4-476E-8377-376500E829C9");
         assertThat(clinicalDocument.getSetId().getRoot()).isEqualTo("411910CF-1A76-4330-98FE-C345DDEE5553");
@@ -81,6 +116,9 @@ public class ReportControllerTest {
         assertThat(headerValue.getSpecKey()).isEqualTo("urn:nhs-itk:ns:201005:interaction");
         assertThat(headerValue.getSpecVal()).isEqualTo("urn:nhs-itk:interaction:primaryEmergencyDepartmentRecipientNHS111CDADocument-v2-0");
         assertThat(headerValue.getAddressList().get(0)).isEqualTo("urn:nhs-uk:addressing:ods:EM396");
+        assertThat(headerValue.getSenderAddress()).isEqualTo("urn:nhs-uk:addressing:ods:5L399:445510770");
+        verify(senderRateLimiter).checkRate("TKS Server test");
+        verify(idempotencyStore).storeResponse(MESSAGE_ID, TRACKING_ID, RESPONSE_XML);
     }
 
     private String getValidXmlReportRequest() {
@@ -96,7 +134,7 @@ public class ReportControllerTest {
     public void postReportInvalidXmlRequest() {
         String invalidRequest = "<invalid>";
 
-        ResponseEntity<String> response = reportController.postReport(invalidRequest);
+        ResponseEntity<String> response = reportController.postReport(invalidRequest, null);
         assertThat(response.getStatusCode()).isEqualTo(INTERNAL_SERVER_ERROR);
     }
 
@@ -106,7 +144,91 @@ public class ReportControllerTest {
             .when(itkValidator).checkItkConformance(anyMap());
         String invalidRequest = getValidXmlReportRequest();
 
-        ResponseEntity<String> response = reportController.postReport(invalidRequest);
+        ResponseEntity<String> response = reportController.postReport(invalidRequest, null);
         assertThat(response.getStatusCode()).isEqualTo(INTERNAL_SERVER_ERROR);
     }
+
+    @Test
+    public void postReportWhenLaneIsFull() throws Exception {
+        when(laneScheduler.execute(anyInt(), any(), any(), any())).thenThrow(new ServiceBusyException("Report lane SMALL is full"));
+        String validRequest = getValidXmlReportRequest();
+
+        ResponseEntity<String> response = reportController.postReport(validRequest, null);
+        assertThat(response.getStatusCode()).isEqualTo(SERVICE_UNAVAILABLE);
+    }
+
+    @Test
+    public void postReportWhenConcurrencyLimitIsReached() throws Exception {
+        when(concurrencyLimiter.acquire(ROUTINE)).thenThrow(new ServiceBusyException("Concurrency limit of 20 reports reached"));
+        String validRequest = getValidXmlReportRequest();
+
+        ResponseEntity<String> response = reportController.postReport(validRequest, null);
+
+        assertThat(response.getStatusCode()).isEqualTo(SERVICE_UNAVAILABLE);
+        verify(laneScheduler, never()).execute(anyInt(), any(), any(), any());
+    }
+
+    @Test
+    public void postReportWhenSenderExceedsRateLimit() {
+        doThrow(new RateLimitExceededException("Rate limit exceeded"))
+            .when(senderRateLimiter).checkRate("provider-a");
+        String validRequest = getValidXmlReportRequest();
+
+        ResponseEntity<String> response = reportController.postReport(validRequest, "CN=provider-a,OU=111,O=NHS");
+        assertThat(response.getStatusCode()).isEqualTo(TOO_MANY_REQUESTS);
+    }
+
+    @Test
+    public void postReportDuplicateReturnsOriginalResponse() throws Exception {
+        idempotencyStore.storeResponse(MESSAGE_ID, TRACKING_ID, RESPONSE_XML);
+        String validRequest = getValidXmlReportRequest();
+
+        ResponseEntity<String> response = reportController.postReport(validRequest, null);
+
+        assertThat(response.getStatusCode()).isEqualTo(OK);
+        assertThat(response.getBody()).isEqualTo(RESPONSE_XML);
+        verify(laneScheduler, never()).execute(anyInt(), any(), any(), any());
+        verify(encounterReportService, never()).transformAndPopulateToGP(any(), any(), any(), any());
+    }
+
+    @Test
+    public void postReportConcurrentDuplicateIsPublishedOnce() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(laneScheduler.execute(anyInt(), any(), any(), any())).thenAnswer(invocation -> {
+            entered.countDown();
+            release.await();
+            return invocation.<Callable<?>>getArgument(3).call();
+        });
+        when(itkResponseUtil.createSuccessResponseEntity(eq(MESSAGE_ID), anyString())).thenReturn(RESPONSE_XML);
+        String validRequest = getValidXmlReportRequest();
+
+        CompletableFuture<ResponseEntity<String>> first = CompletableFuture.supplyAsync(
+            () -> reportController.postReport(validRequest, null));
+        entered.await();
+        ResponseEntity<String> concurrent = reportController.postReport(validRequest, null);
+        release.countDown();
+        ResponseEntity<String> retry = reportController.postReport(validRequest, null);
+
+        assertThat(first.get().getStatusCode()).isEqualTo(OK);
+        assertThat(concurrent.getStatusCode()).isEqualTo(SERVICE_UNAVAILABLE);
+        assertThat(retry.getBody()).isEqualTo(RESPONSE_XML);
+        verify(encounterReportService, times(1)).transformAndPopulateToGP(any(), eq(MESSAGE_ID), any(), any());
+    }
+
+    @Test
+    public void postReportRetryIsProcessedAfterFailure() throws Exception {
+        when(laneScheduler.execute(anyInt(), any(), any(), any()))
+            .thenThrow(new ServiceBusyException("Report lane SMALL is full"))
+            .thenAnswer(invocation -> invocation.<Callable<?>>getArgument(3).call());
+        when(itkResponseUtil.createSuccessResponseEntity(eq(MESSAGE_ID), anyString())).thenReturn(RESPONSE_XML);
+        String validRequest = getValidXmlReportRequest();
+
+        ResponseEntity<String> failed = reportController.postReport(validRequest, null);
+        ResponseEntity<String> retry = reportController.postReport(validRequest, null);
+
+        assertThat(failed.getStatusCode()).isEqualTo(SERVICE_UNAVAILABLE);
+        assertThat(retry.getStatusCode()).isEqualTo(OK);
+        verify(encounterReportService).transformAndPopulateToGP(any(), eq(MESSAGE_ID), any(), any());
+    }
 }
@@ -0,0 +1,25 @@
+package uk.nhs.adaptors.oneoneone.cda.report.controller.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+public class ReportBatchParserUtilTest {
+
+    private static final String FIRST = "<?xml version=\"1.0\"?>\n<soap:Envelope><soap:Body><itk:DistributionEnvelope>"
+        + "</itk:DistributionEnvelope></soap:Body></soap:Envelope>";
+    private static final String SECOND = "<SOAP-ENV:Envelope><SOAP-ENV:Body/></SOAP-ENV:Envelope >";
+    private static final String THIRD = "<Envelope><Body/></Envelope>";
+
+    @Test
+    public void shouldSplitConcatenatedEnvelopes() {
+        assertThat(ReportBatchParserUtil.splitReports(FIRST + "\n" + SECOND + THIRD + "\n"))
+            .containsExactly(FIRST, SECOND, THIRD);
+    }
+
+    @Test
+    public void shouldKeepTextAfterLastEnvelope() {
+        assertThat(ReportBatchParserUtil.splitReports(FIRST + "\n<soap:Envelope>")).containsExactly(FIRST, "<soap:Envelope>");
+        assertThat(ReportBatchParserUtil.splitReports(" \n")).isEmpty();
+    }
+}
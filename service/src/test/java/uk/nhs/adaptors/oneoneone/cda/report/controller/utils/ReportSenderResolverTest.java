@@ -0,0 +1,62 @@
+package uk.nhs.adaptors.oneoneone.cda.report.controller.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.dom4j.DocumentException;
+import org.dom4j.DocumentHelper;
+import org.dom4j.Element;
+import org.junit.jupiter.api.Test;
+
+public class ReportSenderResolverTest {
+
+    private static final String SOAP_HEADER = "<s:Header xmlns:s=\"http://schemas.xmlsoap.org/soap/envelope/\">"
+        + "<wsse:Security xmlns:wsse=\"http://docs.oasis-open.org/wss/2004/01/oasis-200401-wss-wssecurity-secext-1.0.xsd\">"
+        + "<wsse:UsernameToken><wsse:Username> TKS Server test </wsse:Username></wsse:UsernameToken>"
+        + "</wsse:Security></s:Header>";
+    private static final String SENDER_ADDRESS = "urn:nhs-uk:addressing:ods:5L399:445510770";
+
+    private final ReportSenderResolver senderResolver = new ReportSenderResolver();
+
+    @Test
+    public void shouldPreferClientCertificateCommonName() throws DocumentException {
+        String sender = senderResolver.resolveSender("CN=provider.nhs.uk,OU=111,O=NHS", soapHeader(), itkHeader());
+
+        assertThat(sender).isEqualTo("provider.nhs.uk");
+    }
+
+    @Test
+    public void shouldReadCommonNameFromLegacyDistinguishedNameFormat() {
+        String sender = senderResolver.resolveSender("/C=GB/O=NHS/CN=provider.nhs.uk", null, null);
+
+        assertThat(sender).isEqualTo("provider.nhs.uk");
+    }
+
+    @Test
+    public void shouldFallBackToSoapUsername() throws DocumentException {
+        String sender = senderResolver.resolveSender("OU=111,O=NHS", soapHeader(), itkHeader());
+
+        assertThat(sender).isEqualTo("TKS Server test");
+    }
+
+    @Test
+    public void shouldFallBackToItkSenderAddress() {
+        String sender = senderResolver.resolveSender(null, null, itkHeader());
+
+        assertThat(sender).isEqualTo(SENDER_ADDRESS);
+    }
+
+    @Test
+    public void shouldReturnUnknownWhenSenderCannotBeIdentified() {
+        assertThat(senderResolver.resolveSender(null, null, new ItkReportHeader())).isEqualTo("unknown");
+    }
+
+    private Element soapHeader() throws DocumentException {
+        return DocumentHelper.parseText(SOAP_HEADER).getRootElement();
+    }
+
+    private ItkReportHeader itkHeader() {
+        ItkReportHeader header = new ItkReportHeader();
+        header.setSenderAddress(SENDER_ADDRESS);
+        return header;
+    }
+}
@@ -0,0 +1,99 @@
+package uk.nhs.adaptors.oneoneone.cda.report.conversion;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.dom4j.DocumentException;
+import org.hl7.fhir.dstu3.model.Bundle;
+import org.hl7.fhir.dstu3.model.Identifier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import ca.uhn.fhir.context.FhirContext;
+import uk.nhs.adaptors.oneoneone.config.ConversionProperties;
+import uk.nhs.adaptors.oneoneone.config.SinkProperties;
+
+@ExtendWith(MockitoExtension.class)
+public class BulkConversionRunnerTest {
+
+    private static final String REPORT = "<ClinicalDocument>report</ClinicalDocument>";
+    private static final String INVALID_REPORT = "<ClinicalDocument>";
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private ReportConverter reportConverter;
+
+    private ConversionProperties properties;
+    private Path output;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        Path input = tempDir.resolve("input");
+        Files.createDirectories(input.resolve("2020-12"));
+        Files.writeString(input.resolve("2020-12/first.xml"), REPORT);
+        Files.writeString(input.resolve("2020-12/second.xml"), REPORT);
+        Files.writeString(input.resolve("invalid.xml"), INVALID_REPORT);
+        output = tempDir.resolve("output");
+        properties = new ConversionProperties();
+        properties.setInput(input.toString());
+        properties.setOutput(output.toString());
+        properties.setThreads(2);
+
+        Bundle bundle = new Bundle();
+        bundle.setIdentifier(new Identifier().setValue("1"));
+        when(reportConverter.convert(REPORT)).thenReturn(bundle);
+        when(reportConverter.convert(INVALID_REPORT)).thenThrow(new DocumentException("invalid"));
+    }
+
+    @Test
+    public void shouldAppendBundlesToNdjsonFile() throws Exception {
+        BulkConversionRunner runner = createRunner();
+
+        runner.run(null);
+
+        List<String> lines = Files.readAllLines(singleFile(output));
+        assertThat(lines).hasSize(2).allSatisfy(line -> assertThat(line).startsWith("{\"resourceType\":\"Bundle\""));
+        assertThat(runner.getSummary().getConverted()).isEqualTo(2);
+        assertThat(runner.getSummary().getFailures()).isEqualTo(Map.of("DocumentException", 1L));
+        assertThat(runner.getExitCode()).isOne();
+    }
+
+    @Test
+    public void shouldWriteOneFilePerReport() throws Exception {
+        properties.setFormat(ConversionProperties.Format.FILES);
+        BulkConversionRunner runner = createRunner();
+
+        runner.run(null);
+
+        assertThat(Files.readString(output.resolve("2020-12/first.json"))).contains("\"resourceType\": \"Bundle\"");
+        assertThat(output.resolve("2020-12/second.json")).exists();
+        assertThat(output.resolve("invalid.json")).doesNotExist();
+        assertThat(runner.getSummary().getFailed()).isOne();
+    }
+
+    private BulkConversionRunner createRunner() {
+        return new BulkConversionRunner(properties, new SinkProperties(), reportConverter, FhirContext.forDstu3());
+    }
+
+    private static Path singleFile(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> paths = files.collect(Collectors.toList());
+            assertThat(paths).hasSize(1);
+            return paths.get(0);
+        }
+    }
+}
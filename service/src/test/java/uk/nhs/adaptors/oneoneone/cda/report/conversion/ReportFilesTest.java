@@ -0,0 +1,103 @@
+package uk.nhs.adaptors.oneoneone.cda.report.conversion;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ReportFilesTest {
+
+    private static final String REPORT = "<ClinicalDocument/>";
+    private static final String LONG_NAME = "reports/" + "a".repeat(120) + ".xml";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void shouldReadXmlFilesOfDirectory() throws IOException {
+        Path input = tempDir.resolve("input");
+        Files.createDirectories(input.resolve("2020-12"));
+        Files.writeString(input.resolve("2020-12/b.xml"), REPORT);
+        Files.writeString(input.resolve("a.XML"), REPORT);
+        Files.writeString(input.resolve("notes.txt"), "notes");
+
+        assertThat(read(input)).containsOnlyKeys("2020-12/b.xml", "a.XML")
+            .containsValue(REPORT);
+    }
+
+    @Test
+    public void shouldReadXmlFilesOfTarArchive() throws IOException {
+        Path archive = tempDir.resolve("reports.tar");
+        try (OutputStream out = Files.newOutputStream(archive)) {
+            out.write(createTar());
+        }
+
+        assertThat(read(archive)).containsExactly(
+            Map.entry("2020-12/report.xml", REPORT),
+            Map.entry(LONG_NAME, REPORT + "\n"));
+    }
+
+    @Test
+    public void shouldReadGzippedTarArchive() throws IOException {
+        Path archive = tempDir.resolve("reports.tar.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(archive))) {
+            out.write(createTar());
+        }
+
+        assertThat(read(archive)).containsOnlyKeys("2020-12/report.xml", LONG_NAME);
+    }
+
+    private static Map<String, String> read(Path input) throws IOException {
+        Map<String, String> reports = new LinkedHashMap<>();
+        ReportFiles.forEach(input, (name, content) -> reports.put(name, new String(content, UTF_8)));
+        return reports;
+    }
+
+    private static byte[] createTar() throws IOException {
+        ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        addEntry(tar, "2020-12/", "", '5', new byte[0]);
+        addEntry(tar, "report.xml", "2020-12", '0', REPORT.getBytes(UTF_8));
+        addEntry(tar, "readme.txt", "", '0', "not a report".getBytes(UTF_8));
+        addEntry(tar, "././@LongLink", "", 'L', (LONG_NAME + "\0").getBytes(UTF_8));
+        addEntry(tar, LONG_NAME.substring(0, 100), "", '0', (REPORT + "\n").getBytes(UTF_8));
+        tar.write(new byte[1024]);
+        return tar.toByteArray();
+    }
+
+    private static void addEntry(ByteArrayOutputStream tar, String name, String prefix, char type, byte[] content)
+        throws IOException {
+        byte[] header = new byte[512];
+        put(header, 0, name);
+        put(header, 100, "0000644");
+        put(header, 124, String.format("%011o", content.length));
+        put(header, 136, "00000000000");
+        header[156] = (byte) type;
+        put(header, 257, "ustar");
+        put(header, 263, "00");
+        put(header, 345, prefix);
+        put(header, 148, "        ");
+        int checksum = 0;
+        for (byte b : header) {
+            checksum += b & 0xFF;
+        }
+        put(header, 148, String.format("%06o", checksum) + "\0 ");
+        tar.write(header);
+        tar.write(content);
+        tar.write(new byte[(512 - content.length % 512) % 512]);
+    }
+
+    private static void put(byte[] header, int offset, String value) {
+        byte[] bytes = value.getBytes(UTF_8);
+        System.arraycopy(bytes, 0, header, offset, bytes.length);
+    }
+}
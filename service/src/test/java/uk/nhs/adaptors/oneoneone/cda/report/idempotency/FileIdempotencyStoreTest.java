@@ -0,0 +1,102 @@
+package uk.nhs.adaptors.oneoneone.cda.report.idempotency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class FileIdempotencyStoreTest {
+
+    private static final String MESSAGE_ID = "2B77B3F5-3016-4A6D-821F-152CE420E58D";
+    private static final String TRACKING_ID = "7D6F23E0-AE1A-11DB-9808-B18E1E0994CD";
+    private static final String RESPONSE = "<soap:Envelope>\n\t<soap:Body>OK</soap:Body>\n</soap:Envelope>";
+    private static final Duration TTL = Duration.ofMinutes(10);
+    private static final Instant NOW = Instant.parse("2020-12-01T10:00:00Z");
+    private static final int MAX_ENTRIES = 10;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void shouldRestoreResponsesAfterRestart() throws IOException {
+        Path file = tempDir.resolve("idempotency.log");
+        try (FileIdempotencyStore store = new FileIdempotencyStore(file, TTL, MAX_ENTRIES, clockAt(NOW))) {
+            store.storeResponse(MESSAGE_ID, TRACKING_ID, RESPONSE);
+        }
+
+        try (FileIdempotencyStore store = new FileIdempotencyStore(file, TTL, MAX_ENTRIES, clockAt(NOW))) {
+            assertThat(store.findResponse(MESSAGE_ID, null)).contains(RESPONSE);
+            assertThat(store.findResponse(null, TRACKING_ID)).contains(RESPONSE);
+        }
+    }
+
+    @Test
+    public void shouldDropExpiredResponsesOnRestart() throws IOException {
+        Path file = tempDir.resolve("idempotency.log");
+        try (FileIdempotencyStore store = new FileIdempotencyStore(file, TTL, MAX_ENTRIES, clockAt(NOW))) {
+            store.storeResponse(MESSAGE_ID, TRACKING_ID, RESPONSE);
+        }
+
+        try (FileIdempotencyStore store = new FileIdempotencyStore(file, TTL, MAX_ENTRIES, clockAt(NOW.plus(TTL)))) {
+            assertThat(store.findResponse(MESSAGE_ID, TRACKING_ID)).isEmpty();
+        }
+        assertThat(Files.readAllLines(file)).isEmpty();
+    }
+
+    @Test
+    public void shouldCompactFileWhenItGrows() throws IOException {
+        Path file = tempDir.resolve("idempotency.log");
+        try (FileIdempotencyStore store = new FileIdempotencyStore(file, TTL, MAX_ENTRIES, clockAt(NOW))) {
+            for (int i = 0; i < MAX_ENTRIES * 2; i++) {
+                store.storeResponse("message-" + i, "tracking-" + i, RESPONSE);
+            }
+        }
+
+        assertThat(Files.readAllLines(file).size()).isLessThanOrEqualTo(MAX_ENTRIES * 2 + 2);
+        try (FileIdempotencyStore store = new FileIdempotencyStore(file, TTL, MAX_ENTRIES, clockAt(NOW))) {
+            assertThat(store.findResponse(null, "tracking-" + (MAX_ENTRIES * 2 - 1))).contains(RESPONSE);
+        }
+    }
+
+    @Test
+    public void shouldKeepAppendingWhenCompactionFails() throws IOException {
+        Path file = tempDir.resolve("idempotency.log");
+        try (FileIdempotencyStore store = new FileIdempotencyStore(file, TTL, MAX_ENTRIES, clockAt(NOW))) {
+            Files.createDirectories(tempDir.resolve("idempotency.log.tmp").resolve("blocked"));
+            for (int i = 0; i < MAX_ENTRIES * 2; i++) {
+                store.storeResponse("message-" + i, "tracking-" + i, RESPONSE);
+            }
+        }
+
+        assertThat(Files.readAllLines(file)).hasSize(MAX_ENTRIES * 4);
+    }
+
+    @Test
+    public void shouldSkipTornLinesOnRestart() throws IOException {
+        Path file = tempDir.resolve("idempotency.log");
+        try (FileIdempotencyStore store = new FileIdempotencyStore(file, TTL, MAX_ENTRIES, clockAt(NOW))) {
+            store.storeResponse(MESSAGE_ID, TRACKING_ID, RESPONSE);
+        }
+        String line = Files.readAllLines(file).get(0);
+        int responseStart = line.lastIndexOf('\t') + 1;
+        String tornLine = line.substring(0, responseStart + 5);
+        Files.writeString(file, "not-a-number\tAAAA\tAAAA\n" + tornLine, StandardOpenOption.APPEND);
+
+        try (FileIdempotencyStore store = new FileIdempotencyStore(file, TTL, MAX_ENTRIES, clockAt(NOW))) {
+            assertThat(store.findResponse(MESSAGE_ID, TRACKING_ID)).contains(RESPONSE);
+        }
+    }
+
+    private Clock clockAt(Instant instant) {
+        return Clock.fixed(instant, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,91 @@
+package uk.nhs.adaptors.oneoneone.cda.report.idempotency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.Test;
+
+import uk.nhs.adaptors.oneoneone.cda.report.controller.exceptions.ServiceBusyException;
+
+public class InMemoryIdempotencyStoreTest {
+
+    private static final String MESSAGE_ID = "2B77B3F5-3016-4A6D-821F-152CE420E58D";
+    private static final String TRACKING_ID = "7D6F23E0-AE1A-11DB-9808-B18E1E0994CD";
+    private static final String RESPONSE = "<response>";
+    private static final Duration TTL = Duration.ofMinutes(10);
+    private static final Instant NOW = Instant.parse("2020-12-01T10:00:00Z");
+
+    @Test
+    public void shouldFindResponseByMessageIdOrTrackingId() {
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(TTL, 10, Clock.fixed(NOW, ZoneOffset.UTC));
+        store.storeResponse(MESSAGE_ID, TRACKING_ID, RESPONSE);
+
+        assertThat(store.findResponse(MESSAGE_ID, "other")).contains(RESPONSE);
+        assertThat(store.findResponse("other", TRACKING_ID)).contains(RESPONSE);
+        assertThat(store.findResponse("other", "other")).isEmpty();
+    }
+
+    @Test
+    public void shouldForgetExpiredResponse() {
+        InMemoryIdempotencyStore writer = new InMemoryIdempotencyStore(TTL, 10, Clock.fixed(NOW, ZoneOffset.UTC));
+        writer.storeResponse(MESSAGE_ID, TRACKING_ID, RESPONSE);
+        InMemoryIdempotencyStore.Entry entry = writer.liveEntries().values().iterator().next();
+
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(TTL, 10, Clock.fixed(NOW.plus(TTL), ZoneOffset.UTC));
+        store.put("messageId:" + MESSAGE_ID, entry);
+
+        assertThat(store.findResponse(MESSAGE_ID, TRACKING_ID)).isEmpty();
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedResponse() {
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(TTL, 2, Clock.fixed(NOW, ZoneOffset.UTC));
+        store.storeResponse("message-1", null, "response-1");
+        store.storeResponse("message-2", null, "response-2");
+        store.findResponse("message-1", null);
+        store.storeResponse("message-3", null, "response-3");
+
+        assertThat(store.findResponse("message-1", null)).contains("response-1");
+        assertThat(store.findResponse("message-2", null)).isEmpty();
+        assertThat(store.findResponse("message-3", null)).contains("response-3");
+    }
+
+    @Test
+    public void shouldRejectReservationHeldByAnotherRequest() {
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(TTL, 10, Clock.fixed(NOW, ZoneOffset.UTC));
+
+        assertThat(store.reserve(MESSAGE_ID, TRACKING_ID)).isEmpty();
+        assertThat(store.findResponse(MESSAGE_ID, TRACKING_ID)).isEmpty();
+        assertThatThrownBy(() -> store.reserve("other", TRACKING_ID)).isInstanceOf(ServiceBusyException.class);
+
+        store.storeResponse(MESSAGE_ID, TRACKING_ID, RESPONSE);
+
+        assertThat(store.reserve(MESSAGE_ID, TRACKING_ID)).contains(RESPONSE);
+    }
+
+    @Test
+    public void shouldKeepReservationWhenResponsesAreEvicted() {
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(TTL, 2, Clock.fixed(NOW, ZoneOffset.UTC));
+        store.reserve(MESSAGE_ID, TRACKING_ID);
+        for (int i = 0; i < 3; i++) {
+            store.storeResponse("message-" + i, "tracking-" + i, RESPONSE);
+        }
+
+        assertThatThrownBy(() -> store.reserve(MESSAGE_ID, TRACKING_ID)).isInstanceOf(ServiceBusyException.class);
+    }
+
+    @Test
+    public void shouldAllowReservationAfterRelease() {
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(TTL, 10, Clock.fixed(NOW, ZoneOffset.UTC));
+        store.reserve(MESSAGE_ID, TRACKING_ID);
+        store.release(MESSAGE_ID, TRACKING_ID);
+
+        assertThat(store.reserve(MESSAGE_ID, TRACKING_ID)).isEmpty();
+        assertThat(store.liveEntries()).isEmpty();
+    }
+}
@@ -18,7 +18,6 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.w3c.dom.Node;
 
 import uk.nhs.adaptors.oneoneone.cda.report.util.DateUtil;
 import uk.nhs.adaptors.oneoneone.cda.report.util.NodeUtil;
@@ -66,8 +65,6 @@ public class ConditionMapperTest {
     @Mock
     private ED ed;
     @Mock
-    private Node node;
-    @Mock
     private Encounter encounter;
     @Mock
     private IVLTS time;
@@ -104,8 +101,7 @@ public class ConditionMapperTest {
         when(time.getValue()).thenReturn(EFFECTIVE_TIME_STRING);
         when(itkEncounter.isSetText()).thenReturn(true);
         when(itkEncounter.getText()).thenReturn(ed);
-        when(ed.getDomNode()).thenReturn(node);
-        when(nodeUtil.getAllText(node)).thenReturn(CONIDITION_TEXT);
+        when(nodeUtil.getAllText(ed)).thenReturn(CONIDITION_TEXT);
 
         when(section.getComponentArray()).thenReturn(component5Array);
         when(component5.getSection()).thenReturn(section);
@@ -8,9 +8,12 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.w3c.dom.Node;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import uk.nhs.adaptors.oneoneone.cda.report.util.NodeUtil;
+import uk.nhs.adaptors.oneoneone.config.ReferenceDataCacheProperties;
 import uk.nhs.connect.iucds.cda.ucr.ON;
 import uk.nhs.connect.iucds.cda.ucr.POCDMT000002UK01ClinicalDocument1;
 import uk.nhs.connect.iucds.cda.ucr.POCDMT000002UK01InformationRecipient;
@@ -29,6 +32,9 @@ public class HealthcareServiceMapperTest {
     private static final String HEALTHCARE_SERVICE_NAME = "Thames Medical Practice";
     @InjectMocks
     private HealthcareServiceMapper healthcareServiceMapper;
+    @Spy
+    private ReferenceDataCache referenceDataCache = new ReferenceDataCache(new ReferenceDataCacheProperties(),
+        new SimpleMeterRegistry());
     @Mock
     private LocationMapper locationMapper;
     @Mock
@@ -44,8 +50,6 @@ public class HealthcareServiceMapperTest {
     @Mock
     private ON name;
     @Mock
-    private Node node;
-    @Mock
     private NodeUtil nodeUtil;
     @Mock
     private Organization organization;
@@ -66,8 +70,7 @@ public class HealthcareServiceMapperTest {
         when(intendedRecipient.getReceivedOrganization()).thenReturn(receivedOrganization);
         when(receivedOrganization.sizeOfNameArray()).thenReturn(1);
         when(receivedOrganization.getNameArray(0)).thenReturn(name);
-        when(name.getDomNode()).thenReturn(node);
-        when(nodeUtil.getAllText(name.getDomNode())).thenReturn(HEALTHCARE_SERVICE_NAME);
+        when(nodeUtil.getAllText(name)).thenReturn(HEALTHCARE_SERVICE_NAME);
     }
 
     @Test
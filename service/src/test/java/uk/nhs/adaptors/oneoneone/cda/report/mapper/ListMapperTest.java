@@ -1,8 +1,8 @@
 package uk.nhs.adaptors.oneoneone.cda.report.mapper;
 
 import org.hl7.fhir.dstu3.model.Coding;
+import org.hl7.fhir.dstu3.model.Condition;
 import org.hl7.fhir.dstu3.model.Encounter;
-import org.hl7.fhir.dstu3.model.HealthcareService;
 import org.hl7.fhir.dstu3.model.ListResource;
 import org.hl7.fhir.dstu3.model.QuestionnaireResponse;
 import org.hl7.fhir.dstu3.model.Resource;
@@ -13,7 +13,6 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import uk.nhs.adaptors.oneoneone.cda.report.comparator.ResourceDateComparator;
 import uk.nhs.connect.iucds.cda.ucr.II;
 import uk.nhs.connect.iucds.cda.ucr.POCDMT000002UK01ClinicalDocument1;
 
@@ -40,20 +39,21 @@ public class ListMapperTest {
     @Mock
     private II ii;
 
-    @Mock
-    private ResourceDateComparator resourceDateComparator;
-
-    private List<Resource> resourcesCreated = asList(new HealthcareService(), new QuestionnaireResponse());
+    private final QuestionnaireResponse questionnaireResponse = new QuestionnaireResponse();
+    private final Condition condition = new Condition();
+    private List<Resource> triageResources = asList(questionnaireResponse, condition);
 
     @BeforeEach
     public void setUp() {
+        questionnaireResponse.setId("urn:uuid:8a7e2f35-0c0d-4b3f-9d64-6d3c0f0b1a11");
+        condition.setId("urn:uuid:f2c5d0b4-2e3a-4c1d-8b1e-2a9c7f6d5e42");
         when(clinicalDocument.getSetId()).thenReturn(ii);
         when(ii.getRoot()).thenReturn("411910CF-1A76-4330-98FE-C345DDEE5553");
     }
 
     @Test
     public void shouldMapList() {
-        ListResource listResource = listMapper.mapList(clinicalDocument, encounter, resourcesCreated);
+        ListResource listResource = listMapper.mapList(clinicalDocument, encounter, triageResources);
 
         assertThat(listResource.getStatus()).isEqualTo(CURRENT);
         assertThat(listResource.getTitle()).isEqualTo("111 Report List");
@@ -66,6 +66,7 @@ public class ListMapperTest {
         assertThat(code.getSystem()).isEqualTo("http://snomed.info/sct");
         assertThat(code.getCode()).isEqualTo("225390008");
         assertThat(code.getDisplay()).isEqualTo("Triage");
-        assertThat(listResource.getEntry().size()).isEqualTo(1);
+        assertThat(listResource.getEntry()).extracting(entry -> entry.getItem().getReference())
+            .containsExactly(questionnaireResponse.getId(), condition.getId());
     }
 }
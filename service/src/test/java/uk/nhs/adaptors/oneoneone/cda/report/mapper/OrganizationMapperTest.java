@@ -1,10 +1,17 @@
 package uk.nhs.adaptors.oneoneone.cda.report.mapper;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.xmlbeans.XmlObject;
 import org.hl7.fhir.dstu3.model.Address;
 import org.hl7.fhir.dstu3.model.ContactPoint;
 import org.hl7.fhir.dstu3.model.Organization;
@@ -12,13 +19,18 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 import uk.nhs.adaptors.oneoneone.cda.report.util.NodeUtil;
+import uk.nhs.adaptors.oneoneone.config.ReferenceDataCacheProperties;
 import uk.nhs.connect.iucds.cda.ucr.AD;
 import uk.nhs.connect.iucds.cda.ucr.CE;
 import uk.nhs.connect.iucds.cda.ucr.II;
 import uk.nhs.connect.iucds.cda.ucr.POCDMT000002UK01Organization;
+import uk.nhs.connect.iucds.cda.ucr.POCDMT000002UK01OrganizationPartOf;
 import uk.nhs.connect.iucds.cda.ucr.TEL;
 
 @ExtendWith(MockitoExtension.class)
@@ -27,6 +39,10 @@ public class OrganizationMapperTest {
     public static final String ORGANIZATION_NAME = "ORGANIZATION_NAME";
     public static final String GP_PRACTICE = "GP Practice";
     private static final String ODS_CODE = "SL3";
+    private static final String ORGANIZATION_XML = "<organization/>";
+    private static final String PARENT_ODS_CODE = "RA9";
+    private static final String PARENT_XML = "<organization><id extension=\"RA9\"/></organization>";
+    private static final int REPORTS = 2;
 
     @Mock
     private ContactPointMapper contactPointMapper;
@@ -37,11 +53,13 @@ public class OrganizationMapperTest {
     @InjectMocks
     private OrganizationMapper organizationMapper;
 
-    @Mock
-    private ContactPoint contactPoint;
+    @Spy
+    private ReferenceDataCache referenceDataCache = new ReferenceDataCache(new ReferenceDataCacheProperties(),
+        new SimpleMeterRegistry());
 
-    @Mock
-    private Address address;
+    private final ContactPoint contactPoint = new ContactPoint().setValue("0300 311 22 33");
+
+    private final Address address = new Address().setCity("Leeds");
 
     @Mock
     private NodeUtil nodeUtil;
@@ -50,7 +68,7 @@ public class OrganizationMapperTest {
     private II ii;
 
     @Test
-    public void shouldMapOrganization() {
+    public void shouldMapOrganization() throws IOException {
         POCDMT000002UK01Organization itkOrganization = mock(POCDMT000002UK01Organization.class);
         AD itkAddress = mock(AD.class);
         TEL itkTelecom = mock(TEL.class);
@@ -61,6 +79,7 @@ public class OrganizationMapperTest {
         when(ii.isSetExtension()).thenReturn(true);
         when(ii.getExtension()).thenReturn(ODS_CODE);
         when(itkOrganization.sizeOfIdArray()).thenReturn(1);
+        withXml(itkOrganization, ORGANIZATION_XML);
 
         when(itkOrganization.getAddrArray()).thenReturn(new AD[] {itkAddress});
         when(itkOrganization.getTelecomArray()).thenReturn(new TEL[] {itkTelecom});
@@ -75,9 +94,92 @@ public class OrganizationMapperTest {
         Organization organization = organizationMapper.mapOrganization(itkOrganization);
 
         assertThat(organization.getName()).isEqualTo(ORGANIZATION_NAME);
-        assertThat(organization.getAddressFirstRep()).isEqualTo(address);
-        assertThat(organization.getTelecomFirstRep()).isEqualTo(contactPoint);
+        // mapped organizations are copies of the cached template
+        assertThat(organization.getAddressFirstRep().equalsDeep(address)).isTrue();
+        assertThat(organization.getTelecomFirstRep().equalsDeep(contactPoint)).isTrue();
         assertThat(organization.getTypeFirstRep().getText()).isEqualTo(GP_PRACTICE);
         assertThat(organization.getIdentifierFirstRep().getValue()).isEqualTo(ODS_CODE);
     }
+
+    @Test
+    public void shouldMapOrganizationOncePerReport() throws IOException {
+        POCDMT000002UK01Organization itkOrganization = mock(POCDMT000002UK01Organization.class);
+        when(itkOrganization.getIdArray()).thenReturn(new II[] {ii});
+        when(ii.isSetExtension()).thenReturn(true);
+        when(ii.getExtension()).thenReturn(ODS_CODE);
+        when(itkOrganization.sizeOfIdArray()).thenReturn(1);
+        withXml(itkOrganization, ORGANIZATION_XML);
+        when(itkOrganization.getAddrArray()).thenReturn(new AD[0]);
+        when(itkOrganization.getTelecomArray()).thenReturn(new TEL[0]);
+
+        try (ReportMappingContext context = ReportMappingContext.open()) {
+            Organization organization = organizationMapper.mapOrganization(itkOrganization);
+
+            assertThat(organizationMapper.mapOrganization(itkOrganization)).isSameAs(organization);
+        }
+        assertThat(organizationMapper.mapOrganization(itkOrganization)).isNotSameAs(organizationMapper.mapOrganization(itkOrganization));
+    }
+
+    @Test
+    public void shouldCopyCachedOrganizationWithNewId() throws IOException {
+        POCDMT000002UK01Organization itkOrganization = mock(POCDMT000002UK01Organization.class);
+        when(itkOrganization.getIdArray()).thenReturn(new II[] {ii});
+        when(ii.isSetExtension()).thenReturn(true);
+        when(ii.getExtension()).thenReturn(ODS_CODE);
+        when(itkOrganization.sizeOfIdArray()).thenReturn(1);
+        withXml(itkOrganization, ORGANIZATION_XML);
+        when(itkOrganization.getAddrArray()).thenReturn(new AD[0]);
+        when(itkOrganization.getTelecomArray()).thenReturn(new TEL[0]);
+        when(nodeUtil.getNodeValueString(itkOrganization.getNameArray(0))).thenReturn(ORGANIZATION_NAME);
+
+        Organization first = organizationMapper.mapOrganization(itkOrganization);
+        Organization second = organizationMapper.mapOrganization(itkOrganization);
+
+        assertThat(second.getName()).isEqualTo(ORGANIZATION_NAME);
+        assertThat(second.getIdentifierFirstRep().getValue()).isEqualTo(ODS_CODE);
+        assertThat(second.getIdElement().getValue()).isNotEqualTo(first.getIdElement().getValue());
+        verify(itkOrganization).getAddrArray();
+    }
+
+    @Test
+    public void shouldShareParentOrganizationWhetherCachedOrNot() throws IOException {
+        POCDMT000002UK01Organization parent = organization(PARENT_ODS_CODE, PARENT_XML);
+        POCDMT000002UK01Organization child = organization(ODS_CODE, ORGANIZATION_XML);
+        POCDMT000002UK01OrganizationPartOf partOf = mock(POCDMT000002UK01OrganizationPartOf.class);
+        when(child.isSetAsOrganizationPartOf()).thenReturn(true);
+        when(child.getAsOrganizationPartOf()).thenReturn(partOf);
+        when(partOf.getWholeOrganization()).thenReturn(parent);
+
+        for (int report = 0; report < REPORTS; report++) {
+            try (ReportMappingContext context = ReportMappingContext.open()) {
+                Organization organization = organizationMapper.mapOrganization(child);
+                Organization parentOrganization = organizationMapper.mapOrganization(parent);
+
+                assertThat(organization.getPartOfTarget()).isSameAs(parentOrganization);
+                assertThat(organization.getPartOf().getResource()).isSameAs(parentOrganization);
+            }
+        }
+        verify(parent).getAddrArray();
+        verify(child).getAddrArray();
+    }
+
+    private POCDMT000002UK01Organization organization(String odsCode, String xml) throws IOException {
+        POCDMT000002UK01Organization itkOrganization = mock(POCDMT000002UK01Organization.class);
+        II id = mock(II.class);
+        when(id.isSetExtension()).thenReturn(true);
+        when(id.getExtension()).thenReturn(odsCode);
+        when(itkOrganization.getIdArray()).thenReturn(new II[] {id});
+        when(itkOrganization.sizeOfIdArray()).thenReturn(1);
+        withXml(itkOrganization, xml);
+        when(itkOrganization.getAddrArray()).thenReturn(new AD[0]);
+        when(itkOrganization.getTelecomArray()).thenReturn(new TEL[0]);
+        return itkOrganization;
+    }
+
+    private static void withXml(XmlObject source, String xml) throws IOException {
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(0).write(xml.getBytes(UTF_8));
+            return null;
+        }).when(source).save(any(OutputStream.class));
+    }
 }
@@ -0,0 +1,48 @@
+package uk.nhs.adaptors.oneoneone.cda.report.mapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.nhspathways.webservices.pathways.pathwayscase.PathwaysCaseDocument.PathwaysCase;
+
+@ExtendWith(MockitoExtension.class)
+public class PathwaysCaseContextTest {
+    @Mock
+    private PathwaysCase pathwaysCase;
+    @Mock
+    private PathwaysCase.PathwayDetails pathwayDetails;
+    @Mock
+    private PathwaysCase.PathwayDetails.PathwayTriageDetails pathwayTriageDetails;
+    @Mock
+    private PathwaysCase.PathwayDetails.PathwayTriageDetails.PathwayTriage pathwayTriage;
+    @Mock
+    private PathwaysCase.PathwayDetails.PathwayTriageDetails.PathwayTriage.User user;
+
+    @Test
+    public void shouldDescribeTriageUserAsPublisher() {
+        when(pathwaysCase.getPathwayDetails()).thenReturn(pathwayDetails);
+        when(pathwayDetails.getPathwayTriageDetails()).thenReturn(pathwayTriageDetails);
+        when(pathwayTriageDetails.getPathwayTriageArray(0)).thenReturn(pathwayTriage);
+        when(pathwayTriage.getUser()).thenReturn(user);
+        when(user.getName()).thenReturn("Jane Smith");
+
+        PathwaysCaseContext caseContext = PathwaysCaseContext.from(pathwaysCase);
+
+        assertThat(caseContext.getPublisher()).isEqualTo("User name: 'Jane Smith' ");
+    }
+
+    @Test
+    public void shouldUseNotApplicableWithoutTriageDetails() {
+        PathwaysCaseContext caseContext = PathwaysCaseContext.from(pathwaysCase);
+
+        assertThat(caseContext.getPublisher()).isEqualTo("N/A");
+        assertThat(caseContext.getCaseId()).isNull();
+        assertThat(caseContext.getLatestDate()).isNull();
+        assertThat(caseContext.getCountry()).isNull();
+        assertThat(caseContext.getContactNumber()).isNull();
+    }
+}
@@ -39,6 +39,10 @@ public class QuestionnaireMapperTest {
     private TriageLine.Question question;
     @Mock
     private TriageLine.Question.TriageLogicId triageLogicId;
+    @Mock
+    private TriageLine otherTriageLine;
+    @Mock
+    private TriageLine.Question otherQuestion;
 
     @Test
     public void shouldMapQuestionnaireResponseFromPathways() {
@@ -59,7 +63,7 @@ public class QuestionnaireMapperTest {
         when(triageLogicId.getPathwayOrderNo()).thenReturn(orderNumber);
         when(caseDetails.isSetCaseId()).thenReturn(true);
 
-        Questionnaire questionnaire = questionnaireMapper.mapQuestionnaire(pathwaysCase, triageLine);
+        Questionnaire questionnaire = questionnaireMapper.mapQuestionnaire(PathwaysCaseContext.from(pathwaysCase), triageLine);
 
         assertThat(questionnaire.getIdentifier().get(0).getValue()).isEqualTo(caseId);
         assertThat(questionnaire.getSubjectType().get(0).getValue()).isEqualTo("Patient");
@@ -68,4 +72,33 @@ public class QuestionnaireMapperTest {
         assertThat(questionnaire.getDate()).isEqualTo("2011-02-17T00:00:00+00:00");
         assertThat(questionnaire.getPublisher()).isEqualTo("N/A");
     }
+
+    @Test
+    public void shouldMapAllTriageLinesToOneQuestionnaire() {
+        when(pathwaysCase.getCaseDetails()).thenReturn(caseDetails);
+        when(caseDetails.getCaseId()).thenReturn("caseId");
+        when(caseDetails.isSetCaseId()).thenReturn(true);
+        when(pathwaysCase.getPathwayDetails()).thenReturn(pathwayDetails);
+        when(pathwayDetails.getPathwayTriageDetails()).thenReturn(pathwayTriageDetails);
+        when(pathwayTriageDetails.getPathwayTriageArray(0)).thenReturn(pathwayTriage);
+        when(pathwayTriage.getUser()).thenReturn(user);
+        when(pathwaysCase.getCaseReceiveEnd()).thenReturn(calendar);
+        when(calendar.toString()).thenReturn("2011-02-17T17:31:14.313Z");
+        when(pathwaysCase.isSetCaseReceiveEnd()).thenReturn(true);
+        when(triageLine.getQuestion()).thenReturn(question);
+        when(question.getQuestionId()).thenReturn("PW1");
+        when(question.getQuestionText()).thenReturn("first question");
+        when(otherTriageLine.getQuestion()).thenReturn(otherQuestion);
+        when(otherQuestion.getQuestionId()).thenReturn("PW2");
+        when(otherQuestion.getQuestionText()).thenReturn("second question");
+
+        Questionnaire questionnaire = questionnaireMapper.mapQuestionnaire(PathwaysCaseContext.from(pathwaysCase),
+            new TriageLine[] {triageLine, otherTriageLine});
+
+        assertThat(questionnaire.getIdentifierFirstRep().getValue()).isEqualTo("caseId");
+        assertThat(questionnaire.getItem()).extracting(Questionnaire.QuestionnaireItemComponent::getLinkId)
+            .containsExactly("0:PW1", "1:PW2");
+        assertThat(questionnaire.getItem()).extracting(Questionnaire.QuestionnaireItemComponent::getText)
+            .containsExactly("first question", "second question");
+    }
 }
@@ -1,10 +1,14 @@
 package uk.nhs.adaptors.oneoneone.cda.report.mapper;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import java.util.Calendar;
 
+import org.hl7.fhir.dstu3.model.Questionnaire;
 import org.hl7.fhir.dstu3.model.QuestionnaireResponse;
 import org.hl7.fhir.dstu3.model.Reference;
 import org.junit.jupiter.api.Test;
@@ -40,6 +44,8 @@ public class QuestionnaireResponseMapperTest {
 
     @Mock
     private TriageLine.Question.Answers.Answer answer;
+    @Mock
+    private TriageLine otherTriageLine;
 
     @Test
     public void shouldMapQuestionnaireResponseFromPathways() {
@@ -60,7 +66,9 @@ public class QuestionnaireResponseMapperTest {
         when(answer.getSelected()).thenReturn(true);
         when(answer.getText()).thenReturn(answerText);
 
-        QuestionnaireResponse questionnaireResponse = questionnaireResponseMapper.mapQuestionnaireResponse(pathwaysCase, patient,
+        PathwaysCaseContext caseContext = PathwaysCaseContext.from(pathwaysCase);
+
+        QuestionnaireResponse questionnaireResponse = questionnaireResponseMapper.mapQuestionnaireResponse(caseContext, patient,
             encounter, triageLine);
         assertThat(questionnaireResponse.getStatus()).isEqualTo(QuestionnaireResponse.QuestionnaireResponseStatus.COMPLETED);
         assertThat(questionnaireResponse.getSubject()).isEqualTo(patient);
@@ -70,4 +78,68 @@ public class QuestionnaireResponseMapperTest {
         assertThat(questionnaireResponse.getItemFirstRep().getText()).isEqualTo(questionText);
         assertThat(questionnaireResponse.getItemFirstRep().getAnswer().get(0).getValue().toString()).isEqualTo(answerText);
     }
+
+    @Test
+    public void shouldMapAllTriageLinesToOneQuestionnaireResponse() {
+        TriageLine[] triageLines = new TriageLine[] {triageLine, otherTriageLine};
+        when(pathwaysCase.getCaseDetails()).thenReturn(caseDetails);
+        when(caseDetails.getCaseId()).thenReturn("caseId");
+        when(caseDetails.isSetCaseId()).thenReturn(true);
+        when(triageLine.getQuestion()).thenReturn(question);
+        when(question.getQuestionId()).thenReturn("PW1");
+        when(question.getAnswers()).thenReturn(answers);
+        when(answers.getAnswerArray()).thenReturn(new TriageLine.Question.Answers.Answer[] {answer});
+        when(answer.getSelected()).thenReturn(true);
+        when(answer.getText()).thenReturn("Yes");
+        Questionnaire questionnaire = new Questionnaire();
+        when(questionnaireMapper.mapQuestionnaire(any(PathwaysCaseContext.class), eq(triageLines))).thenReturn(questionnaire);
+
+        QuestionnaireResponse questionnaireResponse = questionnaireResponseMapper.mapQuestionnaireResponse(
+            PathwaysCaseContext.from(pathwaysCase), patient, encounter, triageLines);
+
+        assertThat(questionnaireResponse.getQuestionnaireTarget()).isSameAs(questionnaire);
+        assertThat(questionnaireResponse.getIdentifier().getValue()).isEqualTo("caseId");
+        assertThat(questionnaireResponse.getItem()).hasSize(1);
+        assertThat(questionnaireResponse.getItemFirstRep().getLinkId()).isEqualTo("0:PW1");
+        assertThat(questionnaireResponse.getItemFirstRep().getAnswerFirstRep().getValue().toString()).isEqualTo("Yes");
+    }
+
+    @Test
+    public void shouldLinkRepeatedQuestionToOneItemPerTriageLine() {
+        TriageLine[] triageLines = new TriageLine[] {triageLine, otherTriageLine};
+        when(pathwaysCase.getCaseDetails()).thenReturn(caseDetails);
+        when(caseDetails.getCaseId()).thenReturn("caseId");
+        when(caseDetails.isSetCaseId()).thenReturn(true);
+        when(pathwaysCase.isSetCaseReceiveEnd()).thenReturn(true);
+        when(pathwaysCase.getCaseReceiveEnd()).thenReturn(calendar);
+        when(calendar.toString()).thenReturn("2011-02-17T17:31:14.313Z");
+        when(triageLine.getQuestion()).thenReturn(question);
+        when(otherTriageLine.getQuestion()).thenReturn(question);
+        when(question.getQuestionId()).thenReturn("PW1");
+        when(question.getAnswers()).thenReturn(answers);
+        when(answers.getAnswerArray()).thenReturn(new TriageLine.Question.Answers.Answer[] {answer});
+        when(answer.getSelected()).thenReturn(true);
+        when(answer.getText()).thenReturn("Yes");
+
+        QuestionnaireResponse questionnaireResponse = new QuestionnaireResponseMapper(new QuestionnaireMapper())
+            .mapQuestionnaireResponse(PathwaysCaseContext.from(pathwaysCase), patient, encounter, triageLines);
+
+        Questionnaire questionnaire = (Questionnaire) questionnaireResponse.getQuestionnaireTarget();
+        assertThat(questionnaireResponse.getItem()).extracting(QuestionnaireResponse.QuestionnaireResponseItemComponent::getLinkId)
+            .containsExactly("0:PW1", "1:PW1");
+        assertThat(questionnaire.getItem()).extracting(Questionnaire.QuestionnaireItemComponent::getLinkId)
+            .containsExactly("0:PW1", "1:PW1");
+    }
+
+    @Test
+    public void shouldMapQuestionnaireResponseWithoutQuestionnaire() {
+        PathwaysCaseContext caseContext = PathwaysCaseContext.from(pathwaysCase, false);
+
+        QuestionnaireResponse questionnaireResponse = questionnaireResponseMapper.mapQuestionnaireResponse(caseContext, patient,
+            encounter, triageLine);
+
+        verifyNoInteractions(questionnaireMapper);
+        assertThat(questionnaireResponse.hasQuestionnaire()).isFalse();
+        assertThat(questionnaireResponse.getStatus()).isEqualTo(QuestionnaireResponse.QuestionnaireResponseStatus.COMPLETED);
+    }
 }
@@ -0,0 +1,153 @@
+package uk.nhs.adaptors.oneoneone.cda.report.mapper;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.xmlbeans.XmlObject;
+import org.hl7.fhir.dstu3.model.IdType;
+import org.hl7.fhir.dstu3.model.Organization;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import uk.nhs.adaptors.oneoneone.config.ReferenceDataCacheProperties;
+import uk.nhs.connect.iucds.cda.ucr.II;
+
+public class ReferenceDataCacheTest {
+
+    private static final String ODS_CODE = "RA9";
+    private static final String ORGANIZATION_NAME = "Thames Medical Practice";
+    private static final String ORGANIZATION_XML = "<organization/>";
+    private static final Instant NOW = Instant.parse("2020-12-01T10:00:00Z");
+    private static final Duration TTL = Duration.ofMinutes(10);
+
+    private ReferenceDataCacheProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private AtomicInteger mapped;
+
+    @BeforeEach
+    public void setUp() {
+        properties = new ReferenceDataCacheProperties();
+        properties.setTtl(TTL);
+        meterRegistry = new SimpleMeterRegistry();
+        mapped = new AtomicInteger();
+    }
+
+    @Test
+    public void shouldCopyTemplateWithNewId() throws IOException {
+        ReferenceDataCache cache = cacheAt(NOW);
+
+        Organization first = cache.getOrMap(Organization.class, ids(ODS_CODE), source(ORGANIZATION_XML), this::mapOrganization);
+        Organization second = cache.getOrMap(Organization.class, ids(ODS_CODE), source(ORGANIZATION_XML), this::mapOrganization);
+
+        assertThat(mapped).hasValue(1);
+        assertThat(second.getName()).isEqualTo(ORGANIZATION_NAME);
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getIdElement().getValue()).isNotEqualTo(first.getIdElement().getValue());
+        assertThat(requests("hit")).isEqualTo(1);
+        assertThat(requests("miss")).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldMapAgainWhenSourceDiffers() throws IOException {
+        ReferenceDataCache cache = cacheAt(NOW);
+
+        cache.getOrMap(Organization.class, ids(ODS_CODE), source(ORGANIZATION_XML), this::mapOrganization);
+        cache.getOrMap(Organization.class, ids(ODS_CODE), source("<organization><name/></organization>"), this::mapOrganization);
+        cache.getOrMap(Organization.class, ids("RA7"), source(ORGANIZATION_XML), this::mapOrganization);
+
+        assertThat(mapped).hasValue(3);
+        assertThat(cache.size()).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldNotCacheSourceWithoutIdsOrWhenDisabled() throws IOException {
+        ReferenceDataCache cache = cacheAt(NOW);
+
+        cache.getOrMap(Organization.class, null, source(ORGANIZATION_XML), this::mapOrganization);
+        cache.getOrMap(Organization.class, null, source(ORGANIZATION_XML), this::mapOrganization);
+        properties.setEnabled(false);
+        cache.getOrMap(Organization.class, ids(ODS_CODE), source(ORGANIZATION_XML), this::mapOrganization);
+
+        assertThat(mapped).hasValue(3);
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    public void shouldMapAgainWhenTemplateExpired() throws IOException {
+        Clock clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(NOW.toEpochMilli(), NOW.plus(TTL).toEpochMilli());
+        ReferenceDataCache cache = new ReferenceDataCache(properties, meterRegistry, clock);
+
+        cache.getOrMap(Organization.class, ids(ODS_CODE), source(ORGANIZATION_XML), this::mapOrganization);
+        cache.getOrMap(Organization.class, ids(ODS_CODE), source(ORGANIZATION_XML), this::mapOrganization);
+
+        assertThat(mapped).hasValue(2);
+        assertThat(evictions("expired")).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedTemplate() throws IOException {
+        properties.setMaxEntries(1);
+        ReferenceDataCache cache = cacheAt(NOW);
+
+        cache.getOrMap(Organization.class, ids(ODS_CODE), source(ORGANIZATION_XML), this::mapOrganization);
+        cache.getOrMap(Organization.class, ids("RA7"), source(ORGANIZATION_XML), this::mapOrganization);
+
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(evictions("size")).isEqualTo(1);
+        assertThat(meterRegistry.get("report.reference-data.cache.size").gauge().value()).isEqualTo(1);
+    }
+
+    private ReferenceDataCache cacheAt(Instant instant) {
+        return new ReferenceDataCache(properties, meterRegistry, Clock.fixed(instant, ZoneOffset.UTC));
+    }
+
+    private Organization mapOrganization() {
+        mapped.incrementAndGet();
+        Organization organization = new Organization();
+        organization.setIdElement(IdType.newRandomUuid());
+        organization.setName(ORGANIZATION_NAME);
+        return organization;
+    }
+
+    private double requests(String result) {
+        return meterRegistry.get("report.reference-data.cache.requests").tag("result", result).counter().count();
+    }
+
+    private double evictions(String cause) {
+        return meterRegistry.get("report.reference-data.cache.evictions").tag("cause", cause).counter().count();
+    }
+
+    private static II[] ids(String odsCode) {
+        II id = mock(II.class);
+        when(id.isSetExtension()).thenReturn(true);
+        when(id.getExtension()).thenReturn(odsCode);
+        return new II[] {id};
+    }
+
+    private static XmlObject source(String xml) throws IOException {
+        XmlObject source = mock(XmlObject.class);
+        withXml(source, xml);
+        return source;
+    }
+
+    private static void withXml(XmlObject source, String xml) throws IOException {
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(0).write(xml.getBytes(UTF_8));
+            return null;
+        }).when(source).save(any(OutputStream.class));
+    }
+}
@@ -0,0 +1,95 @@
+package uk.nhs.adaptors.oneoneone.cda.report.mapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.hl7.fhir.dstu3.model.Organization;
+import org.hl7.fhir.dstu3.model.Practitioner;
+import org.junit.jupiter.api.Test;
+
+import uk.nhs.connect.iucds.cda.ucr.II;
+
+public class ReportMappingContextTest {
+
+    private static final String ODS_ROOT = "2.16.840.1.113883.2.1.3.2.4.19.1";
+    private static final String ODS_CODE = "RA9";
+
+    @Test
+    public void shouldMapResourceOncePerContext() {
+        II[] ids = {odsCode(ODS_CODE)};
+
+        try (ReportMappingContext context = ReportMappingContext.open()) {
+            Organization first = ReportMappingContext.getOrMap(Organization.class, () -> ids, Organization::new);
+            Organization second = ReportMappingContext.getOrMap(Organization.class, () -> new II[] {odsCode(ODS_CODE)},
+                Organization::new);
+
+            assertThat(second).isSameAs(first);
+        }
+    }
+
+    @Test
+    public void shouldMapNewResourceOutsideContext() {
+        II[] ids = {odsCode(ODS_CODE)};
+
+        try (ReportMappingContext context = ReportMappingContext.open()) {
+            ReportMappingContext.getOrMap(Organization.class, () -> ids, Organization::new);
+        }
+        Organization first = ReportMappingContext.getOrMap(Organization.class, () -> ids, Organization::new);
+        Organization second = ReportMappingContext.getOrMap(Organization.class, () -> ids, Organization::new);
+
+        assertThat(second).isNotSameAs(first);
+    }
+
+    @Test
+    public void shouldNotShareResourceWhileSuspended() {
+        II[] ids = {odsCode(ODS_CODE)};
+
+        try (ReportMappingContext context = ReportMappingContext.open()) {
+            Organization suspended;
+            try (ReportMappingContext detached = ReportMappingContext.suspend()) {
+                suspended = ReportMappingContext.getOrMap(Organization.class, () -> ids, Organization::new);
+            }
+            Organization first = ReportMappingContext.getOrMap(Organization.class, () -> ids, Organization::new);
+            Organization second = ReportMappingContext.getOrMap(Organization.class, () -> ids, Organization::new);
+
+            assertThat(first).isNotSameAs(suspended).isSameAs(second);
+        }
+    }
+
+    @Test
+    public void shouldKeepResourceTypesAndIdsApart() {
+        II[] ids = {odsCode(ODS_CODE)};
+
+        try (ReportMappingContext context = ReportMappingContext.open()) {
+            Organization organization = ReportMappingContext.getOrMap(Organization.class, () -> ids, Organization::new);
+            Organization other = ReportMappingContext.getOrMap(Organization.class, () -> new II[] {odsCode("RA7")},
+                Organization::new);
+            Practitioner practitioner = ReportMappingContext.getOrMap(Practitioner.class, () -> ids, Practitioner::new);
+
+            assertThat(other).isNotSameAs(organization);
+            assertThat(practitioner).isNotNull();
+        }
+    }
+
+    @Test
+    public void shouldNotShareResourceWithoutIds() {
+        II nullFlavor = mock(II.class);
+
+        try (ReportMappingContext context = ReportMappingContext.open()) {
+            Organization first = ReportMappingContext.getOrMap(Organization.class, () -> new II[] {nullFlavor}, Organization::new);
+            Organization second = ReportMappingContext.getOrMap(Organization.class, () -> null, Organization::new);
+            Organization third = ReportMappingContext.getOrMap(Organization.class, () -> new II[] {nullFlavor}, Organization::new);
+
+            assertThat(first).isNotSameAs(second).isNotSameAs(third);
+        }
+    }
+
+    private II odsCode(String code) {
+        II id = mock(II.class);
+        when(id.isSetRoot()).thenReturn(true);
+        when(id.getRoot()).thenReturn(ODS_ROOT);
+        when(id.getExtension()).thenReturn(code);
+        return id;
+    }
+}
@@ -7,8 +7,12 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import uk.nhs.adaptors.oneoneone.cda.report.util.NodeUtil;
+import uk.nhs.adaptors.oneoneone.config.ReferenceDataCacheProperties;
 import uk.nhs.connect.iucds.cda.ucr.AD;
 import uk.nhs.connect.iucds.cda.ucr.ON;
 import uk.nhs.connect.iucds.cda.ucr.POCDMT000002UK01AssignedCustodian;
@@ -35,6 +39,10 @@ public class ServiceProviderMapperTest {
     @InjectMocks
     private ServiceProviderMapper serviceProviderMapper;
 
+    @Spy
+    private ReferenceDataCache referenceDataCache = new ReferenceDataCache(new ReferenceDataCacheProperties(),
+        new SimpleMeterRegistry());
+
     @Mock
     private AD itkAddress;
 
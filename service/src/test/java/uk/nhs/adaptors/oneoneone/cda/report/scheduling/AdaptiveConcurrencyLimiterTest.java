@@ -0,0 +1,203 @@
+package uk.nhs.adaptors.oneoneone.cda.report.scheduling;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.nhs.adaptors.oneoneone.cda.report.scheduling.ReportPriority.EMERGENCY;
+import static uk.nhs.adaptors.oneoneone.cda.report.scheduling.ReportPriority.ROUTINE;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import uk.nhs.adaptors.oneoneone.cda.report.controller.exceptions.ServiceBusyException;
+import uk.nhs.adaptors.oneoneone.config.ConcurrencyProperties;
+import uk.nhs.adaptors.oneoneone.config.LaneProperties;
+import uk.nhs.adaptors.oneoneone.config.SenderProperties;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    private static final int INITIAL_LIMIT = 4;
+    private static final int MIN_LIMIT = 2;
+    private static final int MAX_LIMIT = 10;
+    private static final long FAST_BROKER = MILLISECONDS.toNanos(1);
+    private static final long SLOW_BROKER = MILLISECONDS.toNanos(50);
+    private static final int SAMPLES = 50;
+    private static final int ACQUIRE_TIMEOUT_SECONDS = 10;
+    private static final int REQUEST_THREADS = MAX_LIMIT + 2;
+    private static final long TASK_MILLIS = 5;
+    private static final int SMALL_PAYLOAD = 10;
+    private static final String SENDER = "provider-a";
+
+    private ConcurrencyProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setUp() {
+        properties = new ConcurrencyProperties();
+        properties.setInitialLimit(INITIAL_LIMIT);
+        properties.setMinLimit(MIN_LIMIT);
+        properties.setMaxLimit(MAX_LIMIT);
+        properties.setAcquireTimeout(Duration.ZERO);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    public void shouldRejectWhenLimitReached() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties, meterRegistry);
+        for (int i = 0; i < INITIAL_LIMIT; i++) {
+            limiter.acquire(ROUTINE);
+        }
+
+        assertThatThrownBy(() -> limiter.acquire(ROUTINE)).isInstanceOf(ServiceBusyException.class);
+        assertThat(limiter.getInFlight()).isEqualTo(INITIAL_LIMIT);
+    }
+
+    @Test
+    public void shouldNotLimitWhenDisabled() {
+        properties.setEnabled(false);
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties, meterRegistry);
+        for (int i = 0; i < INITIAL_LIMIT + 1; i++) {
+            limiter.acquire(ROUTINE);
+        }
+
+        assertThat(limiter.getInFlight()).isEqualTo(INITIAL_LIMIT + 1);
+    }
+
+    @Test
+    public void shouldFreeSlotOnClose() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties, meterRegistry);
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire(ROUTINE);
+        permit.close();
+        permit.close();
+
+        assertThat(limiter.getInFlight()).isZero();
+        assertThat(limiter.getLimit()).isEqualTo(INITIAL_LIMIT);
+    }
+
+    @Test
+    public void shouldGrowLimitWhileLatencyIsStable() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties, meterRegistry);
+
+        for (int i = 0; i < SAMPLES; i++) {
+            List<AdaptiveConcurrencyLimiter.Permit> permits = acquireAll(limiter);
+            permits.forEach(permit -> permit.release(FAST_BROKER));
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(MAX_LIMIT);
+    }
+
+    @Test
+    public void shouldGrowLimitUnderSustainedLoadThroughLanes() throws Exception {
+        properties.setAcquireTimeout(Duration.ofSeconds(ACQUIRE_TIMEOUT_SECONDS));
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties, meterRegistry);
+        LaneProperties laneProperties = new LaneProperties();
+        // lane capacity is returned just after the caller sees the result, so allow for a second report per request thread
+        laneProperties.setSmall(new LaneProperties.Lane(MAX_LIMIT, 2 * REQUEST_THREADS));
+        ReportLaneScheduler laneScheduler = new ReportLaneScheduler(laneProperties, new SenderProperties(), meterRegistry);
+        ExecutorService requests = Executors.newFixedThreadPool(REQUEST_THREADS);
+        Callable<Void> request = () -> {
+            for (int i = 0; i < SAMPLES; i++) {
+                try (AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire(ROUTINE)) {
+                    laneScheduler.execute(SMALL_PAYLOAD, ROUTINE, SENDER, () -> {
+                        MILLISECONDS.sleep(TASK_MILLIS);
+                        permit.release(FAST_BROKER);
+                        return null;
+                    });
+                }
+            }
+            return null;
+        };
+
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int i = 0; i < REQUEST_THREADS; i++) {
+                tasks.add(request);
+            }
+            for (Future<Void> future : requests.invokeAll(tasks)) {
+                future.get();
+            }
+        } finally {
+            requests.shutdown();
+            laneScheduler.shutdown();
+        }
+
+        assertThat(limiter.getLimit()).isGreaterThan(INITIAL_LIMIT);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    public void shouldShrinkLimitWhenBrokerLatencyClimbs() {
+        properties.setInitialLimit(MAX_LIMIT);
+        properties.setTolerance(1.0);
+        properties.setBaselineWindow(SAMPLES * MAX_LIMIT);
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties, meterRegistry);
+        limiter.acquire(ROUTINE).release(FAST_BROKER);
+
+        for (int i = 0; i < SAMPLES; i++) {
+            List<AdaptiveConcurrencyLimiter.Permit> permits = acquireAll(limiter);
+            permits.forEach(permit -> permit.release(SLOW_BROKER));
+        }
+
+        assertThat(limiter.getLimit()).isLessThan(MAX_LIMIT);
+    }
+
+    @Test
+    public void shouldBackOffOnDrop() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties, meterRegistry);
+
+        for (int i = 0; i < SAMPLES; i++) {
+            limiter.acquire(ROUTINE).drop();
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(MIN_LIMIT);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    public void shouldExposeGauges() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties, meterRegistry);
+        limiter.acquire(ROUTINE);
+
+        assertThat(meterRegistry.get("report.concurrency.limit").gauge().value()).isEqualTo(INITIAL_LIMIT);
+        assertThat(meterRegistry.get("report.concurrency.in-flight").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldGiveWaitingEmergencyReportPrecedence() throws Exception {
+        properties.setAcquireTimeout(Duration.ofSeconds(ACQUIRE_TIMEOUT_SECONDS));
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties, meterRegistry);
+        List<AdaptiveConcurrencyLimiter.Permit> permits = acquireAll(limiter);
+        CompletableFuture<AdaptiveConcurrencyLimiter.Permit> emergency = CompletableFuture.supplyAsync(() -> limiter.acquire(EMERGENCY));
+        while (limiter.getEmergencyWaiting() == 0) {
+            Thread.onSpinWait();
+        }
+        CompletableFuture<AdaptiveConcurrencyLimiter.Permit> routine = CompletableFuture.supplyAsync(() -> limiter.acquire(ROUTINE));
+
+        permits.get(0).close();
+        emergency.get();
+        assertThat(routine).isNotDone();
+
+        permits.get(1).close();
+        routine.get();
+        assertThat(limiter.getInFlight()).isEqualTo(INITIAL_LIMIT);
+    }
+
+    private List<AdaptiveConcurrencyLimiter.Permit> acquireAll(AdaptiveConcurrencyLimiter limiter) {
+        List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        while (limiter.getInFlight() < (int) limiter.getLimit()) {
+            permits.add(limiter.acquire(ROUTINE));
+        }
+        return permits;
+    }
+}
@@ -0,0 +1,167 @@
+package uk.nhs.adaptors.oneoneone.cda.report.scheduling;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.nhs.adaptors.oneoneone.cda.report.scheduling.ReportPriority.EMERGENCY;
+import static uk.nhs.adaptors.oneoneone.cda.report.scheduling.ReportPriority.ROUTINE;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import uk.nhs.adaptors.oneoneone.cda.report.controller.exceptions.ServiceBusyException;
+import uk.nhs.adaptors.oneoneone.config.LaneProperties;
+import uk.nhs.adaptors.oneoneone.config.SenderProperties;
+
+public class ReportLaneSchedulerTest {
+
+    private static final int LARGE_THRESHOLD = 1000;
+    private static final int SMALL_PAYLOAD = 10;
+    private static final int LARGE_PAYLOAD = 5000;
+    private static final String SENDER = "provider-a";
+    private static final String OTHER_SENDER = "provider-b";
+    private static final int FAIR_SHARE_CAPACITY = 10;
+
+    private ReportLaneScheduler laneScheduler;
+
+    @BeforeEach
+    public void setUp() {
+        LaneProperties properties = new LaneProperties();
+        properties.setLargeThreshold(LARGE_THRESHOLD);
+        properties.setSmall(new LaneProperties.Lane(2, 2));
+        properties.setLarge(new LaneProperties.Lane(1, 1));
+        laneScheduler = new ReportLaneScheduler(properties, new SenderProperties(), new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        laneScheduler.shutdown();
+    }
+
+    @Test
+    public void shouldSelectLaneByPayloadSize() {
+        assertThat(laneScheduler.selectLane(SMALL_PAYLOAD)).isEqualTo(ReportLane.SMALL);
+        assertThat(laneScheduler.selectLane(LARGE_THRESHOLD)).isEqualTo(ReportLane.LARGE);
+        assertThat(laneScheduler.selectLane(LARGE_PAYLOAD)).isEqualTo(ReportLane.LARGE);
+    }
+
+    @Test
+    public void shouldRunTaskInLaneThread() throws Exception {
+        String threadName = laneScheduler.execute(LARGE_PAYLOAD, ROUTINE, SENDER, () -> Thread.currentThread().getName());
+
+        assertThat(threadName).startsWith("report-large-");
+    }
+
+    @Test
+    public void shouldRethrowTaskException() {
+        assertThatThrownBy(() -> laneScheduler.execute(SMALL_PAYLOAD, ROUTINE, SENDER, () -> {
+            throw new IOException("mapping failed");
+        })).isInstanceOf(IOException.class).hasMessage("mapping failed");
+    }
+
+    @Test
+    public void shouldNotBlockSmallReportsBehindLargeOnes() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> largeReport = CompletableFuture.runAsync(() -> executeQuietly(() -> {
+            started.countDown();
+            release.await();
+            return null;
+        }));
+        started.await();
+
+        assertThatThrownBy(() -> laneScheduler.execute(LARGE_PAYLOAD, ROUTINE, SENDER, () -> null))
+            .isInstanceOf(ServiceBusyException.class);
+        assertThat(laneScheduler.execute(SMALL_PAYLOAD, ROUTINE, SENDER, () -> "done")).isEqualTo("done");
+
+        release.countDown();
+        largeReport.get();
+    }
+
+    @Test
+    public void shouldAcceptEmergencyReportWhenLaneIsFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> routineReport = CompletableFuture.runAsync(() -> executeQuietly(() -> {
+            started.countDown();
+            release.await();
+            return null;
+        }));
+        started.await();
+
+        CompletableFuture<String> emergencyReport = CompletableFuture.supplyAsync(() -> {
+            try {
+                return laneScheduler.execute(LARGE_PAYLOAD, EMERGENCY, SENDER, () -> "emergency");
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        release.countDown();
+
+        assertThat(emergencyReport.get()).isEqualTo("emergency");
+        routineReport.get();
+    }
+
+    @Test
+    public void shouldShareLaneFairlyBetweenSenders() throws Exception {
+        LaneProperties properties = new LaneProperties();
+        properties.setLargeThreshold(LARGE_THRESHOLD);
+        properties.setLarge(new LaneProperties.Lane(1, FAIR_SHARE_CAPACITY));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ReportLaneScheduler fairScheduler = new ReportLaneScheduler(properties, new SenderProperties(), meterRegistry);
+        Gauge queued = meterRegistry.get("report.lane.queued").tag("lane", ReportLane.LARGE.name()).gauge();
+        List<String> executionOrder = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<CompletableFuture<Void>> reports = new ArrayList<>();
+        try {
+            reports.add(submit(fairScheduler, SENDER, () -> {
+                started.countDown();
+                release.await();
+                return null;
+            }));
+            started.await();
+            for (String report : List.of(SENDER + "-1", SENDER + "-2", SENDER + "-3", OTHER_SENDER + "-1")) {
+                String sender = report.substring(0, report.lastIndexOf('-'));
+                reports.add(submit(fairScheduler, sender, () -> executionOrder.add(report)));
+                while (queued.value() < reports.size() - 1) {
+                    Thread.sleep(1);
+                }
+            }
+            release.countDown();
+            CompletableFuture.allOf(reports.toArray(new CompletableFuture[0])).get();
+        } finally {
+            fairScheduler.shutdown();
+        }
+
+        assertThat(executionOrder).containsExactly(SENDER + "-1", OTHER_SENDER + "-1", SENDER + "-2", SENDER + "-3");
+    }
+
+    private CompletableFuture<Void> submit(ReportLaneScheduler scheduler, String sender, Callable<?> task) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                scheduler.execute(LARGE_PAYLOAD, ROUTINE, sender, task);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private void executeQuietly(Callable<Void> task) {
+        try {
+            laneScheduler.execute(LARGE_PAYLOAD, ROUTINE, SENDER, task);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
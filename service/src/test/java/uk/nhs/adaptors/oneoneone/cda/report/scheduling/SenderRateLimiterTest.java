@@ -0,0 +1,105 @@
+package uk.nhs.adaptors.oneoneone.cda.report.scheduling;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import uk.nhs.adaptors.oneoneone.cda.report.controller.exceptions.RateLimitExceededException;
+import uk.nhs.adaptors.oneoneone.config.SenderProperties;
+
+public class SenderRateLimiterTest {
+
+    private static final String SENDER = "provider-a";
+    private static final String OTHER_SENDER = "provider-b";
+    private static final int RATE_PER_SECOND = 10;
+    private static final int BURST = 3;
+    private static final long TOKEN_INTERVAL = MILLISECONDS.toNanos(100);
+
+    private final AtomicLong clock = new AtomicLong();
+    private SenderProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setUp() {
+        properties = new SenderProperties();
+        properties.setRatePerSecond(RATE_PER_SECOND);
+        properties.setBurst(BURST);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    public void shouldAllowBurstThenLimitToRate() {
+        SenderRateLimiter rateLimiter = new SenderRateLimiter(properties, meterRegistry, clock::get);
+        for (int i = 0; i < BURST; i++) {
+            rateLimiter.checkRate(SENDER);
+        }
+
+        assertThatThrownBy(() -> rateLimiter.checkRate(SENDER)).isInstanceOf(RateLimitExceededException.class);
+
+        clock.addAndGet(TOKEN_INTERVAL);
+        assertThatCode(() -> rateLimiter.checkRate(SENDER)).doesNotThrowAnyException();
+        assertThat(meterRegistry.get("report.sender.rate-limited").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldLimitSendersIndependently() {
+        SenderRateLimiter rateLimiter = new SenderRateLimiter(properties, meterRegistry, clock::get);
+        for (int i = 0; i < BURST; i++) {
+            rateLimiter.checkRate(SENDER);
+        }
+
+        assertThatCode(() -> rateLimiter.checkRate(OTHER_SENDER)).doesNotThrowAnyException();
+    }
+
+    @Test
+    public void shouldApplySenderOverride() {
+        SenderProperties.Limits limits = new SenderProperties.Limits();
+        limits.setBurst(BURST * 2);
+        properties.getOverrides().put(SENDER, limits);
+        SenderRateLimiter rateLimiter = new SenderRateLimiter(properties, meterRegistry, clock::get);
+
+        for (int i = 0; i < BURST * 2; i++) {
+            rateLimiter.checkRate(SENDER);
+        }
+        assertThatThrownBy(() -> rateLimiter.checkRate(SENDER)).isInstanceOf(RateLimitExceededException.class);
+    }
+
+    @Test
+    public void shouldForgetLeastRecentlySeenSender() {
+        properties.setMaxTracked(2);
+        SenderRateLimiter rateLimiter = new SenderRateLimiter(properties, meterRegistry, clock::get);
+        for (int i = 0; i < 10; i++) {
+            rateLimiter.checkRate("sender-" + i);
+        }
+
+        assertThat(rateLimiter.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldRejectNonPositiveLimits() {
+        SenderProperties.Limits limits = new SenderProperties.Limits();
+
+        assertThatThrownBy(() -> properties.setWeight(0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> properties.setRatePerSecond(-1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> limits.setWeight(Double.NaN)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> limits.setBurst(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void shouldNotLimitWhenDisabled() {
+        properties.setRateLimitEnabled(false);
+        SenderRateLimiter rateLimiter = new SenderRateLimiter(properties, meterRegistry, clock::get);
+
+        for (int i = 0; i < BURST * 2; i++) {
+            rateLimiter.checkRate(SENDER);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package uk.nhs.adaptors.oneoneone.cda.report.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Date;
+import java.util.EnumSet;
+
+import org.hl7.fhir.dstu3.model.Bundle;
+import org.hl7.fhir.dstu3.model.Condition;
+import org.hl7.fhir.dstu3.model.Patient;
+import org.hl7.fhir.dstu3.model.ReferralRequest;
+import org.hl7.fhir.dstu3.model.ResourceType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import uk.nhs.adaptors.oneoneone.cda.report.comparator.ResourceDateComparator;
+
+public class BundleBuilderTest {
+
+    private static final Date NOW = new Date();
+    private static final Date LATER = Date.from(NOW.toInstant().plusSeconds(60));
+    private static final String PATIENT_ID = "urn:uuid:6f1a7b3e-2c4d-4e5f-8a9b-0c1d2e3f4a5b";
+
+    private BundleBuilder bundleBuilder;
+
+    @BeforeEach
+    public void setUp() {
+        bundleBuilder = new BundleBuilder(new Bundle(), EnumSet.of(ResourceType.Condition, ResourceType.ReferralRequest),
+            new ResourceDateComparator());
+    }
+
+    @Test
+    public void shouldAddResourceOnce() {
+        Patient patient = new Patient();
+        patient.setId(PATIENT_ID);
+
+        bundleBuilder.addEntry(patient);
+        bundleBuilder.addEntry(patient);
+        bundleBuilder.addEntry(PATIENT_ID, new Patient());
+
+        Bundle bundle = bundleBuilder.build();
+        assertThat(bundle.getEntry()).hasSize(1);
+        assertThat(bundle.getEntryFirstRep().getFullUrl()).isEqualTo(PATIENT_ID);
+        assertThat(bundle.getEntryFirstRep().getResource()).isSameAs(patient);
+    }
+
+    @Test
+    public void shouldKeepOrderedResourcesLatestFirst() {
+        ReferralRequest earlierReferral = new ReferralRequest().setAuthoredOn(NOW);
+        ReferralRequest laterReferral = new ReferralRequest().setAuthoredOn(LATER);
+        Condition firstCondition = new Condition().setAssertedDate(NOW);
+        Condition secondCondition = new Condition().setAssertedDate(NOW);
+
+        bundleBuilder.addEntry(new Patient());
+        bundleBuilder.addEntry(earlierReferral);
+        bundleBuilder.addEntry(firstCondition);
+        bundleBuilder.addEntry(laterReferral);
+        bundleBuilder.addEntry(secondCondition);
+
+        assertThat(bundleBuilder.getOrderedResources())
+            .containsExactly(laterReferral, earlierReferral, firstCondition, secondCondition);
+    }
+}
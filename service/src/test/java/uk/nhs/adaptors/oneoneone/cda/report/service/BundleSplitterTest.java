@@ -0,0 +1,101 @@
+package uk.nhs.adaptors.oneoneone.cda.report.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hl7.fhir.dstu3.model.Bundle.BundleType.COLLECTION;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.hl7.fhir.dstu3.model.Bundle;
+import org.hl7.fhir.dstu3.model.Bundle.BundleEntryComponent;
+import org.hl7.fhir.dstu3.model.Composition;
+import org.hl7.fhir.dstu3.model.Encounter;
+import org.hl7.fhir.dstu3.model.Identifier;
+import org.hl7.fhir.dstu3.model.ListResource;
+import org.hl7.fhir.dstu3.model.MessageHeader;
+import org.hl7.fhir.dstu3.model.QuestionnaireResponse;
+import org.hl7.fhir.dstu3.model.Resource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import uk.nhs.adaptors.oneoneone.cda.report.service.BundleSplitter.Chunk;
+import uk.nhs.adaptors.oneoneone.cda.report.service.BundleSplitter.ChunkGroup;
+import uk.nhs.adaptors.oneoneone.config.AmqpProperties;
+
+public class BundleSplitterTest {
+
+    private static final int QUESTIONNAIRE_RESPONSES = 25;
+
+    private AmqpProperties properties;
+    private BundleSplitter bundleSplitter;
+
+    @BeforeEach
+    public void setUp() {
+        properties = new AmqpProperties();
+        properties.getSplit().setEnabled(true);
+        properties.getSplit().setMinEntries(10);
+        properties.getSplit().setMaxChunks(4);
+        bundleSplitter = new BundleSplitter(properties);
+    }
+
+    @Test
+    public void shouldSplitOnlyLargeBundlesWhenEnabled() {
+        assertThat(bundleSplitter.shouldSplit(createBundle(5))).isFalse();
+        assertThat(bundleSplitter.shouldSplit(createBundle(6))).isTrue();
+
+        properties.getSplit().setEnabled(false);
+        assertThat(bundleSplitter.shouldSplit(createBundle(QUESTIONNAIRE_RESPONSES))).isFalse();
+    }
+
+    @Test
+    public void shouldMoveGroupsIntoBoundedChunks() {
+        Bundle bundle = createBundle(QUESTIONNAIRE_RESPONSES);
+        List<Resource> triage = resources(bundle, QuestionnaireResponse.class);
+
+        List<Chunk> chunks = bundleSplitter.split(bundle);
+
+        assertThat(chunks).hasSizeLessThanOrEqualTo(4);
+        assertThat(bundle.getEntry()).extracting(BundleEntryComponent::getResource)
+            .hasOnlyElementsOfTypes(MessageHeader.class, Encounter.class)
+            .hasSize(2);
+        assertThat(chunks).allSatisfy(chunk -> {
+            assertThat(chunk.getBundle().getType()).isEqualTo(COLLECTION);
+            assertThat(chunk.getBundle().getIdentifier()).isSameAs(bundle.getIdentifier());
+        });
+        assertThat(chunks.stream().filter(chunk -> chunk.getGroup() == ChunkGroup.TRIAGE)
+            .flatMap(chunk -> chunk.getBundle().getEntry().stream())
+            .map(BundleEntryComponent::getResource)
+            .collect(Collectors.toList())).containsExactlyElementsOf(triage);
+        assertThat(chunks.get(chunks.size() - 1).getGroup()).isEqualTo(ChunkGroup.DOCUMENT);
+        assertThat(chunks.get(chunks.size() - 1).getBundle().getEntry()).hasSize(2);
+    }
+
+    @Test
+    public void shouldKeepOneChunkPerGroupWhenMaxChunksIsLower() {
+        properties.getSplit().setMaxChunks(1);
+
+        List<Chunk> chunks = bundleSplitter.split(createBundle(QUESTIONNAIRE_RESPONSES));
+
+        assertThat(chunks).extracting(Chunk::getGroup).containsExactly(ChunkGroup.TRIAGE, ChunkGroup.DOCUMENT);
+    }
+
+    private static Bundle createBundle(int questionnaireResponses) {
+        Bundle bundle = new Bundle();
+        bundle.setIdentifier(new Identifier().setValue("1"));
+        bundle.addEntry().setResource(new MessageHeader());
+        bundle.addEntry().setResource(new Encounter());
+        bundle.addEntry().setResource(new Composition());
+        for (int i = 0; i < questionnaireResponses; i++) {
+            bundle.addEntry().setResource(new QuestionnaireResponse());
+        }
+        bundle.addEntry().setResource(new ListResource());
+        return bundle;
+    }
+
+    private static List<Resource> resources(Bundle bundle, Class<? extends Resource> type) {
+        return bundle.getEntry().stream()
+            .map(BundleEntryComponent::getResource)
+            .filter(type::isInstance)
+            .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,194 @@
+package uk.nhs.adaptors.oneoneone.cda.report.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.hl7.fhir.dstu3.model.Bundle.BundleType.TRANSACTION;
+import static org.hl7.fhir.dstu3.model.Bundle.HTTPVerb.DELETE;
+import static org.hl7.fhir.dstu3.model.Bundle.HTTPVerb.POST;
+import static org.hl7.fhir.dstu3.model.Bundle.HTTPVerb.PUT;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.hl7.fhir.dstu3.model.Bundle;
+import org.hl7.fhir.dstu3.model.Bundle.BundleEntryComponent;
+import org.hl7.fhir.dstu3.model.Condition;
+import org.hl7.fhir.dstu3.model.Encounter;
+import org.hl7.fhir.dstu3.model.Encounter.EncounterStatus;
+import org.hl7.fhir.dstu3.model.MessageHeader;
+import org.hl7.fhir.dstu3.model.Observation;
+import org.hl7.fhir.dstu3.model.Patient;
+import org.hl7.fhir.dstu3.model.Reference;
+import org.hl7.fhir.dstu3.model.Resource;
+import org.hl7.fhir.dstu3.model.ResourceType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ca.uhn.fhir.context.FhirContext;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import uk.nhs.adaptors.oneoneone.cda.report.service.DeltaBundleService.DeltaBundle;
+import uk.nhs.adaptors.oneoneone.cda.report.util.IdContext;
+import uk.nhs.adaptors.oneoneone.cda.report.util.IdUtil;
+import uk.nhs.adaptors.oneoneone.config.DeltaProperties;
+import uk.nhs.connect.iucds.cda.ucr.POCDMT000002UK01ClinicalDocument1;
+
+public class DeltaBundleServiceTest {
+
+    private static final String SET_ID = "411910CF-1A76-4330-98FE-C345DDEE5553";
+    private static final String FIRST_DOCUMENT_ID = "A709A442-3CF4-476E-8377-376500E829C9";
+    private static final String SECOND_DOCUMENT_ID = "B5A1E3D2-6C0F-4A7B-9E8D-2F3C4B5A6D7E";
+    private static final String THIRD_DOCUMENT_ID = "C3D9F7A1-8B2E-4D6C-A5F0-1E9B7C3D5A2F";
+    private static final String TARGET = "default:full";
+
+    private DeltaProperties properties;
+    private DeltaBundleService deltaBundleService;
+
+    @BeforeEach
+    public void setUp() {
+        IdUtil.setDeterministic(true);
+        properties = new DeltaProperties();
+        properties.setEnabled(true);
+        deltaBundleService = new DeltaBundleService(properties, FhirContext.forDstu3(), new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        IdUtil.reset();
+    }
+
+    @Test
+    public void shouldPublishChangesSinceReplacedVersion() {
+        Bundle first = createBundle("1", EncounterStatus.INPROGRESS, true);
+        assertThat(publish(document(FIRST_DOCUMENT_ID, null), TARGET, first)).isSameAs(first);
+
+        Bundle second = createBundle("2", EncounterStatus.FINISHED, false);
+        Bundle delta = publish(document(SECOND_DOCUMENT_ID, FIRST_DOCUMENT_ID), TARGET, second);
+
+        assertThat(delta.getType()).isEqualTo(TRANSACTION);
+        assertThat(delta.getEntry()).extracting(entry -> entry.getRequest().getMethod(), entry -> entry.getRequest().getUrl())
+            .containsExactly(
+                tuple(POST, "MessageHeader"),
+                tuple(PUT, "Encounter/" + uuid(first, ResourceType.Encounter)),
+                tuple(PUT, "Condition/" + uuid(second, ResourceType.Condition)),
+                tuple(DELETE, "Observation/" + uuid(first, ResourceType.Observation)));
+        Encounter encounter = (Encounter) delta.getEntry().get(1).getResource();
+        assertThat(delta.getEntry().get(1).getFullUrl()).isEqualTo(find(first, ResourceType.Encounter).getIdElement().getValue());
+        assertThat(encounter.getStatus()).isEqualTo(EncounterStatus.FINISHED);
+        assertThat(encounter.getSubject().getReference()).isEqualTo(find(first, ResourceType.Patient).getIdElement().getValue());
+    }
+
+    @Test
+    public void shouldPublishWholeBundleWhenReplacedVersionIsUnknown() {
+        Bundle first = createBundle("1", EncounterStatus.INPROGRESS, true);
+        publish(document(FIRST_DOCUMENT_ID, null), TARGET, first);
+        Bundle second = createBundle("2", EncounterStatus.FINISHED, false);
+
+        assertThat(publish(document(SECOND_DOCUMENT_ID, "unknown"), TARGET, second)).isSameAs(second);
+        assertThat(publish(document(SECOND_DOCUMENT_ID, FIRST_DOCUMENT_ID), "other:full", second))
+            .isSameAs(second);
+    }
+
+    @Test
+    public void shouldPublishWholeBundleWithRandomIds() {
+        IdUtil.setDeterministic(false);
+        Bundle first = createBundle("1", EncounterStatus.INPROGRESS, true);
+        publish(document(FIRST_DOCUMENT_ID, null), TARGET, first);
+        Bundle second = createBundle("2", EncounterStatus.FINISHED, false);
+
+        assertThat(publish(document(SECOND_DOCUMENT_ID, FIRST_DOCUMENT_ID), TARGET, second)).isSameAs(second);
+        assertThat(deltaBundleService.size()).isZero();
+    }
+
+    @Test
+    public void shouldNotRecordBundleUntilCommitted() {
+        Bundle first = createBundle("1", EncounterStatus.INPROGRESS, true);
+        DeltaBundle firstPublished = deltaBundleService.toPublishedBundle(document(FIRST_DOCUMENT_ID, null), TARGET, first);
+        assertThat(deltaBundleService.size()).isZero();
+        deltaBundleService.release(firstPublished);
+
+        Bundle second = createBundle("2", EncounterStatus.FINISHED, false);
+
+        assertThat(publish(document(SECOND_DOCUMENT_ID, FIRST_DOCUMENT_ID), TARGET, second)).isSameAs(second);
+        assertThat(deltaBundleService.size()).isOne();
+    }
+
+    @Test
+    public void shouldPublishWholeBundleWhilePreviousVersionIsPending() {
+        Bundle first = createBundle("1", EncounterStatus.INPROGRESS, true);
+        publish(document(FIRST_DOCUMENT_ID, null), TARGET, first);
+        Bundle second = createBundle("2", EncounterStatus.FINISHED, false);
+        DeltaBundle secondPublished = deltaBundleService.toPublishedBundle(document(SECOND_DOCUMENT_ID, FIRST_DOCUMENT_ID), TARGET,
+            second);
+        Bundle third = createBundle("3", EncounterStatus.FINISHED, true);
+
+        assertThat(secondPublished.getBundle().getType()).isEqualTo(TRANSACTION);
+        assertThat(publish(document(THIRD_DOCUMENT_ID, FIRST_DOCUMENT_ID), TARGET, third)).isSameAs(third);
+
+        deltaBundleService.commit(secondPublished);
+
+        assertThat(publish(document(THIRD_DOCUMENT_ID, SECOND_DOCUMENT_ID), TARGET, third).getType()).isEqualTo(TRANSACTION);
+    }
+
+    private Bundle publish(POCDMT000002UK01ClinicalDocument1 document, String target, Bundle bundle) {
+        DeltaBundle deltaBundle = deltaBundleService.toPublishedBundle(document, target, bundle);
+        deltaBundleService.commit(deltaBundle);
+        return deltaBundle.getBundle();
+    }
+
+    private static Bundle createBundle(String version, EncounterStatus status, boolean withObservation) {
+        Bundle bundle = new Bundle();
+        try (IdContext context = IdContext.open(SET_ID + ":" + version)) {
+            MessageHeader messageHeader = new MessageHeader();
+            messageHeader.setIdElement(IdUtil.newRandomUuid());
+            Patient patient = new Patient();
+            patient.setIdElement(IdUtil.newResourceId(ResourceType.Patient));
+            patient.addName().setFamily("Smith");
+            Encounter encounter = new Encounter();
+            encounter.setIdElement(IdUtil.newResourceId(ResourceType.Encounter));
+            encounter.setStatus(status);
+            encounter.setSubject(new Reference(patient));
+            addEntry(bundle, messageHeader);
+            addEntry(bundle, encounter);
+            addEntry(bundle, patient);
+            if (withObservation) {
+                Observation observation = new Observation();
+                observation.setIdElement(IdUtil.newResourceId(ResourceType.Observation));
+                addEntry(bundle, observation.setSubject(new Reference(patient)));
+            } else {
+                Condition condition = new Condition();
+                condition.setIdElement(IdUtil.newResourceId(ResourceType.Condition));
+                addEntry(bundle, condition.setSubject(new Reference(patient)));
+            }
+        }
+        return bundle;
+    }
+
+    private static void addEntry(Bundle bundle, Resource resource) {
+        bundle.addEntry().setFullUrl(resource.getIdElement().getValue()).setResource(resource);
+    }
+
+    private static Resource find(Bundle bundle, ResourceType type) {
+        return bundle.getEntry().stream()
+            .map(BundleEntryComponent::getResource)
+            .filter(resource -> resource.getResourceType() == type)
+            .findFirst()
+            .orElseThrow();
+    }
+
+    private static String uuid(Bundle bundle, ResourceType type) {
+        return find(bundle, type).getIdElement().getValue().substring("urn:uuid:".length());
+    }
+
+    private static POCDMT000002UK01ClinicalDocument1 document(String documentId, String parentDocumentId) {
+        POCDMT000002UK01ClinicalDocument1 document = mock(POCDMT000002UK01ClinicalDocument1.class, RETURNS_DEEP_STUBS);
+        when(document.getSetId().getRoot()).thenReturn(SET_ID);
+        when(document.getId().getRoot()).thenReturn(documentId);
+        when(document.sizeOfRelatedDocumentArray()).thenReturn(parentDocumentId == null ? 0 : 1);
+        if (parentDocumentId != null) {
+            when(document.getRelatedDocumentArray(0).getParentDocument().getIdArray(0).isSetRoot()).thenReturn(true);
+            when(document.getRelatedDocumentArray(0).getParentDocument().getIdArray(0).getRoot()).thenReturn(parentDocumentId);
+        }
+        return document;
+    }
+}
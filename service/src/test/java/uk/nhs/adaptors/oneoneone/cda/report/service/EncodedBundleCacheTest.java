@@ -0,0 +1,147 @@
+package uk.nhs.adaptors.oneoneone.cda.report.service;
+
+import static java.math.BigInteger.ONE;
+import static java.math.BigInteger.TWO;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hl7.fhir.dstu3.model.IdType.newRandomUuid;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+
+import org.hl7.fhir.dstu3.model.Bundle;
+import org.hl7.fhir.dstu3.model.MessageHeader;
+import org.hl7.fhir.dstu3.model.Patient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.IParser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import uk.nhs.adaptors.oneoneone.config.BundleCacheProperties;
+import uk.nhs.connect.iucds.cda.ucr.II;
+import uk.nhs.connect.iucds.cda.ucr.INT;
+import uk.nhs.connect.iucds.cda.ucr.POCDMT000002UK01ClinicalDocument1;
+
+public class EncodedBundleCacheTest {
+
+    private static final String SET_ID = "411910CF-1A76-4330-98FE-C345DDEE5553";
+    private static final String DOCUMENT_XML = "<ClinicalDocument/>";
+    private static final String KEY = "key";
+
+    private BundleCacheProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private EncodedBundleCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        properties = new BundleCacheProperties();
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new EncodedBundleCache(properties, meterRegistry);
+    }
+
+    @Test
+    public void shouldKeyDocumentBySetIdVersionAndContent() throws IOException {
+        String key = cache.getKey(document(ONE, DOCUMENT_XML)).orElseThrow();
+
+        assertThat(key).startsWith(SET_ID + ":null:1:");
+        assertThat(cache.getKey(document(ONE, DOCUMENT_XML))).contains(key);
+        assertThat(cache.getKey(document(TWO, DOCUMENT_XML))).isNotEqualTo(key);
+        assertThat(cache.getKey(document(ONE, "<ClinicalDocument></ClinicalDocument>"))).isNotEqualTo(key);
+    }
+
+    @Test
+    public void shouldNotKeyDocumentWithoutVersionOrWhenDisabled() throws IOException {
+        POCDMT000002UK01ClinicalDocument1 unversioned = mock(POCDMT000002UK01ClinicalDocument1.class);
+        when(unversioned.getSetId()).thenReturn(mock(II.class));
+
+        assertThat(cache.getKey(unversioned)).isEmpty();
+
+        properties.setEnabled(false);
+        POCDMT000002UK01ClinicalDocument1 clinicalDocument = document(ONE, DOCUMENT_XML);
+        assertThat(cache.getKey(clinicalDocument)).isEmpty();
+        verify(clinicalDocument, never()).save(any(OutputStream.class));
+    }
+
+    @Test
+    public void shouldCountHitsAndMisses() {
+        assertThat(cache.get(KEY)).isEmpty();
+        EncodedBundleCache.EncodedBundle encodedBundle = encodedBundle("{\"entry\": []}");
+        cache.put(KEY, encodedBundle);
+
+        assertThat(cache.get(KEY)).containsSame(encodedBundle);
+        assertThat(meterRegistry.get("report.bundle.cache.requests").tag("result", "hit").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("report.bundle.cache.requests").tag("result", "miss").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("report.bundle.cache.size").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedBundle() {
+        properties.setMaxEntries(2);
+        cache.put("first", encodedBundle("{}"));
+        cache.put("second", encodedBundle("{}"));
+        cache.get("first");
+        cache.put("third", encodedBundle("{}"));
+
+        assertThat(cache.get("first")).isPresent();
+        assertThat(cache.get("second")).isEmpty();
+        assertThat(cache.get("third")).isPresent();
+    }
+
+    @Test
+    public void shouldSpliceMessageHeaderIntoEncodedBundle() {
+        shouldSpliceMessageHeader(FhirContext.forDstu3().newJsonParser().setPrettyPrint(true), true);
+        shouldSpliceMessageHeader(FhirContext.forDstu3().newJsonParser(), true);
+        shouldSpliceMessageHeader(FhirContext.forDstu3().newJsonParser().setPrettyPrint(true), false);
+    }
+
+    private void shouldSpliceMessageHeader(IParser parser, boolean withPatient) {
+        MessageHeader messageHeader = new MessageHeader();
+        messageHeader.setIdElement(newRandomUuid());
+        messageHeader.getSource().setName("NHS 111 Adaptor");
+        Bundle bundle = new Bundle();
+        bundle.setType(Bundle.BundleType.MESSAGE);
+        bundle.addEntry().setFullUrl(messageHeader.getIdElement().getValue()).setResource(messageHeader);
+        if (withPatient) {
+            Patient patient = new Patient();
+            patient.setIdElement(newRandomUuid());
+            patient.setActive(true);
+            bundle.addEntry().setFullUrl(patient.getIdElement().getValue()).setResource(patient);
+        }
+        String expected = parser.encodeResourceToString(bundle);
+
+        bundle.getEntry().remove(0);
+        EncodedBundleCache.EncodedBundle encodedBundle = encodedBundle(parser.encodeResourceToString(bundle));
+        String spliced = encodedBundle.withMessageHeader(messageHeader.getIdElement().getValue(),
+            parser.encodeResourceToString(messageHeader));
+
+        assertThat(parser.encodeResourceToString(parser.parseResource(spliced))).isEqualTo(expected);
+    }
+
+    private EncodedBundleCache.EncodedBundle encodedBundle(String json) {
+        return new EncodedBundleCache.EncodedBundle(json);
+    }
+
+    private POCDMT000002UK01ClinicalDocument1 document(BigInteger version, String xml) throws IOException {
+        POCDMT000002UK01ClinicalDocument1 clinicalDocument = mock(POCDMT000002UK01ClinicalDocument1.class);
+        II setId = mock(II.class);
+        when(setId.getRoot()).thenReturn(SET_ID);
+        INT versionNumber = mock(INT.class);
+        when(versionNumber.getValue()).thenReturn(version);
+        when(clinicalDocument.getSetId()).thenReturn(setId);
+        when(clinicalDocument.getVersionNumber()).thenReturn(versionNumber);
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(0).write(xml.getBytes(UTF_8));
+            return null;
+        }).when(clinicalDocument).save(any(OutputStream.class));
+        return clinicalDocument;
+    }
+}
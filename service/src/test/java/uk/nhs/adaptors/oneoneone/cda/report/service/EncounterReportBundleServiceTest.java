@@ -8,13 +8,17 @@ import static org.hl7.fhir.dstu3.model.Bundle.BundleType.MESSAGE;
 import static org.hl7.fhir.dstu3.model.Encounter.EncounterStatus.FINISHED;
 import static org.hl7.fhir.dstu3.model.IdType.newRandomUuid;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
 
@@ -48,8 +52,10 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import uk.nhs.adaptors.oneoneone.cda.report.comparator.ResourceDateComparator;
 import uk.nhs.adaptors.oneoneone.cda.report.controller.utils.ItkReportHeader;
 import uk.nhs.adaptors.oneoneone.cda.report.mapper.CarePlanMapper;
 import uk.nhs.adaptors.oneoneone.cda.report.mapper.CompositionMapper;
@@ -62,6 +68,7 @@ import uk.nhs.adaptors.oneoneone.cda.report.mapper.ObservationMapper;
 import uk.nhs.adaptors.oneoneone.cda.report.mapper.PractitionerRoleMapper;
 import uk.nhs.adaptors.oneoneone.cda.report.mapper.ReferralRequestMapper;
 import uk.nhs.adaptors.oneoneone.cda.report.util.PathwayUtil;
+import uk.nhs.adaptors.oneoneone.config.OutputProperties;
 import uk.nhs.connect.iucds.cda.ucr.INT;
 import uk.nhs.connect.iucds.cda.ucr.POCDMT000002UK01ClinicalDocument1;
 
@@ -113,6 +120,8 @@ public class EncounterReportBundleServiceTest {
     private static final Organization PRACTITIONER_ORG;
     private static final IdType PRACTITIONER_ORG_ID = newRandomUuid();
     private static final BigInteger VERSION = TWO;
+    private static final String LIGHTWEIGHT_PROFILE = "lightweight";
+    private static final String LIGHTWEIGHT_ADDRESS = "urn:nhs-uk:addressing:ods:LIGHT";
 
     static {
         SERVICE_PROVIDER = new Organization();
@@ -221,6 +230,10 @@ public class EncounterReportBundleServiceTest {
     private ObservationMapper observationMapper;
     @Mock
     private PractitionerRoleMapper practitionerRoleMapper;
+    @Spy
+    private ResourceDateComparator resourceDateComparator = new ResourceDateComparator();
+    @Spy
+    private OutputProfileResolver outputProfileResolver = new OutputProfileResolver(createOutputProperties());
     @Mock
     private POCDMT000002UK01ClinicalDocument1 document;
 
@@ -233,15 +246,15 @@ public class EncounterReportBundleServiceTest {
         questionnaireResponseList.add(QUESTIONNAIRE_RESPONSE);
         when(encounterMapper.mapEncounter(any(), any())).thenReturn(ENCOUNTER);
         when(conditionMapper.mapCondition(any(), any(), any())).thenReturn(CONDITION);
-        when(compositionMapper.mapComposition(any(), any(), any(), any(), any(), any())).thenReturn(COMPOSITION);
-        when(listMapper.mapList(any(), any(), any())).thenReturn(LIST_RESOURCE);
-        when(carePlanMapper.mapCarePlan(any(), any(), any())).thenReturn(singletonList(CAREPLAN));
+        lenient().when(compositionMapper.mapComposition(any(), any(), any(), any(), any(), any(), anyBoolean())).thenReturn(COMPOSITION);
+        lenient().when(listMapper.mapList(any(), any(), any())).thenReturn(LIST_RESOURCE);
+        lenient().when(carePlanMapper.mapCarePlan(any(), any(), any())).thenReturn(singletonList(CAREPLAN));
         when(healthcareServiceMapper.mapHealthcareService(any())).thenReturn(singletonList(HEALTHCARE_SERVICE));
-        when(consentMapper.mapConsent(any(), any())).thenReturn(CONSENT);
-        when(pathwayUtil.getQuestionnaireResponses(any(), any(), any())).thenReturn(questionnaireResponseList);
+        lenient().when(consentMapper.mapConsent(any(), any())).thenReturn(CONSENT);
+        lenient().when(pathwayUtil.getQuestionnaireResponses(any(), any(), any(), anyBoolean())).thenReturn(questionnaireResponseList);
         when(messageHeaderService.createMessageHeader(any(),null)).thenReturn(MESSAGE_HEADER);
         when(referralRequestMapper.mapReferralRequest(any(), any(), any(), any())).thenReturn(REFERRAL_REQUEST);
-        when(observationMapper.mapObservations(any(), eq(ENCOUNTER))).thenReturn(Arrays.asList(OBSERVATION));
+        lenient().when(observationMapper.mapObservations(any(), eq(ENCOUNTER))).thenReturn(Arrays.asList(OBSERVATION));
         when(practitionerRoleMapper.mapAuthorRoles(any())).thenReturn(singletonList(AUTHOR_ROLE));
         when(practitionerRoleMapper.mapResponsibleParty(any())).thenReturn(Optional.of(PRACTITIONER_ROLE));
         Encounter.DiagnosisComponent diagnosisComponent = new Encounter.DiagnosisComponent();
@@ -286,6 +299,31 @@ public class EncounterReportBundleServiceTest {
         verifyEntry(entries.get(19), LIST_RESOURCE_ID.getValue(), ResourceType.List);
     }
 
+    @Test
+    public void shouldOnlyMapResourcesOfOutputProfile() throws XmlException {
+        ItkReportHeader itkReportHeader = new ItkReportHeader();
+        itkReportHeader.setAddressList(singletonList(LIGHTWEIGHT_ADDRESS));
+
+        Bundle encounterBundle = encounterReportBundleService.createEncounterBundle(document, itkReportHeader);
+
+        verifyNoInteractions(compositionMapper, consentMapper, pathwayUtil, carePlanMapper, observationMapper, listMapper);
+        assertThat(encounterBundle.getEntry())
+            .extracting(entry -> entry.getResource().getResourceType())
+            .doesNotContain(ResourceType.Composition, ResourceType.Consent, ResourceType.QuestionnaireResponse, ResourceType.CarePlan,
+                ResourceType.Observation, ResourceType.List)
+            .contains(ResourceType.Encounter, ResourceType.Condition, ResourceType.ReferralRequest);
+    }
+
+    private static OutputProperties createOutputProperties() {
+        OutputProperties.Profile lightweight = new OutputProperties.Profile();
+        lightweight.setExcludedResources(EnumSet.of(ResourceType.Composition, ResourceType.Consent, ResourceType.QuestionnaireResponse,
+            ResourceType.CarePlan, ResourceType.Observation, ResourceType.List));
+        OutputProperties outputProperties = new OutputProperties();
+        outputProperties.getProfiles().put(LIGHTWEIGHT_PROFILE, lightweight);
+        outputProperties.getAddresses().put(LIGHTWEIGHT_ADDRESS, LIGHTWEIGHT_PROFILE);
+        return outputProperties;
+    }
+
     private void verifyEntry(BundleEntryComponent entry, String fullUrl, ResourceType resourceType) {
         assertThat(entry.getFullUrl()).isEqualTo(fullUrl);
         assertThat(entry.getResource().getResourceType()).isEqualTo(resourceType);
@@ -5,49 +5,86 @@ import ca.uhn.fhir.parser.IParser;
 
 import org.apache.xmlbeans.XmlException;
 import org.hl7.fhir.dstu3.model.Bundle;
-import org.junit.jupiter.api.BeforeEach;
+import org.hl7.fhir.dstu3.model.Composition;
+import org.hl7.fhir.dstu3.model.MessageHeader;
+import org.hl7.fhir.dstu3.model.Patient;
+import org.hl7.fhir.dstu3.model.QuestionnaireResponse;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jms.UncategorizedJmsException;
 import org.springframework.jms.core.JmsTemplate;
-import org.springframework.jms.core.MessageCreator;
+import org.springframework.jms.core.ProducerCallback;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import uk.nhs.adaptors.oneoneone.cda.report.controller.utils.ItkReportHeader;
+import uk.nhs.adaptors.oneoneone.cda.report.mapper.PatientMapper;
+import uk.nhs.adaptors.oneoneone.cda.report.scheduling.AdaptiveConcurrencyLimiter;
+import uk.nhs.adaptors.oneoneone.cda.report.sink.JmsReportSink;
 import uk.nhs.adaptors.oneoneone.config.AmqpProperties;
+import uk.nhs.adaptors.oneoneone.config.ConcurrencyProperties;
+import uk.nhs.adaptors.oneoneone.config.DeltaProperties;
+import uk.nhs.adaptors.oneoneone.config.OutputProperties;
 import uk.nhs.connect.iucds.cda.ucr.POCDMT000002UK01ClinicalDocument1;
 
+import java.util.Optional;
+
 import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
 import javax.jms.Session;
 import javax.jms.TextMessage;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static uk.nhs.adaptors.oneoneone.cda.report.scheduling.ReportPriority.ROUTINE;
 
 @ExtendWith(MockitoExtension.class)
 public class EncounterReportServiceTest {
 
     private static final String ENCOUNTER_REPORT_MAPPING = "<encounter-report-mapping>";
+    private static final String DESTINATION = "gp";
+    private static final String NHS_NUMBER = "9434765919";
     private static final String QUEUE_NAME = "Encounter-Report";
+    private static final String EMERGENCY_QUEUE_NAME = "Encounter-Report-Emergency";
+    private static final int EMERGENCY_PRIORITY = 9;
+    private static final String EMERGENCY_DISPOSITION = "DX80";
     private static final String MESSAGE_ID = "2B77B3F5-3016-4A6D-821F-152CE420E58D";
     private static final String TRACKING_ID = "7D6F23E0-AE1A-11DB-9808-B18E1E0994CD";
     private static final String SPECIFICATION_KEY = "urn:nhs-itk:ns:201005:interaction";
+    private static final String CACHE_KEY = "cache-key";
+    private static final String CACHED_BUNDLE = "{\"entry\": [{\"fullUrl\": \"urn:patient\"}]}";
+    private static final String MESSAGE_HEADER_URL = "urn:uuid:0d3f8a4e-5c7b-4e4f-9d0e-1c2b3a4d5e6f";
+    private static final String ENCODED_MESSAGE_HEADER = "{\"resourceType\": \"MessageHeader\"}";
     private static final String SPECIFICATION_VALUE = "urn:nhs-itk:interaction:primaryEmergencyDepartmentRecipientNHS111CDADocument-v2-0";
 
     @InjectMocks
     private EncounterReportService encounterReportService;
 
-    @Mock
-    private AmqpProperties amqpProperties;
+    @Spy
+    private AmqpProperties amqpProperties = new AmqpProperties();
 
     @Mock
     private JmsTemplate jmsTemplate;
 
+    @Spy
+    private JmsReportSink reportSink = new JmsReportSink(amqpProperties);
+
     @Mock
     private EncounterReportBundleService encounterReportBundleService;
 
@@ -57,33 +94,204 @@ public class EncounterReportServiceTest {
     @Mock
     private TextMessage textMessage;
 
-    @BeforeEach
-    public void setUp() {
-        when(amqpProperties.getQueueName()).thenReturn(QUEUE_NAME);
-    }
+    @Mock
+    private EncodedBundleCache encodedBundleCache;
+
+    @Mock
+    private MessageHeaderService messageHeaderService;
+
+    @Mock
+    private QueueRouter queueRouter;
+
+    private final AmqpProperties splitProperties = new AmqpProperties();
+
+    @Spy
+    private BundleSplitter bundleSplitter = new BundleSplitter(splitProperties);
+
+    @Spy
+    private DeltaBundleService deltaBundleService = new DeltaBundleService(new DeltaProperties(), mock(FhirContext.class),
+        new SimpleMeterRegistry());
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private OutputProfileResolver outputProfileResolver = new OutputProfileResolver(new OutputProperties());
+
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter = new AdaptiveConcurrencyLimiter(new ConcurrencyProperties(),
+        new SimpleMeterRegistry());
 
     @Test
     public void shouldTransformAndPopulateToGP() throws JMSException, XmlException {
         ItkReportHeader header = new ItkReportHeader();
+        givenDestination(header);
         header.setTrackingId(TRACKING_ID);
         header.setSpecKey(SPECIFICATION_KEY);
         header.setSpecVal(SPECIFICATION_VALUE);
         POCDMT000002UK01ClinicalDocument1 clinicalDoc = mock(POCDMT000002UK01ClinicalDocument1.class);
-        Bundle encounterBundle = mock(Bundle.class);
+        givenEncodedBundle(clinicalDoc, header);
+        Session session = mock(Session.class);
+        MessageProducer producer = mock(MessageProducer.class);
+        when(session.createTextMessage(any())).thenReturn(textMessage);
+
+        encounterReportService.transformAndPopulateToGP(clinicalDoc, MESSAGE_ID, header, concurrencyLimiter.acquire(ROUTINE));
+
+        ArgumentCaptor<ProducerCallback<?>> argumentCaptor = ArgumentCaptor.forClass(ProducerCallback.class);
+        verify(jmsTemplate).execute(eq(QUEUE_NAME), argumentCaptor.capture());
+        argumentCaptor.getValue().doInJms(session, producer);
+        verify(session).createTextMessage(ENCOUNTER_REPORT_MAPPING);
+        verify(producer).send(eq(textMessage), any(Integer.class), eq(Message.DEFAULT_PRIORITY), any(Long.class));
+        assertThat(meterRegistry.get("report.send").tag("destination", DESTINATION).timer().count()).isOne();
+    }
+
+    @Test
+    public void shouldSendEmergencyReportWithHigherPriority() throws JMSException, XmlException {
+        ItkReportHeader header = new ItkReportHeader();
+        givenDestination(header);
+        POCDMT000002UK01ClinicalDocument1 clinicalDoc = mock(POCDMT000002UK01ClinicalDocument1.class, RETURNS_DEEP_STUBS);
+        when(clinicalDoc.isSetComponentOf()).thenReturn(true);
+        when(clinicalDoc.getComponentOf().getEncompassingEncounter().isSetDischargeDispositionCode()).thenReturn(true);
+        when(clinicalDoc.getComponentOf().getEncompassingEncounter().getDischargeDispositionCode().getCode())
+            .thenReturn(EMERGENCY_DISPOSITION);
+        givenEncodedBundle(clinicalDoc, header);
+        Session session = mock(Session.class);
+        MessageProducer producer = mock(MessageProducer.class);
+        when(session.createTextMessage(any())).thenReturn(textMessage);
+
+        encounterReportService.transformAndPopulateToGP(clinicalDoc, MESSAGE_ID, header, concurrencyLimiter.acquire(ROUTINE));
+
+        ArgumentCaptor<ProducerCallback<?>> argumentCaptor = ArgumentCaptor.forClass(ProducerCallback.class);
+        verify(jmsTemplate).execute(eq(EMERGENCY_QUEUE_NAME), argumentCaptor.capture());
+        argumentCaptor.getValue().doInJms(session, producer);
+        verify(producer).send(eq(textMessage), any(Integer.class), eq(EMERGENCY_PRIORITY), any(Long.class));
+    }
+
+    @Test
+    public void shouldReduceConcurrencyLimitWhenBrokerFails() throws XmlException {
+        ItkReportHeader header = new ItkReportHeader();
+        givenDestination(header);
+        POCDMT000002UK01ClinicalDocument1 clinicalDoc = mock(POCDMT000002UK01ClinicalDocument1.class);
+        givenEncodedBundle(clinicalDoc, header);
+        doThrow(new UncategorizedJmsException("broker down")).when(jmsTemplate).execute(eq(QUEUE_NAME), any(ProducerCallback.class));
+        double initialLimit = concurrencyLimiter.getLimit();
+        AdaptiveConcurrencyLimiter.Permit permit = concurrencyLimiter.acquire(ROUTINE);
+
+        assertThatThrownBy(() -> encounterReportService.transformAndPopulateToGP(clinicalDoc, MESSAGE_ID, header, permit))
+            .isInstanceOf(UncategorizedJmsException.class);
+
+        assertThat(concurrencyLimiter.getLimit()).isLessThan(initialLimit);
+        assertThat(concurrencyLimiter.getInFlight()).isZero();
+        assertThat(meterRegistry.get("report.send.failures").tag("destination", DESTINATION).counter().count()).isOne();
+    }
+
+    @Test
+    public void shouldOnlyCreateMessageHeaderForCachedBundle() throws JMSException, XmlException {
+        ItkReportHeader header = new ItkReportHeader();
+        givenDestination(header);
+        POCDMT000002UK01ClinicalDocument1 clinicalDoc = mock(POCDMT000002UK01ClinicalDocument1.class);
+        when(encodedBundleCache.getKey(clinicalDoc)).thenReturn(Optional.of(CACHE_KEY));
+        when(encodedBundleCache.get(CACHE_KEY + ":full")).thenReturn(Optional.of(new EncodedBundleCache.EncodedBundle(CACHED_BUNDLE)));
+        MessageHeader messageHeader = new MessageHeader();
+        messageHeader.setId(MESSAGE_HEADER_URL);
+        when(messageHeaderService.createMessageHeader(header, null)).thenReturn(messageHeader);
+        IParser parser = mock(IParser.class);
+        when(fhirContext.newJsonParser()).thenReturn(parser);
+        when(parser.setPrettyPrint(true)).thenReturn(parser);
+        when(parser.encodeResourceToString(messageHeader)).thenReturn(ENCODED_MESSAGE_HEADER);
+        Session session = mock(Session.class);
+        MessageProducer producer = mock(MessageProducer.class);
+        when(session.createTextMessage(any())).thenReturn(textMessage);
+
+        encounterReportService.transformAndPopulateToGP(clinicalDoc, MESSAGE_ID, header, concurrencyLimiter.acquire(ROUTINE));
+
+        verify(encounterReportBundleService, never()).createEncounterBundle(any(), any());
+        ArgumentCaptor<ProducerCallback<?>> argumentCaptor = ArgumentCaptor.forClass(ProducerCallback.class);
+        verify(jmsTemplate).execute(eq(QUEUE_NAME), argumentCaptor.capture());
+        argumentCaptor.getValue().doInJms(session, producer);
+        verify(session).createTextMessage("{\"entry\": [{\"fullUrl\":\"" + MESSAGE_HEADER_URL + "\",\"resource\":"
+            + ENCODED_MESSAGE_HEADER + "},{\"fullUrl\": \"urn:patient\"}]}");
+    }
+
+    @Test
+    public void shouldGroupMessagesByNhsNumber() throws JMSException, XmlException {
+        amqpProperties.setGroupBy(MessageGroupKey.NHS_NUMBER);
+        ItkReportHeader header = new ItkReportHeader();
+        givenDestination(header);
+        POCDMT000002UK01ClinicalDocument1 clinicalDoc = mock(POCDMT000002UK01ClinicalDocument1.class);
+        Patient patient = new Patient();
+        patient.addIdentifier().setSystem(PatientMapper.NHS_FHIR_ID_SYSTEM).setValue(NHS_NUMBER);
+        Bundle encounterBundle = new Bundle();
+        encounterBundle.addEntry().setResource(patient);
         when(encounterReportBundleService.createEncounterBundle(clinicalDoc, header)).thenReturn(encounterBundle);
         IParser parser = mock(IParser.class);
         when(fhirContext.newJsonParser()).thenReturn(parser);
         when(parser.setPrettyPrint(true)).thenReturn(parser);
         when(parser.encodeResourceToString(encounterBundle)).thenReturn(ENCOUNTER_REPORT_MAPPING);
         Session session = mock(Session.class);
+        MessageProducer producer = mock(MessageProducer.class);
         when(session.createTextMessage(any())).thenReturn(textMessage);
 
+        encounterReportService.transformAndPopulateToGP(clinicalDoc, MESSAGE_ID, header, concurrencyLimiter.acquire(ROUTINE));
 
-        encounterReportService.transformAndPopulateToGP(clinicalDoc, MESSAGE_ID, header);
+        ArgumentCaptor<ProducerCallback<?>> argumentCaptor = ArgumentCaptor.forClass(ProducerCallback.class);
+        verify(jmsTemplate).execute(eq(QUEUE_NAME), argumentCaptor.capture());
+        argumentCaptor.getValue().doInJms(session, producer);
+        verify(textMessage).setStringProperty("JMSXGroupID", NHS_NUMBER);
+    }
 
-        ArgumentCaptor<MessageCreator> argumentCaptor = ArgumentCaptor.forClass(MessageCreator.class);
-        verify(jmsTemplate).send(eq(QUEUE_NAME), argumentCaptor.capture());
-        argumentCaptor.getValue().createMessage(session);
-        verify(session).createTextMessage(ENCOUNTER_REPORT_MAPPING);
+    @Test
+    public void shouldPublishLargeBundleAsHeaderAndChunks() throws JMSException, XmlException {
+        splitProperties.getSplit().setEnabled(true);
+        splitProperties.getSplit().setMinEntries(4);
+        splitProperties.getSplit().setMaxChunks(2);
+        ItkReportHeader header = new ItkReportHeader();
+        givenDestination(header);
+        POCDMT000002UK01ClinicalDocument1 clinicalDoc = mock(POCDMT000002UK01ClinicalDocument1.class);
+        Bundle encounterBundle = new Bundle();
+        encounterBundle.addEntry().setResource(new MessageHeader());
+        encounterBundle.addEntry().setResource(new Composition());
+        encounterBundle.addEntry().setResource(new QuestionnaireResponse());
+        encounterBundle.addEntry().setResource(new QuestionnaireResponse());
+        when(encounterReportBundleService.createEncounterBundle(clinicalDoc, header)).thenReturn(encounterBundle);
+        IParser parser = mock(IParser.class);
+        when(fhirContext.newJsonParser()).thenReturn(parser);
+        when(parser.setPrettyPrint(true)).thenReturn(parser);
+        when(parser.encodeResourceToString(any())).thenAnswer(invocation -> "entries: "
+            + ((Bundle) invocation.getArgument(0)).getEntry().size());
+        Session session = mock(Session.class);
+        MessageProducer producer = mock(MessageProducer.class);
+        when(session.createTextMessage(any())).thenReturn(textMessage);
+
+        encounterReportService.transformAndPopulateToGP(clinicalDoc, MESSAGE_ID, header, concurrencyLimiter.acquire(ROUTINE));
+
+        ArgumentCaptor<ProducerCallback<?>> argumentCaptor = ArgumentCaptor.forClass(ProducerCallback.class);
+        verify(jmsTemplate).execute(eq(QUEUE_NAME), argumentCaptor.capture());
+        argumentCaptor.getValue().doInJms(session, producer);
+        InOrder inOrder = inOrder(session);
+        inOrder.verify(session).createTextMessage("entries: 1");
+        inOrder.verify(session).createTextMessage("entries: 2");
+        inOrder.verify(session).createTextMessage("entries: 1");
+        verify(textMessage, times(3)).setJMSCorrelationID(MESSAGE_ID);
+        verify(textMessage, times(3)).setIntProperty("chunkCount", 2);
+        verify(textMessage).setIntProperty("sequenceNumber", 0);
+        verify(textMessage).setIntProperty("sequenceNumber", 1);
+        verify(textMessage).setIntProperty("sequenceNumber", 2);
+        verify(textMessage).setStringProperty("chunkGroup", "TRIAGE");
+        verify(textMessage).setStringProperty("chunkGroup", "DOCUMENT");
+        verify(producer, times(3)).send(eq(textMessage), any(Integer.class), eq(Message.DEFAULT_PRIORITY), any(Long.class));
+        verify(encodedBundleCache, never()).put(any(), any());
+    }
+
+    private void givenDestination(ItkReportHeader header) {
+        when(queueRouter.route(header))
+            .thenReturn(new QueueDestination(DESTINATION, QUEUE_NAME, EMERGENCY_QUEUE_NAME, jmsTemplate, meterRegistry));
+    }
+
+    private void givenEncodedBundle(POCDMT000002UK01ClinicalDocument1 clinicalDoc, ItkReportHeader header) throws XmlException {
+        Bundle encounterBundle = mock(Bundle.class);
+        when(encounterReportBundleService.createEncounterBundle(clinicalDoc, header)).thenReturn(encounterBundle);
+        IParser parser = mock(IParser.class);
+        when(fhirContext.newJsonParser()).thenReturn(parser);
+        when(parser.setPrettyPrint(true)).thenReturn(parser);
+        when(parser.encodeResourceToString(encounterBundle)).thenReturn(ENCOUNTER_REPORT_MAPPING);
     }
 }
@@ -0,0 +1,59 @@
+package uk.nhs.adaptors.oneoneone.cda.report.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.hl7.fhir.dstu3.model.Bundle;
+import org.hl7.fhir.dstu3.model.Encounter;
+import org.hl7.fhir.dstu3.model.Identifier;
+import org.hl7.fhir.dstu3.model.Patient;
+import org.hl7.fhir.dstu3.model.QuestionnaireResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import uk.nhs.adaptors.oneoneone.cda.report.mapper.PatientMapper;
+
+public class MessageGroupKeyTest {
+
+    private static final String NHS_NUMBER = "9434765919";
+    private static final String ENCOUNTER_ROOT = "2.16.840.1.113883.2.1.3.2.4.18.34";
+    private static final String ENCOUNTER_EXTENSION = "ENC-1";
+    private static final String CASE_ID = "3a1e8b12-0b7c-4c4e-9a5b-5d0b8e1f2c3d";
+
+    private Bundle bundle;
+
+    @BeforeEach
+    public void setUp() {
+        Patient patient = new Patient();
+        patient.addIdentifier().setSystem("https://example.org/local-id").setValue("local");
+        patient.addIdentifier().setSystem(PatientMapper.NHS_FHIR_ID_SYSTEM).setValue(NHS_NUMBER);
+        Encounter encounter = new Encounter();
+        Identifier encounterIdentifier = encounter.addIdentifier().setValue(ENCOUNTER_EXTENSION);
+        encounterIdentifier.setId(ENCOUNTER_ROOT);
+        QuestionnaireResponse questionnaireResponse = new QuestionnaireResponse();
+        questionnaireResponse.setIdentifier(new Identifier().setValue(CASE_ID));
+
+        bundle = new Bundle();
+        bundle.addEntry().setResource(encounter);
+        bundle.addEntry().setResource(patient);
+        bundle.addEntry().setResource(questionnaireResponse);
+    }
+
+    @Test
+    public void shouldGetGroupIdOfBundle() {
+        assertThat(MessageGroupKey.NONE.getGroupId(bundle)).isNull();
+        assertThat(MessageGroupKey.NHS_NUMBER.getGroupId(bundle)).isEqualTo(NHS_NUMBER);
+        assertThat(MessageGroupKey.ENCOUNTER.getGroupId(bundle)).isEqualTo(ENCOUNTER_ROOT + ":" + ENCOUNTER_EXTENSION);
+        assertThat(MessageGroupKey.CASE_ID.getGroupId(bundle)).isEqualTo(CASE_ID);
+    }
+
+    @Test
+    public void shouldHaveNoGroupIdWithoutKey() {
+        Bundle empty = new Bundle();
+        empty.addEntry().setResource(new Patient());
+        empty.addEntry().setResource(new Encounter());
+
+        assertThat(MessageGroupKey.NHS_NUMBER.getGroupId(empty)).isNull();
+        assertThat(MessageGroupKey.ENCOUNTER.getGroupId(empty)).isNull();
+        assertThat(MessageGroupKey.CASE_ID.getGroupId(empty)).isNull();
+    }
+}
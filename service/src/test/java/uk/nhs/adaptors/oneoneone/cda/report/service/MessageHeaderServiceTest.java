@@ -1,6 +1,7 @@
 package uk.nhs.adaptors.oneoneone.cda.report.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.util.Arrays;
@@ -24,6 +25,7 @@ public class MessageHeaderServiceTest {
 
     private static final String EVENT_SYSTEM = "https://fhir.nhs.uk/STU3/CodeSystem/ITK-MessageEvent-2";
     private static final String EVENT_CODE = "ITK007C";
+    private static final String NUMSAS_EVENT_CODE = "ITK010D";
     private static final String EVENT_DISPLAY_VALUE = "ITK GP Connect Send Document";
     private static final String MESSAGE_SOURCE_NAME = "NHS 111 Adaptor";
     private static final String ENDPOINT = "https://gp.endpoint.com";
@@ -62,4 +64,16 @@ public class MessageHeaderServiceTest {
         assertThat(messageHeader.getReason().getCodingFirstRep().getCode()).isEqualTo(SPECIFICATION_VALUE);
         assertThat(messageHeader.getDestinationFirstRep().getEndpoint()).isEqualTo(ADDRESS);
     }
+
+    @Test
+    public void shouldCreateMessageHeaderForEmergencyDisposition() {
+        ItkReportHeader itkReportHeader = new ItkReportHeader();
+        itkReportHeader.setAddressList(Arrays.asList(ADDRESS));
+        CE dispositionCode = mock(CE.class);
+        when(dispositionCode.getCode()).thenReturn("DX97");
+
+        MessageHeader messageHeader = messageHeaderService.createMessageHeader(itkReportHeader, dispositionCode);
+
+        assertThat(messageHeader.getEvent().getCode()).isEqualTo(NUMSAS_EVENT_CODE);
+    }
 }
@@ -0,0 +1,79 @@
+package uk.nhs.adaptors.oneoneone.cda.report.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.EnumSet;
+import java.util.List;
+
+import org.hl7.fhir.dstu3.model.ResourceType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import uk.nhs.adaptors.oneoneone.cda.report.controller.utils.ItkReportHeader;
+import uk.nhs.adaptors.oneoneone.config.OutputProperties;
+
+public class OutputProfileResolverTest {
+
+    private static final String LIGHTWEIGHT = "lightweight";
+    private static final String GP_ADDRESS = "urn:nhs-uk:addressing:ods:GP1";
+    private static final String OTHER_ADDRESS = "urn:nhs-uk:addressing:ods:OTHER";
+
+    private OutputProperties properties;
+
+    @BeforeEach
+    public void setUp() {
+        OutputProperties.Profile profile = new OutputProperties.Profile();
+        profile.setExcludedResources(EnumSet.of(ResourceType.QuestionnaireResponse, ResourceType.Consent));
+        profile.setSectionNarrative(false);
+        properties = new OutputProperties();
+        properties.getProfiles().put(LIGHTWEIGHT, profile);
+        properties.getAddresses().put(GP_ADDRESS, LIGHTWEIGHT);
+    }
+
+    @Test
+    public void shouldResolveProfileByAddress() {
+        OutputProfile profile = new OutputProfileResolver(properties).resolve(header(OTHER_ADDRESS, GP_ADDRESS));
+
+        assertThat(profile.getName()).isEqualTo(LIGHTWEIGHT);
+        assertThat(profile.isSectionNarrative()).isFalse();
+        assertThat(profile.includes(ResourceType.Consent)).isFalse();
+        assertThat(profile.includes(ResourceType.Questionnaire)).isFalse();
+        assertThat(profile.includes(ResourceType.Composition)).isTrue();
+    }
+
+    @Test
+    public void shouldResolveDefaultProfileForOtherAddresses() {
+        OutputProfileResolver resolver = new OutputProfileResolver(properties);
+
+        assertThat(resolver.resolve(header(OTHER_ADDRESS)).getName()).isEqualTo(OutputProperties.FULL_PROFILE);
+        assertThat(resolver.resolve(new ItkReportHeader())).isSameAs(OutputProfile.FULL);
+
+        properties.setDefaultProfile(LIGHTWEIGHT);
+        assertThat(new OutputProfileResolver(properties).resolve(header(OTHER_ADDRESS)).getName()).isEqualTo(LIGHTWEIGHT);
+    }
+
+    @Test
+    public void shouldRejectExcludingRequiredResources() {
+        properties.getProfiles().get(LIGHTWEIGHT).getExcludedResources().add(ResourceType.Encounter);
+
+        assertThatThrownBy(() -> new OutputProfileResolver(properties))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("Encounter");
+    }
+
+    @Test
+    public void shouldRejectUnknownProfile() {
+        properties.getAddresses().put(OTHER_ADDRESS, "missing");
+
+        assertThatThrownBy(() -> new OutputProfileResolver(properties))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("Unknown output profile: missing");
+    }
+
+    private static ItkReportHeader header(String... addresses) {
+        ItkReportHeader header = new ItkReportHeader();
+        header.setAddressList(List.of(addresses));
+        return header;
+    }
+}
@@ -0,0 +1,115 @@
+package uk.nhs.adaptors.oneoneone.cda.report.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import java.util.List;
+
+import javax.jms.ConnectionFactory;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jms.connection.CachingConnectionFactory;
+import org.springframework.jms.core.JmsTemplate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import uk.nhs.adaptors.oneoneone.cda.report.controller.utils.ItkReportHeader;
+import uk.nhs.adaptors.oneoneone.cda.report.scheduling.ReportPriority;
+import uk.nhs.adaptors.oneoneone.config.AmqpProperties;
+
+public class QueueRouterTest {
+
+    private static final String QUEUE_NAME = "encounter-report";
+    private static final String EMERGENCY_QUEUE_NAME = "encounter-report-emergency";
+    private static final String GP_DESTINATION = "gp1";
+    private static final String GP_QUEUE_NAME = "encounter-report-gp1";
+    private static final String GP_ADDRESS = "urn:nhs-uk:addressing:ods:GP1";
+    private static final String OTHER_ADDRESS = "urn:nhs-uk:addressing:ods:OTHER";
+
+    private final JmsTemplate jmsTemplate = new JmsTemplate();
+    private final ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+    private AmqpProperties properties;
+    private QueueRouter queueRouter;
+
+    @BeforeEach
+    public void setUp() {
+        jmsTemplate.setConnectionFactory(connectionFactory);
+        AmqpProperties.Destination destination = new AmqpProperties.Destination();
+        destination.setQueueName(GP_QUEUE_NAME);
+        destination.setSessionCacheSize(4);
+        properties = new AmqpProperties();
+        properties.setQueueName(QUEUE_NAME);
+        properties.setEmergencyQueueName(EMERGENCY_QUEUE_NAME);
+        properties.getDestinations().put(GP_DESTINATION, destination);
+        properties.getAddresses().put(GP_ADDRESS, GP_DESTINATION);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (queueRouter != null) {
+            queueRouter.close();
+        }
+    }
+
+    @Test
+    public void shouldRouteByAddressWithOwnCachingProducer() {
+        queueRouter = new QueueRouter(properties, jmsTemplate, connectionFactory, new SimpleMeterRegistry());
+
+        QueueDestination destination = queueRouter.route(header(OTHER_ADDRESS, GP_ADDRESS));
+
+        assertThat(destination.getName()).isEqualTo(GP_DESTINATION);
+        assertThat(destination.getQueueName(ReportPriority.ROUTINE)).isEqualTo(GP_QUEUE_NAME);
+        assertThat(destination.getQueueName(ReportPriority.EMERGENCY)).isEqualTo(GP_QUEUE_NAME);
+        assertThat(destination.getJmsTemplate()).isNotSameAs(jmsTemplate);
+        CachingConnectionFactory cachingConnectionFactory = (CachingConnectionFactory) destination.getJmsTemplate().getConnectionFactory();
+        assertThat(cachingConnectionFactory.getTargetConnectionFactory()).isSameAs(connectionFactory);
+        assertThat(cachingConnectionFactory.getSessionCacheSize()).isEqualTo(4);
+        assertThat(cachingConnectionFactory.isCacheProducers()).isTrue();
+        assertThat(destination.getJmsTemplate().isSessionTransacted()).isTrue();
+    }
+
+    @Test
+    public void shouldRouteOtherAddressesToInboundQueue() {
+        queueRouter = new QueueRouter(properties, jmsTemplate, connectionFactory, new SimpleMeterRegistry());
+
+        QueueDestination destination = queueRouter.route(header(OTHER_ADDRESS));
+
+        assertThat(destination.getName()).isEqualTo(QueueRouter.DEFAULT_DESTINATION);
+        assertThat(destination.getJmsTemplate().getConnectionFactory()).isSameAs(connectionFactory);
+        assertThat(destination.getJmsTemplate().isSessionTransacted()).isTrue();
+        assertThat(destination.getQueueName(ReportPriority.ROUTINE)).isEqualTo(QUEUE_NAME);
+        assertThat(destination.getQueueName(ReportPriority.EMERGENCY)).isEqualTo(EMERGENCY_QUEUE_NAME);
+        assertThat(queueRouter.route(new ItkReportHeader())).isSameAs(destination);
+    }
+
+    @Test
+    public void shouldRecordMetricsPerDestination() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        queueRouter = new QueueRouter(properties, jmsTemplate, connectionFactory, meterRegistry);
+
+        queueRouter.route(header(GP_ADDRESS)).recordSend(1_000_000);
+        queueRouter.route(header(OTHER_ADDRESS)).recordFailure();
+
+        assertThat(meterRegistry.get("report.send").tag("destination", GP_DESTINATION).timer().count()).isOne();
+        assertThat(meterRegistry.get("report.send").tag("destination", QueueRouter.DEFAULT_DESTINATION).timer().count()).isZero();
+        assertThat(meterRegistry.get("report.send.failures").tag("destination", QueueRouter.DEFAULT_DESTINATION).counter().count())
+            .isOne();
+    }
+
+    @Test
+    public void shouldRejectUnknownDestination() {
+        properties.getAddresses().put(OTHER_ADDRESS, "missing");
+
+        assertThatThrownBy(() -> new QueueRouter(properties, jmsTemplate, connectionFactory, new SimpleMeterRegistry()))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("Unknown queue destination: missing");
+    }
+
+    private static ItkReportHeader header(String... addresses) {
+        ItkReportHeader header = new ItkReportHeader();
+        header.setAddressList(List.of(addresses));
+        return header;
+    }
+}
@@ -0,0 +1,110 @@
+package uk.nhs.adaptors.oneoneone.cda.report.sink;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jms.JmsException;
+import org.springframework.jms.core.JmsTemplate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import uk.nhs.adaptors.oneoneone.cda.report.controller.utils.ItkReportHeader;
+import uk.nhs.adaptors.oneoneone.cda.report.scheduling.ReportPriority;
+import uk.nhs.adaptors.oneoneone.cda.report.service.BundleSplitter.ChunkGroup;
+import uk.nhs.adaptors.oneoneone.cda.report.service.QueueDestination;
+import uk.nhs.adaptors.oneoneone.cda.report.service.QueueRouter;
+import uk.nhs.adaptors.oneoneone.cda.report.sink.EncodedReport.EncodedChunk;
+import uk.nhs.adaptors.oneoneone.config.AmqpProperties;
+
+@ExtendWith(MockitoExtension.class)
+public class JmsReportSinkTest {
+
+    private static final String QUEUE_NAME = "encounter-report";
+    private static final String MESSAGE_ID = "2B77B3F5-3016-4A6D-821F-152CE420E58D";
+    private static final EncodedReport SPLIT_REPORT = new EncodedReport("{\"id\":\"header\"}", null, List.of(
+        new EncodedChunk(ChunkGroup.TRIAGE, "{\"id\":\"chunk1\"}"),
+        new EncodedChunk(ChunkGroup.TRIAGE, "{\"id\":\"chunk2\"}")));
+
+    @Mock
+    private ConnectionFactory connectionFactory;
+    @Mock
+    private Connection connection;
+    @Mock
+    private Session session;
+    @Mock
+    private Queue queue;
+    @Mock
+    private MessageProducer producer;
+    @Mock
+    private TextMessage message;
+
+    private AmqpProperties amqpProperties;
+    private QueueDestination destination;
+
+    @BeforeEach
+    public void setUp() throws JMSException {
+        amqpProperties = new AmqpProperties();
+        amqpProperties.setQueueName(QUEUE_NAME);
+        JmsTemplate jmsTemplate = new JmsTemplate();
+        jmsTemplate.setConnectionFactory(connectionFactory);
+        destination = new QueueRouter(amqpProperties, jmsTemplate, connectionFactory, new SimpleMeterRegistry())
+            .route(new ItkReportHeader());
+
+        when(connectionFactory.createConnection()).thenReturn(connection);
+        when(connection.createSession(anyBoolean(), anyInt())).thenReturn(session);
+        when(session.getTransacted()).thenReturn(true);
+        when(session.createQueue(QUEUE_NAME)).thenReturn(queue);
+        when(session.createProducer(queue)).thenReturn(producer);
+        when(session.createTextMessage(anyString())).thenReturn(message);
+    }
+
+    @Test
+    public void shouldCommitSplitReportAfterLastChunk() throws JMSException {
+        new JmsReportSink(amqpProperties).publish(destination, MESSAGE_ID, ReportPriority.ROUTINE, SPLIT_REPORT);
+
+        verify(connection).createSession(eq(true), anyInt());
+        InOrder inOrder = inOrder(producer, session);
+        inOrder.verify(producer, times(3)).send(eq(message), anyInt(), anyInt(), anyLong());
+        inOrder.verify(session).commit();
+        verify(session, never()).rollback();
+    }
+
+    @Test
+    public void shouldRollBackSplitReportWhenChunkIsNotSent() throws JMSException {
+        doNothing().doThrow(new JMSException("broker unavailable"))
+            .when(producer).send(any(TextMessage.class), anyInt(), anyInt(), anyLong());
+
+        assertThatThrownBy(() -> new JmsReportSink(amqpProperties).publish(destination, MESSAGE_ID, ReportPriority.ROUTINE,
+            SPLIT_REPORT)).isInstanceOf(JmsException.class);
+
+        verify(producer, times(2)).send(eq(message), anyInt(), anyInt(), anyLong());
+        verify(session).rollback();
+        verify(session, never()).commit();
+    }
+}
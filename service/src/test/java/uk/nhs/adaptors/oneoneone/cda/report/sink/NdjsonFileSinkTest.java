@@ -0,0 +1,102 @@
+package uk.nhs.adaptors.oneoneone.cda.report.sink;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uk.nhs.adaptors.oneoneone.cda.report.scheduling.ReportPriority;
+import uk.nhs.adaptors.oneoneone.cda.report.service.BundleSplitter.ChunkGroup;
+import uk.nhs.adaptors.oneoneone.cda.report.sink.EncodedReport.EncodedChunk;
+
+public class NdjsonFileSinkTest {
+
+    private static final String PREFIX = "encounter-report";
+    private static final String MESSAGE_ID = "2B77B3F5-3016-4A6D-821F-152CE420E58D";
+    private static final String HEADER = "{\"resourceType\":\"Bundle\",\"id\":\"header\"}";
+    private static final String CHUNK = "{\"resourceType\":\"Bundle\",\"text\":\"line\\nbreak\"}";
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2020-12-01T10:00:00Z"), ZoneOffset.UTC);
+    private static final int BUFFER_SIZE = 64;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void shouldWriteOneLinePerBundle() throws IOException {
+        EncodedReport report = new EncodedReport(HEADER, null, List.of(new EncodedChunk(ChunkGroup.TRIAGE, CHUNK)));
+        try (NdjsonFileSink sink = new NdjsonFileSink(tempDir, PREFIX, Long.MAX_VALUE, BUFFER_SIZE, CLOCK)) {
+            sink.publish(null, MESSAGE_ID, ReportPriority.ROUTINE, report);
+        }
+
+        assertThat(lines()).containsExactly(HEADER, CHUNK);
+    }
+
+    @Test
+    public void shouldStartNewFileWhenFull() throws IOException {
+        EncodedReport report = new EncodedReport(HEADER, null, List.of());
+        try (NdjsonFileSink sink = new NdjsonFileSink(tempDir, PREFIX, 100, BUFFER_SIZE, CLOCK)) {
+            for (int i = 0; i < 5; i++) {
+                sink.publish(null, MESSAGE_ID, ReportPriority.ROUTINE, report);
+            }
+        }
+
+        List<Path> files = files();
+        assertThat(files).hasSize(3);
+        for (Path file : files) {
+            assertThat(Files.size(file)).isLessThanOrEqualTo(100);
+        }
+        assertThat(lines()).hasSize(5);
+    }
+
+    @Test
+    public void shouldWriteEveryReportPublishedConcurrently() throws Exception {
+        int reports = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try (NdjsonFileSink sink = new NdjsonFileSink(tempDir, PREFIX, 4096, BUFFER_SIZE, CLOCK)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < reports; i++) {
+                EncodedReport report = new EncodedReport("{\"id\":\"" + i + "\"}", null, List.of());
+                futures.add(executor.submit(() -> sink.publish(null, MESSAGE_ID, ReportPriority.ROUTINE, report)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(lines()).containsExactlyInAnyOrderElementsOf(IntStream.range(0, reports)
+            .mapToObj(i -> "{\"id\":\"" + i + "\"}")
+            .collect(Collectors.toList()));
+    }
+
+    private List<Path> files() throws IOException {
+        try (Stream<Path> files = Files.list(tempDir)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+
+    private List<String> lines() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (Path file : files()) {
+            assertThat(file.getFileName().toString()).startsWith(PREFIX).endsWith(".ndjson");
+            lines.addAll(Files.readAllLines(file));
+        }
+        return lines;
+    }
+}
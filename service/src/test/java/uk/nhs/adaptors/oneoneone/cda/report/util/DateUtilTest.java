@@ -67,4 +67,27 @@ public class DateUtilTest {
         String dateAsString = "30/01/2020";
         Assertions.assertThrows(IllegalStateException.class, () -> DateUtil.parsePathwaysDate(dateAsString));
     }
+
+    @Test
+    public void shouldParseFourDigitOffset() {
+        String dateAsString = "201201021234-0530";
+        assertThat(DateUtil.parse(dateAsString)).isEqualTo(Date.from(Instant.parse("2012-01-02T18:04:00.00Z")));
+    }
+
+    @Test
+    public void shouldRollOverOutOfRangeFieldsLikeLenientParsing() throws ParseException {
+        String dateAsString = "20121302";
+        assertThat(DateUtil.parse(dateAsString)).isEqualTo(isoDateformatter.parse("20130102"));
+    }
+
+    @Test
+    public void shouldThrowExceptionForFourDigitOffsetInISODateTime() {
+        String dateAsString = "201201021234+0000";
+        Assertions.assertThrows(IllegalStateException.class, () -> DateUtil.parseISODateTime(dateAsString));
+    }
+
+    @Test
+    public void shouldReturnNullForBlankPathwaysDate() {
+        assertThat(DateUtil.parsePathwaysDate(" ")).isNull();
+    }
 }
@@ -0,0 +1,69 @@
+package uk.nhs.adaptors.oneoneone.cda.report.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import uk.nhs.adaptors.oneoneone.cda.report.scheduling.ReportPriority;
+import uk.nhs.connect.iucds.cda.ucr.CE;
+import uk.nhs.connect.iucds.cda.ucr.POCDMT000002UK01ClinicalDocument1;
+import uk.nhs.connect.iucds.cda.ucr.POCDMT000002UK01Component1;
+import uk.nhs.connect.iucds.cda.ucr.POCDMT000002UK01EncompassingEncounter;
+
+@ExtendWith(MockitoExtension.class)
+public class DispositionUtilTest {
+
+    @Mock
+    private POCDMT000002UK01ClinicalDocument1 clinicalDocument;
+
+    @Mock
+    private POCDMT000002UK01Component1 componentOf;
+
+    @Mock
+    private POCDMT000002UK01EncompassingEncounter encompassingEncounter;
+
+    @Mock
+    private CE dispositionCode;
+
+    @Test
+    public void shouldRecogniseEmergencyDisposition() {
+        when(dispositionCode.getCode()).thenReturn(" dx85 ");
+
+        assertThat(DispositionUtil.isEmergency(dispositionCode)).isTrue();
+    }
+
+    @Test
+    public void shouldNotTreatRoutineDispositionAsEmergency() {
+        when(dispositionCode.getCode()).thenReturn("DX05");
+
+        assertThat(DispositionUtil.isEmergency(dispositionCode)).isFalse();
+    }
+
+    @Test
+    public void shouldNotTreatMissingDispositionAsEmergency() {
+        assertThat(DispositionUtil.isEmergency(null)).isFalse();
+    }
+
+    @Test
+    public void shouldGetEmergencyPriorityFromDocument() {
+        when(clinicalDocument.isSetComponentOf()).thenReturn(true);
+        when(clinicalDocument.getComponentOf()).thenReturn(componentOf);
+        when(componentOf.getEncompassingEncounter()).thenReturn(encompassingEncounter);
+        when(encompassingEncounter.isSetDischargeDispositionCode()).thenReturn(true);
+        when(encompassingEncounter.getDischargeDispositionCode()).thenReturn(dispositionCode);
+        when(dispositionCode.getCode()).thenReturn("DX80");
+
+        assertThat(DispositionUtil.getReportPriority(clinicalDocument)).isEqualTo(ReportPriority.EMERGENCY);
+    }
+
+    @Test
+    public void shouldGetRoutinePriorityWhenDocumentHasNoEncounter() {
+        when(clinicalDocument.isSetComponentOf()).thenReturn(false);
+
+        assertThat(DispositionUtil.getReportPriority(clinicalDocument)).isEqualTo(ReportPriority.ROUTINE);
+    }
+}
@@ -0,0 +1,134 @@
+package uk.nhs.adaptors.oneoneone.cda.report.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import static org.hl7.fhir.dstu3.model.ResourceType.Organization;
+import static org.hl7.fhir.dstu3.model.ResourceType.QuestionnaireResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import org.hl7.fhir.dstu3.model.IdType;
+import org.hl7.fhir.dstu3.model.Location;
+import org.hl7.fhir.dstu3.model.ResourceType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class IdUtilTest {
+    private static final int IETF_VARIANT = 2;
+    private static final int IDS = 1000;
+    private static final String NAMESPACE = "2.16.840.1.113883.2.1.3.2.4.18.16:A709A442:1";
+
+    @AfterEach
+    public void tearDown() {
+        IdUtil.reset();
+    }
+
+    @Test
+    public void shouldGenerateRandomUuids() {
+        Set<UUID> ids = new HashSet<>();
+        for (int i = 0; i < IDS; i++) {
+            UUID id = IdStrategy.RANDOM.generate();
+            assertThat(id.version()).isEqualTo(4);
+            assertThat(id.variant()).isEqualTo(IETF_VARIANT);
+            ids.add(id);
+        }
+
+        assertThat(ids).hasSize(IDS);
+    }
+
+    @Test
+    public void shouldGenerateTimeOrderedUuids() throws InterruptedException {
+        UUID first = IdStrategy.TIME_ORDERED.generate();
+        Thread.sleep(2);
+        UUID second = IdStrategy.TIME_ORDERED.generate();
+
+        assertThat(first.version()).isEqualTo(7);
+        assertThat(first.variant()).isEqualTo(IETF_VARIANT);
+        assertThat(first.toString()).isLessThan(second.toString());
+    }
+
+    @Test
+    public void shouldCreateUuidResourceIdWithConfiguredStrategy() {
+        IdUtil.setStrategy(IdStrategy.TIME_ORDERED);
+
+        IdType id = IdUtil.newRandomUuid();
+
+        assertThat(id.getValue()).startsWith("urn:uuid:");
+        assertThat(UUID.fromString(id.getValue().substring("urn:uuid:".length())).version()).isEqualTo(7);
+    }
+
+    @Test
+    public void shouldCreateSameResourceIdsForSameDocumentVersion() {
+        IdUtil.setDeterministic(true);
+
+        assertThat(createOrganizationIds(NAMESPACE)).containsExactly(nameBasedId(NAMESPACE + "/Organization"),
+            nameBasedId(NAMESPACE + "/Organization[1]"));
+        assertThat(createOrganizationIds(NAMESPACE)).isEqualTo(createOrganizationIds(NAMESPACE));
+        assertThat(createOrganizationIds(NAMESPACE)).doesNotContainAnyElementsOf(createOrganizationIds(NAMESPACE + "2"));
+    }
+
+    @Test
+    public void shouldNameResourcesByScopeOnAnyThread() throws Exception {
+        IdUtil.setDeterministic(true);
+
+        try (IdContext context = IdContext.open(NAMESPACE)) {
+            IdContext parent = IdContext.current();
+            String id = CompletableFuture.supplyAsync(() -> {
+                try (IdContext attached = IdContext.attach(parent); IdContext scope = IdContext.openScope("triage[17]")) {
+                    return IdUtil.newResourceId(QuestionnaireResponse).getValue();
+                }
+            }).get();
+
+            assertThat(id).isEqualTo(nameBasedId(NAMESPACE + "/triage[17]/QuestionnaireResponse"));
+        }
+    }
+
+    @Test
+    public void shouldCreateRandomResourceIdsWhenSuspendedOrNotDeterministic() {
+        try (IdContext context = IdContext.open(NAMESPACE)) {
+            assertThat(IdUtil.newResourceId(Organization).getValue()).isNotEqualTo(nameBasedId(NAMESPACE + "/Organization"));
+
+            IdUtil.setDeterministic(true);
+            try (IdContext suspended = IdContext.suspend()) {
+                assertThat(IdUtil.newResourceId(Organization).getValue()).isNotEqualTo(nameBasedId(NAMESPACE + "/Organization"));
+            }
+            assertThat(IdUtil.newResourceId(Organization).getValue()).isEqualTo(nameBasedId(NAMESPACE + "/Organization"));
+        }
+    }
+
+    @Test
+    public void shouldNameResourcesTheSameInEveryDocumentVersion() {
+        IdUtil.setDeterministic(true);
+        Location first = new Location();
+        Location second = new Location();
+
+        try (IdContext context = IdContext.open(NAMESPACE); IdContext scope = IdContext.openScope("gp")) {
+            first.setIdElement(IdUtil.newResourceId(ResourceType.Location));
+        }
+        try (IdContext context = IdContext.open(NAMESPACE + "2"); IdContext scope = IdContext.openScope("gp")) {
+            second.setIdElement(IdUtil.newResourceId(ResourceType.Location));
+        }
+
+        assertThat(IdUtil.getResourceName(first)).isEqualTo("gp/Location").isEqualTo(IdUtil.getResourceName(second));
+        assertThat(first.getId()).isNotEqualTo(second.getId());
+        assertThat(IdUtil.getResourceName(new Location().setIdElement(IdUtil.newRandomUuid()))).isNull();
+    }
+
+    private Set<String> createOrganizationIds(String namespace) {
+        try (IdContext context = IdContext.open(namespace)) {
+            Set<String> ids = new LinkedHashSet<>();
+            ids.add(IdUtil.newResourceId(Organization).getValue());
+            ids.add(IdUtil.newResourceId(Organization).getValue());
+            return ids;
+        }
+    }
+
+    private String nameBasedId(String name) {
+        return "urn:uuid:" + UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8));
+    }
+}
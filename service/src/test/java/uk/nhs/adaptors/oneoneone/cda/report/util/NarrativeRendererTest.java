@@ -0,0 +1,81 @@
+package uk.nhs.adaptors.oneoneone.cda.report.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hl7.fhir.dstu3.model.Narrative.NarrativeStatus.GENERATED;
+
+import org.apache.xmlbeans.XmlCursor;
+import org.apache.xmlbeans.XmlException;
+import org.apache.xmlbeans.XmlObject;
+import org.hl7.fhir.dstu3.model.Narrative;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import uk.nhs.adaptors.oneoneone.cda.report.mapper.ReportMappingContext;
+import uk.nhs.adaptors.oneoneone.config.NarrativeProperties;
+
+public class NarrativeRendererTest {
+
+    private static final String SECTION = "<section><text>Abdominal pain <content>with vomiting</content></text></section>";
+    private static final String SECTION_TEXT = "<xml-fragment>Abdominal pain <content>with vomiting</content></xml-fragment>";
+
+    private NarrativeProperties properties;
+    private NarrativeRenderer narrativeRenderer;
+
+    @BeforeEach
+    public void setUp() {
+        properties = new NarrativeProperties();
+        narrativeRenderer = new NarrativeRenderer(properties);
+    }
+
+    @Test
+    public void shouldRenderTextAsSerialisedXml() throws XmlException {
+        XmlObject text = parseText(SECTION);
+
+        Narrative narrative = narrativeRenderer.renderText(text);
+
+        assertThat(narrative.getStatus()).isEqualTo(GENERATED);
+        assertThat(narrative.getDiv().allText()).isEqualTo(text.xmlText()).isEqualTo(SECTION_TEXT);
+    }
+
+    @Test
+    public void shouldRenderDivContent() throws XmlException {
+        Narrative narrative = narrativeRenderer.renderDiv(parseText("<section><text><p>one</p></text></section>"));
+
+        assertThat(narrative.getDivAsString()).isEqualTo("<div xmlns=\"http://www.w3.org/1999/xhtml\"><p>one</p></div>");
+    }
+
+    @Test
+    public void shouldRenderTextOncePerReport() throws XmlException {
+        XmlObject text = parseText(SECTION);
+
+        try (ReportMappingContext context = ReportMappingContext.open()) {
+            String first = narrativeRenderer.renderText(text).getDiv().getChildNodes().get(0).getContent();
+            String second = narrativeRenderer.renderText(text).getDiv().getChildNodes().get(0).getContent();
+
+            assertThat(second).isSameAs(first);
+        }
+        assertThat(narrativeRenderer.renderText(text).getDiv().allText()).isEqualTo(SECTION_TEXT);
+    }
+
+    @Test
+    public void shouldOmitTextLongerThanMaxLength() throws XmlException {
+        properties.setMaxLength(SECTION_TEXT.length() - 1);
+
+        Narrative narrative = narrativeRenderer.renderText(parseText(SECTION));
+
+        assertThat(narrative.getDiv().allText()).isEqualTo("Text omitted: longer than " + (SECTION_TEXT.length() - 1) + " characters");
+        assertThat(narrativeRenderer.renderDiv("<p>" + SECTION_TEXT + "</p>").getDivAsString())
+            .contains("Text omitted");
+    }
+
+    private static XmlObject parseText(String section) throws XmlException {
+        XmlCursor cursor = XmlObject.Factory.parse(section).newCursor();
+        try {
+            cursor.toFirstChild();
+            cursor.toFirstChild();
+            return cursor.getObject();
+        } finally {
+            cursor.dispose();
+        }
+    }
+}
@@ -1,14 +1,15 @@
 package uk.nhs.adaptors.oneoneone.cda.report.util;
 
+import org.apache.xmlbeans.XmlCursor;
+import org.apache.xmlbeans.XmlException;
 import org.apache.xmlbeans.XmlObject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.w3c.dom.Node;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.junit.Assert.assertTrue;
 
 public class NodeUtilTest {
 
@@ -21,40 +22,56 @@ public class NodeUtilTest {
 
     @Test
     public void shouldGetNodeStringNullNode() {
-        var xmlObject = mock(XmlObject.class);
-
-        assertNull(nodeUtil.getNodeValueString(xmlObject));
+        assertNull(nodeUtil.getNodeValueString(null));
     }
 
     @Test
-    public void shouldGetNodeStringNullChild() {
-        var xmlObject = mock(XmlObject.class);
-        var innerNode = mock(Node.class);
-        when(xmlObject.getDomNode()).thenReturn(innerNode);
+    public void shouldGetNodeStringNullChild() throws XmlException {
+        var xmlObject = parse("<name/>");
 
         assertNull(nodeUtil.getNodeValueString(xmlObject));
     }
 
     @Test
-    public void shouldGetNodeStringNullValue() {
-        var xmlObject = mock(XmlObject.class);
-        var innerNode = mock(Node.class);
-        when(xmlObject.getDomNode()).thenReturn(innerNode);
-        var childNode = mock(Node.class);
-        when(innerNode.getFirstChild()).thenReturn(childNode);
+    public void shouldGetNodeStringNullValue() throws XmlException {
+        var xmlObject = parse("<name><family>Smith</family></name>");
 
         assertNull(nodeUtil.getNodeValueString(xmlObject));
     }
 
     @Test
-    public void shouldGetNodeStringHappyPath() {
-        var xmlObject = mock(XmlObject.class);
-        var innerNode = mock(Node.class);
-        when(xmlObject.getDomNode()).thenReturn(innerNode);
-        var childNode = mock(Node.class);
-        when(innerNode.getFirstChild()).thenReturn(childNode);
-        when(childNode.getNodeValue()).thenReturn("happy path");
+    public void shouldGetNodeStringHappyPath() throws XmlException {
+        var xmlObject = parse("<name>happy path<family>Smith</family></name>");
 
         assertEquals(nodeUtil.getNodeValueString(xmlObject), "happy path");
     }
+
+    @Test
+    public void shouldNotHaveSubNodesForTextOnly() throws XmlException {
+        assertFalse(nodeUtil.hasSubNodes(parse("<name>John Smith</name>")));
+    }
+
+    @Test
+    public void shouldHaveSubNodes() throws XmlException {
+        assertTrue(nodeUtil.hasSubNodes(parse("<name/>")));
+        assertTrue(nodeUtil.hasSubNodes(parse("<name><family>Smith</family></name>")));
+        assertTrue(nodeUtil.hasSubNodes(parse("<name>John <family>Smith</family></name>")));
+    }
+
+    @Test
+    public void shouldGetAllText() throws XmlException {
+        var xmlObject = parse("<title>Patient's <content>Reported</content>Condition<!-- comment --><br/></title>");
+
+        assertEquals(nodeUtil.getAllText(xmlObject), "Patient's  Reported Condition  ");
+    }
+
+    private static XmlObject parse(String xml) throws XmlException {
+        XmlCursor cursor = XmlObject.Factory.parse(xml).newCursor();
+        try {
+            cursor.toFirstChild();
+            return cursor.getObject();
+        } finally {
+            cursor.dispose();
+        }
+    }
 }
@@ -1,8 +1,12 @@
 package uk.nhs.adaptors.oneoneone.cda.report.util;
 
+import static java.util.stream.Collectors.toList;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.when;
 
 import java.io.BufferedReader;
@@ -16,8 +20,11 @@ import java.nio.file.Paths;
 import java.util.List;
 
 import org.apache.xmlbeans.XmlException;
+import org.apache.xmlbeans.XmlObject;
+import org.hl7.fhir.dstu3.model.Identifier;
 import org.hl7.fhir.dstu3.model.QuestionnaireResponse;
 import org.hl7.fhir.dstu3.model.Reference;
+import org.nhspathways.webservices.pathways.pathwayscase.PathwaysCaseDocument.PathwaysCase.PathwayDetails.PathwayTriageDetails.PathwayTriage.TriageLineDetails.TriageLine;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -26,11 +33,14 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import uk.nhs.adaptors.oneoneone.cda.report.mapper.QuestionnaireResponseMapper;
+import uk.nhs.adaptors.oneoneone.config.TriageProperties;
 import uk.nhs.connect.iucds.cda.ucr.ClinicalDocumentDocument1;
 import uk.nhs.connect.iucds.cda.ucr.POCDMT000002UK01ClinicalDocument1;
 
 @ExtendWith(MockitoExtension.class)
 public class PathwayUtilTest {
+    private static final int PARALLELISM = 4;
+
     @InjectMocks
     private PathwayUtil pathwayUtil;
     private String pathwaysEncoded;
@@ -55,7 +65,7 @@ public class PathwayUtilTest {
         pathwaysEncoded = in.readLine();
         in.close();
 
-        pathwayUtil = new PathwayUtil(nodeUtil, questionnaireResponseMapper);
+        pathwayUtil = new PathwayUtil(nodeUtil, questionnaireResponseMapper, new TriageProperties());
 
         URL resource = getClass().getResource("/xml/example-clinical-doc.xml");
         clinicalDocument = ClinicalDocumentDocument1.Factory.parse(resource).getClinicalDocument();
@@ -74,4 +84,39 @@ public class PathwayUtilTest {
     public void shouldReturnNullWhenEmptyClinicalDocumentSent() throws XmlException {
         assertNull(pathwayUtil.getQuestionnaireResponses(clinicalDocumentMock, patient, encounter));
     }
+
+    @Test
+    public void shouldKeepTriageLineOrderWhenMappedInParallel() throws XmlException {
+        when(nodeUtil.getNodeValueString(any())).thenReturn(pathwaysEncoded);
+        when(questionnaireResponseMapper.mapQuestionnaireResponse(any(), any(), any(), any())).thenAnswer(invocation ->
+            new QuestionnaireResponse().setIdentifier(new Identifier().setValue(((XmlObject) invocation.getArgument(3)).xmlText())));
+        TriageProperties parallelProperties = new TriageProperties();
+        parallelProperties.setParallelThreshold(1);
+        parallelProperties.setParallelism(PARALLELISM);
+        PathwayUtil parallelPathwayUtil = new PathwayUtil(nodeUtil, questionnaireResponseMapper, parallelProperties);
+
+        List<QuestionnaireResponse> sequential = pathwayUtil.getQuestionnaireResponses(clinicalDocument, patient, encounter);
+        List<QuestionnaireResponse> parallel = parallelPathwayUtil.getQuestionnaireResponses(clinicalDocument, patient, encounter);
+        parallelPathwayUtil.shutdown();
+
+        assertThat(parallel.stream().map(it -> it.getIdentifier().getValue()).collect(toList()))
+            .containsExactlyElementsOf(sequential.stream().map(it -> it.getIdentifier().getValue()).collect(toList()));
+    }
+
+    @Test
+    public void shouldMapCaseToOneQuestionnaireResponseWhenAggregated() throws XmlException {
+        when(nodeUtil.getNodeValueString(any())).thenReturn(pathwaysEncoded);
+        QuestionnaireResponse questionnaireResponse = new QuestionnaireResponse();
+        when(questionnaireResponseMapper.mapQuestionnaireResponse(any(), same(patient), same(encounter), any(TriageLine[].class)))
+            .thenReturn(questionnaireResponse);
+        TriageProperties aggregatedProperties = new TriageProperties();
+        aggregatedProperties.setAggregated(true);
+        PathwayUtil aggregatedPathwayUtil = new PathwayUtil(nodeUtil, questionnaireResponseMapper, aggregatedProperties);
+
+        List<QuestionnaireResponse> questionnaireResponseList = aggregatedPathwayUtil.getQuestionnaireResponses(clinicalDocument,
+            patient, encounter);
+        aggregatedPathwayUtil.shutdown();
+
+        assertThat(questionnaireResponseList).containsExactly(questionnaireResponse);
+    }
 }